@@ -26,27 +26,44 @@ import net.jcip.annotations.ThreadSafe;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import dk.dma.ais.bus.status.AisBusComponentStatus;
 import dk.dma.ais.bus.status.AisBusComponentStatus.State;
+import dk.dma.ais.filter.RawPayload;
 import dk.dma.ais.packet.AisPacket;
-import dk.dma.ais.queue.BlockingMessageQueue;
+import dk.dma.ais.packet.AisPacketTagging;
 import dk.dma.ais.queue.IMessageQueue;
-import dk.dma.ais.queue.MessageQueueOverflowException;
+import dk.dma.ais.queue.MessageQueueType;
+import dk.dma.ais.queue.RingBufferMessageQueue.WaitStrategy;
 
 /**
  * Bus for exchanging AIS packets
  * 
+ * The bus can be partitioned into a number of lanes, each with its own queue and distributor thread. Packets are
+ * routed to a lane by MMSI or source id, so packets from the same vessel or source are delivered to the consumers in
+ * the order they were pushed. Optionally the packets are decoded by a pool of threads before they are distributed, so
+ * consumers share the decoded messages.
+ * 
  * Thread safety by delegation
  */
 @ThreadSafe
 public class AisBus extends AisBusComponent implements Runnable {
 
+    /**
+     * How packets are routed to lanes
+     */
+    public enum LaneRouting {
+        /** By the MMSI of the VDM, packets without a valid VDM go to the first lane */
+        MMSI,
+        /** By the source id in the tagging, packets without a source id go to the first lane */
+        SOURCE_ID
+    }
+
     private static final Logger LOG = LoggerFactory.getLogger(AisBus.class);
-    private final OverflowLogger overflowLogger = new OverflowLogger(LOG);
 
     /**
-     * Queue to represent the bus
+     * Lanes of the bus. The first lane is distributed by the bus thread.
      */
-    private IMessageQueue<AisBusElement> busQueue;
+    private volatile Lane[] lanes;
 
     /**
      * Collection of consumer threads
@@ -60,6 +77,14 @@ public class AisBus extends AisBusComponent implements Runnable {
 
     private volatile int busPullMaxElements = 1000;
     private volatile int busQueueSize = 10000;
+    private volatile MessageQueueType busQueueType = MessageQueueType.BLOCKING;
+    private volatile WaitStrategy busQueueWaitStrategy = WaitStrategy.PARK;
+    private volatile int busLanes = 1;
+    private volatile LaneRouting busLaneRouting = LaneRouting.MMSI;
+    private volatile OverflowPolicy busOverflowPolicy = OverflowPolicy.DROP_NEWEST;
+    private volatile long busOverflowTimeout;
+    private volatile int busDecodeThreads;
+    private volatile PacketDecoder decoder;
 
     public AisBus() {
 
@@ -71,7 +96,14 @@ public class AisBus extends AisBusComponent implements Runnable {
     @Override
     public synchronized void init() {
         // Create the bus
-        busQueue = new BlockingMessageQueue<>(busQueueSize);
+        Lane[] lanes = new Lane[busLanes];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new Lane(busQueueType.<AisBusElement> create(busQueueSize, busQueueWaitStrategy));
+        }
+        this.lanes = lanes;
+        if (busDecodeThreads > 0) {
+            decoder = new PacketDecoder("AisBus", busDecodeThreads);
+        }
         super.init();
     }
 
@@ -81,6 +113,10 @@ public class AisBus extends AisBusComponent implements Runnable {
      * @return thread
      */
     public synchronized void start() {
+        // Start threads of additional lanes
+        for (int i = 1; i < lanes.length; i++) {
+            lanes[i].start("AisBus lane " + i);
+        }
         // Start thread
         Thread thread = new Thread(this);
         setThread(thread);
@@ -150,15 +186,78 @@ public class AisBus extends AisBusComponent implements Runnable {
             return true;
         }
 
-        // Push to the bus
-        try {
-            busQueue.push(new AisBusElement(packet));
-        } catch (MessageQueueOverflowException e) {
-            overflowLogger.log("AisBus overflow [rate=" + avgOverflowRate() + " packet/sec]");
+        // Push to the lane of the packet
+        Lane lane = lanes.length == 1 ? lanes[0] : lanes[laneIndex(packet)];
+        if (!lane.pusher.push(new AisBusElement(packet))) {
             return false;
         }
+        lane.status.receive();
         return true;
     }
+
+    /**
+     * Push a batch of packets onto the bus. The packets of each lane are pushed in one operation.
+     * 
+     * @param packets
+     * @return the number of packets that could not be pushed because the bus is overflowing
+     */
+    public int pushAll(List<AisPacket> packets) {
+        if (isPaced()) {
+            int overflow = 0;
+            for (AisPacket packet : packets) {
+                if (!push(packet)) {
+                    overflow++;
+                }
+            }
+            return overflow;
+        }
+        // Do filtering, transformation and filtering (the client thread)
+        List<AisPacket> accepted = handleReceived(packets, new ArrayList<AisPacket>(packets.size()));
+        Lane[] lanes = this.lanes;
+        if (lanes.length == 1) {
+            return lanes[0].pushAll(accepted);
+        }
+        List<List<AisPacket>> perLane = new ArrayList<>(lanes.length);
+        for (int i = 0; i < lanes.length; i++) {
+            perLane.add(new ArrayList<AisPacket>());
+        }
+        for (AisPacket packet : accepted) {
+            perLane.get(laneIndex(packet)).add(packet);
+        }
+        int overflow = 0;
+        for (int i = 0; i < lanes.length; i++) {
+            if (!perLane.get(i).isEmpty()) {
+                overflow += lanes[i].pushAll(perLane.get(i));
+            }
+        }
+        return overflow;
+    }
+
+    /**
+     * Get the lane index of a packet
+     * 
+     * @param packet
+     * @return
+     */
+    private int laneIndex(AisPacket packet) {
+        int key;
+        if (busLaneRouting == LaneRouting.SOURCE_ID) {
+            String sourceId = AisPacketTagging.parse(packet).getSourceId();
+            if (sourceId == null) {
+                return 0;
+            }
+            key = sourceId.hashCode();
+        } else {
+            RawPayload payload = RawPayload.from(packet);
+            if (payload == null) {
+                return 0;
+            }
+            key = payload.getUserId();
+        }
+        // Spread the bits as MMSI's are not uniform in the low digits
+        key *= 0x9E3779B9;
+        return ((key ^ key >>> 16) & Integer.MAX_VALUE) % lanes.length;
+    }
     
     /**
      * Get the average overflow rate experienced by all providers
@@ -220,6 +319,7 @@ public class AisBus extends AisBusComponent implements Runnable {
      * @param provider
      */
     public void registerProvider(AisBusProvider provider) {
+        checkOverflowPolicy(provider, busOverflowPolicy);
         // Tie aisbus to provider
         provider.setAisBus(this);
         // Add to set of providers
@@ -231,24 +331,14 @@ public class AisBus extends AisBusComponent implements Runnable {
      */
     @Override
     public void run() {
-        List<AisBusElement> elements = new ArrayList<>();
-        while (true) {
-            elements.clear();
-            // Consume from bus queue
-            try {
-                busQueue.pull(elements, busPullMaxElements);
-            } catch (InterruptedException e) {
-                break;
-            }
-            // Iterate through consumers
-            for (AisBusConsumer consumer : consumers) {
-                // Distribute elements
-                for (AisBusElement element : elements) {
-                    consumer.push(element);
-                }
-            }
-        }
+        lanes[0].run();
 
+        for (int i = 1; i < lanes.length; i++) {
+            lanes[i].cancel();
+        }
+        if (decoder != null) {
+            decoder.shutdown();
+        }
         stopProviders();
         stopConsumers();
 
@@ -265,6 +355,106 @@ public class AisBus extends AisBusComponent implements Runnable {
         this.busQueueSize = busQueueSize;
     }
 
+    public void setBusQueueType(MessageQueueType busQueueType) {
+        this.busQueueType = busQueueType;
+    }
+
+    public void setBusQueueWaitStrategy(WaitStrategy busQueueWaitStrategy) {
+        this.busQueueWaitStrategy = busQueueWaitStrategy;
+    }
+
+    /**
+     * Set the number of lanes. Must be called before init().
+     * 
+     * @param busLanes
+     */
+    public void setBusLanes(int busLanes) {
+        if (busLanes < 1) {
+            throw new IllegalArgumentException("Number of lanes must be positive: " + busLanes);
+        }
+        this.busLanes = busLanes;
+    }
+
+    /**
+     * Set the policy when a lane is full. SPILL is only supported by consumers.
+     * 
+     * @param busOverflowPolicy
+     */
+    public void setBusOverflowPolicy(OverflowPolicy busOverflowPolicy) {
+        if (busOverflowPolicy == OverflowPolicy.SPILL) {
+            throw new IllegalArgumentException("Overflow policy SPILL is only supported by consumers");
+        }
+        for (AisBusProvider provider : providers) {
+            checkOverflowPolicy(provider, busOverflowPolicy);
+        }
+        this.busOverflowPolicy = busOverflowPolicy;
+    }
+
+    /**
+     * Reject the policy BLOCK for providers pushing from threads that must not block
+     * 
+     * @param provider
+     * @param policy
+     */
+    private static void checkOverflowPolicy(AisBusProvider provider, OverflowPolicy policy) {
+        if (policy == OverflowPolicy.BLOCK && !provider.isBlockingAllowed()) {
+            throw new IllegalArgumentException("Overflow policy BLOCK would stall the threads of provider "
+                    + provider.getName());
+        }
+    }
+
+    /**
+     * Set maximum time in milliseconds to block providers when the overflow policy is BLOCK, 0 for no limit
+     * 
+     * @param busOverflowTimeout
+     */
+    public void setBusOverflowTimeout(long busOverflowTimeout) {
+        this.busOverflowTimeout = busOverflowTimeout;
+    }
+
+    /**
+     * Set the number of threads decoding the packets of each pulled batch before it is distributed to the consumers,
+     * 0 to leave decoding to the consumers. Must be called before init().
+     * 
+     * @param busDecodeThreads
+     */
+    public void setBusDecodeThreads(int busDecodeThreads) {
+        if (busDecodeThreads < 0) {
+            throw new IllegalArgumentException("Number of decode threads must not be negative: " + busDecodeThreads);
+        }
+        this.busDecodeThreads = busDecodeThreads;
+    }
+
+    public int getBusDecodeThreads() {
+        return busDecodeThreads;
+    }
+
+    public void setBusLaneRouting(LaneRouting busLaneRouting) {
+        this.busLaneRouting = busLaneRouting;
+    }
+
+    public int getBusLanes() {
+        return busLanes;
+    }
+
+    public LaneRouting getBusLaneRouting() {
+        return busLaneRouting;
+    }
+
+    /**
+     * Get the status of each lane. Packets pushed onto a lane are counted as received, and the handling of packets
+     * when the lane is full according to the overflow policy.
+     * 
+     * @return
+     */
+    public List<AisBusComponentStatus> getLaneStatus() {
+        List<AisBusComponentStatus> list = new ArrayList<>(lanes.length);
+        for (Lane lane : lanes) {
+            list.add(lane.status);
+        }
+        return list;
+    }
+
     public Set<AisBusConsumer> getConsumers() {
         return Collections.unmodifiableSet(consumers);
     }
@@ -273,4 +463,79 @@ public class AisBus extends AisBusComponent implements Runnable {
         return Collections.unmodifiableSet(providers);
     }
 
+    /**
+     * Lane of the bus with its own queue. Elements are distributed to all consumers by a single thread to keep the
+     * order of the lane.
+     */
+    private final class Lane implements Runnable {
+
+        private final IMessageQueue<AisBusElement> queue;
+        private final AisBusComponentStatus status = new AisBusComponentStatus();
+        private final QueuePusher pusher;
+        private volatile Thread thread;
+
+        Lane(IMessageQueue<AisBusElement> queue) {
+            this.queue = queue;
+            this.pusher = new QueuePusher("AisBus", queue, busOverflowPolicy, busOverflowTimeout, null, status, LOG);
+        }
+
+        /**
+         * Push packets onto the lane
+         * 
+         * @param packets
+         * @return the number of packets not pushed
+         */
+        int pushAll(List<AisPacket> packets) {
+            List<AisBusElement> elements = new ArrayList<>(packets.size());
+            for (AisPacket packet : packets) {
+                elements.add(new AisBusElement(packet));
+            }
+            int pushed = pusher.pushAll(elements);
+            if (pushed > 0) {
+                status.receive(pushed);
+            }
+            return packets.size() - pushed;
+        }
+
+        void start(String name) {
+            thread = new Thread(this, name);
+            thread.start();
+        }
+
+        void cancel() {
+            thread.interrupt();
+            try {
+                thread.join(THREAD_STOP_WAIT_MAX);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void run() {
+            List<AisBusElement> elements = new ArrayList<>();
+            while (true) {
+                elements.clear();
+                // Consume from lane queue
+                try {
+                    queue.pull(elements, busPullMaxElements);
+                    // Decode before distributing
+                    PacketDecoder decoder = AisBus.this.decoder;
+                    if (decoder != null) {
+                        decoder.decode(elements);
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                // Iterate through consumers
+                for (AisBusConsumer consumer : consumers) {
+                    // Distribute elements
+                    for (AisBusElement element : elements) {
+                        consumer.push(element);
+                    }
+                }
+            }
+        }
+    }
+
 }
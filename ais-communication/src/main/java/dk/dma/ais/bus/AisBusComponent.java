@@ -15,6 +15,7 @@
  */
 package dk.dma.ais.bus;
 
+import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 import net.jcip.annotations.GuardedBy;
@@ -23,6 +24,7 @@ import dk.dma.ais.bus.status.AisBusComponentStatus;
 import dk.dma.ais.filter.PacketFilterCollection;
 import dk.dma.ais.packet.AisPacket;
 import dk.dma.ais.transform.IAisPacketTransformer;
+import dk.dma.ais.transform.ReplayTransformer;
 
 /**
  * Base class for all AisBus components receiving and handing of AIS packets. All components are able to filter, transform and tag
@@ -126,11 +128,26 @@ public abstract class AisBusComponent {
      */
     protected AisPacket handleReceived(AisPacket packet) {
         status.receive();
-        
+
+        packet = filterAndTransform(packet);
+
+        // Update statistics
+        if (packet == null) {
+            status.filtered();
+        }
+
+        return packet;
+    }
+
+    /**
+     * Filter and transform packet without updating statistics
+     * 
+     * @param packet
+     * @return the transformed packet or null if rejected by filter or transformer
+     */
+    protected AisPacket filterAndTransform(AisPacket packet) {
         // Filter message
         if (filters.rejectedByFilter(packet)) {
-            // Update statistics
-            status.filtered();
             return null;
         }
 
@@ -138,13 +155,49 @@ public abstract class AisBusComponent {
         for (IAisPacketTransformer transformer : packetTransformers) {
             packet = transformer.transform(packet);
         }
+        return packet;
+    }
 
+    /**
+     * Method to handle a batch of incoming packets. Does the same as {@link #handleReceived(AisPacket)} for each packet,
+     * but updates statistics once for the batch.
+     * 
+     * @param packets
+     * @param accepted
+     *            list to add the packets passing filters and transformers to
+     * @return accepted
+     */
+    protected List<AisPacket> handleReceived(List<AisPacket> packets, List<AisPacket> accepted) {
+        status.receive(packets.size());
+        int filtered = 0;
+        for (AisPacket packet : packets) {
+            packet = filterAndTransform(packet);
+            if (packet == null) {
+                filtered++;
+            } else {
+                accepted.add(packet);
+            }
+        }
         // Update statistics
-        if (packet == null) {
-            status.filtered();
+        if (filtered > 0) {
+            status.filtered(filtered);
         }
+        return accepted;
+    }
 
-        return packet;
+    /**
+     * Check if a transformer paces packets in time, in which case packets must be passed on one at a time and not in
+     * batches
+     * 
+     * @return
+     */
+    protected boolean isPaced() {
+        for (IAisPacketTransformer transformer : packetTransformers) {
+            if (transformer instanceof ReplayTransformer) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -15,23 +15,27 @@
  */
 package dk.dma.ais.bus;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import net.jcip.annotations.GuardedBy;
 import net.jcip.annotations.ThreadSafe;
 import dk.dma.ais.packet.AisPacket;
-import dk.dma.ais.queue.BlockingMessageQueue;
 import dk.dma.ais.queue.IMessageQueue;
-import dk.dma.ais.queue.IQueueEntryHandler;
-import dk.dma.ais.queue.MessageQueueOverflowException;
+import dk.dma.ais.queue.IQueueBatchHandler;
 import dk.dma.ais.queue.MessageQueueReader;
+import dk.dma.ais.queue.MessageQueueType;
+import dk.dma.ais.queue.RingBufferMessageQueue.WaitStrategy;
 
 @ThreadSafe
-public abstract class AisBusConsumer extends AisBusSocket implements IQueueEntryHandler<AisBusElement> {
+public abstract class AisBusConsumer extends AisBusSocket implements IQueueBatchHandler<AisBusElement> {
 
     private final Logger LOG = LoggerFactory.getLogger(getClass());
-    private final OverflowLogger overflowLogger = new OverflowLogger(LOG);
 
     @GuardedBy("this")
     private MessageQueueReader<AisBusElement> consumerThread;
@@ -39,6 +43,29 @@ public abstract class AisBusConsumer extends AisBusSocket implements IQueueEntry
     private int consumerQueueSize = 10000;
     @GuardedBy("this")
     private int consumerPullMaxElements = 1000;
+    @GuardedBy("this")
+    private MessageQueueType consumerQueueType = MessageQueueType.BLOCKING;
+    @GuardedBy("this")
+    private WaitStrategy consumerQueueWaitStrategy = WaitStrategy.PARK;
+
+    @GuardedBy("this")
+    private OverflowPolicy consumerOverflowPolicy = OverflowPolicy.DROP_NEWEST;
+    @GuardedBy("this")
+    private long consumerOverflowTimeout;
+
+    @GuardedBy("this")
+    private String spillDirectory;
+    @GuardedBy("this")
+    private long spillSegmentSize = 16 * 1024 * 1024;
+    @GuardedBy("this")
+    private long spillMaxSize = 1024L * 1024 * 1024;
+    @GuardedBy("this")
+    private long spillMaxAge;
+
+    /**
+     * Pushes onto the consumer queue applying the overflow policy
+     */
+    private volatile QueuePusher pusher;
 
     public AisBusConsumer() {
         super();
@@ -57,26 +84,64 @@ public abstract class AisBusConsumer extends AisBusSocket implements IQueueEntry
         queueElement.setPacket(packet);
         receiveFiltered(queueElement);
     }
+
+    /**
+     * Receive the elements of a pull from the queue
+     */
+    @Override
+    public final void receiveAll(List<AisBusElement> queueElements) {
+        // Do filtering, transformation and filtering
+        status.receive(queueElements.size());
+        List<AisBusElement> accepted = new ArrayList<>(queueElements.size());
+        for (AisBusElement queueElement : queueElements) {
+            AisPacket packet = filterAndTransform(queueElement.getPacket());
+            if (packet != null) {
+                queueElement.setPacket(packet);
+                accepted.add(queueElement);
+            }
+        }
+        if (accepted.size() < queueElements.size()) {
+            status.filtered(queueElements.size() - accepted.size());
+        }
+        if (!accepted.isEmpty()) {
+            receiveFiltered(accepted);
+        }
+    }
     
     /**
      * Push elements onto the queue
      * @param element
      */
     public final void push(AisBusElement element) {
-        try {
-            consumerThread.getQueue().push(element);
-        } catch (MessageQueueOverflowException e) {
-            status.overflow();
-            overflowLogger.log("Consumer overflow [rate=" + status.getOverflowRate() + " packet/sec]");
-        }
+        pusher.push(element);
+    }
+
+    /**
+     * Is spilling to disk enabled
+     * 
+     * @return
+     */
+    protected final boolean isSpilling() {
+        return pusher.getPolicy() == OverflowPolicy.SPILL;
     }
     
     @Override
     public synchronized void init() {
         // Create consumer queue
-        IMessageQueue<AisBusElement> consumerQueue = new BlockingMessageQueue<>(consumerQueueSize);
+        IMessageQueue<AisBusElement> consumerQueue = consumerQueueType.create(consumerQueueSize,
+                consumerQueueWaitStrategy);
         // Make consumer thread
         consumerThread = new MessageQueueReader<>(this, consumerQueue, consumerPullMaxElements);
+        SpillQueue spill = null;
+        if (consumerOverflowPolicy == OverflowPolicy.SPILL && spillDirectory != null) {
+            try {
+                spill = new SpillQueue(Paths.get(spillDirectory), spillSegmentSize, spillMaxSize, spillMaxAge * 1000);
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not open spill directory " + spillDirectory, e);
+            }
+        }
+        pusher = new QueuePusher("Consumer", consumerQueue, consumerOverflowPolicy, consumerOverflowTimeout, spill,
+                status, LOG);
         super.init();
     }
 
@@ -84,6 +149,7 @@ public abstract class AisBusConsumer extends AisBusSocket implements IQueueEntry
     public synchronized void start() {        
         // Start consumerThread
         consumerThread.start();
+        pusher.start();
         super.start();
     }
     
@@ -95,6 +161,7 @@ public abstract class AisBusConsumer extends AisBusSocket implements IQueueEntry
             consumerThread.join(5000);
         } catch (InterruptedException e) {
         }
+        pusher.cancel();
     }
 
     /**
@@ -103,6 +170,18 @@ public abstract class AisBusConsumer extends AisBusSocket implements IQueueEntry
      */
     public abstract void receiveFiltered(AisBusElement queueElement);
 
+    /**
+     * Get a batch of filtered packets. Hands each element to {@link #receiveFiltered(AisBusElement)}, consumers able
+     * to handle the batch at once override this.
+     * 
+     * @param queueElements
+     */
+    public void receiveFiltered(List<AisBusElement> queueElements) {
+        for (AisBusElement queueElement : queueElements) {
+            receiveFiltered(queueElement);
+        }
+    }
+
     public synchronized void setConsumerQueueSize(int consumerQueueSize) {
         this.consumerQueueSize = consumerQueueSize;
     }
@@ -111,4 +190,51 @@ public abstract class AisBusConsumer extends AisBusSocket implements IQueueEntry
         this.consumerPullMaxElements = consumerPullMaxElements;
     }
 
+    public synchronized void setConsumerQueueType(MessageQueueType consumerQueueType) {
+        this.consumerQueueType = consumerQueueType;
+    }
+
+    public synchronized void setConsumerQueueWaitStrategy(WaitStrategy consumerQueueWaitStrategy) {
+        this.consumerQueueWaitStrategy = consumerQueueWaitStrategy;
+    }
+
+    public synchronized void setConsumerOverflowPolicy(OverflowPolicy consumerOverflowPolicy) {
+        this.consumerOverflowPolicy = consumerOverflowPolicy;
+    }
+
+    /**
+     * Set maximum time in milliseconds to block when the overflow policy is BLOCK, 0 for no limit
+     * 
+     * @param consumerOverflowTimeout
+     */
+    public synchronized void setConsumerOverflowTimeout(long consumerOverflowTimeout) {
+        this.consumerOverflowTimeout = consumerOverflowTimeout;
+    }
+
+    /**
+     * Set directory to spill packets to when the overflow policy is SPILL
+     * 
+     * @param spillDirectory
+     */
+    public synchronized void setSpillDirectory(String spillDirectory) {
+        this.spillDirectory = spillDirectory;
+    }
+
+    public synchronized void setSpillSegmentSize(long spillSegmentSize) {
+        this.spillSegmentSize = spillSegmentSize;
+    }
+
+    public synchronized void setSpillMaxSize(long spillMaxSize) {
+        this.spillMaxSize = spillMaxSize;
+    }
+
+    /**
+     * Set maximum age in seconds of spilled packets, 0 for no limit
+     * 
+     * @param spillMaxAge
+     */
+    public synchronized void setSpillMaxAge(long spillMaxAge) {
+        this.spillMaxAge = spillMaxAge;
+    }
+
 }
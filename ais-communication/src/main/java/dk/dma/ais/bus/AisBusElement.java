@@ -15,6 +15,9 @@
  */
 package dk.dma.ais.bus;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import dk.dma.ais.packet.AisPacket;
 
 /**
@@ -42,4 +45,18 @@ public final class AisBusElement {
         return timestamp;
     }
 
+    /**
+     * Get the messages of the packets of elements
+     * 
+     * @param elements
+     * @return
+     */
+    public static List<String> messages(List<AisBusElement> elements) {
+        List<String> msgs = new ArrayList<>(elements.size());
+        for (AisBusElement element : elements) {
+            msgs.add(element.getPacket().getStringMessage());
+        }
+        return msgs;
+    }
+
 }
@@ -15,6 +15,9 @@
  */
 package dk.dma.ais.bus;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import net.jcip.annotations.ThreadSafe;
 import dk.dma.ais.packet.AisPacket;
 
@@ -35,6 +38,16 @@ public abstract class AisBusProvider extends AisBusSocket {
         super.start();
     }
         
+    /**
+     * Check if the threads pushing packets may block. Providers pushing from threads shared by many connections
+     * return false, and the bus rejects the overflow policy BLOCK for them.
+     * 
+     * @return
+     */
+    protected boolean isBlockingAllowed() {
+        return true;
+    }
+
     /**
      * Helper method to push to bus
      * @param packet
@@ -53,4 +66,29 @@ public abstract class AisBusProvider extends AisBusSocket {
         
     }
 
+    /**
+     * Helper method to push a batch of packets to the bus
+     * 
+     * @param packets
+     */
+    protected void pushAll(List<AisPacket> packets) {
+        if (isPaced()) {
+            for (AisPacket packet : packets) {
+                push(packet);
+            }
+            return;
+        }
+        // Do filtering, transformation and filtering
+        List<AisPacket> accepted = handleReceived(packets, new ArrayList<AisPacket>(packets.size()));
+        if (accepted.isEmpty()) {
+            return;
+        }
+
+        // Push to the bus
+        int overflow = getAisBus().pushAll(accepted);
+        if (overflow > 0) {
+            status.overflow(overflow);
+        }
+    }
+
 }
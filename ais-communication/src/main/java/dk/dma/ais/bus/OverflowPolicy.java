@@ -0,0 +1,35 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.ais.bus;
+
+/**
+ * What to do when pushing onto a full bus or consumer queue
+ */
+public enum OverflowPolicy {
+    /** Drop the pushed packet */
+    DROP_NEWEST,
+    /** Drop the oldest packet on the queue to make room, requires a BLOCKING queue */
+    DROP_OLDEST,
+    /**
+     * Shed position reports first. A pushed position report is dropped, other packets replace the oldest position
+     * report on the queue. Requires a BLOCKING queue.
+     */
+    DROP_PRIORITY,
+    /** Block the pushing thread until there is room or the overflow timeout expires */
+    BLOCK,
+    /** Append to a queue on disk which is drained in order when there is room, only for consumers */
+    SPILL
+}
@@ -0,0 +1,129 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.ais.bus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Decodes the VDM and AIS message of the packets of a batch on a pool of worker threads before the batch is
+ * distributed. The batch is split into chunks decoded in parallel, and the calling thread waits for all chunks, so
+ * the order of the batch is unchanged. Each packet decodes its message once, and the message is safely published to
+ * the consumers the batch is handed to afterwards.
+ */
+@ThreadSafe
+final class PacketDecoder {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PacketDecoder.class);
+
+    /**
+     * Smallest number of packets decoded by one task
+     */
+    static final int MIN_CHUNK = 64;
+
+    private final int threads;
+    private final ExecutorService executor;
+
+    PacketDecoder(final String name, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of decode threads must be positive: " + threads);
+        }
+        this.threads = threads;
+        this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, name + " decoder " + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Decode the packets of the elements. Returns when all packets have been decoded.
+     * 
+     * @param elements
+     * @throws InterruptedException
+     */
+    void decode(List<AisBusElement> elements) throws InterruptedException {
+        int size = elements.size();
+        int chunk = Math.max(MIN_CHUNK, (size + threads - 1) / threads);
+        if (size <= chunk) {
+            decode(elements, 0, size);
+            return;
+        }
+        List<Future<Void>> futures = new ArrayList<>();
+        for (int from = chunk; from < size; from += chunk) {
+            futures.add(executor.submit(new Chunk(elements, from, Math.min(from + chunk, size))));
+        }
+        // The calling thread decodes the first chunk
+        decode(elements, 0, chunk);
+        for (Future<Void> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                LOG.error("Failed to decode packets", e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Stop the worker threads
+     */
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static void decode(List<AisBusElement> elements, int from, int to) {
+        for (int i = from; i < to; i++) {
+            elements.get(i).getPacket().tryGetAisMessage();
+        }
+    }
+
+    private static final class Chunk implements Callable<Void> {
+
+        private final List<AisBusElement> elements;
+        private final int from;
+        private final int to;
+
+        Chunk(List<AisBusElement> elements, int from, int to) {
+            this.elements = elements;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public Void call() {
+            decode(elements, from, to);
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,351 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.ais.bus;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+
+import org.slf4j.Logger;
+
+import dk.dma.ais.bus.status.AisBusComponentStatus;
+import dk.dma.ais.filter.RawPayload;
+import dk.dma.ais.packet.AisPacket;
+import dk.dma.ais.queue.BlockingMessageQueue;
+import dk.dma.ais.queue.IMessageQueue;
+import dk.dma.ais.queue.MessageQueueOverflowException;
+
+/**
+ * Pushes elements onto a bus or consumer queue applying an {@link OverflowPolicy} when the queue is full. The
+ * outcome is counted in the status of the receiving component.
+ */
+@ThreadSafe
+class QueuePusher {
+
+    /**
+     * Time to wait before reading the spill queue again after an error
+     */
+    private static final long SPILL_DRAIN_WAIT = 10;
+
+    /**
+     * Maximum packets read from the spill queue before pushing them
+     */
+    private static final int SPILL_DRAIN_BATCH = 100;
+
+    private final String name;
+    private final IMessageQueue<AisBusElement> queue;
+    private final OverflowPolicy policy;
+    private final long timeout;
+    private final AisBusComponentStatus status;
+    private final OverflowLogger overflowLogger;
+    private final Logger log;
+
+    /**
+     * Queue on disk for the SPILL policy
+     */
+    private final SpillQueue spill;
+
+    /**
+     * Held by producers pushing with the SPILL policy. The drainer only takes it to stop spilling, so it reads and
+     * pushes packets while producers append.
+     */
+    private final Object spillLock = new Object();
+
+    /**
+     * Set when packets start going to the spill queue, and cleared by the drainer when all of them have been moved
+     * to the queue. Producers push to the queue directly only when not spilling, which keeps the order of packets.
+     */
+    @GuardedBy("spillLock")
+    private boolean spilling;
+    @GuardedBy("this")
+    private Thread spillDrainer;
+
+    /**
+     * Constructor
+     * 
+     * @param name
+     *            used for logging
+     * @param queue
+     * @param policy
+     * @param timeout
+     *            maximum time in milliseconds to block when the policy is BLOCK, 0 for no limit
+     * @param spill
+     *            spill queue for the SPILL policy
+     * @param status
+     * @param log
+     */
+    QueuePusher(String name, IMessageQueue<AisBusElement> queue, OverflowPolicy policy, long timeout,
+            SpillQueue spill, AisBusComponentStatus status, Logger log) {
+        if ((policy == OverflowPolicy.DROP_OLDEST || policy == OverflowPolicy.DROP_PRIORITY)
+                && !(queue instanceof BlockingMessageQueue)) {
+            throw new IllegalArgumentException("Overflow policy " + policy + " requires a BLOCKING queue");
+        }
+        if (policy == OverflowPolicy.SPILL && spill == null) {
+            throw new IllegalArgumentException("Overflow policy SPILL requires a spill directory");
+        }
+        this.name = name;
+        this.queue = queue;
+        this.policy = policy;
+        this.timeout = timeout;
+        this.spill = spill;
+        // Segments left on disk are drained before packets are pushed directly
+        this.spilling = spill != null && !spill.isEmpty();
+        this.status = status;
+        this.log = log;
+        this.overflowLogger = new OverflowLogger(log);
+    }
+
+    /**
+     * Push element
+     * 
+     * @param element
+     * @return false if the element was not queued
+     */
+    boolean push(AisBusElement element) {
+        if (policy == OverflowPolicy.SPILL) {
+            return pushSpill(element);
+        }
+        if (policy == OverflowPolicy.DROP_PRIORITY) {
+            // Position reports are marked evictable when pushed
+            return pushPriority(element);
+        }
+        try {
+            queue.push(element);
+            return true;
+        } catch (MessageQueueOverflowException e) {
+        }
+        switch (policy) {
+        case DROP_OLDEST:
+            int dropped = ((BlockingMessageQueue<AisBusElement>) queue).pushDropOldest(element);
+            for (int i = 0; i < dropped; i++) {
+                status.droppedOldest();
+            }
+            return true;
+        case BLOCK:
+            return pushBlock(element);
+        default:
+            overflow();
+            return false;
+        }
+    }
+
+    /**
+     * Push elements. Elements that fit on the queue are pushed in one operation, and the overflow policy is applied
+     * to the rest.
+     * 
+     * @param elements
+     * @return the number of elements queued
+     */
+    int pushAll(List<AisBusElement> elements) {
+        int queued = 0;
+        if (policy == OverflowPolicy.SPILL) {
+            synchronized (spillLock) {
+                for (AisBusElement element : elements) {
+                    if (pushSpill(element)) {
+                        queued++;
+                    }
+                }
+            }
+            return queued;
+        }
+        if (policy == OverflowPolicy.DROP_PRIORITY) {
+            for (AisBusElement element : elements) {
+                if (pushPriority(element)) {
+                    queued++;
+                }
+            }
+            return queued;
+        }
+        queued = queue.pushAll(elements);
+        for (int i = queued; i < elements.size(); i++) {
+            if (push(elements.get(i))) {
+                queued++;
+            }
+        }
+        return queued;
+    }
+
+    private boolean pushPriority(AisBusElement element) {
+        boolean positionReport = isPositionReport(element.getPacket());
+        try {
+            if (((BlockingMessageQueue<AisBusElement>) queue).pushPriority(element, positionReport) != null) {
+                status.droppedPriority();
+            }
+            return true;
+        } catch (MessageQueueOverflowException e) {
+            if (positionReport) {
+                status.droppedPriority();
+            } else {
+                overflow();
+            }
+            return false;
+        }
+    }
+
+    private boolean pushBlock(AisBusElement element) {
+        status.blocked();
+        try {
+            if (queue.push(element, timeout > 0 ? timeout : Long.MAX_VALUE, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        overflow();
+        return false;
+    }
+
+    private boolean pushSpill(AisBusElement element) {
+        synchronized (spillLock) {
+            // Packets go to the spill queue until it has been drained
+            if (!spilling) {
+                try {
+                    queue.push(element);
+                    return true;
+                } catch (MessageQueueOverflowException e) {
+                }
+            }
+            try {
+                spill.append(element.getPacket());
+                status.spilled();
+                if (!spilling) {
+                    spilling = true;
+                    spillLock.notifyAll();
+                }
+                return true;
+            } catch (IOException e) {
+                status.overflow();
+                overflowLogger.log(name + " spill failed: " + e.getMessage());
+                return false;
+            }
+        }
+    }
+
+    private void overflow() {
+        status.overflow();
+        overflowLogger.log(name + " overflow [rate=" + status.getOverflowRate() + " packet/sec]");
+    }
+
+    /**
+     * Start draining the spill queue
+     */
+    synchronized void start() {
+        if (spill == null) {
+            return;
+        }
+        spillDrainer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                drainSpill();
+            }
+        });
+        spillDrainer.start();
+    }
+
+    /**
+     * Stop draining and close the spill queue
+     */
+    void cancel() {
+        Thread drainer;
+        synchronized (this) {
+            drainer = spillDrainer;
+        }
+        if (drainer == null) {
+            return;
+        }
+        drainer.interrupt();
+        try {
+            drainer.join(AisBusComponent.THREAD_STOP_WAIT_MAX);
+            spill.close();
+        } catch (InterruptedException e) {
+        } catch (IOException e) {
+            log.error("Failed to close spill queue: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Move packets from the spill queue to the queue in batches, waiting for room on the queue
+     */
+    private void drainSpill() {
+        List<AisBusElement> batch = new ArrayList<>(SPILL_DRAIN_BATCH);
+        try {
+            while (true) {
+                synchronized (spillLock) {
+                    while (!spilling) {
+                        spillLock.wait();
+                    }
+                }
+                batch.clear();
+                try {
+                    AisPacket packet;
+                    while (batch.size() < SPILL_DRAIN_BATCH && (packet = spill.poll()) != null) {
+                        batch.add(new AisBusElement(packet));
+                    }
+                } catch (IOException e) {
+                    log.error("Failed to read spill queue: " + e.getMessage());
+                    Thread.sleep(SPILL_DRAIN_WAIT);
+                }
+                if (batch.isEmpty()) {
+                    synchronized (spillLock) {
+                        // Producers can not append while the lock is held
+                        if (spill.isEmpty()) {
+                            spilling = false;
+                        }
+                    }
+                    continue;
+                }
+                for (int i = queue.pushAll(batch); i < batch.size(); i++) {
+                    queue.push(batch.get(i), Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+                }
+            }
+        } catch (InterruptedException e) {
+            // Cancelled
+        }
+    }
+
+    OverflowPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Position reports are shed first by the DROP_PRIORITY policy
+     * 
+     * @param packet
+     * @return
+     */
+    static boolean isPositionReport(AisPacket packet) {
+        RawPayload payload = RawPayload.from(packet);
+        if (payload == null) {
+            return false;
+        }
+        switch (payload.getMsgId()) {
+        case 1:
+        case 2:
+        case 3:
+        case 18:
+        case 19:
+        case 27:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+}
@@ -0,0 +1,427 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.ais.bus;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import dk.dma.ais.packet.AisPacket;
+import dk.dma.ais.packet.AisPacketMarshaller;
+
+/**
+ * Persistent first in, first out queue of packets in append-only segment files in a directory. Packets are written
+ * with buffered sequential I/O in the {@link AisPacketMarshaller} format to the newest segment, which is closed when
+ * it reaches the segment size. Packets are read from the oldest segment, which is deleted when read. When all
+ * closed segments have been read, the reader follows the newest segment up to the bytes flushed to it. Once everything
+ * written has been read, the next packet starts a new segment, so packets already read are not read again after a
+ * restart.
+ * 
+ * Segments left in the directory are read first when the queue is created again. A partly read segment is read again
+ * from the start. Retention deletes the oldest segments when the segments exceed a maximum size, or when they are
+ * older than a maximum age.
+ */
+@ThreadSafe
+public class SpillQueue implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SpillQueue.class);
+
+    private static final String PREFIX = "spill-";
+    private static final String SUFFIX = ".seg";
+
+    private final Path directory;
+    private final long segmentSize;
+    private final long maxSize;
+    private final long maxAge;
+
+    /**
+     * Closed segments, oldest first. The reader is on the first.
+     */
+    @GuardedBy("this")
+    private final ArrayDeque<Path> segments = new ArrayDeque<>();
+    /**
+     * Bytes in closed segments
+     */
+    @GuardedBy("this")
+    private long size;
+    @GuardedBy("this")
+    private long sequence;
+    /**
+     * Number of segments deleted by retention
+     */
+    @GuardedBy("this")
+    private long dropped;
+
+    @GuardedBy("this")
+    private Path writePath;
+    @GuardedBy("this")
+    private CountingOutputStream writeOut;
+    @GuardedBy("this")
+    private AisPacketMarshaller.Writer writer;
+    @GuardedBy("this")
+    private int writeCount;
+
+    @GuardedBy("this")
+    private InputStream readIn;
+    @GuardedBy("this")
+    private LimitedInputStream readLimit;
+    /**
+     * The reader is on the write segment
+     */
+    @GuardedBy("this")
+    private boolean readingActive;
+    /**
+     * Packets read from the write segment
+     */
+    @GuardedBy("this")
+    private int readCount;
+    @GuardedBy("this")
+    private AisPacketMarshaller.Reader reader;
+    @GuardedBy("this")
+    private AisPacket next;
+
+    /**
+     * Open queue in a directory
+     * 
+     * @param directory
+     * @param segmentSize
+     *            size in bytes at which a segment is closed
+     * @param maxSize
+     *            maximum bytes in closed segments, 0 for no limit
+     * @param maxAge
+     *            maximum age in milliseconds of closed segments, 0 for no limit
+     * @throws IOException
+     */
+    public SpillQueue(Path directory, long segmentSize, long maxSize, long maxAge) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.segmentSize = segmentSize;
+        this.maxSize = maxSize;
+        this.maxAge = maxAge;
+        List<Path> existing = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path path : stream) {
+                existing.add(path);
+            }
+        }
+        // Sequence numbers are zero padded
+        Collections.sort(existing);
+        for (Path path : existing) {
+            String name = path.getFileName().toString();
+            sequence = Math.max(sequence, Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length())) + 1);
+            segments.add(path);
+            size += Files.size(path);
+        }
+        if (!segments.isEmpty()) {
+            LOG.info("Resuming " + segments.size() + " spill segments in " + directory);
+        }
+    }
+
+    /**
+     * Append packet to the queue
+     * 
+     * @param packet
+     * @throws IOException
+     */
+    public synchronized void append(AisPacket packet) throws IOException {
+        if (caughtUp()) {
+            discardWriteSegment();
+        }
+        if (writer == null) {
+            writePath = directory.resolve(String.format("%s%016d%s", PREFIX, sequence++, SUFFIX));
+            writeOut = new CountingOutputStream(new BufferedOutputStream(Files.newOutputStream(writePath)));
+            writer = new AisPacketMarshaller.Writer(writeOut);
+        }
+        writer.write(packet);
+        writeCount++;
+        if (writeOut.count >= segmentSize) {
+            roll();
+        }
+    }
+
+    /**
+     * Get the oldest packet without removing it
+     * 
+     * @return the packet or null if the queue is empty
+     * @throws IOException
+     */
+    public synchronized AisPacket peek() throws IOException {
+        while (next == null) {
+            if (reader == null) {
+                if (!segments.isEmpty()) {
+                    openReader(segments.peekFirst(), Long.MAX_VALUE);
+                } else if (writeCount > 0) {
+                    // Follow the write segment up to the bytes flushed
+                    writer.flush();
+                    openReader(writePath, writeOut.count);
+                    readingActive = true;
+                } else {
+                    return null;
+                }
+            }
+            if (readingActive && readCount == writeCount) {
+                return null;
+            }
+            try {
+                next = reader.read();
+            } catch (IOException | IllegalArgumentException e) {
+                LOG.warn("Truncated spill segment " + (readingActive ? writePath : segments.peekFirst()) + ": "
+                        + e.getMessage());
+            }
+            if (next != null) {
+                if (readingActive) {
+                    readCount++;
+                }
+            } else if (!readingActive) {
+                deleteFirst();
+            } else if (readLimit.limit < writeOut.count) {
+                // Packets were appended since the last flush
+                writer.flush();
+                readLimit.limit = writeOut.count;
+            } else {
+                // Written packets could not be read, close the segment to delete it
+                roll();
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Remove the oldest packet
+     * 
+     * @return the packet or null if the queue is empty
+     * @throws IOException
+     */
+    public synchronized AisPacket poll() throws IOException {
+        AisPacket packet = peek();
+        next = null;
+        return packet;
+    }
+
+    /**
+     * Check if the queue is empty without doing any I/O
+     * 
+     * @return
+     */
+    public synchronized boolean isEmpty() {
+        return next == null && segments.isEmpty() && readCount == writeCount;
+    }
+
+    /**
+     * Get the number of bytes in the queue
+     * 
+     * @return
+     */
+    public synchronized long getSize() {
+        return size + (writeOut == null ? 0 : writeOut.count);
+    }
+
+    /**
+     * Get the number of segments deleted by retention before they were read
+     * 
+     * @return
+     */
+    public synchronized long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * Close the queue. Unread packets are kept on disk.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (caughtUp()) {
+            discardWriteSegment();
+        } else if (writer != null) {
+            roll();
+        }
+        closeReader();
+        next = null;
+    }
+
+    /**
+     * Close the write segment and apply retention
+     */
+    private void roll() throws IOException {
+        writer.flush();
+        writeOut.close();
+        segments.addLast(writePath);
+        size += writeOut.count;
+        writer = null;
+        writeOut = null;
+        writeCount = 0;
+        if (readingActive) {
+            // The reader goes on reading the segment as the oldest closed segment
+            readLimit.limit = Long.MAX_VALUE;
+            readingActive = false;
+            readCount = 0;
+        }
+
+        long oldest = maxAge > 0 ? System.currentTimeMillis() - maxAge : Long.MIN_VALUE;
+        while (!segments.isEmpty()) {
+            Path first = segments.peekFirst();
+            if ((maxSize <= 0 || size <= maxSize) && Files.getLastModifiedTime(first).toMillis() >= oldest) {
+                break;
+            }
+            LOG.warn("Spill retention deleting unread segment " + first);
+            next = null;
+            deleteFirst();
+            dropped++;
+        }
+    }
+
+    /**
+     * Check if every packet written to the write segment has been read
+     */
+    private boolean caughtUp() {
+        return writer != null && readingActive && next == null && readCount == writeCount;
+    }
+
+    /**
+     * Close and delete the write segment after it has been read
+     */
+    private void discardWriteSegment() throws IOException {
+        closeReader();
+        writeOut.close();
+        Files.delete(writePath);
+        writer = null;
+        writeOut = null;
+        writeCount = 0;
+    }
+
+    private void openReader(Path path, long limit) throws IOException {
+        readLimit = new LimitedInputStream(Files.newInputStream(path), limit);
+        readIn = new BufferedInputStream(readLimit);
+        reader = new AisPacketMarshaller.Reader(readIn);
+    }
+
+    private void deleteFirst() throws IOException {
+        closeReader();
+        Path first = segments.removeFirst();
+        size -= Files.size(first);
+        Files.delete(first);
+    }
+
+    private void closeReader() throws IOException {
+        if (readIn != null) {
+            readIn.close();
+            readIn = null;
+            readLimit = null;
+            reader = null;
+        }
+        readingActive = false;
+        readCount = 0;
+    }
+
+    /**
+     * Stream reading up to a limit that can be raised
+     */
+    private static class LimitedInputStream extends FilterInputStream {
+
+        private long limit;
+        private long position;
+
+        LimitedInputStream(InputStream in, long limit) {
+            super(in);
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (position >= limit) {
+                return -1;
+            }
+            int b = in.read();
+            if (b >= 0) {
+                position++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (position >= limit) {
+                return -1;
+            }
+            int n = in.read(b, off, (int) Math.min(len, limit - position));
+            if (n > 0) {
+                position += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = in.skip(Math.min(n, limit - position));
+            position += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(in.available(), limit - position);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+    }
+
+    /**
+     * Stream counting the bytes written
+     */
+    private static class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+    }
+
+}
@@ -15,6 +15,7 @@
  */
 package dk.dma.ais.bus.consumer;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 
@@ -32,6 +33,7 @@ import dk.dma.enav.util.function.Consumer;
 public class DistributerConsumer extends AisBusConsumer {
     
     private final List<Consumer<AisPacket>> consumers = new CopyOnWriteArrayList<>();
+    private final List<Consumer<List<AisPacket>>> batchConsumers = new CopyOnWriteArrayList<>();
     
     public DistributerConsumer() {
         
@@ -42,10 +44,42 @@ public class DistributerConsumer extends AisBusConsumer {
         for (Consumer<AisPacket> consumer : consumers) {
             consumer.accept(queueElement.getPacket());
         }
+        if (!batchConsumers.isEmpty()) {
+            List<AisPacket> packets = new ArrayList<>(1);
+            packets.add(queueElement.getPacket());
+            for (Consumer<List<AisPacket>> batchConsumer : batchConsumers) {
+                batchConsumer.accept(packets);
+            }
+        }
+    }
+
+    @Override
+    public void receiveFiltered(List<AisBusElement> queueElements) {
+        List<AisPacket> packets = new ArrayList<>(queueElements.size());
+        for (AisBusElement queueElement : queueElements) {
+            packets.add(queueElement.getPacket());
+        }
+        for (Consumer<AisPacket> consumer : consumers) {
+            for (AisPacket packet : packets) {
+                consumer.accept(packet);
+            }
+        }
+        for (Consumer<List<AisPacket>> batchConsumer : batchConsumers) {
+            batchConsumer.accept(packets);
+        }
     }
     
     public List<Consumer<AisPacket>> getConsumers() {
         return consumers;
     }
 
+    /**
+     * Get consumers receiving all the packets of a pull from the bus at once. The list is only valid during the call.
+     * 
+     * @return
+     */
+    public List<Consumer<List<AisPacket>>> getBatchConsumers() {
+        return batchConsumers;
+    }
+
 }
@@ -0,0 +1,130 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.ais.bus.consumer;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+import dk.dma.ais.bus.AisBusConsumer;
+import dk.dma.ais.bus.AisBusElement;
+import dk.dma.ais.filter.GeoFenceEvent;
+import dk.dma.ais.filter.GeoFenceIndex;
+import dk.dma.ais.filter.GeoFenceTracker;
+import dk.dma.ais.filter.RawPayload;
+import dk.dma.ais.message.AisMessage;
+import dk.dma.ais.message.IPositionMessage;
+import dk.dma.ais.packet.AisPacket;
+import dk.dma.enav.model.geometry.Position;
+import dk.dma.enav.util.function.Consumer;
+
+/**
+ * Consumer giving events when targets enter, leave or dwell in geofences. The events are handed to a set of handlers
+ * on the consumer thread.
+ * 
+ * Positions are read from the raw payload of position reports, only other position messages are decoded. Times are
+ * the best timestamp of the packets.
+ */
+@ThreadSafe
+public class GeoFenceConsumer extends AisBusConsumer {
+
+    @GuardedBy("this")
+    private final GeoFenceTracker tracker;
+
+    private final List<Consumer<GeoFenceEvent>> handlers = new CopyOnWriteArrayList<>();
+
+    private final Consumer<GeoFenceEvent> dispatcher = new Consumer<GeoFenceEvent>() {
+        @Override
+        public void accept(GeoFenceEvent event) {
+            for (Consumer<GeoFenceEvent> handler : handlers) {
+                handler.accept(event);
+            }
+        }
+    };
+
+    /**
+     * Constructor
+     * 
+     * @param index
+     *            the fences
+     * @param dwellTime
+     *            in milliseconds, 0 for no dwell events
+     * @param idleTimeout
+     *            in milliseconds, 0 for never
+     */
+    public GeoFenceConsumer(GeoFenceIndex index, long dwellTime, long idleTimeout) {
+        tracker = new GeoFenceTracker(index, dwellTime, idleTimeout);
+    }
+
+    @Override
+    public void receiveFiltered(AisBusElement queueElement) {
+        AisPacket packet = queueElement.getPacket();
+        RawPayload payload = RawPayload.from(packet);
+        if (payload != null && payload.getMsgId() != 4 && payload.getMsgId() != 21) {
+            if (payload.hasPosition()) {
+                update(payload.getUserId(), payload.getLatitude(), payload.getLongitude(), packet);
+            }
+            return;
+        }
+        AisMessage message = packet.tryGetAisMessage();
+        if (message instanceof IPositionMessage) {
+            Position pos = ((IPositionMessage) message).getPos().getGeoLocation();
+            if (pos != null) {
+                update(message.getUserId(), pos.getLatitude(), pos.getLongitude(), packet);
+            }
+        }
+    }
+
+    private void update(int userId, double lat, double lon, AisPacket packet) {
+        if (!Position.isValid(lat, lon)) {
+            return;
+        }
+        long time = packet.getBestTimestamp();
+        synchronized (this) {
+            tracker.update(userId, lat, lon, time, dispatcher);
+        }
+    }
+
+    /**
+     * Get the handlers receiving the events
+     * 
+     * @return
+     */
+    public List<Consumer<GeoFenceEvent>> getHandlers() {
+        return handlers;
+    }
+
+    /**
+     * Get the fences the target is in
+     * 
+     * @param userId
+     * @return the indexes of the fences in the index
+     */
+    public synchronized int[] getFences(int userId) {
+        return tracker.getFences(userId);
+    }
+
+    /**
+     * Get the number of targets inside at least one fence
+     * 
+     * @return
+     */
+    public synchronized int getTargetsInside() {
+        return tracker.size();
+    }
+
+}
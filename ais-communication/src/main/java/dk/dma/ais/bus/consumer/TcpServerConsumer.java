@@ -15,12 +15,17 @@
  */
 package dk.dma.ais.bus.consumer;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import dk.dma.ais.bus.AisBusConsumer;
 import dk.dma.ais.bus.AisBusElement;
 import dk.dma.ais.bus.tcp.TcpClientConf;
 import dk.dma.ais.bus.tcp.TcpServer;
 import dk.dma.ais.bus.tcp.TcpServerConf;
 import dk.dma.ais.bus.tcp.TcpWriteServer;
+import dk.dma.ais.packet.AisPacket;
 
 /**
  * Server providing TCP connections sending data
@@ -59,9 +64,18 @@ public class TcpServerConsumer extends AisBusConsumer {
 
     @Override
     public void receiveFiltered(AisBusElement queueElement) {
-        server.send(queueElement.getPacket().getStringMessage());
+        server.sendPackets(Collections.singletonList(queueElement.getPacket()));
     }
-    
+
+    @Override
+    public void receiveFiltered(List<AisBusElement> queueElements) {
+        List<AisPacket> packets = new ArrayList<>(queueElements.size());
+        for (AisBusElement queueElement : queueElements) {
+            packets.add(queueElement.getPacket());
+        }
+        server.sendPackets(packets);
+    }
+
     public void setClientConf(TcpClientConf clientConf) {
         server.setClientConf(clientConf);        
     }
@@ -18,6 +18,8 @@ package dk.dma.ais.bus.consumer;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
 
 import net.jcip.annotations.ThreadSafe;
 
@@ -41,6 +43,11 @@ public class TcpWriterConsumer extends AisBusConsumer implements Runnable, IClie
     private static final Logger LOG = LoggerFactory.getLogger(TcpWriterConsumer.class);
     private final OverflowLogger overflowLogger = new OverflowLogger(LOG);
 
+    /**
+     * Notified when connected
+     */
+    private final Object connectedLock = new Object();
+
     private TcpWriteClient writeClient;
 
     private TcpClientConf clientConf = new TcpClientConf();
@@ -54,6 +61,10 @@ public class TcpWriterConsumer extends AisBusConsumer implements Runnable, IClie
 
     @Override
     public void receiveFiltered(AisBusElement queueElement) {
+        if (!status.isConnected() && isSpilling()) {
+            // Hold the packet while the consumer queue fills up and spills to disk
+            awaitConnected();
+        }
         if (status.isConnected()) {
             if (!writeClient.send(queueElement.getPacket().getStringMessage())) {
                 status.overflow();
@@ -62,12 +73,52 @@ public class TcpWriterConsumer extends AisBusConsumer implements Runnable, IClie
         }
     }
 
+    @Override
+    public void receiveFiltered(List<AisBusElement> queueElements) {
+        if (!status.isConnected() && isSpilling()) {
+            // Hold the packets while the consumer queue fills up and spills to disk
+            awaitConnected();
+        }
+        if (status.isConnected()) {
+            if (!writeClient.sendAll(AisBusElement.messages(queueElements))) {
+                status.overflow(queueElements.size());
+                overflowLogger.log("Overflow writing to client");
+            }
+        }
+    }
+
+    /**
+     * Wait until connected or interrupted
+     */
+    private void awaitConnected() {
+        synchronized (connectedLock) {
+            while (!status.isConnected()) {
+                try {
+                    connectedLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void setConnected() {
+        super.setConnected();
+        synchronized (connectedLock) {
+            connectedLock.notifyAll();
+        }
+    }
+
     /**
      * Connect and reconnect
      */
     @Override
     public void run() {
         setNotConnected();
+        // Messages left in the buffer of a lost connection, sent first on the next connection
+        List<String> unsent = new ArrayList<>();
         while (true) {
             try(Socket socket = new Socket()) {
                 // Connect
@@ -78,10 +129,22 @@ public class TcpWriterConsumer extends AisBusConsumer implements Runnable, IClie
 
                 // Start client
                 writeClient = new TcpWriteClient(this, socket, clientConf);
+                if (!unsent.isEmpty()) {
+                    // Queued before the consumer thread can send anything new
+                    int resent = writeClient.resend(unsent);
+                    if (resent < unsent.size()) {
+                        status.overflow(unsent.size() - resent);
+                        overflowLogger.log("Overflow resending to client");
+                    }
+                    LOG.info(getName() + ": resending " + resent + " unsent messages");
+                    unsent.clear();
+                }
                 setConnected();
                 writeClient.start();
                 // Wait for client to loose connection
                 writeClient.join();
+                setNotConnected();
+                unsent.addAll(writeClient.drainUnsent());
             } catch (IOException e) {
                 LOG.info(getName() + ": connection error: " + e.getMessage());
             } catch (InterruptedException e) {
@@ -15,6 +15,7 @@
  */
 package dk.dma.ais.bus.provider;
 
+import java.util.List;
 import java.util.concurrent.atomic.AtomicReference;
 
 import net.jcip.annotations.ThreadSafe;
@@ -51,6 +52,16 @@ public class AisReaderProvider extends AisBusProvider implements Consumer<AisPac
         push(packet);        
     }
 
+    /**
+     * Receive batch of packets from reader
+     * 
+     * @param packets
+     */
+    public void acceptAll(List<AisPacket> packets) {
+        // Push to bus
+        pushAll(packets);
+    }
+
     
     @Override
     public void start() {
@@ -74,8 +85,13 @@ public class AisReaderProvider extends AisBusProvider implements Consumer<AisPac
             throw new IllegalStateException("AisReader already defined");
         }
         this.aisReader.set(aisReader);
-        // Register self as handler of packets
-        this.aisReader.get().registerPacketHandler(this);
+        // Register self as handler of packet batches
+        this.aisReader.get().registerPacketBatchHandler(new Consumer<List<AisPacket>>() {
+            @Override
+            public void accept(List<AisPacket> packets) {
+                acceptAll(packets);
+            }
+        });
     }
 
 }
@@ -18,6 +18,7 @@ package dk.dma.ais.bus.provider;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.zip.GZIPInputStream;
 
@@ -97,7 +98,12 @@ public class RepeatingFileReaderProvider extends AisBusProvider implements Consu
                 return;
             }
             aisReader.set(new AisStreamReader(stream));            
-            aisReader.get().registerPacketHandler(this);
+            aisReader.get().registerPacketBatchHandler(new Consumer<List<AisPacket>>() {
+                @Override
+                public void accept(List<AisPacket> packets) {
+                    pushAll(packets);
+                }
+            });
             aisReader.get().start();
             try {
                 aisReader.get().join();
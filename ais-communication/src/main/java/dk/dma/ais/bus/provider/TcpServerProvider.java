@@ -25,6 +25,9 @@ import dk.dma.enav.util.function.Consumer;
 
 /**
  * Server providing TCP connections for receiving date
+ * 
+ * Packets are pushed to the bus from the selector threads of the server, each serving many clients. An overflow policy
+ * blocking the push would stall all clients of a selector, so the bus rejects the policy BLOCK for this provider.
  */
 public class TcpServerProvider extends AisBusProvider implements Consumer<AisPacket> {
 
@@ -42,6 +45,11 @@ public class TcpServerProvider extends AisBusProvider implements Consumer<AisPac
         push(packet);
     }
 
+    @Override
+    protected boolean isBlockingAllowed() {
+        return false;
+    }
+
     @Override
     public synchronized void init() {
         super.init();
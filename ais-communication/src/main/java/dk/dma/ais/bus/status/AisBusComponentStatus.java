@@ -20,7 +20,7 @@ import net.jcip.annotations.ThreadSafe;
 /**
  * Status of a bus component
  * 
- * TODO: Flow history
+ * Counting receptions is lock-free so the many threads handing packets to a component do not contend.
  */
 @ThreadSafe
 public class AisBusComponentStatus {
@@ -47,15 +47,31 @@ public class AisBusComponentStatus {
     /**
      * Number of packets received by the component
      */
-    private long inCount;
+    private final StripedCounter inCount = new StripedCounter();
     /**
      * Number of packets filtered by the component
      */
-    private long filteredCount;
+    private final StripedCounter filteredCount = new StripedCounter();
     /**
      * Number of packets that cannot be delivered due to overflow at the receiver
      */
-    private long overflowCount;
+    private final StripedCounter overflowCount = new StripedCounter();
+    /**
+     * Number of packets that had to wait for room at the receiver
+     */
+    private final StripedCounter blockedCount = new StripedCounter();
+    /**
+     * Number of packets dropped from the head of the queue to make room
+     */
+    private final StripedCounter droppedOldestCount = new StripedCounter();
+    /**
+     * Number of position reports shed to keep other packets
+     */
+    private final StripedCounter droppedPriorityCount = new StripedCounter();
+    /**
+     * Number of packets spilled to disk
+     */
+    private final StripedCounter spilledCount = new StripedCounter();
 
     /**
      * Statistics for in count the last flowStatInterval
@@ -89,25 +105,83 @@ public class AisBusComponentStatus {
     /**
      * Indicate a reception that is not filtered away
      */
-    public synchronized void receive() {
+    public void receive() {
         inCountStat.received();
-        inCount++;
+        inCount.increment();
+    }
+
+    /**
+     * Indicate a number of receptions
+     * 
+     * @param count
+     */
+    public void receive(int count) {
+        inCountStat.received(count);
+        inCount.add(count);
     }
 
     /**
      * Indicate a reception that is rejected by filter
      */
-    public synchronized void filtered() {
+    public void filtered() {
         filteredCountStat.received();
-        filteredCount++;
+        filteredCount.increment();
+    }
+
+    /**
+     * Indicate a number of receptions rejected by filter
+     * 
+     * @param count
+     */
+    public void filtered(int count) {
+        filteredCountStat.received(count);
+        filteredCount.add(count);
     }
 
     /**
      * Indicate overflow when delivering packet
      */
-    public synchronized void overflow() {
+    public void overflow() {
         overflowCountStat.received();
-        overflowCount++;
+        overflowCount.increment();
+    }
+
+    /**
+     * Indicate a number of overflows
+     * 
+     * @param count
+     */
+    public void overflow(int count) {
+        overflowCountStat.received(count);
+        overflowCount.add(count);
+    }
+
+    /**
+     * Indicate a packet waiting for room at the receiver
+     */
+    public void blocked() {
+        blockedCount.increment();
+    }
+
+    /**
+     * Indicate dropping of the oldest packet at the receiver
+     */
+    public void droppedOldest() {
+        droppedOldestCount.increment();
+    }
+
+    /**
+     * Indicate shedding of a low priority packet
+     */
+    public void droppedPriority() {
+        droppedPriorityCount.increment();
+    }
+
+    /**
+     * Indicate spilling a packet to disk
+     */
+    public void spilled() {
+        spilledCount.increment();
     }
 
     public synchronized State getState() {
@@ -156,27 +230,43 @@ public class AisBusComponentStatus {
         return flowStatInterval;
     }
 
-    public synchronized long getInCount() {
-        return inCount;
+    public long getInCount() {
+        return inCount.get();
     }
     
-    public synchronized double getInRate() {
+    public double getInRate() {
         return inCountStat.getRate();
     }
 
-    public synchronized long getFilteredCount() {
-        return filteredCount;
+    public long getFilteredCount() {
+        return filteredCount.get();
     }
     
-    public synchronized double getFilteredRate() {
+    public double getFilteredRate() {
         return filteredCountStat.getRate();
     }
 
-    public synchronized long getOverflowCount() {
-        return overflowCount;
+    public long getOverflowCount() {
+        return overflowCount.get();
+    }
+
+    public long getBlockedCount() {
+        return blockedCount.get();
+    }
+
+    public long getDroppedOldestCount() {
+        return droppedOldestCount.get();
+    }
+
+    public long getDroppedPriorityCount() {
+        return droppedPriorityCount.get();
+    }
+
+    public long getSpilledCount() {
+        return spilledCount.get();
     }
     
-    public synchronized double getOverflowRate() {
+    public double getOverflowRate() {
         return overflowCountStat.getRate();
     }
 
@@ -195,6 +285,14 @@ public class AisBusComponentStatus {
         builder.append(filteredCount);
         builder.append(", overflowCount=");
         builder.append(overflowCount);
+        builder.append(", blockedCount=");
+        builder.append(blockedCount);
+        builder.append(", droppedOldestCount=");
+        builder.append(droppedOldestCount);
+        builder.append(", droppedPriorityCount=");
+        builder.append(droppedPriorityCount);
+        builder.append(", spilledCount=");
+        builder.append(spilledCount);
         builder.append(", inCountStat=");
         builder.append(inCountStat);
         builder.append(", overflowCountStat=");
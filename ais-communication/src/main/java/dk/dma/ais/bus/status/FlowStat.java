@@ -15,21 +15,43 @@
  */
 package dk.dma.ais.bus.status;
 
-import java.util.LinkedList;
+import java.util.concurrent.atomic.AtomicLongArray;
 
-import net.jcip.annotations.NotThreadSafe;
+import net.jcip.annotations.ThreadSafe;
 
 /**
  * Class that holds flow statistics
+ * 
+ * Receptions are counted in a fixed ring of one second buckets covering the interval, so memory and the cost of a
+ * reception do not depend on the flow. Each bucket holds the second it counts in the upper 32 bits and the count in
+ * the lower, and is reset by the first reception in a new second. Like {@link StripedCounter} there is a ring for
+ * each stripe of threads.
  */
-@NotThreadSafe
+@ThreadSafe
 public class FlowStat {
 
+    private static final long COUNT_MASK = 0xFFFFFFFFL;
+
+    /**
+     * Minimum distance between rings to keep them on separate cache lines
+     */
+    private static final int PAD = 8;
+
     private final long interval;
     private final long created;
-    private Long lastReceived;
-    // Timestamps for receives
-    private LinkedList<Long> receives = new LinkedList<>();
+    private volatile long lastReceived;
+
+    /**
+     * Number of one second buckets in a ring
+     */
+    private final int buckets;
+
+    /**
+     * Distance between the rings of the stripes
+     */
+    private final int row;
+
+    private final AtomicLongArray cells;
 
     /**
      * Default interval of one minute to calculate rate
@@ -45,6 +67,9 @@ public class FlowStat {
     public FlowStat(long interval) {
         this.created = System.currentTimeMillis();
         this.interval = interval;
+        this.buckets = (int) Math.max(1, (interval + 999) / 1000);
+        this.row = Math.max(buckets, PAD);
+        this.cells = new AtomicLongArray(StripedCounter.STRIPES * row);
     }
 
     /**
@@ -52,7 +77,8 @@ public class FlowStat {
      * @return
      */
     public Long getLastReceived() {
-        return lastReceived;
+        long last = lastReceived;
+        return last == 0 ? null : last;
     }
 
     /**
@@ -69,37 +95,75 @@ public class FlowStat {
      */
     public double getRate() {
         long now = System.currentTimeMillis();
-        truncateReceives(now);
-        if (receives.size() == 0) {
+        long second = second(now);
+        long first = second - buckets + 1;
+        long span = now - created - Math.max(first, 0) * 1000;
+        if (span <= 0) {
             return 0;
         }
-        long last = receives.getLast();
-        if (last == now) {
-            return 0;
+        return getCount(second, first) / ((double) span / 1000);
+    }
+
+    /**
+     * Get the number of receptions in the interval
+     * 
+     * @return
+     */
+    public long getCount() {
+        long second = second(System.currentTimeMillis());
+        return getCount(second, second - buckets + 1);
+    }
+
+    private long getCount(long second, long first) {
+        long count = 0;
+        for (int stripe = 0; stripe < StripedCounter.STRIPES; stripe++) {
+            for (int bucket = 0; bucket < buckets; bucket++) {
+                long cell = cells.get(stripe * row + bucket);
+                long cellSecond = cell >>> 32;
+                if (cellSecond >= first && cellSecond <= second) {
+                    count += cell & COUNT_MASK;
+                }
+            }
         }
-        return receives.size() / ((double) (now - last) / 1000);
+        return count;
     }
 
     /**
      * Indicate a reception
      */
     public void received() {
-        lastReceived = System.currentTimeMillis();
-        receives.addFirst(lastReceived);
-        truncateReceives(lastReceived);
+        received(1);
     }
 
-    private void truncateReceives(long now) {
-        while (receives.size() > 0) {
-            long last = receives.getLast();
-            if (now - last > interval) {
-                receives.removeLast();
-            } else {
-                break;
+    /**
+     * Indicate a number of receptions
+     * 
+     * @param count
+     */
+    public void received(int count) {
+        long now = System.currentTimeMillis();
+        if (lastReceived != now) {
+            lastReceived = now;
+        }
+        long second = second(now);
+        int index = StripedCounter.stripe() * row + (int) (second % buckets);
+        long stamp = second << 32;
+        while (true) {
+            long cell = cells.get(index);
+            long next = (cell & ~COUNT_MASK) == stamp ? cell + count : stamp | count;
+            if (cells.compareAndSet(index, cell, next)) {
+                return;
             }
         }
     }
 
+    /**
+     * Get the second since creation of a time
+     */
+    private long second(long time) {
+        return Math.max(0, time - created) / 1000;
+    }
+
     @Override
     public String toString() {
         StringBuilder builder = new StringBuilder();
@@ -108,9 +172,9 @@ public class FlowStat {
         builder.append(", created=");
         builder.append(created);
         builder.append(", lastReceived=");
-        builder.append(lastReceived);
+        builder.append(getLastReceived());
         builder.append(", receives=");
-        builder.append(receives.size());
+        builder.append(getCount());
         builder.append(", rate=");
         builder.append(getRate());
         builder.append("]");
@@ -0,0 +1,83 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.ais.bus.status;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Lock-free counter for many updating threads. Each thread increments one of a number of stripes chosen by its
+ * thread id, so threads rarely update the same memory. The value is the sum of the stripes.
+ */
+@ThreadSafe
+public class StripedCounter {
+
+    /**
+     * Number of stripes, a power of two of at least the number of processors
+     */
+    static final int STRIPES;
+
+    /**
+     * Distance between stripes to keep them on separate cache lines
+     */
+    private static final int PAD = 8;
+
+    static {
+        int processors = Math.min(Runtime.getRuntime().availableProcessors(), 64);
+        int stripes = Integer.highestOneBit(processors);
+        STRIPES = stripes < processors ? stripes << 1 : stripes;
+    }
+
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PAD);
+
+    /**
+     * Get the stripe of the current thread
+     *
+     * @return
+     */
+    static int stripe() {
+        int h = (int) Thread.currentThread().getId() * 0x9E3779B9;
+        return (h ^ h >>> 16) & (STRIPES - 1);
+    }
+
+    public void increment() {
+        cells.incrementAndGet(stripe() * PAD);
+    }
+
+    public void add(long x) {
+        cells.addAndGet(stripe() * PAD, x);
+    }
+
+    /**
+     * Get the sum of the stripes. Increments made while summing may or may not be included.
+     *
+     * @return
+     */
+    public long get() {
+        long sum = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            sum += cells.get(i * PAD);
+        }
+        return sum;
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(get());
+    }
+
+}
@@ -0,0 +1,147 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.ais.bus.tcp;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import net.jcip.annotations.NotThreadSafe;
+
+/**
+ * Input stream reading frames written by {@link FrameOutputStream}. Each frame is decompressed when it has been
+ * received completely, and {@link #available()} is the number of decompressed bytes not yet read, so readers do not
+ * wait for more input at the end of a frame.
+ */
+@NotThreadSafe
+final class FrameInputStream extends FilterInputStream {
+
+    /**
+     * Larger frames are considered invalid
+     */
+    static final int MAX_FRAME_LENGTH = 16 * 1024 * 1024;
+
+    private final DataInputStream dataIn;
+    private final Inflater inflater = new Inflater(true);
+    private byte[] frame = new byte[8192];
+    private byte[] buf = new byte[8192];
+    private int pos;
+    private int count;
+
+    FrameInputStream(InputStream in) {
+        super(in);
+        this.dataIn = new DataInputStream(in);
+    }
+
+    /**
+     * Read and decompress the next frame
+     * 
+     * @return false at end of stream
+     * @throws IOException
+     */
+    private boolean readFrame() throws IOException {
+        int len;
+        try {
+            len = dataIn.readInt();
+        } catch (EOFException e) {
+            return false;
+        }
+        if (len < 0 || len > MAX_FRAME_LENGTH) {
+            throw new IOException("Invalid frame length: " + len);
+        }
+        if (frame.length < len) {
+            frame = new byte[len];
+        }
+        dataIn.readFully(frame, 0, len);
+        inflater.setInput(frame, 0, len);
+        pos = 0;
+        count = 0;
+        try {
+            while (true) {
+                if (count == buf.length) {
+                    byte[] b = new byte[buf.length * 2];
+                    System.arraycopy(buf, 0, b, 0, count);
+                    buf = b;
+                }
+                int n = inflater.inflate(buf, count, buf.length - count);
+                count += n;
+                if (n == 0) {
+                    if (inflater.needsDictionary()) {
+                        throw new IOException("Invalid compressed frame: preset dictionary");
+                    }
+                    break;
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Invalid compressed frame: " + e.getMessage());
+        }
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        while (pos == count) {
+            if (!readFrame()) {
+                return -1;
+            }
+        }
+        return buf[pos++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (pos == count) {
+            if (!readFrame()) {
+                return -1;
+            }
+        }
+        int n = Math.min(len, count - pos);
+        System.arraycopy(buf, pos, b, off, n);
+        pos += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return count - pos;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = Math.min(n, count - pos);
+        pos += skipped;
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        super.close();
+    }
+
+}
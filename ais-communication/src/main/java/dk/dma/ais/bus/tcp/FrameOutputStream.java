@@ -0,0 +1,158 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.ais.bus.tcp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+
+import net.jcip.annotations.NotThreadSafe;
+
+/**
+ * Output stream compressing data into frames. Written bytes are collected until {@link #flush()} is called or the
+ * maximum frame size is reached, and are then compressed and written as a frame of a 4 byte length followed by the
+ * compressed bytes. All frames belong to one deflate stream that is sync flushed at the end of each frame, so a frame
+ * can be decompressed as soon as it is received, while the frames share the compression dictionary.
+ */
+@NotThreadSafe
+final class FrameOutputStream extends FilterOutputStream {
+
+    private final Deflater deflater;
+    private final DataOutputStream dataOut;
+    private final byte[] buf;
+    private int count;
+    private final long maxDelay;
+    /** Time the first byte of the current frame was written */
+    private long frameStart;
+
+    private final byte[] deflated = new byte[8192];
+    private final ByteArrayOutputStream frame = new ByteArrayOutputStream();
+
+    /**
+     * Create stream
+     * 
+     * @param out
+     * @param level
+     *            compression level of the {@link Deflater}
+     * @param maxFrameSize
+     *            maximum number of bytes before compression in a frame
+     * @param maxDelay
+     *            maximum time in milliseconds from the first byte of a frame is written until the frame is flushed by
+     *            {@link #flushIfDue()}
+     */
+    FrameOutputStream(OutputStream out, int level, int maxFrameSize, long maxDelay) {
+        super(out);
+        this.dataOut = new DataOutputStream(out);
+        this.deflater = new Deflater(level, true);
+        this.buf = new byte[maxFrameSize];
+        this.maxDelay = maxDelay;
+    }
+
+    FrameOutputStream(OutputStream out, TcpClientConf conf) {
+        this(out, conf.getFrameCompressionLevel(), conf.getFrameMaxSize(), conf.getFrameMaxDelay());
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (count == buf.length) {
+            writeFrame();
+        }
+        if (count == 0) {
+            frameStart = System.currentTimeMillis();
+        }
+        buf[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (count == buf.length) {
+                writeFrame();
+            }
+            if (count == 0) {
+                frameStart = System.currentTimeMillis();
+            }
+            int n = Math.min(len, buf.length - count);
+            System.arraycopy(b, off, buf, count, n);
+            count += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * Get the time in milliseconds until the current frame is due, 0 if no bytes are waiting
+     * 
+     * @return
+     */
+    long getDelayRemaining() {
+        if (count == 0) {
+            return 0;
+        }
+        return Math.max(0, frameStart + maxDelay - System.currentTimeMillis());
+    }
+
+    boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * Flush the current frame if the maximum delay has passed since its first byte was written
+     * 
+     * @throws IOException
+     */
+    void flushIfDue() throws IOException {
+        if (count > 0 && getDelayRemaining() == 0) {
+            flush();
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writeFrame();
+        out.flush();
+    }
+
+    private void writeFrame() throws IOException {
+        if (count == 0) {
+            return;
+        }
+        deflater.setInput(buf, 0, count);
+        frame.reset();
+        int len;
+        do {
+            len = deflater.deflate(deflated, 0, deflated.length, Deflater.SYNC_FLUSH);
+            frame.write(deflated, 0, len);
+        } while (len == deflated.length);
+        count = 0;
+        dataOut.writeInt(frame.size());
+        frame.writeTo(dataOut);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            deflater.end();
+            out.close();
+        }
+    }
+
+}
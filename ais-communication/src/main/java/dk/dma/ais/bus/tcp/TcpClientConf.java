@@ -15,6 +15,8 @@
  */
 package dk.dma.ais.bus.tcp;
 
+import java.util.zip.Deflater;
+
 /**
  * Configuration for a TCP client
  */
@@ -23,6 +25,10 @@ public class TcpClientConf {
     private boolean gzipCompress;
     private int gzipBufferSize = 2048;
     private int bufferSize = 8192;
+    private boolean frameCompress;
+    private int frameCompressionLevel = Deflater.DEFAULT_COMPRESSION;
+    private int frameMaxSize = 65536;
+    private long frameMaxDelay = 100;
 
     public TcpClientConf() {
 
@@ -44,6 +50,66 @@ public class TcpClientConf {
         this.gzipBufferSize = gzipBufferSize;
     }
 
+    /**
+     * Compress the stream in frames that are sync flushed when the maximum delay or size is reached, so packets are
+     * not held back by the compressor. Takes precedence over gzipCompress. Both ends must use frames.
+     * 
+     * @return
+     */
+    public boolean isFrameCompress() {
+        return frameCompress;
+    }
+
+    public void setFrameCompress(boolean frameCompress) {
+        this.frameCompress = frameCompress;
+    }
+
+    /**
+     * Deflate compression level of frames, from 1 for the fastest to 9 for the best compression
+     * 
+     * @return
+     */
+    public int getFrameCompressionLevel() {
+        return frameCompressionLevel;
+    }
+
+    public void setFrameCompressionLevel(int frameCompressionLevel) {
+        if (frameCompressionLevel != Deflater.DEFAULT_COMPRESSION
+                && (frameCompressionLevel < Deflater.BEST_SPEED || frameCompressionLevel > Deflater.BEST_COMPRESSION)) {
+            throw new IllegalArgumentException("Invalid compression level: " + frameCompressionLevel);
+        }
+        this.frameCompressionLevel = frameCompressionLevel;
+    }
+
+    /**
+     * Maximum number of bytes before compression in a frame
+     * 
+     * @return
+     */
+    public int getFrameMaxSize() {
+        return frameMaxSize;
+    }
+
+    public void setFrameMaxSize(int frameMaxSize) {
+        if (frameMaxSize < 1) {
+            throw new IllegalArgumentException("Frame size must be positive: " + frameMaxSize);
+        }
+        this.frameMaxSize = frameMaxSize;
+    }
+
+    /**
+     * Maximum time in milliseconds a written packet waits for its frame to be sent
+     * 
+     * @return
+     */
+    public long getFrameMaxDelay() {
+        return frameMaxDelay;
+    }
+
+    public void setFrameMaxDelay(long frameMaxDelay) {
+        this.frameMaxDelay = frameMaxDelay;
+    }
+
     public int getBufferSize() {
         return bufferSize;
     }
@@ -49,7 +49,9 @@ public class TcpReadClient extends TcpClient implements Consumer<AisPacket> {
         // Read from socket
         try {
             InputStream inputStream;
-            if (conf.isGzipCompress()) {
+            if (conf.isFrameCompress()) {
+                inputStream = new FrameInputStream(socket.getInputStream());
+            } else if (conf.isGzipCompress()) {
                 inputStream = new GZIPInputStream(socket.getInputStream(), conf.getGzipBufferSize());
             } else {
                 inputStream = socket.getInputStream();
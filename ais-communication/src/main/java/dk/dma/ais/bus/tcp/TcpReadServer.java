@@ -15,13 +15,14 @@
  */
 package dk.dma.ais.bus.tcp;
 
-import java.net.Socket;
+import java.nio.channels.SocketChannel;
 
 import dk.dma.ais.packet.AisPacket;
 import dk.dma.enav.util.function.Consumer;
 
 /**
- * TCP server for reading clients
+ * TCP server for reading clients. The packet consumer is called on the selector threads, each serving many clients,
+ * and must not block.
  */
 public class TcpReadServer extends TcpServer {
     
@@ -33,8 +34,8 @@ public class TcpReadServer extends TcpServer {
     }
 
     @Override
-    protected TcpReadClient newClient(Socket socket) {
-        return new TcpReadClient(packetConsumer, this, socket, clientConf);
+    protected TcpServerReadClient newClient(SocketChannel channel) {
+        return new TcpServerReadClient(packetConsumer, this, channel, clientConf);
     }
 
 }
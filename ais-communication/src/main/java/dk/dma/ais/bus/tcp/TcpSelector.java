@@ -0,0 +1,146 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.ais.bus.tcp;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import dk.dma.ais.bus.AisBusComponent;
+
+/**
+ * Thread running a selector for a number of server clients. Reads and writes of the clients are done by this thread
+ * when their channels are ready. Other threads hand work to the selector thread with {@link #execute(Runnable)}.
+ * 
+ * A client failing with an exception is closed without affecting the other clients of the selector. Nothing called
+ * on the selector thread may block, as that stalls all its clients.
+ */
+@ThreadSafe
+final class TcpSelector extends Thread {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TcpSelector.class);
+
+    private final Selector selector;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    TcpSelector(String name) throws IOException {
+        super(name);
+        this.selector = Selector.open();
+    }
+
+    /**
+     * Run the task on the selector thread
+     * 
+     * @param task
+     */
+    void execute(Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    /**
+     * Register a client with the selector
+     * 
+     * @param client
+     */
+    void register(final TcpServerClient client) {
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    client.registered(client.channel.register(selector, SelectionKey.OP_READ, client));
+                } catch (ClosedChannelException e) {
+                    client.close();
+                }
+            }
+        });
+    }
+
+    @Override
+    public void run() {
+        while (!isInterrupted()) {
+            try {
+                selector.select();
+            } catch (IOException e) {
+                LOG.error("Selector failed: " + e.getMessage());
+                break;
+            }
+            runTasks();
+            Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+            while (it.hasNext()) {
+                SelectionKey key = it.next();
+                it.remove();
+                TcpServerClient client = (TcpServerClient) key.attachment();
+                try {
+                    if (key.isValid() && key.isReadable()) {
+                        client.readable();
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        client.writable();
+                    }
+                } catch (IOException e) {
+                    LOG.info(client.getRemoteHost() + ": " + e.getMessage());
+                    client.close();
+                } catch (RuntimeException e) {
+                    LOG.error(client.getRemoteHost() + ": Closing client after failure", e);
+                    client.close();
+                }
+            }
+        }
+        // Complete pending registrations and close all clients
+        runTasks();
+        for (SelectionKey key : selector.keys()) {
+            ((TcpServerClient) key.attachment()).close();
+        }
+        try {
+            selector.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private void runTasks() {
+        for (Runnable task = tasks.poll(); task != null; task = tasks.poll()) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                LOG.error("Selector task failed", e);
+            }
+        }
+    }
+
+    /**
+     * Stop the selector and close its clients
+     */
+    void cancel() {
+        this.interrupt();
+        selector.wakeup();
+        try {
+            this.join(AisBusComponent.THREAD_STOP_WAIT_MAX);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -16,8 +16,9 @@
 package dk.dma.ais.bus.tcp;
 
 import java.io.IOException;
-import java.net.ServerSocket;
-import java.net.Socket;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.util.Collections;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -30,19 +31,21 @@ import org.slf4j.LoggerFactory;
 import dk.dma.ais.bus.AisBusComponent;
 
 /**
- * Base class for TCP servers. Spawns and handles TCP clients.
+ * Base class for TCP servers. Accepts TCP clients and hands them to a few selector threads that read and write the
+ * connections without blocking, so the number of threads does not grow with the number of clients.
  */
-public abstract class TcpServer extends Thread implements IClientStoppedListener {
+public abstract class TcpServer extends Thread {
 
     private static final Logger LOG = LoggerFactory.getLogger(TcpServer.class);
 
-    protected final AtomicReference<ServerSocket> serverSocket = new AtomicReference<>();
+    protected final AtomicReference<ServerSocketChannel> serverChannel = new AtomicReference<>();
 
     protected TcpServerConf serverConf = new TcpServerConf();
     protected TcpClientConf clientConf = new TcpClientConf();
 
     private Semaphore semaphore;
-    protected final Set<TcpClient> clients = Collections.newSetFromMap(new ConcurrentHashMap<TcpClient, Boolean>());
+    protected final Set<TcpServerClient> clients = Collections
+            .newSetFromMap(new ConcurrentHashMap<TcpServerClient, Boolean>());
 
     public TcpServer() {
     }
@@ -50,20 +53,20 @@ public abstract class TcpServer extends Thread implements IClientStoppedListener
     /**
      * Inheriting classes must be able to provide a new client
      * 
-     * @param socket
+     * @param channel
      * @return
      */
-    protected abstract TcpClient newClient(Socket socket);
+    protected abstract TcpServerClient newClient(SocketChannel channel);
 
     /**
-     * Clients notify them self when they are done
+     * Clients notify the server when they are closed
      * 
      * @param client
      */
-    @Override
-    public void clientStopped(TcpClient client) {
-        clients.remove(client);
-        semaphore.release();
+    void clientStopped(TcpServerClient client) {
+        if (clients.remove(client)) {
+            semaphore.release();
+        }
     }
 
     @Override
@@ -71,64 +74,95 @@ public abstract class TcpServer extends Thread implements IClientStoppedListener
         // Initialize semaphore
         semaphore = new Semaphore(serverConf.getMaxClients());
 
+        // Start selectors
+        TcpSelector[] selectors = new TcpSelector[serverConf.getSelectorThreads()];
+        try {
+            for (int i = 0; i < selectors.length; i++) {
+                selectors[i] = new TcpSelector(getName() + " selector " + i);
+            }
+        } catch (IOException e) {
+            LOG.error("Failed to open selector: " + e.getMessage());
+            return;
+        }
+        for (TcpSelector selector : selectors) {
+            selector.start();
+        }
+
         // Setup server socket
         try {
-            serverSocket.set(new ServerSocket(serverConf.getPort()));
+            ServerSocketChannel channel = ServerSocketChannel.open();
+            serverChannel.set(channel);
+            channel.socket().bind(new InetSocketAddress(serverConf.getPort()));
+            LOG.info("Waiting for connections on port " + serverConf.getPort());
         } catch (IOException e) {
             LOG.error("Failed to setup server socket: " + e.getMessage());
+            stopSelectors(selectors);
             return;
         }
+
         // Accept incoming connections
+        int next = 0;
         while (true) {
-            Socket socket = null;
+            // Maybe wait if max connections is exceeded
             try {
-                // Maybe wait if max connections is exceeded
-                try {
-                    semaphore.acquire();
-                } catch (InterruptedException e) {                    
-                    break;
-                }
-
-                LOG.info("Waiting for connections on port " + serverConf.getPort());
-                socket = serverSocket.get().accept();
-                socket.setKeepAlive(true);
-                LOG.info("Accepting connection from " + socket.getRemoteSocketAddress());
+                semaphore.acquire();
+            } catch (InterruptedException e) {
+                break;
+            }
+            SocketChannel channel = null;
+            try {
+                channel = serverChannel.get().accept();
+                channel.configureBlocking(false);
+                channel.socket().setKeepAlive(true);
             } catch (IOException e) {
-                if (!isInterrupted()) {
-                    LOG.info(getName() + ": " + e.getMessage());
-                }
-                if (socket != null) {
+                semaphore.release();
+                if (channel != null) {
                     try {
-                        socket.close();
+                        channel.close();
                     } catch (IOException ignored) {
                     }
                 }
-                semaphore.release();
+                // Accept fails when the server is stopped
+                if (isInterrupted() || !serverChannel.get().isOpen()) {
+                    break;
+                }
+                LOG.info(getName() + ": " + e.getMessage());
                 continue;
             }
 
-            // Register and start client
-            TcpClient client = newClient(socket);
+            // Register client with a selector
+            TcpServerClient client = newClient(channel);
             clients.add(client);
-            client.start();
-
+            TcpSelector selector = selectors[next++ % selectors.length];
+            client.setSelector(selector);
+            selector.register(client);
         }
-                        
+
         // Stop clients
-        for (TcpClient client : clients) {
-            client.cancel();            
-        }
-        
+        stopSelectors(selectors);
+
         LOG.info("Stopped");
 
     }
-    
+
+    private void stopSelectors(TcpSelector[] selectors) {
+        // Clear the interrupt that stopped the server to wait for the selectors
+        boolean interrupted = Thread.interrupted();
+        for (TcpSelector selector : selectors) {
+            selector.cancel();
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     public void cancel() {
         this.interrupt();
-        if (serverSocket.get() != null) {
+        ServerSocketChannel channel = serverChannel.get();
+        if (channel != null) {
             try {
-                serverSocket.get().close();
-            } catch (IOException ignored) {                
+                channel.close();
+            } catch (IOException ignored) {
             }
         }
         try {
@@ -153,9 +187,19 @@ public abstract class TcpServer extends Thread implements IClientStoppedListener
     public void setServerConf(TcpServerConf serverConf) {
         this.serverConf = serverConf;
     }
-    
-    public Set<TcpClient> getClients() {
+
+    public Set<TcpServerClient> getClients() {
         return clients;
     }
 
+    /**
+     * Get the port the server is listening on, or -1 if the server socket is not bound
+     * 
+     * @return
+     */
+    public int getLocalPort() {
+        ServerSocketChannel channel = serverChannel.get();
+        return channel == null ? -1 : channel.socket().getLocalPort();
+    }
+
 }
@@ -0,0 +1,162 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.ais.bus.tcp;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import dk.dma.ais.bus.status.AisBusComponentStatus;
+
+/**
+ * Base class for clients connected to a {@link TcpServer}. A client has no thread of its own, its channel is read and
+ * written without blocking by the selector thread it is registered with.
+ */
+@ThreadSafe
+public abstract class TcpServerClient {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TcpServerClient.class);
+
+    protected final TcpClientConf conf;
+    final SocketChannel channel;
+    private final TcpServer server;
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private volatile TcpSelector selector;
+    private volatile SelectionKey key;
+    private final String remoteHost;
+
+    protected final AisBusComponentStatus status = new AisBusComponentStatus();
+
+    protected TcpServerClient(TcpServer server, SocketChannel channel, TcpClientConf conf) {
+        status.setInitialized();
+        this.server = server;
+        this.channel = channel;
+        this.conf = conf;
+        InetSocketAddress address = (InetSocketAddress) channel.socket().getRemoteSocketAddress();
+        this.remoteHost = address == null ? "not connected" : address.toString();
+    }
+
+    /**
+     * Get status for "component"
+     * 
+     * @return
+     */
+    public AisBusComponentStatus getStatus() {
+        return status;
+    }
+
+    public String getRemoteHost() {
+        return remoteHost;
+    }
+
+    public String rateReport() {
+        return String.format("[count/overflow] %4.2f / %4.2f  (packets/sec)", status.getInRate(),
+                status.getOverflowRate());
+    }
+
+    /**
+     * Called by the selector thread when the channel has data to read
+     * 
+     * @throws IOException
+     */
+    abstract void readable() throws IOException;
+
+    /**
+     * Called by the selector thread when the channel can be written
+     * 
+     * @throws IOException
+     */
+    void writable() throws IOException {
+    }
+
+    /**
+     * Called by the selector thread when the client has been registered
+     * 
+     * @param key
+     */
+    void registered(SelectionKey key) {
+        this.key = key;
+        status.setConnected();
+        LOG.info("Accepted connection from " + remoteHost);
+    }
+
+    void setSelector(TcpSelector selector) {
+        this.selector = selector;
+    }
+
+    TcpSelector getSelector() {
+        return selector;
+    }
+
+    SelectionKey getKey() {
+        return key;
+    }
+
+    boolean isClosed() {
+        return closed.get();
+    }
+
+    /**
+     * Close the channel and notify the server. Only the first call has an effect.
+     */
+    void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        if (key != null) {
+            key.cancel();
+        }
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+        closed();
+        status.setStopped();
+        server.clientStopped(this);
+        LOG.info("Stopped " + remoteHost);
+    }
+
+    /**
+     * Called when the client has been closed
+     */
+    void closed() {
+    }
+
+    /**
+     * Stop the client
+     */
+    public void cancel() {
+        TcpSelector s = selector;
+        if (s == null) {
+            close();
+            return;
+        }
+        s.execute(new Runnable() {
+            @Override
+            public void run() {
+                close();
+            }
+        });
+    }
+
+}
@@ -22,6 +22,7 @@ public class TcpServerConf {
 
     private int port = 8090;
     private int maxClients = 1000;
+    private int selectorThreads = 2;
 
     public TcpServerConf() {
 
@@ -43,4 +44,20 @@ public class TcpServerConf {
         this.maxClients = maxClients;
     }
 
+    /**
+     * Number of threads reading and writing the connections of the clients
+     * 
+     * @return
+     */
+    public int getSelectorThreads() {
+        return selectorThreads;
+    }
+
+    public void setSelectorThreads(int selectorThreads) {
+        if (selectorThreads < 1) {
+            throw new IllegalArgumentException("Number of selector threads must be positive: " + selectorThreads);
+        }
+        this.selectorThreads = selectorThreads;
+    }
+
 }
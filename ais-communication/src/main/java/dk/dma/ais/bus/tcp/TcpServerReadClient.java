@@ -0,0 +1,280 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.ais.bus.tcp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import dk.dma.ais.packet.AisPacket;
+import dk.dma.ais.reader.AisPacketReader;
+import dk.dma.ais.sentence.SentenceException;
+import dk.dma.enav.util.function.Consumer;
+
+/**
+ * A reading client of a TCP server. Bytes are read without blocking into a buffer of the client and split into lines
+ * that are assembled into packets.
+ * 
+ * Packets are handed to the consumer on the selector thread shared with other clients, so the consumer must not
+ * block. A runtime exception from the consumer closes this client only.
+ */
+@ThreadSafe
+public class TcpServerReadClient extends TcpServerClient {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TcpServerReadClient.class);
+
+    /**
+     * Longer lines are discarded
+     */
+    static final int MAX_LINE_LENGTH = 65536;
+
+    private static final int GZIP_MAGIC = 0x8b1f;
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+
+    private final Consumer<AisPacket> packetConsumer;
+
+    // Only accessed by the selector thread
+    private final AisPacketReader packetReader = new AisPacketReader();
+    private ByteBuffer in;
+    private final byte[] line = new byte[MAX_LINE_LENGTH];
+    private int lineLength;
+    private boolean lineOverflow;
+
+    /** Inflater of compressed clients, null until the GZIP header or the first frame has been read */
+    private Inflater inflater;
+    private byte[] inflated;
+
+    public TcpServerReadClient(Consumer<AisPacket> packetConsumer, TcpServer server, SocketChannel channel,
+            TcpClientConf conf) {
+        super(server, channel, conf);
+        this.packetConsumer = packetConsumer;
+        this.in = ByteBuffer.allocate(Math.max(conf.getBufferSize(), conf.getGzipBufferSize()));
+    }
+
+    @Override
+    void readable() throws IOException {
+        int n = channel.read(in);
+        if (n < 0) {
+            // End of stream, handle the last line
+            if (lineLength > 0) {
+                handleLine();
+            }
+            close();
+            return;
+        }
+        in.flip();
+        if (conf.isFrameCompress()) {
+            inflateFrames();
+        } else if (conf.isGzipCompress()) {
+            inflate();
+        } else {
+            split(in.array(), in.position(), in.limit());
+            in.position(in.limit());
+        }
+        in.compact();
+    }
+
+    /**
+     * Inflate the buffered input
+     * 
+     * @throws IOException
+     */
+    private void inflate() throws IOException {
+        if (inflater == null) {
+            if (!readGzipHeader()) {
+                return;
+            }
+            inflater = new Inflater(true);
+            inflated = new byte[conf.getGzipBufferSize()];
+        }
+        if (inflater.finished()) {
+            // Ignore the trailer of the stream
+            in.position(in.limit());
+            return;
+        }
+        inflater.setInput(in.array(), in.position(), in.remaining());
+        inflateInput();
+        in.position(in.limit() - inflater.getRemaining());
+    }
+
+    /**
+     * Inflate the completely received frames of the buffered input, see {@link FrameOutputStream}
+     * 
+     * @throws IOException
+     */
+    private void inflateFrames() throws IOException {
+        if (inflater == null) {
+            inflater = new Inflater(true);
+            inflated = new byte[conf.getGzipBufferSize()];
+        }
+        while (in.remaining() >= 4) {
+            int len = in.getInt(in.position());
+            if (len < 0 || len > FrameInputStream.MAX_FRAME_LENGTH) {
+                throw new IOException("Invalid frame length: " + len);
+            }
+            if (in.remaining() < 4 + len) {
+                if (in.capacity() < 4 + len) {
+                    // Make room for the frame
+                    ByteBuffer b = ByteBuffer.allocate(4 + len);
+                    b.put(in);
+                    b.flip();
+                    in = b;
+                }
+                return;
+            }
+            inflater.setInput(in.array(), in.position() + 4, len);
+            inflateInput();
+            in.position(in.position() + 4 + len);
+        }
+    }
+
+    /**
+     * Inflate the input of the inflater and split the output into lines
+     * 
+     * @throws IOException
+     */
+    private void inflateInput() throws IOException {
+        try {
+            int len;
+            do {
+                len = inflater.inflate(inflated);
+                split(inflated, 0, len);
+            } while (len > 0);
+        } catch (DataFormatException e) {
+            throw new IOException("Invalid compressed data: " + e.getMessage());
+        }
+        if (inflater.needsDictionary()) {
+            throw new IOException("Invalid compressed data: preset dictionary");
+        }
+    }
+
+    /**
+     * Skip the GZIP header if it has been received completely
+     * 
+     * @return if the header was skipped
+     * @throws IOException
+     */
+    private boolean readGzipHeader() throws IOException {
+        ByteBuffer b = in.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (b.remaining() < 10) {
+            return false;
+        }
+        if ((b.getShort() & 0xffff) != GZIP_MAGIC || b.get() != 8) {
+            throw new IOException("Not in GZIP format");
+        }
+        int flags = b.get();
+        b.position(b.position() + 6);
+        if ((flags & FEXTRA) != 0) {
+            if (b.remaining() < 2) {
+                return false;
+            }
+            int len = b.getShort() & 0xffff;
+            if (b.remaining() < len) {
+                return false;
+            }
+            b.position(b.position() + len);
+        }
+        if ((flags & FNAME) != 0 && !skipString(b)) {
+            return false;
+        }
+        if ((flags & FCOMMENT) != 0 && !skipString(b)) {
+            return false;
+        }
+        if ((flags & FHCRC) != 0) {
+            if (b.remaining() < 2) {
+                return false;
+            }
+            b.getShort();
+        }
+        in.position(b.position());
+        return true;
+    }
+
+    private static boolean skipString(ByteBuffer b) {
+        while (b.hasRemaining()) {
+            if (b.get() == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Split bytes into lines
+     * 
+     * @param bytes
+     * @param from
+     * @param to
+     */
+    private void split(byte[] bytes, int from, int to) {
+        for (int i = from; i < to; i++) {
+            byte b = bytes[i];
+            if (b == '\n') {
+                if (lineOverflow) {
+                    LOG.info("Discarded line longer than " + MAX_LINE_LENGTH + " bytes from " + getRemoteHost());
+                    lineOverflow = false;
+                    lineLength = 0;
+                } else {
+                    handleLine();
+                }
+            } else if (lineLength < line.length) {
+                line[lineLength++] = b;
+            } else {
+                lineOverflow = true;
+            }
+        }
+    }
+
+    private void handleLine() {
+        int len = lineLength;
+        if (len > 0 && line[len - 1] == '\r') {
+            len--;
+        }
+        lineLength = 0;
+        String str = new String(line, 0, len, StandardCharsets.US_ASCII);
+        AisPacket packet;
+        try {
+            packet = packetReader.readLine(str);
+        } catch (SentenceException se) {
+            LOG.info("Sentence error: " + se.getMessage() + " line: " + str);
+            return;
+        }
+        if (packet != null) {
+            status.receive();
+            packetConsumer.accept(packet);
+        }
+    }
+
+    @Override
+    void closed() {
+        if (inflater != null) {
+            inflater.end();
+        }
+    }
+
+}
@@ -0,0 +1,217 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.ais.bus.tcp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * A writing client of a TCP server. Encoded messages are queued by the sending threads and written without blocking
+ * by the selector thread when the channel can take more data. The queued buffers may be shared with other clients,
+ * so uncompressed clients write them without copying, many buffers in one gathering write.
+ */
+@ThreadSafe
+public class TcpServerWriteClient extends TcpServerClient {
+
+    /**
+     * Maximum number of buffers in one gathering write
+     */
+    private static final int MAX_GATHER = 64;
+
+    /**
+     * Messages are compressed for writing until this number of bytes is reached
+     */
+    private static final int WRITE_CHUNK_SIZE = 65536;
+
+    private final BlockingQueue<ByteBuffer> buffer;
+
+    /** Set while the selector thread has been asked to write */
+    private final AtomicBoolean writing = new AtomicBoolean();
+
+    private final Runnable startWriting = new Runnable() {
+        @Override
+        public void run() {
+            SelectionKey key = getKey();
+            if (key != null && key.isValid()) {
+                key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+            }
+        }
+    };
+
+    // Only accessed by the selector thread
+    private final ByteBuffer[] pending = new ByteBuffer[MAX_GATHER];
+    private int pendingOffset;
+    private int pendingCount;
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final ByteBuffer discard = ByteBuffer.allocate(256);
+    private OutputStream compressor;
+
+    public TcpServerWriteClient(TcpServer server, SocketChannel channel, TcpClientConf conf) {
+        super(server, channel, conf);
+        this.buffer = new ArrayBlockingQueue<>(conf.getBufferSize());
+    }
+
+    /**
+     * Send message
+     * 
+     * @param msg
+     * @return false if the buffer of the client is full
+     */
+    public boolean send(String msg) {
+        return send(TcpWriteServer.encode(Collections.singletonList(msg)), 1);
+    }
+
+    /**
+     * Send messages as a single write
+     * 
+     * @param msgs
+     * @return false if the buffer of the client is full
+     */
+    public boolean sendAll(List<String> msgs) {
+        return send(TcpWriteServer.encode(msgs), msgs.size());
+    }
+
+    /**
+     * Send encoded messages. The buffer may be shared with other clients, its content must not be changed.
+     * 
+     * @param lines
+     *            the encoded messages, each ended by a line break
+     * @param count
+     *            the number of messages
+     * @return false if the buffer of the client is full
+     */
+    boolean send(ByteBuffer lines, int count) {
+        status.receive(count);
+        // The client gets its own position in the shared buffer
+        if (!buffer.offer(lines.duplicate())) {
+            status.overflow(count);
+            return false;
+        }
+        if (writing.compareAndSet(false, true)) {
+            TcpSelector selector = getSelector();
+            if (selector != null) {
+                selector.execute(startWriting);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    void registered(SelectionKey key) {
+        super.registered(key);
+        if (conf.isFrameCompress()) {
+            compressor = new FrameOutputStream(bytes, conf);
+        } else if (conf.isGzipCompress()) {
+            try {
+                compressor = new GZIPOutputStream(bytes, conf.getGzipBufferSize(), true);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        // Messages may have been queued before registration
+        writing.set(true);
+        startWriting.run();
+    }
+
+    @Override
+    void readable() throws IOException {
+        // Nothing is expected from the client, read only to detect a closed connection
+        int n;
+        do {
+            discard.clear();
+            n = channel.read(discard);
+        } while (n > 0);
+        if (n < 0) {
+            close();
+        }
+    }
+
+    @Override
+    void writable() throws IOException {
+        while (true) {
+            if (pendingCount == 0 && !fill()) {
+                // Nothing more to write, stop writing unless messages were queued meanwhile
+                SelectionKey key = getKey();
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+                writing.set(false);
+                if (buffer.isEmpty() || !writing.compareAndSet(false, true)) {
+                    return;
+                }
+                key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                continue;
+            }
+            channel.write(pending, pendingOffset, pendingCount);
+            while (pendingCount > 0 && !pending[pendingOffset].hasRemaining()) {
+                pending[pendingOffset++] = null;
+                pendingCount--;
+            }
+            if (pendingCount > 0) {
+                // Socket buffer full, wait until writable
+                return;
+            }
+        }
+    }
+
+    @Override
+    void closed() {
+        if (compressor != null) {
+            try {
+                compressor.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Take queued buffers for writing. Compressed clients compress them into a single buffer.
+     * 
+     * @return false if nothing was queued
+     * @throws IOException
+     */
+    private boolean fill() throws IOException {
+        pendingOffset = 0;
+        ByteBuffer b = buffer.poll();
+        if (b == null) {
+            return false;
+        }
+        if (compressor == null) {
+            do {
+                pending[pendingCount++] = b;
+            } while (pendingCount < pending.length && (b = buffer.poll()) != null);
+            return true;
+        }
+        do {
+            compressor.write(b.array(), b.arrayOffset() + b.position(), b.remaining());
+        } while (bytes.size() < WRITE_CHUNK_SIZE && (b = buffer.poll()) != null);
+        compressor.flush();
+        pending[pendingCount++] = ByteBuffer.wrap(bytes.toByteArray());
+        bytes.reset();
+        return true;
+    }
+
+}
@@ -15,18 +15,22 @@
  */
 package dk.dma.ais.bus.tcp;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.net.Socket;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.zip.GZIPOutputStream;
 
 import net.jcip.annotations.ThreadSafe;
 
+import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -38,6 +42,8 @@ public class TcpWriteClient extends TcpClient {
 
     private static final Logger LOG = LoggerFactory.getLogger(TcpWriteClient.class);    
 
+    private static final byte[] NEWLINE = "\r\n".getBytes(StandardCharsets.US_ASCII);
+
     private final BlockingQueue<String> buffer;
 
     public TcpWriteClient(IClientStoppedListener stopListener, Socket socket, TcpClientConf conf) {
@@ -59,10 +65,80 @@ public class TcpWriteClient extends TcpClient {
         return true;
     }
 
+    /**
+     * Send messages as a single write
+     * 
+     * @param msgs
+     * @return
+     */
+    public boolean sendAll(List<String> msgs) {
+        return sendLines(join(msgs), msgs.size());
+    }
+
+    /**
+     * Send messages joined by {@link #join(List)}
+     * 
+     * @param lines
+     * @param count
+     *            the number of messages
+     * @return
+     */
+    private boolean sendLines(String lines, int count) {
+        status.receive(count);
+        if (!buffer.offer(lines)) {
+            status.overflow(count);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Queue messages taken from the buffer of a stopped client with {@link #drainUnsent()}. They were counted as
+     * received by that client.
+     * 
+     * @param unsent
+     * @return the number of messages queued
+     */
+    public int resend(List<String> unsent) {
+        int queued = 0;
+        for (String msg : unsent) {
+            if (!buffer.offer(msg)) {
+                break;
+            }
+            queued++;
+        }
+        return queued;
+    }
+
+    /**
+     * Take the messages not written, for use when the client has stopped. Messages sent together are joined by line
+     * breaks.
+     * 
+     * @return the messages in the order they were sent
+     */
+    public List<String> drainUnsent() {
+        List<String> unsent = new ArrayList<>();
+        buffer.drainTo(unsent);
+        return unsent;
+    }
+
+    /**
+     * Join messages to be written at once
+     * 
+     * @param msgs
+     * @return
+     */
+    private static String join(List<String> msgs) {
+        return StringUtils.join(msgs, "\r\n");
+    }
+
     @Override
     public void run() {
         status.setConnected();
         try {
+            if (conf.isFrameCompress()) {
+                writeFrames(new FrameOutputStream(new BufferedOutputStream(socket.getOutputStream()), conf));
+            }
             // Open output stream
             OutputStream outputStream;
             if (conf.isGzipCompress()) {
@@ -104,4 +180,29 @@ public class TcpWriteClient extends TcpClient {
         LOG.info("Stopped");
     }
 
+    /**
+     * Pull-write loop writing compressed frames. A frame is written when the maximum delay has passed since its first
+     * message was written, or when it reaches the maximum size.
+     * 
+     * @param out
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    private void writeFrames(FrameOutputStream out) throws IOException, InterruptedException {
+        List<String> list = new ArrayList<>();
+        while (true) {
+            String str = out.isEmpty() ? buffer.take() : buffer.poll(out.getDelayRemaining(), TimeUnit.MILLISECONDS);
+            if (str != null) {
+                list.clear();
+                list.add(str);
+                buffer.drainTo(list);
+                for (String s : list) {
+                    out.write(s.getBytes(StandardCharsets.US_ASCII));
+                    out.write(NEWLINE);
+                }
+            }
+            out.flushIfDue();
+        }
+    }
+
 }
@@ -15,20 +15,30 @@
  */
 package dk.dma.ais.bus.tcp;
 
-import java.net.Socket;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+
+import dk.dma.ais.packet.AisPacket;
 
 /**
- * TCP server for writing clients
+ * TCP server for writing clients. Messages sent to all clients are encoded once into a buffer shared by the clients.
  */
 public class TcpWriteServer extends TcpServer {
 
+    private static final byte[] NEWLINE = "\r\n".getBytes(StandardCharsets.US_ASCII);
+
     public TcpWriteServer() {
         super();
     }
 
     @Override
-    protected TcpWriteClient newClient(Socket socket) {
-        return new TcpWriteClient(this, socket, clientConf);
+    protected TcpServerWriteClient newClient(SocketChannel channel) {
+        return new TcpServerWriteClient(this, channel, clientConf);
     }
 
     /**
@@ -37,9 +47,75 @@ public class TcpWriteServer extends TcpServer {
      * @param msg
      */
     public void send(String msg) {
-        for (TcpClient client : clients) {
-            ((TcpWriteClient) client).send(msg);
+        send(encode(Collections.singletonList(msg)), 1);
+    }
+
+    /**
+     * Send messages to all clients, encoded once for all clients
+     * 
+     * @param msgs
+     */
+    public void sendAll(List<String> msgs) {
+        if (!msgs.isEmpty()) {
+            send(encode(msgs), msgs.size());
+        }
+    }
+
+    /**
+     * Send packets to all clients, encoded once for all clients without converting them to strings
+     * 
+     * @param packets
+     */
+    public void sendPackets(List<AisPacket> packets) {
+        if (!packets.isEmpty()) {
+            send(encodePackets(packets), packets.size());
+        }
+    }
+
+    private void send(ByteBuffer lines, int count) {
+        for (TcpServerClient client : clients) {
+            ((TcpServerWriteClient) client).send(lines, count);
+        }
+    }
+
+    /**
+     * Encode messages as ASCII lines
+     * 
+     * @param msgs
+     * @return
+     */
+    static ByteBuffer encode(List<String> msgs) {
+        int size = 0;
+        for (String msg : msgs) {
+            size += msg.length() + NEWLINE.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (String msg : msgs) {
+            buffer.put(msg.getBytes(StandardCharsets.US_ASCII));
+            buffer.put(NEWLINE);
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Encode packets as lines
+     * 
+     * @param packets
+     * @return
+     */
+    static ByteBuffer encodePackets(List<AisPacket> packets) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(packets.size() * 128);
+        try {
+            for (AisPacket packet : packets) {
+                packet.writeTo(out);
+                out.write(NEWLINE);
+            }
+        } catch (IOException e) {
+            // Not thrown by a byte array stream
+            throw new IllegalStateException(e);
         }
+        return ByteBuffer.wrap(out.toByteArray());
     }
 
 }
@@ -23,6 +23,8 @@ import javax.xml.bind.annotation.XmlElement;
 import dk.dma.ais.bus.AisBusComponent;
 import dk.dma.ais.configuration.filter.FilterConfiguration;
 import dk.dma.ais.configuration.transform.TransformerConfiguration;
+import dk.dma.ais.filter.IPacketFilter;
+import dk.dma.ais.filter.MessageFilterBase;
 
 public abstract class AisBusComponentConfiguration {
 
@@ -30,6 +32,8 @@ public abstract class AisBusComponentConfiguration {
         
     private List<TransformerConfiguration> transformers = new ArrayList<>();
 
+    private DecodeConfiguration decode;
+
     public AisBusComponentConfiguration() {
 
     }
@@ -52,12 +56,29 @@ public abstract class AisBusComponentConfiguration {
         this.transformers = transformers;
     }
     
+    /**
+     * Fields to decode by the message filters of the component. If not set each filter decodes the fields it uses.
+     * 
+     * @return
+     */
+    public DecodeConfiguration getDecode() {
+        return decode;
+    }
+
+    public void setDecode(DecodeConfiguration decode) {
+        this.decode = decode;
+    }
+
     public abstract AisBusComponent getInstance();
     
     protected void configure(AisBusComponent comp) {
         // Add filters
         for (FilterConfiguration filterConf : filters) {
-            comp.getFilters().addFilter(filterConf.getInstance());
+            IPacketFilter filter = filterConf.getInstance();
+            if (decode != null && filter instanceof MessageFilterBase) {
+                ((MessageFilterBase) filter).setDecodeOptions(decode.getInstance());
+            }
+            comp.getFilters().addFilter(filter);
         }
         // Add transformers
         for (TransformerConfiguration transConf : transformers) {
@@ -33,16 +33,27 @@ import javax.xml.bind.annotation.XmlRootElement;
 import javax.xml.bind.annotation.XmlTransient;
 
 import dk.dma.ais.bus.AisBus;
+import dk.dma.ais.bus.AisBus.LaneRouting;
 import dk.dma.ais.bus.AisBusConsumer;
 import dk.dma.ais.bus.AisBusProvider;
+import dk.dma.ais.bus.OverflowPolicy;
 import dk.dma.ais.configuration.bus.consumer.AisBusConsumerConfiguration;
 import dk.dma.ais.configuration.bus.provider.AisBusProviderConfiguration;
+import dk.dma.ais.queue.MessageQueueType;
+import dk.dma.ais.queue.RingBufferMessageQueue.WaitStrategy;
 
 @XmlRootElement
 public class AisBusConfiguration extends AisBusComponentConfiguration {
 
     private int busPullMaxElements = 1000;
     private int busQueueSize = 10000;
+    private MessageQueueType busQueueType = MessageQueueType.BLOCKING;
+    private WaitStrategy busQueueWaitStrategy = WaitStrategy.PARK;
+    private int busLanes = 1;
+    private LaneRouting busLaneRouting = LaneRouting.MMSI;
+    private OverflowPolicy busOverflowPolicy = OverflowPolicy.DROP_NEWEST;
+    private long busOverflowTimeout;
+    private int busDecodeThreads;
 
     private List<AisBusProviderConfiguration> providers = new ArrayList<>();
     private List<AisBusConsumerConfiguration> consumers = new ArrayList<>();
@@ -67,6 +78,87 @@ public class AisBusConfiguration extends AisBusComponentConfiguration {
         this.busQueueSize = busQueueSize;
     }
 
+    public MessageQueueType getBusQueueType() {
+        return busQueueType;
+    }
+
+    public void setBusQueueType(MessageQueueType busQueueType) {
+        this.busQueueType = busQueueType;
+    }
+
+    /**
+     * How the bus thread waits for packets when the bus queue is a ring buffer
+     * 
+     * @return
+     */
+    public WaitStrategy getBusQueueWaitStrategy() {
+        return busQueueWaitStrategy;
+    }
+
+    public void setBusQueueWaitStrategy(WaitStrategy busQueueWaitStrategy) {
+        this.busQueueWaitStrategy = busQueueWaitStrategy;
+    }
+
+    /**
+     * Number of lanes of the bus, each with its own queue of busQueueSize and distributor thread
+     * 
+     * @return
+     */
+    public int getBusLanes() {
+        return busLanes;
+    }
+
+    public void setBusLanes(int busLanes) {
+        this.busLanes = busLanes;
+    }
+
+    public LaneRouting getBusLaneRouting() {
+        return busLaneRouting;
+    }
+
+    public void setBusLaneRouting(LaneRouting busLaneRouting) {
+        this.busLaneRouting = busLaneRouting;
+    }
+
+    /**
+     * What to do when a lane of the bus is full. SPILL is not supported by the bus.
+     * 
+     * @return
+     */
+    public OverflowPolicy getBusOverflowPolicy() {
+        return busOverflowPolicy;
+    }
+
+    public void setBusOverflowPolicy(OverflowPolicy busOverflowPolicy) {
+        this.busOverflowPolicy = busOverflowPolicy;
+    }
+
+    /**
+     * Maximum time in milliseconds to block providers with the BLOCK policy, 0 for no limit
+     * 
+     * @return
+     */
+    public long getBusOverflowTimeout() {
+        return busOverflowTimeout;
+    }
+
+    public void setBusOverflowTimeout(long busOverflowTimeout) {
+        this.busOverflowTimeout = busOverflowTimeout;
+    }
+
+    /**
+     * Number of threads decoding packets before they are distributed to the consumers, 0 for no decoding by the bus
+     * 
+     * @return
+     */
+    public int getBusDecodeThreads() {
+        return busDecodeThreads;
+    }
+
+    public void setBusDecodeThreads(int busDecodeThreads) {
+        this.busDecodeThreads = busDecodeThreads;
+    }
+
     @XmlElement(name = "provider")
     public List<AisBusProviderConfiguration> getProviders() {
         return providers;
@@ -90,7 +182,14 @@ public class AisBusConfiguration extends AisBusComponentConfiguration {
     public AisBus getInstance() {
         AisBus aisBus = new AisBus();
         aisBus.setBusQueueSize(busQueueSize);
+        aisBus.setBusQueueType(busQueueType);
+        aisBus.setBusQueueWaitStrategy(busQueueWaitStrategy);
         aisBus.setBusPullMaxElements(busPullMaxElements);
+        aisBus.setBusLanes(busLanes);
+        aisBus.setBusLaneRouting(busLaneRouting);
+        aisBus.setBusOverflowPolicy(busOverflowPolicy);
+        aisBus.setBusOverflowTimeout(busOverflowTimeout);
+        aisBus.setBusDecodeThreads(busDecodeThreads);
         configure(aisBus);
         aisBus.init();
         for (AisBusConsumerConfiguration consumerConf : consumers) {
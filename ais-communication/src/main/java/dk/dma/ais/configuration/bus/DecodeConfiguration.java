@@ -0,0 +1,64 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.ais.configuration.bus;
+
+import javax.xml.bind.annotation.XmlTransient;
+
+import dk.dma.ais.message.DecodeOptions;
+
+/**
+ * Configuration of the fields to decode from packets by the filters of a bus component
+ */
+public class DecodeConfiguration {
+
+    private boolean headerOnly;
+    private boolean text = true;
+    private boolean applicationMessage = true;
+
+    public DecodeConfiguration() {
+
+    }
+
+    public boolean isHeaderOnly() {
+        return headerOnly;
+    }
+
+    public void setHeaderOnly(boolean headerOnly) {
+        this.headerOnly = headerOnly;
+    }
+
+    public boolean isText() {
+        return text;
+    }
+
+    public void setText(boolean text) {
+        this.text = text;
+    }
+
+    public boolean isApplicationMessage() {
+        return applicationMessage;
+    }
+
+    public void setApplicationMessage(boolean applicationMessage) {
+        this.applicationMessage = applicationMessage;
+    }
+
+    @XmlTransient
+    public DecodeOptions getInstance() {
+        return new DecodeOptions(headerOnly, text, applicationMessage);
+    }
+
+}
@@ -18,14 +18,25 @@ package dk.dma.ais.configuration.bus.consumer;
 import javax.xml.bind.annotation.XmlSeeAlso;
 
 import dk.dma.ais.bus.AisBusConsumer;
+import dk.dma.ais.bus.OverflowPolicy;
 import dk.dma.ais.configuration.bus.AisBusSocketConfiguration;
+import dk.dma.ais.queue.MessageQueueType;
+import dk.dma.ais.queue.RingBufferMessageQueue.WaitStrategy;
 
 @XmlSeeAlso({ StdoutConsumerConfiguration.class, TcpWriterConsumerConfiguration.class, TcpServerConsumerConfiguration.class,
-        DistributerConsumerConfiguration.class })
+        DistributerConsumerConfiguration.class, GeoFenceConsumerConfiguration.class })
 public abstract class AisBusConsumerConfiguration extends AisBusSocketConfiguration {
 
     private int consumerPullMaxElements = 1000;
     private int consumerQueueSize = 10000;
+    private MessageQueueType consumerQueueType = MessageQueueType.BLOCKING;
+    private WaitStrategy consumerQueueWaitStrategy = WaitStrategy.PARK;
+    private OverflowPolicy consumerOverflowPolicy = OverflowPolicy.DROP_NEWEST;
+    private long consumerOverflowTimeout;
+    private String spillDirectory;
+    private long spillSegmentSize = 16 * 1024 * 1024;
+    private long spillMaxSize = 1024L * 1024 * 1024;
+    private long spillMaxAge;
 
     public AisBusConsumerConfiguration() {
 
@@ -47,9 +58,116 @@ public abstract class AisBusConsumerConfiguration extends AisBusSocketConfigurat
         this.consumerPullMaxElements = consumerPullMaxElements;
     }
 
+    public MessageQueueType getConsumerQueueType() {
+        return consumerQueueType;
+    }
+
+    public void setConsumerQueueType(MessageQueueType consumerQueueType) {
+        this.consumerQueueType = consumerQueueType;
+    }
+
+    /**
+     * How the consumer thread waits for packets when the consumer queue is a ring buffer
+     * 
+     * @return
+     */
+    public WaitStrategy getConsumerQueueWaitStrategy() {
+        return consumerQueueWaitStrategy;
+    }
+
+    public void setConsumerQueueWaitStrategy(WaitStrategy consumerQueueWaitStrategy) {
+        this.consumerQueueWaitStrategy = consumerQueueWaitStrategy;
+    }
+
+    /**
+     * What to do when the consumer queue is full
+     * 
+     * @return
+     */
+    public OverflowPolicy getConsumerOverflowPolicy() {
+        return consumerOverflowPolicy;
+    }
+
+    public void setConsumerOverflowPolicy(OverflowPolicy consumerOverflowPolicy) {
+        this.consumerOverflowPolicy = consumerOverflowPolicy;
+    }
+
+    /**
+     * Maximum time in milliseconds to block the bus with the BLOCK policy, 0 for no limit
+     * 
+     * @return
+     */
+    public long getConsumerOverflowTimeout() {
+        return consumerOverflowTimeout;
+    }
+
+    public void setConsumerOverflowTimeout(long consumerOverflowTimeout) {
+        this.consumerOverflowTimeout = consumerOverflowTimeout;
+    }
+
+    /**
+     * Directory to spill packets to with the SPILL policy
+     * 
+     * @return
+     */
+    public String getSpillDirectory() {
+        return spillDirectory;
+    }
+
+    public void setSpillDirectory(String spillDirectory) {
+        this.spillDirectory = spillDirectory;
+    }
+
+    /**
+     * Size in bytes of spill segment files
+     * 
+     * @return
+     */
+    public long getSpillSegmentSize() {
+        return spillSegmentSize;
+    }
+
+    public void setSpillSegmentSize(long spillSegmentSize) {
+        this.spillSegmentSize = spillSegmentSize;
+    }
+
+    /**
+     * Maximum bytes of spilled packets to retain, 0 for no limit
+     * 
+     * @return
+     */
+    public long getSpillMaxSize() {
+        return spillMaxSize;
+    }
+
+    public void setSpillMaxSize(long spillMaxSize) {
+        this.spillMaxSize = spillMaxSize;
+    }
+
+    /**
+     * Maximum age in seconds of spilled packets to retain, 0 for no limit
+     * 
+     * @return
+     */
+    public long getSpillMaxAge() {
+        return spillMaxAge;
+    }
+
+    public void setSpillMaxAge(long spillMaxAge) {
+        this.spillMaxAge = spillMaxAge;
+    }
+
     protected AisBusConsumer configure(AisBusConsumer consumer) {
         consumer.setConsumerPullMaxElements(consumerPullMaxElements);
         consumer.setConsumerQueueSize(consumerQueueSize);
+        consumer.setConsumerQueueType(consumerQueueType);
+        consumer.setConsumerQueueWaitStrategy(consumerQueueWaitStrategy);
+        consumer.setConsumerOverflowPolicy(consumerOverflowPolicy);
+        consumer.setConsumerOverflowTimeout(consumerOverflowTimeout);
+        consumer.setSpillDirectory(spillDirectory);
+        consumer.setSpillSegmentSize(spillSegmentSize);
+        consumer.setSpillMaxSize(spillMaxSize);
+        consumer.setSpillMaxAge(spillMaxAge);
         super.configure(consumer);
         return consumer;
     }
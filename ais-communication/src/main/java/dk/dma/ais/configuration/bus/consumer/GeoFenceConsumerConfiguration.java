@@ -0,0 +1,87 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.ais.configuration.bus.consumer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
+
+import dk.dma.ais.bus.AisBusComponent;
+import dk.dma.ais.bus.consumer.GeoFenceConsumer;
+import dk.dma.ais.configuration.filter.geometry.GeometryConfiguration;
+import dk.dma.ais.filter.GeoFence;
+import dk.dma.ais.filter.GeoFenceIndex;
+
+@XmlRootElement
+public class GeoFenceConsumerConfiguration extends AisBusConsumerConfiguration {
+
+    private List<GeometryConfiguration> geometries = new ArrayList<>();
+
+    /**
+     * Time in seconds in a fence before a dwell event is given, 0 for no dwell events
+     */
+    private long dwellTime;
+
+    /**
+     * Time in seconds without positions before a target is considered to have left its fences, 0 for never
+     */
+    private long idleTimeout = 3600;
+
+    public GeoFenceConsumerConfiguration() {
+
+    }
+
+    @XmlElement(name = "geometry")
+    public List<GeometryConfiguration> getGeometries() {
+        return geometries;
+    }
+
+    public void setGeometries(List<GeometryConfiguration> geometries) {
+        this.geometries = geometries;
+    }
+
+    public long getDwellTime() {
+        return dwellTime;
+    }
+
+    public void setDwellTime(long dwellTime) {
+        this.dwellTime = dwellTime;
+    }
+
+    public long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public void setIdleTimeout(long idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    @Override
+    @XmlTransient
+    public AisBusComponent getInstance() {
+        List<GeoFence> fences = new ArrayList<>();
+        for (GeometryConfiguration geo : geometries) {
+            fences.add(geo.getFence());
+        }
+        GeoFenceConsumer consumer = new GeoFenceConsumer(new GeoFenceIndex(fences), dwellTime * 1000,
+                idleTimeout * 1000);
+        return super.configure(consumer);
+    }
+
+}
@@ -29,6 +29,11 @@ public class DownSampleFilterConfiguration extends FilterConfiguration {
      */
     private long samplingRate = 60;
 
+    /**
+     * Sample on packet time instead of the current time
+     */
+    private boolean packetTime;
+
     public DownSampleFilterConfiguration() {
 
     }
@@ -44,12 +49,19 @@ public class DownSampleFilterConfiguration extends FilterConfiguration {
     public void setSamplingRate(long samplingRate) {
         this.samplingRate = samplingRate;
     }
-    
-    
+
+    public boolean isPacketTime() {
+        return packetTime;
+    }
+
+    public void setPacketTime(boolean packetTime) {
+        this.packetTime = packetTime;
+    }
+
     @Override
     @XmlTransient
     public IPacketFilter getInstance() {
-        return new DownSampleFilter(samplingRate);
+        return new DownSampleFilter(samplingRate, packetTime);
     }
 
 }
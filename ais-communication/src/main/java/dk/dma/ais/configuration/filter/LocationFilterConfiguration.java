@@ -23,6 +23,7 @@ import javax.xml.bind.annotation.XmlRootElement;
 import javax.xml.bind.annotation.XmlTransient;
 
 import dk.dma.ais.configuration.filter.geometry.GeometryConfiguration;
+import dk.dma.ais.filter.GeoFence;
 import dk.dma.ais.filter.IPacketFilter;
 import dk.dma.ais.filter.LocationFilter;
 
@@ -31,6 +32,11 @@ public class LocationFilterConfiguration extends FilterConfiguration {
 
     private List<GeometryConfiguration> geometries = new ArrayList<>();
 
+    /**
+     * Maximum number of targets to remember the position of
+     */
+    private int maxTargets = LocationFilter.DEFAULT_MAX_TARGETS;
+
     public LocationFilterConfiguration() {
 
     }
@@ -44,13 +50,23 @@ public class LocationFilterConfiguration extends FilterConfiguration {
         this.geometries = geometries;
     }
 
+    public int getMaxTargets() {
+        return maxTargets;
+    }
+
+    public void setMaxTargets(int maxTargets) {
+        this.maxTargets = maxTargets;
+    }
+
     @Override
     @XmlTransient
     public IPacketFilter getInstance() {
-        LocationFilter locFilter = new LocationFilter();
+        LocationFilter locFilter = new LocationFilter(maxTargets);
+        List<GeoFence> fences = new ArrayList<>();
         for (GeometryConfiguration geo : geometries) {
-            locFilter.addFilterGeometry(geo.getPredicate());
+            fences.add(geo.getFence());
         }
+        locFilter.addFilterGeometries(fences);
         return locFilter;
     }
 
@@ -0,0 +1,81 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.ais.configuration.filter.geometry;
+
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
+
+import dk.dma.ais.filter.GeoFence;
+import dk.dma.enav.model.geometry.Position;
+import dk.dma.enav.util.function.Predicate;
+
+@XmlRootElement
+public class BoxGeometryConfiguration extends GeometryConfiguration {
+
+    private double minLat;
+    private double minLon;
+    private double maxLat;
+    private double maxLon;
+
+    public BoxGeometryConfiguration() {
+
+    }
+
+    public double getMinLat() {
+        return minLat;
+    }
+
+    public void setMinLat(double minLat) {
+        this.minLat = minLat;
+    }
+
+    public double getMinLon() {
+        return minLon;
+    }
+
+    public void setMinLon(double minLon) {
+        this.minLon = minLon;
+    }
+
+    public double getMaxLat() {
+        return maxLat;
+    }
+
+    public void setMaxLat(double maxLat) {
+        this.maxLat = maxLat;
+    }
+
+    public double getMaxLon() {
+        return maxLon;
+    }
+
+    public void setMaxLon(double maxLon) {
+        this.maxLon = maxLon;
+    }
+
+    @Override
+    @XmlTransient
+    public Predicate<? super Position> getPredicate() {
+        return getFence();
+    }
+
+    @Override
+    @XmlTransient
+    public GeoFence getFence() {
+        return GeoFence.box(getName(), minLat, minLon, maxLat, maxLon);
+    }
+
+}
@@ -18,6 +18,7 @@ package dk.dma.ais.configuration.filter.geometry;
 import javax.xml.bind.annotation.XmlRootElement;
 import javax.xml.bind.annotation.XmlTransient;
 
+import dk.dma.ais.filter.GeoFence;
 import dk.dma.enav.model.geometry.Circle;
 import dk.dma.enav.model.geometry.CoordinateSystem;
 import dk.dma.enav.model.geometry.Position;
@@ -64,4 +65,10 @@ public class CircleGeometryConfiguration extends GeometryConfiguration {
         return new Circle(lat, lon, radius, CoordinateSystem.GEODETIC).containedWithin();
     }
 
+    @Override
+    @XmlTransient
+    public GeoFence getFence() {
+        return GeoFence.circle(getName(), Position.create(lat, lon), radius);
+    }
+
 }
@@ -16,13 +16,38 @@
 package dk.dma.ais.configuration.filter.geometry;
 
 import javax.xml.bind.annotation.XmlSeeAlso;
+import javax.xml.bind.annotation.XmlTransient;
 
+import dk.dma.ais.filter.GeoFence;
 import dk.dma.enav.model.geometry.Position;
 import dk.dma.enav.util.function.Predicate;
 
-@XmlSeeAlso({ CircleGeometryConfiguration.class })
+@XmlSeeAlso({ CircleGeometryConfiguration.class, BoxGeometryConfiguration.class, PolygonGeometryConfiguration.class })
 public abstract class GeometryConfiguration {
 
+    /**
+     * Optional name of the area
+     */
+    private String name;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
     public abstract Predicate<? super Position> getPredicate();
 
+    /**
+     * Get the geometry as a fence for indexing. Geometries without a bounding box are tested for every position.
+     * 
+     * @return
+     */
+    @XmlTransient
+    public GeoFence getFence() {
+        return GeoFence.of(name, getPredicate());
+    }
+
 }
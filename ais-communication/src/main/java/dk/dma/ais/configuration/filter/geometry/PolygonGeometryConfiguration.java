@@ -0,0 +1,66 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.ais.configuration.filter.geometry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
+
+import dk.dma.ais.filter.GeoFence;
+import dk.dma.enav.model.geometry.Position;
+import dk.dma.enav.util.function.Predicate;
+
+/**
+ * A polygon given by its points. The polygon is closed from the last to the first point.
+ */
+@XmlRootElement
+public class PolygonGeometryConfiguration extends GeometryConfiguration {
+
+    private List<PointConfiguration> points = new ArrayList<>();
+
+    public PolygonGeometryConfiguration() {
+
+    }
+
+    @XmlElement(name = "point")
+    public List<PointConfiguration> getPoints() {
+        return points;
+    }
+
+    public void setPoints(List<PointConfiguration> points) {
+        this.points = points;
+    }
+
+    @Override
+    @XmlTransient
+    public Predicate<? super Position> getPredicate() {
+        return getFence();
+    }
+
+    @Override
+    @XmlTransient
+    public GeoFence getFence() {
+        List<Position> positions = new ArrayList<>();
+        for (PointConfiguration point : points) {
+            positions.add(Position.create(point.getLat(), point.getLon()));
+        }
+        return GeoFence.polygon(getName(), positions);
+    }
+
+}
@@ -15,11 +15,10 @@
  */
 package dk.dma.ais.filter;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-
 import net.jcip.annotations.ThreadSafe;
 import dk.dma.ais.message.AisMessage;
+import dk.dma.ais.message.DecodeOptions;
+import dk.dma.ais.packet.AisPacket;
 
 /**
  * A down sampling filter.
@@ -31,29 +30,40 @@ import dk.dma.ais.message.AisMessage;
  * 
  * All remaining message types are passed through without down sampling.
  * 
+ * The time of the last forwarded report of each MMSI is kept in a {@link TimeWindowMap}, where MMSI's not heard from
+ * within the sampling rate are evicted. By default the sampling is done on the time the packets are filtered. Sampling
+ * on packet time instead makes the filter independent of the rate packets are replayed at.
+ * 
  */
 @ThreadSafe
 public class DownSampleFilter extends MessageFilterBase {
 
+    /** Key bits marking position reports */
+    private static final long POS_REPORT = 1L << 32;
+
+    /** Key bits marking static reports */
+    private static final long STAT_REPORT = 2L << 32;
+
     /**
      * Sample rate in seconds
      */
     private volatile long samplingRate = 60;
 
     /**
-     * Map from MMSI to last time a pos report was received
+     * Sample on the best timestamp of packets instead of the current time
      */
-    private final Map<Integer, Long> posReceived = new ConcurrentHashMap<>();
+    private volatile boolean packetTime;
 
     /**
-     * Map from MMSI to last time a static report was received
+     * Map from report type and MMSI to last time a report was received
      */
-    private final Map<Integer, Long> statReceived = new ConcurrentHashMap<>();
+    private final TimeWindowMap received = new TimeWindowMap();
 
     /**
      * Empty contructor
      */
     public DownSampleFilter() {
+        super(DecodeOptions.HEADER_ONLY);
     }
 
     /**
@@ -62,59 +72,76 @@ public class DownSampleFilter extends MessageFilterBase {
      * @param samplingRate
      */
     public DownSampleFilter(long samplingRate) {
+        this();
         this.samplingRate = samplingRate;
     }
 
+    /**
+     * Constructor given sampling rate in seconds and if packet time is used
+     * 
+     * @param samplingRate
+     * @param packetTime
+     */
+    public DownSampleFilter(long samplingRate, boolean packetTime) {
+        this(samplingRate);
+        this.packetTime = packetTime;
+    }
+
+    /**
+     * Filter on the message id and MMSI read from the raw payload without decoding the message
+     */
+    @Override
+    public boolean rejectedByFilter(AisPacket packet) {
+        RawPayload payload = RawPayload.from(packet);
+        if (payload == null) {
+            return super.rejectedByFilter(packet);
+        }
+        long now = packetTime ? packet.getBestTimestamp() : System.currentTimeMillis();
+        return rejected(payload.getMsgId(), payload.getUserId(), now);
+    }
+
     @Override
     public boolean rejectedByFilter(AisMessage message) {
+        return rejected(message.getMsgId(), message.getUserId(), System.currentTimeMillis());
+    }
+
+    /**
+     * Test the report and remember the time if it is forwarded
+     * 
+     * @param msgId
+     * @param userId
+     * @param now
+     * @return if the report was rejected
+     */
+    boolean rejected(int msgId, int userId, long now) {
         // If not sampling always accept
-        if (samplingRate == 0) {
+        long rate = samplingRate;
+        if (rate == 0) {
             return false;
         }
 
-        boolean posReport = false;
+        long key;
 
-        switch (message.getMsgId()) {
+        switch (msgId) {
         case 1:
         case 2:
         case 3:
         case 4:
         case 18:
             // Pos reports
-            posReport = true;
+            key = POS_REPORT;
             break;
         case 5:
         case 24:
             // Stat report
+            key = STAT_REPORT;
             break;
         default:
             // All other are not filterted
             return false;
         }
 
-        Long now = System.currentTimeMillis();
-        Long lastReceived = null;
-
-        // Get last received
-        Map<Integer, Long> receiveSet = posReport ? posReceived : statReceived;
-        lastReceived = receiveSet.get(message.getUserId());
-        if (lastReceived == null) {
-            lastReceived = 0L;
-        }
-
-        // Elapsed in seconds
-        double elapsed = (now - lastReceived) / 1000.0;
-
-        // Sample message
-        if (elapsed < samplingRate) {
-            return true;
-        }
-
-        // Mark new received time
-        receiveSet.put(message.getUserId(), now);
-
-        // Do not filter
-        return false;
+        return received.rejected(key | userId & 0xffffffffL, now, rate * 1000);
     }
 
     /**
@@ -136,4 +163,23 @@ public class DownSampleFilter extends MessageFilterBase {
         this.samplingRate = samplingRate;
     }
 
+    /**
+     * Get if sampling is done on packet time
+     * 
+     * @return
+     */
+    public boolean isPacketTime() {
+        return packetTime;
+    }
+
+    /**
+     * Set if sampling is done on the best timestamp of packets instead of the current time. Messages filtered without
+     * their packet are always sampled on the current time.
+     * 
+     * @param packetTime
+     */
+    public void setPacketTime(boolean packetTime) {
+        this.packetTime = packetTime;
+    }
+
 }
@@ -15,47 +15,33 @@
  */
 package dk.dma.ais.filter;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-import java.util.TreeMap;
-
-import net.jcip.annotations.GuardedBy;
 import net.jcip.annotations.ThreadSafe;
 import dk.dma.ais.message.AisMessage;
+import dk.dma.ais.packet.AisPacket;
+import dk.dma.ais.sentence.Vdm;
 
 /**
  * A doublet filter.
  * 
- * The doublet filter works by only allowing the same message through once in a time window. The six bit string of the message is
- * used as unique identifier.
+ * The doublet filter works by only allowing the same message through once in a time window. A 64 bit fingerprint of the
+ * six bit string of the message is used as unique identifier. Packets are fingerprinted directly from the payloads of
+ * the raw sentences without decoding the message.
  * 
+ * Fingerprints are kept in a {@link TimeWindowMap}, so expired fingerprints are dropped without scanning for them.
  */
 @ThreadSafe
 public class DuplicateFilter extends MessageFilterBase {
 
-    /**
-     * Number of message receptions between cleanups
-     */
-    private static final long MAX_CLEANUP_AGE = 10000;
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
 
-    /**
-     * A TreeMap is used with raw six bit string as key. compareTo is used which is rather effective for differing messages. Using
-     * HashMap can result in wrong filtering as two strings can produce the same hash code.
-     */
-    @GuardedBy("this")
-    private final Map<DoubletEntry, Long> sixbitReceived = new TreeMap<>();
+    private final TimeWindowMap received = new TimeWindowMap();
 
     /**
      * A default window size of 10 seconds is used
      */
     private volatile long windowSize = 10000;
 
-    /**
-     * Number of message receptions since last cleanup
-     */
-    private volatile long cleanupAge;
-
     public DuplicateFilter() {
     }
 
@@ -66,56 +52,141 @@ public class DuplicateFilter extends MessageFilterBase {
      *            size in milliseconds
      */
     public DuplicateFilter(long windowSize) {
+        this();
         this.windowSize = windowSize;
     }
 
     @Override
-    public synchronized boolean rejectedByFilter(AisMessage message) {
-        // Get time now
-        Long now = System.currentTimeMillis();
-
-        // Make new entry
-        DoubletEntry newEntry = new DoubletEntry(message.getVdm().getSixbitString(), now);
+    public boolean rejectedByFilter(AisMessage message) {
+        Vdm vdm = message.getVdm();
+        String sixbit = vdm.getSixbitString();
+        int padBits = sixbit.length() * 6 - vdm.getBinArray().getLength();
+        return rejected(fingerprint(sixbit, padBits), System.currentTimeMillis());
+    }
 
-        // Try to find matching received
-        Long lastReceived = sixbitReceived.get(newEntry);
-        if (lastReceived == null) {
-            lastReceived = 0L;
+    /**
+     * Filter on the fingerprint of the raw payloads. Packets without a VDM payload are decoded and filtered as
+     * messages.
+     */
+    @Override
+    public boolean rejectedByFilter(AisPacket packet) {
+        long fingerprint = fingerprintPayloads(packet.getRawMessage());
+        if (fingerprint == 0) {
+            return super.rejectedByFilter(packet);
         }
+        return rejected(fingerprint, System.currentTimeMillis());
+    }
 
-        // Elapsed in msecs
-        long elapsed = now - lastReceived;
+    /**
+     * Test the fingerprint and remember it if it was not received within the window
+     * 
+     * @param fingerprint
+     *            a fingerprint other than 0
+     * @param now
+     * @return if the fingerprint was received within the window
+     */
+    boolean rejected(long fingerprint, long now) {
+        return received.rejected(fingerprint, now, windowSize);
+    }
 
-        if (elapsed < windowSize) {
-            // Doublet within window
-            // System.out.println("Doublet: " + newEntry.getSixbit() +
-            // " elapsed: " + elapsed);
-            return true;
+    /**
+     * Get the fingerprint of the six bit string. The pad bits of the last character are ignored.
+     * 
+     * @param sixbit
+     * @param padBits
+     * @return a fingerprint other than 0
+     */
+    static long fingerprint(CharSequence sixbit, int padBits) {
+        long h = FNV_OFFSET;
+        int last = sixbit.length() - 1;
+        for (int i = 0; i < last; i++) {
+            h = (h ^ sixbit.charAt(i)) * FNV_PRIME;
         }
+        if (last >= 0) {
+            h = (h ^ clearPadBits(sixbit.charAt(last), padBits)) * FNV_PRIME;
+        }
+        return mix(h);
+    }
 
-        // Save message in map
-        sixbitReceived.put(newEntry, now);
-
-        // Update message reception count
-        cleanupAge++;
+    /**
+     * Clear the pad bits of a six bit character. The bits kept are the low bits, as decoded by
+     * {@link dk.dma.ais.binary.BinArray#appendSixbit(String, int)}, so the character encoded again from a compacted VDM
+     * gives the same result.
+     */
+    private static char clearPadBits(char c, int padBits) {
+        if (padBits <= 0 || padBits > 5) {
+            return c;
+        }
+        int val = c - 48;
+        if (val > 40) {
+            val -= 8;
+        }
+        val &= (1 << 6 - padBits) - 1;
+        return (char) (val < 40 ? val + 48 : val + 56);
+    }
 
-        // Do cleanup for every 1.000 inserts/updates
-        if (cleanupAge >= MAX_CLEANUP_AGE) {
-            List<DoubletEntry> oldEntries = new ArrayList<>(sixbitReceived.size());
-            // Iterate through all elements
-            for (DoubletEntry entry : sixbitReceived.keySet()) {
-                if (now - entry.getReceived() > windowSize) {
-                    oldEntries.add(entry);
+    /**
+     * Get the fingerprint of the payloads of the VDM sentences of a raw packet. The payloads together are the six bit
+     * string of the message, so the fingerprint is that of {@link #fingerprint(CharSequence, int)}.
+     * 
+     * @param raw
+     * @return the fingerprint or 0 if no payload was found
+     */
+    static long fingerprintPayloads(CharSequence raw) {
+        long h = FNV_OFFSET;
+        boolean found = false;
+        int len = raw.length();
+        for (int i = 0; i + 5 < len; i++) {
+            if (raw.charAt(i) == '!' && raw.charAt(i + 3) == 'V' && raw.charAt(i + 4) == 'D'
+                    && (raw.charAt(i + 5) == 'M' || raw.charAt(i + 5) == 'O')) {
+                // The payload is the fifth field after the sentence formatter
+                int j = i + 6;
+                int commas = 0;
+                for (; j < len && commas < 5; j++) {
+                    char c = raw.charAt(j);
+                    if (c == '*' || c == '\r' || c == '\n') {
+                        return 0;
+                    }
+                    if (c == ',') {
+                        commas++;
+                    }
                 }
+                // Hash all but the last character, which may hold pad bits
+                int last = -1;
+                for (; j < len; j++) {
+                    char c = raw.charAt(j);
+                    if (c == ',' || c == '*' || c == '\r' || c == '\n') {
+                        break;
+                    }
+                    if (last >= 0) {
+                        h = (h ^ last) * FNV_PRIME;
+                    }
+                    last = c;
+                }
+                if (last >= 0) {
+                    int padBits = 0;
+                    if (j + 1 < len && raw.charAt(j) == ',') {
+                        padBits = raw.charAt(j + 1) - '0';
+                    }
+                    h = (h ^ clearPadBits((char) last, padBits)) * FNV_PRIME;
+                    found = true;
+                }
+                i = j;
             }
-            for (DoubletEntry oldEntry : oldEntries) {
-                sixbitReceived.remove(oldEntry);
-            }
-            cleanupAge = 0;
         }
+        return found ? mix(h) : 0;
+    }
 
-        // Send message
-        return false;
+    /**
+     * Spread the bits of the hash
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h == 0 ? 1 : h;
     }
 
     public long getWindowSize() {
@@ -126,49 +197,4 @@ public class DuplicateFilter extends MessageFilterBase {
         this.windowSize = windowSize;
     }
 
-    /**
-     * An entry class with sixbit string and reception date
-     */
-    public class DoubletEntry implements Comparable<DoubletEntry> {
-
-        private String sixbit;
-        private long received;
-
-        public DoubletEntry(String sixbit, long received) {
-            this.sixbit = sixbit;
-            this.received = received;
-        }
-
-        /**
-         * Comparison is done only on six bit string
-         */
-        @Override
-        public int compareTo(DoubletEntry doubletEntry) {
-            return sixbit.compareTo(doubletEntry.sixbit);
-        }
-
-        public long getReceived() {
-            return received;
-        }
-
-        public String getSixbit() {
-            return sixbit;
-        }
-
-        @Override
-        public boolean equals(Object obj) {
-            DoubletEntry e = (DoubletEntry)obj;
-            if (e == null || e.sixbit == null) {
-                return false;
-            }
-            return sixbit.equals(((DoubletEntry) obj).sixbit);
-        }
-
-        @Override
-        public int hashCode() {
-            return sixbit.hashCode();
-        }
-
-    }
-
 }
@@ -0,0 +1,328 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.ais.filter;
+
+import java.util.List;
+
+import net.jcip.annotations.Immutable;
+import dk.dma.enav.model.geometry.Circle;
+import dk.dma.enav.model.geometry.CoordinateSystem;
+import dk.dma.enav.model.geometry.Position;
+import dk.dma.enav.util.function.Predicate;
+
+/**
+ * An area of interest with a bounding box, used for indexing it in a {@link GeoFenceIndex}.
+ * 
+ * Boxes and polygons are tested in the plane of latitude and longitude, and may not cross the 180th meridian. Fences
+ * given by a predicate only are unbounded and tested for every position.
+ */
+@Immutable
+public abstract class GeoFence extends Predicate<Position> {
+
+    /** Smallest radius of the earth in meters, giving the largest latitude span of a circle */
+    private static final double POLAR_RADIUS = 6356752.0;
+
+    private final String name;
+
+    final double minLat;
+    final double minLon;
+    final double maxLat;
+    final double maxLon;
+
+    GeoFence(String name, double minLat, double minLon, double maxLat, double maxLon) {
+        this.name = name;
+        this.minLat = minLat;
+        this.minLon = minLon;
+        this.maxLat = maxLat;
+        this.maxLon = maxLon;
+    }
+
+    /**
+     * Get the name of the fence
+     * 
+     * @return the name or null
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Test if the fence contains the position
+     * 
+     * @param lat
+     * @param lon
+     * @return
+     */
+    public abstract boolean contains(double lat, double lon);
+
+    @Override
+    public boolean test(Position pos) {
+        return contains(pos.getLatitude(), pos.getLongitude());
+    }
+
+    /**
+     * If the fence is bounded by its bounding box
+     */
+    boolean isBounded() {
+        return true;
+    }
+
+    /**
+     * Test if the fence contains the whole box, so positions in it need not be tested
+     * 
+     * @return true if the box is known to be contained
+     */
+    boolean containsBox(double minLat, double minLon, double maxLat, double maxLon) {
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " [name=" + name + ", minLat=" + minLat + ", minLon=" + minLon
+                + ", maxLat=" + maxLat + ", maxLon=" + maxLon + "]";
+    }
+
+    /**
+     * Create a box fence
+     * 
+     * @param name
+     * @param minLat
+     * @param minLon
+     * @param maxLat
+     * @param maxLon
+     * @return
+     */
+    public static GeoFence box(String name, double minLat, double minLon, double maxLat, double maxLon) {
+        if (!Position.isValid(minLat, minLon) || !Position.isValid(maxLat, maxLon)) {
+            throw new IllegalArgumentException("Invalid box corners");
+        }
+        if (minLat > maxLat || minLon > maxLon) {
+            throw new IllegalArgumentException("Box minimum must not exceed maximum");
+        }
+        return new Box(name, minLat, minLon, maxLat, maxLon);
+    }
+
+    /**
+     * Create a polygon fence. The polygon is closed from the last to the first point.
+     * 
+     * @param name
+     * @param points
+     *            at least three points
+     * @return
+     */
+    public static GeoFence polygon(String name, List<Position> points) {
+        if (points.size() < 3) {
+            throw new IllegalArgumentException("A polygon must have at least three points");
+        }
+        double[] lats = new double[points.size()];
+        double[] lons = new double[points.size()];
+        for (int i = 0; i < lats.length; i++) {
+            lats[i] = points.get(i).getLatitude();
+            lons[i] = points.get(i).getLongitude();
+            if (!Position.isValid(lats[i], lons[i])) {
+                throw new IllegalArgumentException("Invalid polygon point " + points.get(i));
+            }
+        }
+        return new Polygon(name, lats, lons);
+    }
+
+    /**
+     * Create a geodetic circle fence
+     * 
+     * @param name
+     * @param center
+     * @param radius
+     *            in meters
+     * @return
+     */
+    public static GeoFence circle(String name, Position center, double radius) {
+        if (radius < 0) {
+            throw new IllegalArgumentException("Negative radius");
+        }
+        double lat = center.getLatitude();
+        double lon = center.getLongitude();
+        // A little margin to the bounding box of the circle
+        double dLat = Math.toDegrees(radius / POLAR_RADIUS) * 1.01;
+        double minLat = Math.max(-90, lat - dLat);
+        double maxLat = Math.min(90, lat + dLat);
+        double cos = Math.cos(Math.toRadians(Math.max(Math.abs(minLat), Math.abs(maxLat))));
+        double dLon = cos > 0 ? dLat / cos : 360;
+        double minLon = lon - dLon;
+        double maxLon = lon + dLon;
+        if (minLon < -180 || maxLon > 180) {
+            // Crossing the 180th meridian or a pole
+            minLon = -180;
+            maxLon = 180;
+        }
+        Predicate<Position> predicate = new Circle(center, radius, CoordinateSystem.GEODETIC).containedWithin();
+        return new PredicateFence(name, minLat, minLon, maxLat, maxLon, true, predicate);
+    }
+
+    /**
+     * Create an unbounded fence given by a predicate
+     * 
+     * @param name
+     * @param predicate
+     * @return
+     */
+    public static GeoFence of(String name, Predicate<? super Position> predicate) {
+        if (predicate instanceof GeoFence) {
+            return (GeoFence) predicate;
+        }
+        return new PredicateFence(name, -90, -180, 90, 180, false, predicate);
+    }
+
+    static final class PredicateFence extends GeoFence {
+
+        private final boolean bounded;
+        private final Predicate<? super Position> predicate;
+
+        PredicateFence(String name, double minLat, double minLon, double maxLat, double maxLon, boolean bounded,
+                Predicate<? super Position> predicate) {
+            super(name, minLat, minLon, maxLat, maxLon);
+            this.bounded = bounded;
+            this.predicate = predicate;
+        }
+
+        @Override
+        boolean isBounded() {
+            return bounded;
+        }
+
+        @Override
+        public boolean contains(double lat, double lon) {
+            return lat >= minLat && lat <= maxLat && lon >= minLon && lon <= maxLon
+                    && predicate.test(Position.create(lat, lon));
+        }
+
+        @Override
+        public boolean test(Position pos) {
+            return predicate.test(pos);
+        }
+    }
+
+    static final class Box extends GeoFence {
+
+        Box(String name, double minLat, double minLon, double maxLat, double maxLon) {
+            super(name, minLat, minLon, maxLat, maxLon);
+        }
+
+        @Override
+        public boolean contains(double lat, double lon) {
+            return lat >= minLat && lat <= maxLat && lon >= minLon && lon <= maxLon;
+        }
+
+        @Override
+        boolean containsBox(double minLat, double minLon, double maxLat, double maxLon) {
+            return minLat >= this.minLat && maxLat <= this.maxLat && minLon >= this.minLon && maxLon <= this.maxLon;
+        }
+    }
+
+    static final class Polygon extends GeoFence {
+
+        private final double[] lats;
+        private final double[] lons;
+
+        Polygon(String name, double[] lats, double[] lons) {
+            super(name, min(lats), min(lons), max(lats), max(lons));
+            this.lats = lats;
+            this.lons = lons;
+        }
+
+        /**
+         * Even-odd test of the number of edges crossed by a ray from the position
+         */
+        @Override
+        public boolean contains(double lat, double lon) {
+            if (lat < minLat || lat > maxLat || lon < minLon || lon > maxLon) {
+                return false;
+            }
+            boolean inside = false;
+            for (int i = 0, j = lats.length - 1; i < lats.length; j = i++) {
+                if (lats[i] > lat != lats[j] > lat
+                        && lon < (lons[j] - lons[i]) * (lat - lats[i]) / (lats[j] - lats[i]) + lons[i]) {
+                    inside = !inside;
+                }
+            }
+            return inside;
+        }
+
+        /**
+         * The box is contained if its corners are, and no edge of the polygon enters it
+         */
+        @Override
+        boolean containsBox(double minLat, double minLon, double maxLat, double maxLon) {
+            if (!contains(minLat, minLon) || !contains(minLat, maxLon) || !contains(maxLat, minLon)
+                    || !contains(maxLat, maxLon)) {
+                return false;
+            }
+            for (int i = 0, j = lats.length - 1; i < lats.length; j = i++) {
+                if (intersects(lats[j], lons[j], lats[i], lons[i], minLat, minLon, maxLat, maxLon)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Test if the segment intersects the box, using the parametric clipping of Liang-Barsky
+         */
+        private static boolean intersects(double lat0, double lon0, double lat1, double lon1, double minLat,
+                double minLon, double maxLat, double maxLon) {
+            double t0 = 0;
+            double t1 = 1;
+            double dLat = lat1 - lat0;
+            double dLon = lon1 - lon0;
+            double[] p = { -dLon, dLon, -dLat, dLat };
+            double[] q = { lon0 - minLon, maxLon - lon0, lat0 - minLat, maxLat - lat0 };
+            for (int k = 0; k < 4; k++) {
+                if (p[k] == 0) {
+                    if (q[k] < 0) {
+                        return false;
+                    }
+                } else {
+                    double t = q[k] / p[k];
+                    if (p[k] < 0) {
+                        t0 = Math.max(t0, t);
+                    } else {
+                        t1 = Math.min(t1, t);
+                    }
+                    if (t0 > t1) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        private static double min(double[] values) {
+            double min = values[0];
+            for (double v : values) {
+                min = Math.min(min, v);
+            }
+            return min;
+        }
+
+        private static double max(double[] values) {
+            double max = values[0];
+            for (double v : values) {
+                max = Math.max(max, v);
+            }
+            return max;
+        }
+    }
+
+}
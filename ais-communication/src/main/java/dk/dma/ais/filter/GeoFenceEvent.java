@@ -0,0 +1,119 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.ais.filter;
+
+import net.jcip.annotations.Immutable;
+
+/**
+ * A target entering, leaving or dwelling in a geofence
+ */
+@Immutable
+public class GeoFenceEvent {
+
+    public enum Type {
+        /** The target entered the fence */
+        ENTER,
+        /** The target left the fence, or was not heard from for a while */
+        EXIT,
+        /** The target stayed in the fence for the dwell time */
+        DWELL
+    }
+
+    private final Type type;
+    private final int userId;
+    private final int fenceIndex;
+    private final GeoFence fence;
+    private final long time;
+    private final long enterTime;
+    private final double lat;
+    private final double lon;
+
+    public GeoFenceEvent(Type type, int userId, int fenceIndex, GeoFence fence, long time, long enterTime, double lat,
+            double lon) {
+        this.type = type;
+        this.userId = userId;
+        this.fenceIndex = fenceIndex;
+        this.fence = fence;
+        this.time = time;
+        this.enterTime = enterTime;
+        this.lat = lat;
+        this.lon = lon;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    /**
+     * Get the index of the fence in the {@link GeoFenceIndex}
+     * 
+     * @return
+     */
+    public int getFenceIndex() {
+        return fenceIndex;
+    }
+
+    public GeoFence getFence() {
+        return fence;
+    }
+
+    /**
+     * Get the time of the position giving the event
+     * 
+     * @return
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * Get the time the target entered the fence
+     * 
+     * @return
+     */
+    public long getEnterTime() {
+        return enterTime;
+    }
+
+    /**
+     * Get the time the target has been in the fence
+     * 
+     * @return
+     */
+    public long getDuration() {
+        return time - enterTime;
+    }
+
+    public double getLatitude() {
+        return lat;
+    }
+
+    public double getLongitude() {
+        return lon;
+    }
+
+    @Override
+    public String toString() {
+        return "GeoFenceEvent [type=" + type + ", userId=" + userId + ", fence=" + fenceIndex + ", name="
+                + fence.getName() + ", time=" + time + ", enterTime=" + enterTime + ", lat=" + lat + ", lon=" + lon
+                + "]";
+    }
+
+}
@@ -0,0 +1,254 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.ais.filter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import net.jcip.annotations.Immutable;
+
+/**
+ * A spatial index of geofences answering which fences contain a position.
+ * 
+ * The index is a uniform grid of cells in latitude and longitude, covering the bounding boxes of the fences. Each cell holds the fences with a bounding box
+ * overlapping it, in the order of the fences. Fences containing the whole cell are marked, so positions in the cell
+ * are not tested against them. A lookup is a cell lookup followed by testing the few fences at the edges of the cell.
+ */
+@Immutable
+public class GeoFenceIndex {
+
+    /** Default cell size in degrees */
+    public static final double DEFAULT_CELL_SIZE = 0.5;
+
+    /** Maximum number of cells in the grid */
+    private static final long MAX_CELLS = 1 << 24;
+
+    private static final int[] EMPTY = new int[0];
+
+    private final List<GeoFence> fences;
+
+    private final double cellSize;
+
+    /** Corner of the grid */
+    private final double minLat;
+    private final double minLon;
+
+    private final int rows;
+    private final int cols;
+
+    /**
+     * Fences of each cell, or null for cells without fences. Fences containing the whole cell are stored as the
+     * complement of their index.
+     */
+    private final int[][] cells;
+
+    /** Fences without a bounding box */
+    private final int[] unbounded;
+
+    /**
+     * Index the fences with the default cell size
+     * 
+     * @param fences
+     */
+    public GeoFenceIndex(List<? extends GeoFence> fences) {
+        this(fences, DEFAULT_CELL_SIZE);
+    }
+
+    /**
+     * Index the fences
+     * 
+     * @param fences
+     * @param cellSize
+     *            in degrees
+     */
+    public GeoFenceIndex(List<? extends GeoFence> fences, double cellSize) {
+        if (!(cellSize > 0 && cellSize <= 90)) {
+            throw new IllegalArgumentException("Cell size must be greater than 0 and at most 90 degrees");
+        }
+        this.fences = Collections.unmodifiableList(new ArrayList<GeoFence>(fences));
+        this.cellSize = cellSize;
+
+        // Bounds of the grid
+        double minLat = 90;
+        double minLon = 180;
+        double maxLat = -90;
+        double maxLon = -180;
+        int unboundedCount = 0;
+        for (GeoFence fence : this.fences) {
+            if (!fence.isBounded()) {
+                unboundedCount++;
+                continue;
+            }
+            minLat = Math.min(minLat, fence.minLat);
+            minLon = Math.min(minLon, fence.minLon);
+            maxLat = Math.max(maxLat, fence.maxLat);
+            maxLon = Math.max(maxLon, fence.maxLon);
+        }
+        this.minLat = minLat;
+        this.minLon = minLon;
+        // Fences on the upper bounds are in the last cells
+        this.rows = maxLat < minLat ? 0 : (int) ((maxLat - minLat) / cellSize) + 1;
+        this.cols = maxLon < minLon ? 0 : (int) ((maxLon - minLon) / cellSize) + 1;
+        if ((long) rows * cols > MAX_CELLS) {
+            throw new IllegalArgumentException("Cell size " + cellSize + " gives more than " + MAX_CELLS + " cells");
+        }
+        this.cells = new int[rows * cols][];
+
+        int[] counts = new int[cells.length];
+        for (GeoFence fence : this.fences) {
+            if (!fence.isBounded()) {
+                continue;
+            }
+            for (int row = row(fence.minLat); row <= row(fence.maxLat); row++) {
+                for (int col = col(fence.minLon); col <= col(fence.maxLon); col++) {
+                    counts[row * cols + col]++;
+                }
+            }
+        }
+        unbounded = new int[unboundedCount];
+        unboundedCount = 0;
+        for (int i = 0; i < this.fences.size(); i++) {
+            GeoFence fence = this.fences.get(i);
+            if (!fence.isBounded()) {
+                unbounded[unboundedCount++] = i;
+                continue;
+            }
+            for (int row = row(fence.minLat); row <= row(fence.maxLat); row++) {
+                for (int col = col(fence.minLon); col <= col(fence.maxLon); col++) {
+                    int cell = row * cols + col;
+                    if (cells[cell] == null) {
+                        cells[cell] = new int[counts[cell]];
+                        counts[cell] = 0;
+                    }
+                    double cellLat = minLat + row * cellSize;
+                    double cellLon = minLon + col * cellSize;
+                    boolean inside = fence.containsBox(cellLat, cellLon, cellLat + cellSize, cellLon + cellSize);
+                    cells[cell][counts[cell]++] = inside ? ~i : i;
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the indexed fences
+     * 
+     * @return
+     */
+    public List<GeoFence> getFences() {
+        return fences;
+    }
+
+    public double getCellSize() {
+        return cellSize;
+    }
+
+    public boolean isEmpty() {
+        return fences.isEmpty();
+    }
+
+    /**
+     * Test if any fence contains the position
+     * 
+     * @param lat
+     * @param lon
+     * @return
+     */
+    public boolean containsAny(double lat, double lon) {
+        int[] cell = cell(lat, lon);
+        if (cell != null) {
+            for (int i : cell) {
+                if (i < 0 || fences.get(i).contains(lat, lon)) {
+                    return true;
+                }
+            }
+        }
+        for (int i : unbounded) {
+            if (fences.get(i).contains(lat, lon)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Find the fences containing the position
+     * 
+     * @param lat
+     * @param lon
+     * @return the indexes of the fences in ascending order
+     */
+    public int[] find(double lat, double lon) {
+        int[] cell = cell(lat, lon);
+        int cellLength = cell == null ? 0 : cell.length;
+        if (cellLength + unbounded.length == 0) {
+            return EMPTY;
+        }
+        int[] found = new int[cellLength + unbounded.length];
+        int count = 0;
+        for (int j = 0; j < cellLength; j++) {
+            int i = cell[j];
+            if (i < 0) {
+                found[count++] = ~i;
+            } else if (fences.get(i).contains(lat, lon)) {
+                found[count++] = i;
+            }
+        }
+        int fromCell = count;
+        for (int i : unbounded) {
+            if (fences.get(i).contains(lat, lon)) {
+                found[count++] = i;
+            }
+        }
+        if (count == 0) {
+            return EMPTY;
+        }
+        if (count < found.length) {
+            found = Arrays.copyOf(found, count);
+        }
+        if (fromCell > 0 && fromCell < count) {
+            Arrays.sort(found);
+        }
+        return found;
+    }
+
+    /**
+     * Get the fences of the cell of the position
+     * 
+     * @return the fences or null if none
+     */
+    private int[] cell(double lat, double lon) {
+        if (!(lat >= minLat && lon >= minLon)) {
+            return null;
+        }
+        int row = (int) ((lat - minLat) / cellSize);
+        int col = (int) ((lon - minLon) / cellSize);
+        if (row >= rows || col >= cols) {
+            return null;
+        }
+        return cells[row * cols + col];
+    }
+
+    private int row(double lat) {
+        return (int) ((lat - minLat) / cellSize);
+    }
+
+    private int col(double lon) {
+        return (int) ((lon - minLon) / cellSize);
+    }
+
+}
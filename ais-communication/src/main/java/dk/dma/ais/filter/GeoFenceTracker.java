@@ -0,0 +1,269 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.ais.filter;
+
+import java.util.Arrays;
+
+import net.jcip.annotations.NotThreadSafe;
+import dk.dma.ais.filter.GeoFenceEvent.Type;
+import dk.dma.enav.util.function.Consumer;
+
+/**
+ * Tracks which geofences targets are in, and gives events when they enter, leave or dwell in a fence.
+ * 
+ * Events are computed incrementally from the fences of the {@link GeoFenceIndex} containing each new position. State is
+ * only held for targets inside at least one fence, in an open addressing hash map from MMSI, so targets outside all
+ * fences cost an index lookup only.
+ */
+@NotThreadSafe
+public class GeoFenceTracker {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final GeoFenceIndex index;
+
+    /** Time in a fence before a dwell event is given, 0 for no dwell events */
+    private final long dwellTime;
+
+    /** Time without positions before a target is considered to have left its fences, 0 for never */
+    private final long idleTimeout;
+
+    private int[] keys = new int[INITIAL_CAPACITY];
+    private Membership[] values = new Membership[INITIAL_CAPACITY];
+    private int size;
+
+    /** Time idle targets were last looked for */
+    private long lastExpire;
+
+    /**
+     * Constructor
+     * 
+     * @param index
+     * @param dwellTime
+     *            in milliseconds, 0 for no dwell events
+     * @param idleTimeout
+     *            in milliseconds, 0 for never
+     */
+    public GeoFenceTracker(GeoFenceIndex index, long dwellTime, long idleTimeout) {
+        if (dwellTime < 0 || idleTimeout < 0) {
+            throw new IllegalArgumentException("Negative dwell time or idle timeout");
+        }
+        this.index = index;
+        this.dwellTime = dwellTime;
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * Update the position of a target
+     * 
+     * @param userId
+     * @param lat
+     * @param lon
+     * @param time
+     * @param handler
+     *            receiving the events
+     */
+    public void update(int userId, double lat, double lon, long time, Consumer<? super GeoFenceEvent> handler) {
+        if (idleTimeout > 0 && time - lastExpire >= idleTimeout) {
+            expire(time - idleTimeout, handler);
+            lastExpire = time;
+        }
+
+        int[] fences = index.find(lat, lon);
+        int slot = slot(userId);
+        Membership m = values[slot];
+        if (m == null) {
+            if (fences.length == 0) {
+                return;
+            }
+            m = new Membership(fences.length);
+            for (int i = 0; i < fences.length; i++) {
+                m.fences[i] = fences[i];
+                m.enterTimes[i] = time;
+                handler.accept(event(Type.ENTER, userId, fences[i], time, time, lat, lon));
+            }
+            m.update(lat, lon, time);
+            keys[slot] = userId;
+            values[slot] = m;
+            if (++size > keys.length >> 1) {
+                grow();
+            }
+            return;
+        }
+
+        if (!Arrays.equals(m.fences, fences)) {
+            // Merge the old and new fences, both in ascending order
+            Membership n = new Membership(fences.length);
+            int i = 0;
+            int j = 0;
+            while (i < m.fences.length || j < fences.length) {
+                if (j == fences.length || i < m.fences.length && m.fences[i] < fences[j]) {
+                    handler.accept(event(Type.EXIT, userId, m.fences[i], time, m.enterTimes[i], lat, lon));
+                    i++;
+                } else if (i == m.fences.length || fences[j] < m.fences[i]) {
+                    n.fences[j] = fences[j];
+                    n.enterTimes[j] = time;
+                    handler.accept(event(Type.ENTER, userId, fences[j], time, time, lat, lon));
+                    j++;
+                } else {
+                    n.fences[j] = fences[j];
+                    n.enterTimes[j] = m.enterTimes[i];
+                    n.dwelled[j] = m.dwelled[i];
+                    i++;
+                    j++;
+                }
+            }
+            if (fences.length == 0) {
+                remove(slot);
+                return;
+            }
+            values[slot] = m = n;
+        }
+
+        if (dwellTime > 0) {
+            for (int i = 0; i < m.fences.length; i++) {
+                if (!m.dwelled[i] && time - m.enterTimes[i] >= dwellTime) {
+                    m.dwelled[i] = true;
+                    handler.accept(event(Type.DWELL, userId, m.fences[i], time, m.enterTimes[i], lat, lon));
+                }
+            }
+        }
+        m.update(lat, lon, time);
+    }
+
+    /**
+     * Give exit events for targets without positions since the given time, at their last position
+     * 
+     * @param before
+     * @param handler
+     */
+    public void expire(long before, Consumer<? super GeoFenceEvent> handler) {
+        int[] expired = new int[size];
+        int count = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null && values[i].lastSeen < before) {
+                expired[count++] = keys[i];
+            }
+        }
+        for (int k = 0; k < count; k++) {
+            int slot = slot(expired[k]);
+            Membership m = values[slot];
+            for (int i = 0; i < m.fences.length; i++) {
+                handler.accept(event(Type.EXIT, expired[k], m.fences[i], m.lastSeen, m.enterTimes[i], m.lat, m.lon));
+            }
+            remove(slot);
+        }
+    }
+
+    /**
+     * Get the fences the target is in
+     * 
+     * @param userId
+     * @return the indexes of the fences in ascending order
+     */
+    public int[] getFences(int userId) {
+        Membership m = values[slot(userId)];
+        return m == null ? new int[0] : m.fences.clone();
+    }
+
+    /**
+     * Get the number of targets inside at least one fence
+     * 
+     * @return
+     */
+    public int size() {
+        return size;
+    }
+
+    public GeoFenceIndex getIndex() {
+        return index;
+    }
+
+    private GeoFenceEvent event(Type type, int userId, int fence, long time, long enterTime, double lat, double lon) {
+        return new GeoFenceEvent(type, userId, fence, index.getFences().get(fence), time, enterTime, lat, lon);
+    }
+
+    /**
+     * Get the slot of the target, or the empty slot to put it in
+     */
+    private int slot(int userId) {
+        int mask = keys.length - 1;
+        int i = LongLongMap.hash(userId) & mask;
+        while (values[i] != null && keys[i] != userId) {
+            i = i + 1 & mask;
+        }
+        return i;
+    }
+
+    /**
+     * Remove the target of the slot, moving following entries back to keep them reachable
+     */
+    private void remove(int slot) {
+        int mask = keys.length - 1;
+        values[slot] = null;
+        size--;
+        for (int j = slot + 1 & mask; values[j] != null; j = j + 1 & mask) {
+            int home = LongLongMap.hash(keys[j]) & mask;
+            // Move the entry if its home slot is not cyclically between the free slot and its slot
+            if (slot <= j ? slot < home && home <= j : slot < home || home <= j) {
+                continue;
+            }
+            keys[slot] = keys[j];
+            values[slot] = values[j];
+            values[j] = null;
+            slot = j;
+        }
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        Membership[] oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        values = new Membership[oldKeys.length * 2];
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldValues[j] != null) {
+                int slot = slot(oldKeys[j]);
+                keys[slot] = oldKeys[j];
+                values[slot] = oldValues[j];
+            }
+        }
+    }
+
+    /**
+     * The fences a target is in, with the time it entered them
+     */
+    private static final class Membership {
+        final int[] fences;
+        final long[] enterTimes;
+        final boolean[] dwelled;
+        double lat;
+        double lon;
+        long lastSeen;
+
+        Membership(int count) {
+            fences = new int[count];
+            enterTimes = new long[count];
+            dwelled = new boolean[count];
+        }
+
+        void update(double lat, double lon, long time) {
+            this.lat = lat;
+            this.lon = lon;
+            this.lastSeen = time;
+        }
+    }
+
+}
@@ -15,63 +15,130 @@
  */
 package dk.dma.ais.filter;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
 
+import net.jcip.annotations.GuardedBy;
 import net.jcip.annotations.ThreadSafe;
 import dk.dma.ais.message.AisMessage;
+import dk.dma.ais.message.DecodeOptions;
 import dk.dma.ais.message.IPositionMessage;
+import dk.dma.ais.packet.AisPacket;
 import dk.dma.enav.model.geometry.Position;
 import dk.dma.enav.util.function.Predicate;
 
 /**
  * Simple filtering based on the location of targets. Filtered on a list of geometries.
+ * 
+ * The geometries are kept as {@link GeoFence}s in a {@link GeoFenceIndex}, and the last position of targets in a
+ * bounded cache.
  */
 @ThreadSafe
 public class LocationFilter extends MessageFilterBase {
 
+    /** Default maximum number of targets to remember the position of */
+    public static final int DEFAULT_MAX_TARGETS = 1000000;
+
     /**
-     * Map from MMSI to position
+     * Last position of targets
      */
-    private Map<Integer, Position> posMap = new ConcurrentHashMap<>();
+    private final PositionCache positions;
 
     /**
      * List of geometries
      */
-    private List<Predicate<? super Position>> geomtries = new CopyOnWriteArrayList<>();
+    @GuardedBy("this")
+    private final List<GeoFence> fences = new ArrayList<>();
+
+    private volatile GeoFenceIndex index = new GeoFenceIndex(fences);
+
+    public LocationFilter() {
+        this(DEFAULT_MAX_TARGETS);
+    }
+
+    /**
+     * Constructor given the maximum number of targets to remember the position of
+     * 
+     * @param maxTargets
+     */
+    public LocationFilter(int maxTargets) {
+        super(new DecodeOptions(false, false, false));
+        positions = new PositionCache(maxTargets);
+    }
+
+    /**
+     * Filter on MMSI and position read from the raw payload. Only position reports not handled by {@link RawPayload}
+     * are decoded.
+     */
+    @Override
+    public boolean rejectedByFilter(AisPacket packet) {
+        if (index.isEmpty()) {
+            return false;
+        }
+
+        RawPayload payload = RawPayload.from(packet);
+        if (payload == null || payload.getMsgId() == 4 || payload.getMsgId() == 21) {
+            return super.rejectedByFilter(packet);
+        }
+
+        if (payload.hasPosition()) {
+            double lat = payload.getLatitude();
+            double lon = payload.getLongitude();
+            if (Position.isValid(lat, lon)) {
+                positions.put(payload.getUserId(), lat, lon);
+            }
+        }
+
+        return rejected(payload.getUserId());
+    }
 
     @Override
     public boolean rejectedByFilter(AisMessage message) {
-        if (geomtries.size() == 0) {
+        if (index.isEmpty()) {
             return false;
         }
 
         if (message instanceof IPositionMessage) {
             Position pos = ((IPositionMessage) message).getPos().getGeoLocation();
             if (pos != null) {
-                posMap.put(message.getUserId(), pos);
+                positions.put(message.getUserId(), pos.getLatitude(), pos.getLongitude());
             }
         }
 
+        return rejected(message.getUserId());
+    }
+
+    private boolean rejected(int userId) {
         // Get location
-        Position loc = posMap.get(message.getUserId());
-        if (loc == null) {
+        long pos = positions.get(userId);
+        if (pos == PositionCache.NOT_FOUND) {
             return true;
         }
 
-        for (Predicate<? super Position> geometry : geomtries) {
-            if (geometry.test(loc)) {
-                return false;
-            }
-        }
+        return !index.containsAny(PositionCache.latitude(pos), PositionCache.longitude(pos));
+    }
 
-        return true;
+    /**
+     * Add a geometry. Geometries not given as a {@link GeoFence} are tested for every position.
+     * 
+     * @param geometry
+     */
+    public synchronized void addFilterGeometry(Predicate<? super Position> geometry) {
+        fences.add(GeoFence.of(null, geometry));
+        index = new GeoFenceIndex(fences);
     }
 
-    public void addFilterGeometry(Predicate<? super Position> geometry) {
-        geomtries.add(geometry);
+    /**
+     * Add a number of geometries, indexing them once
+     * 
+     * @param geometries
+     */
+    public synchronized void addFilterGeometries(Collection<? extends Predicate<? super Position>> geometries) {
+        for (Predicate<? super Position> geometry : geometries) {
+            fences.add(GeoFence.of(null, geometry));
+        }
+        index = new GeoFenceIndex(fences);
     }
 
 }
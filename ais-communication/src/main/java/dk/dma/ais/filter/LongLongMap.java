@@ -0,0 +1,139 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.ais.filter;
+
+import java.util.Arrays;
+
+import net.jcip.annotations.NotThreadSafe;
+
+/**
+ * Open addressing hash map from long keys to long values with linear probing. A key of 0 marks an empty slot, and
+ * Long.MIN_VALUE is returned for keys not found.
+ * 
+ * The hash of the key is given by the caller, so it can also be used for selecting a stripe of maps.
+ */
+@NotThreadSafe
+final class LongLongMap {
+
+    /** Value returned for keys not found */
+    static final long NOT_FOUND = Long.MIN_VALUE;
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private long[] keys = new long[INITIAL_CAPACITY];
+    private long[] values = new long[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Get the value of the key
+     * 
+     * @param key
+     * @param hash
+     *            the hash of the key
+     * @return the value or {@link #NOT_FOUND}
+     */
+    long get(long key, int hash) {
+        int mask = keys.length - 1;
+        for (int i = hash & mask;; i = i + 1 & mask) {
+            long k = keys[i];
+            if (k == key) {
+                return values[i];
+            }
+            if (k == 0) {
+                return NOT_FOUND;
+            }
+        }
+    }
+
+    /**
+     * Put the value of the key
+     * 
+     * @param key
+     *            a key other than 0
+     * @param hash
+     *            the hash of the key
+     * @param value
+     */
+    void put(long key, int hash, long value) {
+        int mask = keys.length - 1;
+        int i = hash & mask;
+        while (keys[i] != 0 && keys[i] != key) {
+            i = i + 1 & mask;
+        }
+        if (keys[i] == 0) {
+            keys[i] = key;
+            size++;
+        }
+        values[i] = value;
+        if (size > keys.length >> 1) {
+            grow();
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new long[oldKeys.length * 2];
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            long key = oldKeys[j];
+            if (key != 0) {
+                int i = hash(key) & mask;
+                while (keys[i] != 0) {
+                    i = i + 1 & mask;
+                }
+                keys[i] = key;
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    /**
+     * Clear the map. The table is sized down to what the number of keys it held needs, so memory used for a burst of
+     * keys is released once the map is cleared.
+     */
+    void clear() {
+        int capacity = Math.max(INITIAL_CAPACITY, Integer.highestOneBit(size) << 2);
+        if (capacity < keys.length) {
+            keys = new long[capacity];
+            values = new long[capacity];
+        } else if (size > 0) {
+            Arrays.fill(keys, 0);
+        }
+        size = 0;
+    }
+
+    /**
+     * Get the hash of a key. The bits are spread, so the high bits can select a stripe and the low bits the slot.
+     * 
+     * @param key
+     * @return
+     */
+    static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+}
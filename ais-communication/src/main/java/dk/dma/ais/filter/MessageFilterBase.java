@@ -17,6 +17,7 @@ package dk.dma.ais.filter;
 
 import net.jcip.annotations.ThreadSafe;
 import dk.dma.ais.message.AisMessage;
+import dk.dma.ais.message.DecodeOptions;
 import dk.dma.ais.packet.AisPacket;
 
 /**
@@ -25,12 +26,43 @@ import dk.dma.ais.packet.AisPacket;
 @ThreadSafe
 public abstract class MessageFilterBase implements IMessageFilter, IPacketFilter {
 
+    /**
+     * The fields to decode from packets before testing
+     */
+    private volatile DecodeOptions decodeOptions;
+
+    public MessageFilterBase() {
+        this(DecodeOptions.FULL);
+    }
+
+    /**
+     * Constructor given the fields the filter needs to have decoded
+     * 
+     * @param decodeOptions
+     */
+    protected MessageFilterBase(DecodeOptions decodeOptions) {
+        this.decodeOptions = decodeOptions;
+    }
+
+    public DecodeOptions getDecodeOptions() {
+        return decodeOptions;
+    }
+
+    /**
+     * Set the fields to decode from packets before testing. Only fields used by the filter can be left out.
+     * 
+     * @param decodeOptions
+     */
+    public void setDecodeOptions(DecodeOptions decodeOptions) {
+        this.decodeOptions = decodeOptions;
+    }
+
     /**
      * Helper method to extract message from packet and do test
      */
     @Override
     public boolean rejectedByFilter(AisPacket packet) {
-        AisMessage message = packet.tryGetAisMessage();
+        AisMessage message = packet.tryGetAisMessage(decodeOptions);
         if (message != null) {
             return this.rejectedByFilter(message);
         }
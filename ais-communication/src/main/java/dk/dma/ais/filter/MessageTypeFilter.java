@@ -39,13 +39,23 @@ public class MessageTypeFilter implements IPacketFilter {
         
     }
 
+    /**
+     * Filter on the message id read from the raw payload. Only packets without a valid payload are parsed.
+     */
     @Override
     public boolean rejectedByFilter(AisPacket packet) {
-        Vdm vdm = packet.getVdm();
-        if (vdm == null) {
-            return true;
+        int msgId;
+        RawPayload payload = RawPayload.from(packet);
+        if (payload != null) {
+            msgId = payload.getMsgId();
+        } else {
+            Vdm vdm = packet.getVdm();
+            if (vdm == null) {
+                return true;
+            }
+            msgId = vdm.getMsgId();
         }
-        if (messageTypes.contains(vdm.getMsgId())) {
+        if (messageTypes.contains(msgId)) {
             return disallowed;            
         }
         return !disallowed;
@@ -0,0 +1,165 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.ais.filter;
+
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * A bounded cache of the last position of targets.
+ * 
+ * Positions are packed in a long in the resolution of AIS, 1/10000 minute, and kept in a number of stripes selected by
+ * the MMSI. Each stripe holds two generations of open addressing hash maps. When the current generation is full the
+ * older generation is cleared and reused, and positions found in the older generation are moved to the current one.
+ * Targets not heard from for a while are dropped in this way, without scanning for them.
+ */
+@ThreadSafe
+final class PositionCache {
+
+    /** Value returned for targets without position */
+    static final long NOT_FOUND = LongLongMap.NOT_FOUND;
+
+    /**
+     * Number of stripes, a power of two
+     */
+    private static final int STRIPES = 16;
+
+    /** Units per degree */
+    private static final double RESOLUTION = 600000.0;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    /**
+     * Constructor given the maximum number of targets held
+     * 
+     * @param maxSize
+     */
+    PositionCache(int maxSize) {
+        if (maxSize < 2 * STRIPES) {
+            throw new IllegalArgumentException("maxSize must be at least " + 2 * STRIPES);
+        }
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe(maxSize / STRIPES / 2);
+        }
+    }
+
+    /**
+     * Put the position of the target
+     * 
+     * @param userId
+     * @param lat
+     * @param lon
+     */
+    void put(int userId, double lat, double lon) {
+        long key = key(userId);
+        int hash = LongLongMap.hash(key);
+        Stripe stripe = stripes[hash >>> 28 & STRIPES - 1];
+        long pos = pack(lat, lon);
+        synchronized (stripe) {
+            stripe.put(key, hash, pos);
+        }
+    }
+
+    /**
+     * Get the packed position of the target
+     * 
+     * @param userId
+     * @return the position or {@link #NOT_FOUND}
+     */
+    long get(int userId) {
+        long key = key(userId);
+        int hash = LongLongMap.hash(key);
+        Stripe stripe = stripes[hash >>> 28 & STRIPES - 1];
+        synchronized (stripe) {
+            return stripe.get(key, hash);
+        }
+    }
+
+    /**
+     * Get the number of targets held
+     * 
+     * @return
+     */
+    int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.current.size() + stripe.previous.size();
+            }
+        }
+        return size;
+    }
+
+    static long pack(double lat, double lon) {
+        return (long) (int) Math.round(lat * RESOLUTION) << 32 | (int) Math.round(lon * RESOLUTION) & 0xffffffffL;
+    }
+
+    static double latitude(long pos) {
+        return (int) (pos >> 32) / RESOLUTION;
+    }
+
+    static double longitude(long pos) {
+        return (int) pos / RESOLUTION;
+    }
+
+    /**
+     * Keys are never 0
+     */
+    private static long key(int userId) {
+        return 1L << 32 | userId & 0xffffffffL;
+    }
+
+    /**
+     * Two generations of positions. Used while holding the lock of the stripe.
+     */
+    @ThreadSafe
+    private static final class Stripe {
+
+        /** Maximum size of a generation */
+        private final int limit;
+
+        @GuardedBy("this")
+        private LongLongMap current = new LongLongMap();
+        @GuardedBy("this")
+        private LongLongMap previous = new LongLongMap();
+
+        Stripe(int limit) {
+            this.limit = limit;
+        }
+
+        void put(long key, int hash, long pos) {
+            current.put(key, hash, pos);
+            if (current.size() >= limit) {
+                previous.clear();
+                LongLongMap g = previous;
+                previous = current;
+                current = g;
+            }
+        }
+
+        long get(long key, int hash) {
+            long pos = current.get(key, hash);
+            if (pos == NOT_FOUND) {
+                pos = previous.get(key, hash);
+                if (pos != NOT_FOUND) {
+                    put(key, hash, pos);
+                }
+            }
+            return pos;
+        }
+    }
+
+}
@@ -0,0 +1,214 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.ais.filter;
+
+import net.jcip.annotations.NotThreadSafe;
+import dk.dma.ais.packet.AisPacket;
+
+/**
+ * Reads the header fields, and the position of position reports, directly from the six bit payload of the first VDM
+ * sentence in a raw packet. This allows filters to reject packets without parsing the VDM or decoding the AIS message.
+ * 
+ * No checksum or sentence validation is done, only the payload characters are checked.
+ */
+@NotThreadSafe
+public class RawPayload {
+
+    private static final ThreadLocal<RawPayload> PAYLOAD = new ThreadLocal<RawPayload>() {
+        @Override
+        protected RawPayload initialValue() {
+            return new RawPayload();
+        }
+    };
+
+    /**
+     * Class B position fields are four bits earlier than class A fields
+     */
+    private static final int CLASS_B_SHIFT = -4;
+
+    private static final int LON = 61;
+    private static final int LAT = 89;
+
+    private CharSequence raw;
+    private int payloadStart;
+    private int payloadLength;
+    private int msgId;
+    private int positionShift;
+    private boolean position;
+
+    public RawPayload() {}
+
+    /**
+     * Get the instance of the current thread
+     * 
+     * @return
+     */
+    public static RawPayload get() {
+        return PAYLOAD.get();
+    }
+
+    /**
+     * Get the payload of the packet using the instance of the current thread. The returned instance is only valid
+     * until the next call on the thread.
+     * 
+     * @param packet
+     * @return the payload or null if the packet holds no valid VDM payload
+     */
+    public static RawPayload from(AisPacket packet) {
+        RawPayload payload = get();
+        return payload.parse(packet.getRawMessage()) ? payload : null;
+    }
+
+    /**
+     * Find the payload of the first VDM sentence in the raw packet
+     * 
+     * @param raw
+     * @return false if no VDM sentence with a valid payload holding at least the header was found
+     */
+    public boolean parse(CharSequence raw) {
+        this.raw = raw;
+        this.payloadLength = 0;
+        this.position = false;
+        int len = raw.length();
+        for (int i = 0; i + 5 < len; i++) {
+            if (raw.charAt(i) == '!' && raw.charAt(i + 3) == 'V' && raw.charAt(i + 4) == 'D'
+                    && (raw.charAt(i + 5) == 'M' || raw.charAt(i + 5) == 'O')) {
+                if (findPayload(i + 6)) {
+                    break;
+                }
+                return false;
+            }
+        }
+        // Header is 38 bits
+        if (payloadLength < 7) {
+            return false;
+        }
+        for (int i = 0; i < payloadLength; i++) {
+            if (sixbit(i) < 0) {
+                return false;
+            }
+        }
+        msgId = (int) getBits(0, 6);
+        switch (msgId) {
+        case 1:
+        case 2:
+        case 3:
+            positionShift = 0;
+            break;
+        case 18:
+        case 19:
+            positionShift = CLASS_B_SHIFT;
+            break;
+        default:
+            return true;
+        }
+        position = payloadLength * 6 >= LAT + positionShift + 27;
+        return true;
+    }
+
+    /**
+     * Find the payload as the fifth field after the sentence formatter
+     */
+    private boolean findPayload(int from) {
+        int commas = 0;
+        int len = raw.length();
+        for (int i = from; i < len; i++) {
+            char c = raw.charAt(i);
+            if (c == ',') {
+                if (++commas == 5) {
+                    payloadStart = i + 1;
+                    int end = payloadStart;
+                    while (end < len && raw.charAt(end) != ',' && raw.charAt(end) != '*') {
+                        end++;
+                    }
+                    payloadLength = end - payloadStart;
+                    return true;
+                }
+            } else if (c == '*' || c == '\r' || c == '\n') {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private int sixbit(int index) {
+        int c = raw.charAt(payloadStart + index);
+        if (c < 48 || c > 119 || c > 87 && c < 96) {
+            return -1;
+        }
+        int val = c - 48;
+        return val > 40 ? val - 8 : val;
+    }
+
+    /**
+     * Get at most 32 bits from bit offset in payload
+     */
+    private long getBits(int from, int bits) {
+        int first = from / 6;
+        int last = (from + bits - 1) / 6;
+        long val = 0;
+        for (int i = first; i <= last; i++) {
+            val = val << 6 | sixbit(i);
+        }
+        val >>>= (last + 1) * 6 - from - bits;
+        return val & (1L << bits) - 1;
+    }
+
+    private long getSignedBits(int from, int bits) {
+        long val = getBits(from, bits);
+        return val << 64 - bits >> 64 - bits;
+    }
+
+    public int getMsgId() {
+        return msgId;
+    }
+
+    public int getRepeat() {
+        return (int) getBits(6, 2);
+    }
+
+    public int getUserId() {
+        return (int) getBits(8, 30);
+    }
+
+    /**
+     * Determine if the payload is a position report 1, 2, 3, 18 or 19 long enough to hold the position
+     * 
+     * @return
+     */
+    public boolean hasPosition() {
+        return position;
+    }
+
+    /**
+     * Latitude in degrees, only available if {@link #hasPosition()}
+     * 
+     * @return
+     */
+    public double getLatitude() {
+        return getSignedBits(LAT + positionShift, 27) / 10000.0 / 60.0;
+    }
+
+    /**
+     * Longitude in degrees, only available if {@link #hasPosition()}
+     * 
+     * @return
+     */
+    public double getLongitude() {
+        return getSignedBits(LON + positionShift, 28) / 10000.0 / 60.0;
+    }
+
+}
@@ -21,6 +21,8 @@ import java.util.concurrent.ConcurrentHashMap;
 
 import net.jcip.annotations.ThreadSafe;
 import dk.dma.ais.message.AisMessage;
+import dk.dma.ais.message.DecodeOptions;
+import dk.dma.ais.packet.AisPacket;
 import dk.dma.enav.model.Country;
 
 /**
@@ -35,13 +37,29 @@ public class TargetCountryFilter extends MessageFilterBase {
     private final Set<String> allowedCountries = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
     
     public TargetCountryFilter() {
-        
+        super(DecodeOptions.HEADER_ONLY);
+    }
+
+    /**
+     * Filter on the MMSI read from the raw payload without decoding the message
+     */
+    @Override
+    public boolean rejectedByFilter(AisPacket packet) {
+        RawPayload payload = RawPayload.from(packet);
+        if (payload == null) {
+            return super.rejectedByFilter(packet);
+        }
+        return rejected(payload.getUserId());
     }
 
     @Override
     public boolean rejectedByFilter(AisMessage message) {
+        return rejected(message.getUserId());
+    }
+
+    private boolean rejected(int userId) {
         // Get country of sender
-        Country country = Country.getCountryForMmsi(message.getUserId());
+        Country country = Country.getCountryForMmsi(userId);
         // Reject unknown countries
         if (country == null) {
             return true;
@@ -0,0 +1,120 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.ais.filter;
+
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * A map from keys to the time they were last let through a time window.
+ * 
+ * Keys are kept in a number of stripes, each with its own lock, selected by the hash of the key. Each stripe holds two
+ * generations of open addressing hash maps of primitive keys and times, covering a window each. When a generation is
+ * older than the window the older generation is cleared and reused, so entries idle for longer than the window are
+ * dropped without scanning for them, and the tables shrink again after a burst of keys. Time going back by more than
+ * the window, e.g. when a replay starts over, clears both generations. Smaller steps back, like threads reading the
+ * clock in a different order, are measured as distances in time.
+ */
+@ThreadSafe
+final class TimeWindowMap {
+
+    /**
+     * Number of stripes, a power of two
+     */
+    private static final int STRIPES = 16;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    TimeWindowMap() {
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Test if the key was let through within the window, and if not remember it as let through now
+     * 
+     * @param key
+     *            a key other than 0
+     * @param now
+     * @param window
+     *            size of the window
+     * @return if the key was let through within the window
+     */
+    boolean rejected(long key, long now, long window) {
+        int hash = LongLongMap.hash(key);
+        Stripe stripe = stripes[hash >>> 28 & STRIPES - 1];
+        synchronized (stripe) {
+            return stripe.rejected(key, hash, now, window);
+        }
+    }
+
+    /**
+     * Get the number of entries held. An entry let through again in the current generation is counted in both
+     * generations until the older one is cleared.
+     * 
+     * @return
+     */
+    int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.current.size() + stripe.previous.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Two generations of keys with the time they were last let through. Used while holding the lock of the stripe.
+     */
+    @ThreadSafe
+    private static final class Stripe {
+
+        @GuardedBy("this")
+        private LongLongMap current = new LongLongMap();
+        @GuardedBy("this")
+        private LongLongMap previous = new LongLongMap();
+        /** Time the current generation was started */
+        @GuardedBy("this")
+        private long generationStart;
+
+        boolean rejected(long key, int hash, long now, long window) {
+            if (now - generationStart >= window || generationStart - now > window) {
+                // Every key of the previous generation is older than the window, or time went far back
+                previous.clear();
+                if (now > generationStart && now - generationStart < 2 * window) {
+                    LongLongMap g = previous;
+                    previous = current;
+                    current = g;
+                } else {
+                    current.clear();
+                }
+                generationStart = now;
+            }
+            long received = current.get(key, hash);
+            if (received == LongLongMap.NOT_FOUND) {
+                received = previous.get(key, hash);
+            }
+            if (received != LongLongMap.NOT_FOUND && Math.abs(now - received) < window) {
+                return true;
+            }
+            current.put(key, hash, now);
+            return false;
+        }
+    }
+
+}
@@ -17,17 +17,19 @@ package dk.dma.ais.packet;
 
 import static java.util.Objects.requireNonNull;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
 import com.google.common.hash.Hashing;
-import com.google.common.primitives.Bytes;
 
 import dk.dma.ais.binary.SixbitException;
 import dk.dma.ais.message.AisMessage;
 import dk.dma.ais.message.AisMessageException;
+import dk.dma.ais.message.DecodeOptions;
 import dk.dma.ais.message.IPositionMessage;
 import dk.dma.ais.reader.AisPacketReader;
 import dk.dma.ais.sentence.SentenceException;
@@ -39,21 +41,39 @@ import dk.dma.enav.model.geometry.PositionTime;
  * Encapsulation of the VDM lines containing a single AIS message including leading proprietary tags and comment/tag
  * blocks.
  * 
+ * The lines are stored once as ASCII bytes. Views of the message and its lines are available without copying. The
+ * message string is created when first asked for and kept until the packet is compacted.
+ * 
  * @author Kasper Nielsen
  */
 public class AisPacket implements Comparable<AisPacket> {
 
     private final transient long receiveTimestamp;
-    private final String rawMessage;
-    private transient Vdm vdm;
-    private AisMessage message;
+    private final byte[] rawMessage;
+    private transient volatile String stringMessage;
+    private transient volatile Vdm vdm;
+    private volatile AisMessage message;
+    /**
+     * Tagging read when decoding the packet, so timestamp and tagging are known without parsing the VDM
+     */
+    private transient AisPacketTagging tagging;
 
     public AisPacket(String stringMessage) {
         this(stringMessage, System.currentTimeMillis());
     }
     
     public AisPacket(String stringMessage, long receiveTimestamp) {
-        this.rawMessage = requireNonNull(stringMessage);
+        this(requireNonNull(stringMessage).getBytes(StandardCharsets.US_ASCII), receiveTimestamp);
+    }
+
+    /**
+     * Create packet from ASCII bytes. The array is not copied and must not be changed afterwards.
+     * 
+     * @param rawMessage
+     * @param receiveTimestamp
+     */
+    AisPacket(byte[] rawMessage, long receiveTimestamp) {
+        this.rawMessage = requireNonNull(rawMessage);
         this.receiveTimestamp = receiveTimestamp;
     }
     
@@ -72,16 +92,26 @@ public class AisPacket implements Comparable<AisPacket> {
      * @return a 128 hash on the received package
      */
     public byte[] calculateHash128() {
-        return Hashing.murmur3_128().hashString(rawMessage).asBytes();
+        return Hashing.murmur3_128().hashString(getRawMessage()).asBytes();
     }
 
+    /**
+     * Decode packet encoded with any version of {@link AisPacketMarshaller}
+     * 
+     * @param array
+     * @return
+     */
     public static AisPacket fromByteArray(byte[] array) {
-        byte[] b = Arrays.copyOfRange(array, 1, array.length);
-        return from(new String(b, StandardCharsets.US_ASCII), -1);
+        return AisPacketMarshaller.fromByteArray(array);
     }
 
+    /**
+     * Encode packet with the current version of {@link AisPacketMarshaller}
+     * 
+     * @return
+     */
     public byte[] toByteArray() {
-        return Bytes.concat(new byte[] { 1 }, rawMessage.getBytes(StandardCharsets.US_ASCII));
+        return AisPacketMarshaller.toByteArray(this);
     }
 
     public long getBestTimestamp() {
@@ -93,39 +123,153 @@ public class AisPacket implements Comparable<AisPacket> {
         return receiveTimestamp;
     }
 
+    /**
+     * Get the message as a string
+     * 
+     * @return
+     */
     public String getStringMessage() {
-        return rawMessage;
+        String s = stringMessage;
+        if (s == null) {
+            // Strings are immutable, so threads racing here create equal strings
+            stringMessage = s = new String(rawMessage, StandardCharsets.US_ASCII);
+        }
+        return s;
     }
-    
+
+    /**
+     * Get a view of the message without copying it
+     * 
+     * @return
+     */
+    public CharSequence getRawMessage() {
+        return new AsciiSequence(rawMessage);
+    }
+
+    /**
+     * Get views of the lines of the message without copying them. Lines are separated by line feed with an optional
+     * carriage return before it, and trailing empty lines are left out.
+     * 
+     * @return
+     */
+    public List<CharSequence> getLines() {
+        List<CharSequence> lines = new ArrayList<>(4);
+        int start = 0;
+        int end = rawMessage.length;
+        // Leave out trailing empty lines
+        while (end > 0 && (rawMessage[end - 1] == '\n' || rawMessage[end - 1] == '\r')) {
+            end--;
+        }
+        for (int i = 0; i < end; i++) {
+            if (rawMessage[i] == '\n') {
+                int lineEnd = i > start && rawMessage[i - 1] == '\r' ? i - 1 : i;
+                lines.add(new AsciiSequence(rawMessage, start, lineEnd - start));
+                start = i + 1;
+            }
+        }
+        if (start < end || lines.isEmpty()) {
+            lines.add(new AsciiSequence(rawMessage, start, end - start));
+        }
+        return lines;
+    }
+
     public List<String> getStringMessageLines() {
-        return Arrays.asList(rawMessage.split("\\r?\\n"));
+        List<CharSequence> lines = getLines();
+        List<String> strings = new ArrayList<>(lines.size());
+        for (CharSequence line : lines) {
+            strings.add(line.toString());
+        }
+        return strings;
+    }
+
+    /**
+     * Get the message bytes. The array is not copied and must not be changed.
+     * 
+     * @return
+     */
+    byte[] getRawBytes() {
+        return rawMessage;
+    }
+
+    /**
+     * Tagging set when decoding the packet or null
+     * 
+     * @return
+     */
+    AisPacketTagging getTagging() {
+        return tagging;
+    }
+
+    void setTagging(AisPacketTagging tagging) {
+        this.tagging = tagging;
     }
 
     /**
-     * Get existing VDM or parse one from message string
+     * Write the message to the stream without converting it to a string
+     * 
+     * @param out
+     * @throws IOException
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(rawMessage);
+    }
+
+    /**
+     * Release the message string and the parse intermediates of the VDM when the packet is retained, see
+     * {@link Vdm#compact()}. The lines of the message are still available from the packet, and a decoded message is
+     * kept.
+     * 
+     * @return this packet
+     */
+    public synchronized AisPacket compact() {
+        stringMessage = null;
+        if (vdm != null) {
+            vdm.compact();
+        }
+        return this;
+    }
+
+    /**
+     * Get existing VDM or parse one from message string. The VDM is parsed once even when several threads ask for it.
      * 
      * @return Vdm
      */
     public Vdm getVdm() {
-        if (vdm == null) {
-            AisPacket packet;
-            try {
-                packet = AisPacketReader.from(rawMessage);
-                if (packet != null) {
-                    vdm = packet.getVdm();
+        Vdm v = vdm;
+        if (v != null) {
+            return v;
+        }
+        synchronized (this) {
+            if (vdm == null) {
+                AisPacket packet;
+                try {
+                    packet = AisPacketReader.from(getStringMessage());
+                    if (packet != null) {
+                        vdm = packet.getVdm();
+                    }
+                } catch (SentenceException e) {
+                    e.printStackTrace();
+                    return null;
                 }
-            } catch (SentenceException e) {
-                e.printStackTrace();
-                return null;
             }
+            return vdm;
         }
-        return vdm;
     }
 
     // TODO fix
     public AisMessage tryGetAisMessage() {
+        return tryGetAisMessage(DecodeOptions.FULL);
+    }
+
+    /**
+     * Try to get AIS message from packet with at least the fields given by the decode options decoded
+     * 
+     * @param decodeOptions
+     * @return the message or null if the packet does not hold a valid message
+     */
+    public AisMessage tryGetAisMessage(DecodeOptions decodeOptions) {
         try {
-            return getAisMessage();
+            return getAisMessage(decodeOptions);
         } catch (AisMessageException | SixbitException ignore) {
             return null;
         }
@@ -139,10 +283,37 @@ public class AisPacket implements Comparable<AisPacket> {
      * @throws AisMessageException
      */
     public AisMessage getAisMessage() throws AisMessageException, SixbitException {
-        if (message != null || getVdm() == null) {
+        return getAisMessage(DecodeOptions.FULL);
+    }
+
+    /**
+     * Try to get AIS message from packet with at least the fields given by the decode options decoded. A message
+     * decoded earlier with fewer fields is decoded again. The message is decoded once and safely published when several
+     * threads ask for it.
+     * 
+     * @param decodeOptions
+     * @return
+     * @throws SixbitException
+     * @throws AisMessageException
+     */
+    public AisMessage getAisMessage(DecodeOptions decodeOptions) throws AisMessageException, SixbitException {
+        AisMessage m = message;
+        if (m != null && m.getDecodeOptions().covers(decodeOptions)) {
+            return m;
+        }
+        return decode(decodeOptions);
+    }
+
+    private synchronized AisMessage decode(DecodeOptions decodeOptions) throws AisMessageException, SixbitException {
+        if (message != null && message.getDecodeOptions().covers(decodeOptions) || getVdm() == null) {
             return message;
         }
-        return this.message = AisMessage.getInstance(getVdm());
+        if (message != null) {
+            decodeOptions = decodeOptions.union(message.getDecodeOptions());
+            // Skip the message id
+            vdm.getBinArray().setReadPtr(6);
+        }
+        return this.message = AisMessage.getInstance(vdm, decodeOptions);
     }
 
     /**
@@ -160,6 +331,9 @@ public class AisPacket implements Comparable<AisPacket> {
      * @return
      */
     public Date getTimestamp() {
+        if (tagging != null) {
+            return tagging.getTimestamp() == null ? null : new Date(tagging.getTimestamp().getTime());
+        }
         if (getVdm() == null) {
             return null;
         }
@@ -9,28 +9,564 @@
  * but WITHOUT ANY WARRANTY; without even the implied warranty of
  * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
  * Lesser General Public License for more details.
- * 
+ *
  * You should have received a copy of the GNU General Public License
  * along with this library.  If not, see <http://www.gnu.org/licenses/>.
  */
 package dk.dma.ais.packet;
 
+import static java.util.Objects.requireNonNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Objects;
+
+import net.jcip.annotations.NotThreadSafe;
+import dk.dma.ais.binary.BinArray;
+import dk.dma.ais.binary.SixbitException;
+import dk.dma.ais.packet.AisPacketTagging.SourceType;
+import dk.dma.ais.sentence.SentenceLine;
+import dk.dma.enav.model.Country;
+
 /**
+ * Versioned binary codec for AIS packets and sequences of packets.
+ *
+ * Version 1 is the version byte followed by the ASCII text of the packet. Version 2 is the version byte followed by a
+ * record per packet holding
+ * <ul>
+ * <li>flags</li>
+ * <li>the receive timestamp, relative to the previous record of the stream</li>
+ * <li>the timestamp of the packet if any, relative to the receive timestamp</li>
+ * <li>the source tagging, unless it is the same as the previous record of the stream</li>
+ * <li>the text of the packet</li>
+ * </ul>
+ * The timestamp and tagging are read from the record, so the text does not have to be parsed to get them. If all VDM
+ * sentences of the packet have a valid six bit payload and a valid upper case checksum, the payloads are stored as
+ * packed six bit values and the checksums are left out of the text. They are restored on decoding, so decoding always
+ * gives the original text.
  *
  * @author Kasper Nielsen
  */
-public class AisPacketMarshaller {
+public final class AisPacketMarshaller {
+
+    /** Version holding only the text of the packet */
+    static final byte VERSION_TEXT = 1;
+
+    /** Current version */
+    public static final byte VERSION = 2;
+
+    private static final int FLAG_PACKED = 1;
+    private static final int FLAG_TIMESTAMP = 2;
+    private static final int FLAG_TAGGING = 4;
+    private static final int FLAG_SAME_TAGGING = 8;
+
+    private static final int TAG_SOURCE_ID = 1;
+    private static final int TAG_SOURCE_BS = 2;
+    private static final int TAG_SOURCE_COUNTRY = 4;
+    private static final int TAG_SOURCE_TYPE = 8;
+
+    private static final int PAYLOAD_FIELD = 5;
+
+    private AisPacketMarshaller() {}
+
+    /**
+     * Encode a single packet with the current version
+     *
+     * @param packet
+     * @return
+     */
+    public static byte[] toByteArray(AisPacket packet) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(packet.getRawBytes().length + 16);
+        try {
+            new Writer(out).write(packet);
+        } catch (IOException e) {
+            // Not thrown by byte array stream
+            throw new IllegalStateException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decode a single packet of any version
+     *
+     * @param array
+     * @return
+     * @throws IllegalArgumentException
+     *             if the array does not hold an encoded packet
+     */
+    public static AisPacket fromByteArray(byte[] array) {
+        if (array.length > 0 && array[0] == VERSION_TEXT) {
+            return new AisPacket(Arrays.copyOfRange(array, 1, array.length), -1);
+        }
+        try {
+            AisPacket packet = new Reader(new ByteArrayInputStream(array)).read();
+            if (packet == null) {
+                throw new IllegalArgumentException("No packet in array");
+            }
+            return packet;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid encoded packet: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Writer of a sequence of packets to a stream. Timestamps and tagging are encoded relative to the previous packet.
+     */
+    @NotThreadSafe
+    public static class Writer {
+
+        private final OutputStream out;
+        private final SentenceLine sentenceLine = new SentenceLine();
+        private final ByteArrayOutputStream text = new ByteArrayOutputStream(256);
+        private final ByteArrayOutputStream payload = new ByteArrayOutputStream(128);
+        private int[] payloadLengths = new int[8];
+        private int sentences;
+
+        private long lastReceiveTimestamp;
+        private AisPacketTagging lastTagging;
+
+        /**
+         * Create writer and write the version to the stream
+         *
+         * @param out
+         * @throws IOException
+         */
+        public Writer(OutputStream out) throws IOException {
+            this.out = requireNonNull(out);
+            out.write(VERSION);
+        }
+
+        /**
+         * Write packet to the stream
+         *
+         * @param packet
+         * @throws IOException
+         */
+        public void write(AisPacket packet) throws IOException {
+            AisPacketTagging tagging = AisPacketTagging.parse(packet);
+            Date timestamp = tagging.getTimestamp();
+            boolean packed = pack(packet.getRawBytes());
+            int flags = packed ? FLAG_PACKED : 0;
+            if (timestamp != null) {
+                flags |= FLAG_TIMESTAMP;
+            }
+            if (!isSourceEmpty(tagging)) {
+                flags |= sameSource(tagging, lastTagging) ? FLAG_SAME_TAGGING : FLAG_TAGGING;
+            }
+            out.write(flags);
+            writeVarLong(out, zigZag(packet.getReceiveTimestamp() - lastReceiveTimestamp));
+            lastReceiveTimestamp = packet.getReceiveTimestamp();
+            if (timestamp != null) {
+                writeVarLong(out, zigZag(timestamp.getTime() - packet.getReceiveTimestamp()));
+            }
+            if ((flags & FLAG_TAGGING) != 0) {
+                writeTagging(tagging);
+            }
+            lastTagging = tagging;
+
+            if (!packed) {
+                writeBytes(out, packet.getRawBytes(), packet.getRawBytes().length);
+                return;
+            }
+            writeVarLong(out, text.size());
+            text.writeTo(out);
+            writeVarLong(out, sentences);
+            for (int i = 0; i < sentences; i++) {
+                writeVarLong(out, payloadLengths[i]);
+            }
+            payload.writeTo(out);
+        }
+
+        /**
+         * Split the text of the packet into text without payloads and checksums of VDM sentences, and the packed
+         * payloads. Returns false if the packet cannot be restored exactly from the packed form.
+         */
+        private boolean pack(byte[] raw) {
+            text.reset();
+            payload.reset();
+            sentences = 0;
+            long acc = 0;
+            int accBits = 0;
+            int lineStart = 0;
+            while (lineStart <= raw.length) {
+                int lineEnd = indexOf(raw, (byte) '\n', lineStart);
+                AsciiSequence line = new AsciiSequence(raw, lineStart, lineEnd - lineStart);
+                if (sentenceLine.parse(line) != SentenceLine.Type.VDM) {
+                    text.write(raw, lineStart, lineEnd - lineStart);
+                } else {
+                    if (sentenceLine.getFieldCount() <= PAYLOAD_FIELD || sentenceLine.isStartCharBeforeChecksum()) {
+                        return false;
+                    }
+                    int from = sentenceLine.getFieldStart(PAYLOAD_FIELD);
+                    int to = sentenceLine.getFieldEnd(PAYLOAD_FIELD);
+                    int star = indexOf(line, '*', to);
+                    if (star + 2 >= line.length()) {
+                        return false;
+                    }
+                    int high = hexDigit(line.charAt(star + 1));
+                    int low = hexDigit(line.charAt(star + 2));
+                    if (high < 0 || low < 0 || (high << 4 | low) != sentenceLine.getCalculatedChecksum()) {
+                        return false;
+                    }
+                    for (int i = from; i < to; i++) {
+                        int val;
+                        try {
+                            val = BinArray.sixbitToInt(line.charAt(i));
+                        } catch (SixbitException e) {
+                            return false;
+                        }
+                        acc = acc << 6 | val;
+                        accBits += 6;
+                        if (accBits >= 8) {
+                            accBits -= 8;
+                            payload.write((int) (acc >>> accBits));
+                        }
+                    }
+                    if (sentences == payloadLengths.length) {
+                        payloadLengths = Arrays.copyOf(payloadLengths, sentences * 2);
+                    }
+                    payloadLengths[sentences++] = to - from;
+                    // Text without payload and checksum digits
+                    text.write(raw, lineStart, from);
+                    text.write(raw, lineStart + to, star + 1 - to);
+                    text.write(raw, lineStart + star + 3, line.length() - star - 3);
+                }
+                if (lineEnd < raw.length) {
+                    text.write('\n');
+                }
+                lineStart = lineEnd + 1;
+            }
+            if (accBits > 0) {
+                payload.write((int) (acc << 8 - accBits));
+            }
+            return true;
+        }
+
+        private void writeTagging(AisPacketTagging tagging) throws IOException {
+            int tags = 0;
+            if (tagging.getSourceId() != null) {
+                tags |= TAG_SOURCE_ID;
+            }
+            if (tagging.getSourceBs() != null) {
+                tags |= TAG_SOURCE_BS;
+            }
+            if (tagging.getSourceCountry() != null) {
+                tags |= TAG_SOURCE_COUNTRY;
+            }
+            if (tagging.getSourceType() != null) {
+                tags |= TAG_SOURCE_TYPE;
+            }
+            out.write(tags);
+            if (tagging.getSourceId() != null) {
+                writeString(out, tagging.getSourceId());
+            }
+            if (tagging.getSourceBs() != null) {
+                writeVarLong(out, zigZag(tagging.getSourceBs()));
+            }
+            if (tagging.getSourceCountry() != null) {
+                writeString(out, tagging.getSourceCountry().getThreeLetter());
+            }
+            if (tagging.getSourceType() != null) {
+                out.write(tagging.getSourceType().ordinal());
+            }
+        }
+
+        /**
+         * Flush the underlying stream
+         *
+         * @throws IOException
+         */
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+    }
+
+    /**
+     * Reader of a sequence of packets written by {@link Writer}
+     */
+    @NotThreadSafe
+    public static class Reader {
+
+        private final InputStream in;
+        private final SentenceLine sentenceLine = new SentenceLine();
+        private boolean versionRead;
+
+        private long lastReceiveTimestamp;
+        private AisPacketTagging lastTagging;
+
+        public Reader(InputStream in) {
+            this.in = requireNonNull(in);
+        }
+
+        /**
+         * Read the next packet
+         *
+         * @return the packet or null at the end of the stream
+         * @throws IOException
+         */
+        public AisPacket read() throws IOException {
+            if (!versionRead) {
+                int version = in.read();
+                if (version < 0) {
+                    return null;
+                }
+                if (version != VERSION) {
+                    throw new IOException("Unsupported version: " + version);
+                }
+                versionRead = true;
+            }
+            int flags = in.read();
+            if (flags < 0) {
+                return null;
+            }
+            long receiveTimestamp = lastReceiveTimestamp + unZigZag(readVarLong(in));
+            lastReceiveTimestamp = receiveTimestamp;
+            AisPacketTagging tagging = new AisPacketTagging();
+            if ((flags & FLAG_TIMESTAMP) != 0) {
+                tagging.setTimestamp(new Date(receiveTimestamp + unZigZag(readVarLong(in))));
+            }
+            if ((flags & FLAG_TAGGING) != 0) {
+                readTagging(tagging);
+            } else if ((flags & FLAG_SAME_TAGGING) != 0) {
+                if (lastTagging == null) {
+                    throw new IOException("No previous tagging");
+                }
+                copySource(lastTagging, tagging);
+            }
+            if ((flags & (FLAG_TAGGING | FLAG_SAME_TAGGING)) != 0) {
+                lastTagging = tagging;
+            }
+
+            byte[] text = readBytes(in);
+            byte[] raw = (flags & FLAG_PACKED) != 0 ? unpack(text) : text;
+            AisPacket packet = new AisPacket(raw, receiveTimestamp);
+            packet.setTagging(tagging);
+            return packet;
+        }
+
+        private void readTagging(AisPacketTagging tagging) throws IOException {
+            int tags = readByte(in);
+            if ((tags & TAG_SOURCE_ID) != 0) {
+                tagging.setSourceId(readString(in));
+            }
+            if ((tags & TAG_SOURCE_BS) != 0) {
+                tagging.setSourceBs((int) unZigZag(readVarLong(in)));
+            }
+            if ((tags & TAG_SOURCE_COUNTRY) != 0) {
+                tagging.setSourceCountry(Country.getByCode(readString(in)));
+            }
+            if ((tags & TAG_SOURCE_TYPE) != 0) {
+                int type = readByte(in);
+                if (type >= SourceType.values().length) {
+                    throw new IOException("Invalid source type: " + type);
+                }
+                tagging.setSourceType(SourceType.values()[type]);
+            }
+        }
+
+        /**
+         * Insert payloads and checksums into the VDM sentences of the text
+         */
+        private byte[] unpack(byte[] text) throws IOException {
+            int sentences = readVarInt(in);
+            int[] payloadLengths = new int[sentences];
+            int chars = 0;
+            for (int i = 0; i < sentences; i++) {
+                payloadLengths[i] = readVarInt(in);
+                chars += payloadLengths[i];
+            }
+            byte[] payload = new byte[(chars * 6 + 7) / 8];
+            readFully(in, payload);
 
-    //static final AisPacketMarshaller current;
-    //public static AisPacket from()
+            ByteArrayOutputStream out = new ByteArrayOutputStream(text.length + chars + sentences * 2);
+            int sentence = 0;
+            int payloadBit = 0;
+            int lineStart = 0;
+            while (lineStart <= text.length) {
+                int lineEnd = indexOf(text, (byte) '\n', lineStart);
+                AsciiSequence line = new AsciiSequence(text, lineStart, lineEnd - lineStart);
+                if (sentenceLine.parse(line) != SentenceLine.Type.VDM) {
+                    out.write(text, lineStart, lineEnd - lineStart);
+                } else {
+                    if (sentence == sentences || sentenceLine.getFieldCount() <= PAYLOAD_FIELD) {
+                        throw new IOException("Packed sentences do not match text");
+                    }
+                    int start = sentenceLine.getStart();
+                    int at = sentenceLine.getFieldStart(PAYLOAD_FIELD);
+                    int star = indexOf(line, '*', at);
+                    if (star == line.length()) {
+                        throw new IOException("Missing checksum in packed sentence");
+                    }
+                    int checksum = 0;
+                    for (int i = start + 1; i < star; i++) {
+                        checksum ^= line.charAt(i);
+                    }
+                    out.write(text, lineStart, at);
+                    for (int i = 0; i < payloadLengths[sentence]; i++) {
+                        int val = 0;
+                        for (int j = 0; j < 6; j++, payloadBit++) {
+                            val = val << 1 | payload[payloadBit >> 3] >> 7 - (payloadBit & 7) & 1;
+                        }
+                        int c;
+                        try {
+                            c = BinArray.intToSixbit(val);
+                        } catch (SixbitException e) {
+                            throw new IOException(e);
+                        }
+                        checksum ^= c;
+                        out.write(c);
+                    }
+                    sentence++;
+                    out.write(text, lineStart + at, star + 1 - at);
+                    out.write(checksumDigits(checksum));
+                    out.write(text, lineStart + star + 1, line.length() - star - 1);
+                }
+                if (lineEnd < text.length) {
+                    out.write('\n');
+                }
+                lineStart = lineEnd + 1;
+            }
+            if (sentence != sentences) {
+                throw new IOException("Packed sentences do not match text");
+            }
+            return out.toByteArray();
+        }
 
-    //public static
+    }
+
+    private static boolean isSourceEmpty(AisPacketTagging tagging) {
+        return tagging.getSourceId() == null && tagging.getSourceBs() == null && tagging.getSourceCountry() == null
+                && tagging.getSourceType() == null;
+    }
+
+    private static boolean sameSource(AisPacketTagging t1, AisPacketTagging t2) {
+        return t2 != null && Objects.equals(t1.getSourceId(), t2.getSourceId())
+                && Objects.equals(t1.getSourceBs(), t2.getSourceBs())
+                && Objects.equals(t1.getSourceCountry(), t2.getSourceCountry())
+                && t1.getSourceType() == t2.getSourceType();
+    }
+
+    private static void copySource(AisPacketTagging from, AisPacketTagging to) {
+        to.setSourceId(from.getSourceId());
+        to.setSourceBs(from.getSourceBs());
+        to.setSourceCountry(from.getSourceCountry());
+        to.setSourceType(from.getSourceType());
+    }
+
+    private static byte[] checksumDigits(int checksum) {
+        return new byte[] { (byte) Character.toUpperCase(Character.forDigit(checksum >> 4, 16)),
+                (byte) Character.toUpperCase(Character.forDigit(checksum & 0xF, 16)) };
+    }
+
+    /**
+     * Value of upper case hex digit or -1
+     */
+    private static int hexDigit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        return c >= 'A' && c <= 'F' ? c - 'A' + 10 : -1;
+    }
+
+    private static int indexOf(byte[] bytes, byte b, int from) {
+        for (int i = from; i < bytes.length; i++) {
+            if (bytes[i] == b) {
+                return i;
+            }
+        }
+        return bytes.length;
+    }
+
+    private static int indexOf(CharSequence seq, char c, int from) {
+        for (int i = from; i < seq.length(); i++) {
+            if (seq.charAt(i) == c) {
+                return i;
+            }
+        }
+        return seq.length();
+    }
+
+    private static long zigZag(long val) {
+        return val << 1 ^ val >> 63;
+    }
 
-    //Naeste version
-    //gem i UTC
-    //gem \n og ikke "\r\n"
+    private static long unZigZag(long val) {
+        return val >>> 1 ^ -(val & 1);
+    }
 
-    static class Serializer0 extends AisPacketMarshaller {
+    private static void writeVarLong(OutputStream out, long val) throws IOException {
+        while ((val & ~0x7FL) != 0) {
+            out.write((int) (val & 0x7F | 0x80));
+            val >>>= 7;
+        }
+        out.write((int) val);
+    }
 
+    private static long readVarLong(InputStream in) throws IOException {
+        long val = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte(in);
+            val |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return val;
+            }
+        }
+        throw new IOException("Invalid variable length number");
     }
+
+    private static int readVarInt(InputStream in) throws IOException {
+        long val = readVarLong(in);
+        if (val < 0 || val > Integer.MAX_VALUE) {
+            throw new IOException("Invalid length: " + val);
+        }
+        return (int) val;
+    }
+
+    private static void writeBytes(OutputStream out, byte[] bytes, int len) throws IOException {
+        writeVarLong(out, len);
+        out.write(bytes, 0, len);
+    }
+
+    private static byte[] readBytes(InputStream in) throws IOException {
+        byte[] bytes = new byte[readVarInt(in)];
+        readFully(in, bytes);
+        return bytes;
+    }
+
+    private static void writeString(OutputStream out, String str) throws IOException {
+        byte[] bytes = str.getBytes(StandardCharsets.US_ASCII);
+        writeBytes(out, bytes, bytes.length);
+    }
+
+    private static String readString(InputStream in) throws IOException {
+        return new String(readBytes(in), StandardCharsets.US_ASCII);
+    }
+
+    private static int readByte(InputStream in) throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            throw new EOFException();
+        }
+        return b;
+    }
+
+    private static void readFully(InputStream in, byte[] bytes) throws IOException {
+        int off = 0;
+        while (off < bytes.length) {
+            int n = in.read(bytes, off, bytes.length - off);
+            if (n < 0) {
+                throw new EOFException();
+            }
+            off += n;
+        }
+    }
+
 }
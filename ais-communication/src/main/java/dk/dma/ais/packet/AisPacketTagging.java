@@ -102,6 +102,7 @@ public class AisPacketTagging implements Serializable {
         this.sourceId = t.sourceId;
         this.sourceBs = t.sourceBs;
         this.sourceCountry = t.sourceCountry;
+        this.sourceType = t.sourceType;
     }
 
     /**
@@ -311,6 +312,10 @@ public class AisPacketTagging implements Serializable {
      */
     public static AisPacketTagging parse(AisPacket packet) {
         requireNonNull(packet);
+        if (packet.getTagging() != null) {
+            // Read when decoding the packet
+            return new AisPacketTagging(packet.getTagging());
+        }
         return parse(packet.getVdm());
     }
 
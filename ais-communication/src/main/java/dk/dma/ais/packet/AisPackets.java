@@ -26,6 +26,7 @@ import java.util.List;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
 import dk.dma.ais.reader.AisStreamReader;
+import dk.dma.ais.sentence.SentenceLine;
 import dk.dma.commons.util.io.OutputStreamSink;
 import dk.dma.enav.util.function.Consumer;
 
@@ -46,7 +47,7 @@ public class AisPackets {
     public static final OutputStreamSink<AisPacket> OUTPUT_TO_TEXT = new OutputStreamSink<AisPacket>() {
         @Override
         public void process(OutputStream stream, AisPacket message) throws IOException {
-            stream.write(message.getStringMessage().getBytes(StandardCharsets.US_ASCII));
+            message.writeTo(stream);
             stream.write('\n');
         }
     };
@@ -56,13 +57,17 @@ public class AisPackets {
 
         @Override
         public void process(OutputStream stream, AisPacket message) throws IOException {
-            List<String> rawSentences = message.getVdm().getRawSentences();
             String dateTimeStr = DEFAULT_DATE_FORMAT.get().format(message.getVdm().getTimestamp());
             byte[] b = dateTimeStr.getBytes(StandardCharsets.US_ASCII);
-            for (String sentence : rawSentences) {
+            // The VDM sentences of the packet lines without prefix
+            SentenceLine sentenceLine = new SentenceLine();
+            for (CharSequence line : message.getLines()) {
+                if (sentenceLine.parse(line) != SentenceLine.Type.VDM) {
+                    continue;
+                }
                 stream.write(b);
                 stream.write(',');
-                stream.write(sentence.getBytes(StandardCharsets.US_ASCII));
+                stream.write(sentenceLine.getSentence().getBytes(StandardCharsets.US_ASCII));
                 stream.write('\n');
             }
         }
@@ -112,7 +117,8 @@ public class AisPackets {
         r.registerPacketHandler(new Consumer<AisPacket>() {
             @Override
             public void accept(AisPacket t) {
-                list.add(t);
+                // Only the packet is kept, so the parse intermediates can be released
+                list.add(t.compact());
             }
         });
         r.run(); // we do not need to run it in another thread
@@ -16,13 +16,20 @@
 package dk.dma.ais.queue;
 
 import java.util.List;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.NotThreadSafe;
 import net.jcip.annotations.ThreadSafe;
 
 /**
- * Implementation of a IMessageQueue using a Java ArrayBlockingQueue
+ * Bounded queue with a single lock shared by pushing and pulling threads.
+ * 
+ * Elements pushed with {@link #pushPriority(Object, boolean)} can be marked as evictable. They are kept in a separate
+ * ring, so the oldest evictable element is removed in constant time when room is needed for a more important element.
+ * Elements are numbered when pushed, and pulled in the order they were pushed across both rings.
  */
 @ThreadSafe
 public class BlockingMessageQueue<T> implements IMessageQueue<T> {
@@ -30,41 +37,178 @@ public class BlockingMessageQueue<T> implements IMessageQueue<T> {
     private static final int DEFAULT_MAX_SIZE = 1000;
 
     private final int limit;
-    private final BlockingQueue<T> queue;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    /** Elements not evictable */
+    @GuardedBy("lock")
+    private final Ring<T> elements;
+
+    /** Evictable elements, created when the first one is pushed */
+    @GuardedBy("lock")
+    private Ring<T> evictables;
+
+    @GuardedBy("lock")
+    private long sequence;
+
+    @GuardedBy("lock")
+    private int count;
 
     public BlockingMessageQueue() {
         this(DEFAULT_MAX_SIZE);
     }
 
     public BlockingMessageQueue(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive: " + limit);
+        }
         this.limit = limit;
-        this.queue = new ArrayBlockingQueue<>(limit);
+        this.elements = new Ring<>(limit);
     }
 
     @Override
     public int push(T content) throws MessageQueueOverflowException {
-        if (!queue.offer(content)) {
-            throw new MessageQueueOverflowException();
+        checkNotNull(content);
+        lock.lock();
+        try {
+            if (count == limit) {
+                throw new MessageQueueOverflowException();
+            }
+            insert(content, elements);
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean push(T content, long timeout, TimeUnit unit) throws InterruptedException {
+        checkNotNull(content);
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (count == limit) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            insert(content, elements);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int pushAll(List<? extends T> contents) {
+        for (T content : contents) {
+            checkNotNull(content);
+        }
+        lock.lock();
+        try {
+            int pushed = Math.min(contents.size(), limit - count);
+            for (int i = 0; i < pushed; i++) {
+                insert(contents.get(i), elements);
+            }
+            return pushed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Push content, removing the oldest elements while the queue is full
+     * 
+     * @param content
+     * @return the number of removed elements
+     */
+    public int pushDropOldest(T content) {
+        checkNotNull(content);
+        lock.lock();
+        try {
+            int dropped = 0;
+            while (count == limit) {
+                removeOldest();
+                dropped++;
+            }
+            insert(content, elements);
+            return dropped;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Push content that may or may not be evicted later. When the queue is full, the oldest evictable element is
+     * removed to make room for content not evictable. Removing and pushing is done holding the lock.
+     * 
+     * @param content
+     * @param evictable
+     *            if the content may be removed to make room for other content
+     * @return the removed element or null if the queue was not full
+     * @throws MessageQueueOverflowException
+     *             if the queue is full and either the content is evictable or the queue holds no evictable element
+     */
+    public T pushPriority(T content, boolean evictable) throws MessageQueueOverflowException {
+        checkNotNull(content);
+        lock.lock();
+        try {
+            if (evictables == null) {
+                evictables = new Ring<>(limit);
+            }
+            Ring<T> ring = evictable ? evictables : elements;
+            if (count < limit) {
+                insert(content, ring);
+                return null;
+            }
+            if (evictable || evictables.isEmpty()) {
+                throw new MessageQueueOverflowException();
+            }
+            T evicted = evictables.poll();
+            count--;
+            insert(content, ring);
+            return evicted;
+        } finally {
+            lock.unlock();
         }
-        return queue.size();
     }
 
     @Override
     public T pull() throws InterruptedException {
-        T entry = null;
-        do {
-            entry = queue.take();
-        } while (entry == null);
-        return entry;
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                notEmpty.await();
+            }
+            T element = removeOldest();
+            notFull.signal();
+            return element;
+        } finally {
+            lock.unlock();
+        }
     }
 
     @Override
     public List<T> pull(List<T> l, int maxElements) throws InterruptedException {
-        // Wait for element to become available
-        l.add(queue.take());
-        // Get up to maxElements - 1 more
-        queue.drainTo(l, maxElements - 1);
-        return l;
+        lock.lockInterruptibly();
+        try {
+            // Wait for element to become available
+            while (count == 0) {
+                notEmpty.await();
+            }
+            // Get up to maxElements
+            int n = Math.min(count, maxElements);
+            for (int i = 0; i < n; i++) {
+                l.add(removeOldest());
+            }
+            notFull.signalAll();
+            return l;
+        } finally {
+            lock.unlock();
+        }
     }
 
     @Override
@@ -72,8 +216,94 @@ public class BlockingMessageQueue<T> implements IMessageQueue<T> {
         return pull(l, Integer.MAX_VALUE);
     }
 
+    /**
+     * Get the number of elements on the queue
+     * 
+     * @return
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
     public int getLimit() {
         return limit;
     }
 
+    @GuardedBy("lock")
+    private void insert(T content, Ring<T> ring) {
+        ring.add(content, sequence++);
+        count++;
+        notEmpty.signal();
+    }
+
+    /**
+     * Remove the element pushed first of both rings
+     */
+    @GuardedBy("lock")
+    private T removeOldest() {
+        Ring<T> ring = elements;
+        if (evictables != null && !evictables.isEmpty()
+                && (elements.isEmpty() || evictables.headSequence() < elements.headSequence())) {
+            ring = evictables;
+        }
+        count--;
+        return ring.poll();
+    }
+
+    private static void checkNotNull(Object content) {
+        if (content == null) {
+            throw new NullPointerException("content is null");
+        }
+    }
+
+    /**
+     * Array ring of elements with their sequence numbers
+     */
+    @NotThreadSafe
+    private static final class Ring<T> {
+        private final Object[] items;
+        private final long[] sequences;
+        private int head;
+        private int size;
+
+        Ring(int capacity) {
+            items = new Object[capacity];
+            sequences = new long[capacity];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void add(T item, long sequence) {
+            int i = head + size;
+            if (i >= items.length) {
+                i -= items.length;
+            }
+            items[i] = item;
+            sequences[i] = sequence;
+            size++;
+        }
+
+        long headSequence() {
+            return sequences[head];
+        }
+
+        @SuppressWarnings("unchecked")
+        T poll() {
+            T item = (T) items[head];
+            items[head] = null;
+            if (++head == items.length) {
+                head = 0;
+            }
+            size--;
+            return item;
+        }
+    }
+
 }
@@ -16,6 +16,7 @@
 package dk.dma.ais.queue;
 
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import net.jcip.annotations.ThreadSafe;
 
@@ -35,6 +36,26 @@ public interface IMessageQueue<T> {
      */
     int push(T content) throws MessageQueueOverflowException;
 
+    /**
+     * Push element onto the queue, waiting for room if the capacity limit has been reached
+     * 
+     * @param content
+     * @param timeout
+     *            maximum time to wait for room
+     * @param unit
+     * @return false if there was no room within the timeout
+     * @throws InterruptedException
+     */
+    boolean push(T content, long timeout, TimeUnit unit) throws InterruptedException;
+
+    /**
+     * Push elements from the start of a list onto the queue until capacity limit is reached
+     * 
+     * @param contents
+     * @return the number of elements pushed
+     */
+    int pushAll(List<? extends T> contents);
+
     /**
      * Pull message from the queue. This must be implemented as a blocking call.
      * 
@@ -0,0 +1,36 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.ais.queue;
+
+import java.util.List;
+
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Handler of messages from a MessageQueue able to handle all the entries pulled from the queue at once
+ */
+@ThreadSafe
+public interface IQueueBatchHandler<T> extends IQueueEntryHandler<T> {
+
+    /**
+     * Method which to be called when delivering the entries pulled from the queue. The list is only valid during the
+     * call.
+     * 
+     * @param queueEntries
+     */
+    void receiveAll(List<T> queueEntries);
+
+}
@@ -21,12 +21,14 @@ import java.util.List;
 import net.jcip.annotations.ThreadSafe;
 
 /**
- * Thread class to read from a message queue and delegating to a handler
+ * Thread class to read from a message queue and delegating to a handler. A {@link IQueueBatchHandler} gets all the
+ * entries of each pull at once.
  */
 @ThreadSafe
 public class MessageQueueReader<T> extends Thread {
     
     private final IQueueEntryHandler<T> handler;
+    private final IQueueBatchHandler<T> batchHandler;
     private final IMessageQueue<T> queue;
     private final int pullMaxElements;
 
@@ -36,6 +38,7 @@ public class MessageQueueReader<T> extends Thread {
 
     public MessageQueueReader(IQueueEntryHandler<T> handler, IMessageQueue<T> queue, int pullMaxElements) {
         this.handler = handler;
+        this.batchHandler = handler instanceof IQueueBatchHandler ? (IQueueBatchHandler<T>) handler : null;
         this.queue = queue;
         this.pullMaxElements = pullMaxElements;
     }
@@ -50,8 +53,12 @@ public class MessageQueueReader<T> extends Thread {
             } catch (InterruptedException e) {                
                 break;
             }
-            for (T entry : list) {
-                handler.receive(entry);
+            if (batchHandler != null) {
+                batchHandler.receiveAll(list);
+            } else {
+                for (T entry : list) {
+                    handler.receive(entry);
+                }
             }
             list.clear();
         }
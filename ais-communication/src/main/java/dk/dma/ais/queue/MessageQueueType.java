@@ -0,0 +1,47 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.ais.queue;
+
+import dk.dma.ais.queue.RingBufferMessageQueue.WaitStrategy;
+
+/**
+ * Implementations of {@link IMessageQueue} selectable from configuration
+ */
+public enum MessageQueueType {
+    /** {@link BlockingMessageQueue}, single lock shared by pushing and pulling threads */
+    BLOCKING,
+    /** {@link RingBufferMessageQueue}, lock-free for any number of pushing threads and a single pulling thread */
+    RING_BUFFER;
+
+    /**
+     * Create queue of this type
+     * 
+     * @param limit
+     *            maximum number of elements on the queue
+     * @param waitStrategy
+     *            how the pulling thread waits for elements, only used by ring buffer queues
+     * @return
+     */
+    public <T> IMessageQueue<T> create(int limit, WaitStrategy waitStrategy) {
+        switch (this) {
+        case RING_BUFFER:
+            return new RingBufferMessageQueue<>(limit, waitStrategy);
+        default:
+            return new BlockingMessageQueue<>(limit);
+        }
+    }
+
+}
@@ -0,0 +1,326 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.ais.queue;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Bounded lock-free queue on a preallocated ring buffer for any number of pushing threads and a single pulling
+ * thread. Producers claim a slot by advancing the tail and then publish the element in the slot. The consumer takes
+ * published elements from the head and clears their slots.
+ *
+ * Only one thread at a time may pull from the queue. How the pulling thread waits for elements, and how producers
+ * wait for room in {@link #push(Object, long, TimeUnit)}, is given by the {@link WaitStrategy}.
+ */
+@ThreadSafe
+public class RingBufferMessageQueue<T> implements IMessageQueue<T> {
+
+    /**
+     * How the pulling thread waits for elements and pushing threads wait for room
+     */
+    public enum WaitStrategy {
+        /** Busy spin, lowest latency but occupies a core */
+        SPIN,
+        /** Yield the processor between checks */
+        YIELD,
+        /** Park the thread until a producer pushes an element or the consumer takes one */
+        PARK
+    }
+
+    private static final int DEFAULT_MAX_SIZE = 1000;
+
+    /**
+     * Checks before a parking thread parks
+     */
+    private static final int PARK_SPINS = 100;
+
+    private final int limit;
+    private final int mask;
+    private final WaitStrategy waitStrategy;
+    private final AtomicReferenceArray<T> buffer;
+
+    /**
+     * Index of the next slot to claim by producers
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * Index of the next slot to take by the consumer, only written by the consumer
+     */
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * Parked consumer
+     */
+    private volatile Thread waiter;
+
+    /**
+     * Parked producers waiting for room
+     */
+    private final Queue<Thread> blockedProducers = new ConcurrentLinkedQueue<>();
+
+    public RingBufferMessageQueue() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    public RingBufferMessageQueue(int limit) {
+        this(limit, WaitStrategy.PARK);
+    }
+
+    public RingBufferMessageQueue(int limit, WaitStrategy waitStrategy) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive: " + limit);
+        }
+        this.limit = limit;
+        this.waitStrategy = waitStrategy;
+        int capacity = Integer.highestOneBit(limit);
+        if (capacity < limit) {
+            capacity <<= 1;
+        }
+        this.mask = capacity - 1;
+        this.buffer = new AtomicReferenceArray<>(capacity);
+    }
+
+    @Override
+    public int push(T content) throws MessageQueueOverflowException {
+        if (content == null) {
+            throw new NullPointerException("content is null");
+        }
+        int size = offer(content);
+        if (size < 0) {
+            throw new MessageQueueOverflowException();
+        }
+        return size;
+    }
+
+    @Override
+    public boolean push(T content, long timeout, TimeUnit unit) throws InterruptedException {
+        if (content == null) {
+            throw new NullPointerException("content is null");
+        }
+        // Differences of nanoTime values do not overflow, so a deadline far ahead still works
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        int spins = 0;
+        while (offer(content) < 0) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            switch (waitStrategy) {
+            case SPIN:
+                break;
+            case YIELD:
+                Thread.yield();
+                break;
+            default:
+                if (spins < PARK_SPINS) {
+                    spins++;
+                    Thread.yield();
+                    break;
+                }
+                Thread current = Thread.currentThread();
+                blockedProducers.add(current);
+                // Check again after announcing, the consumer taking an element now sees the producer
+                if (size() >= limit) {
+                    LockSupport.parkNanos(this, remaining);
+                }
+                blockedProducers.remove(current);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Claim a slot and publish the content in it
+     *
+     * @return the size of the queue after the push or -1 if the queue is full
+     */
+    private int offer(T content) {
+        long t;
+        do {
+            t = tail.get();
+            if (t - head.get() >= limit) {
+                return -1;
+            }
+        } while (!tail.compareAndSet(t, t + 1));
+        // The slot was cleared by the consumer before it moved the head past it
+        buffer.set((int) t & mask, content);
+        if (waitStrategy == WaitStrategy.PARK) {
+            Thread w = waiter;
+            if (w != null) {
+                LockSupport.unpark(w);
+            }
+        }
+        return (int) (t + 1 - head.get());
+    }
+
+    /**
+     * Claims the slots for all elements that fit with a single update of the tail
+     */
+    @Override
+    public int pushAll(List<? extends T> contents) {
+        for (T content : contents) {
+            if (content == null) {
+                throw new NullPointerException("content is null");
+            }
+        }
+        long t;
+        int claimed;
+        do {
+            t = tail.get();
+            claimed = (int) Math.min(contents.size(), limit - (t - head.get()));
+            if (claimed <= 0) {
+                return 0;
+            }
+        } while (!tail.compareAndSet(t, t + claimed));
+        for (int i = 0; i < claimed; i++) {
+            buffer.set((int) (t + i) & mask, contents.get(i));
+        }
+        if (waitStrategy == WaitStrategy.PARK) {
+            Thread w = waiter;
+            if (w != null) {
+                LockSupport.unpark(w);
+            }
+        }
+        return claimed;
+    }
+
+    @Override
+    public T pull() throws InterruptedException {
+        await();
+        T element = take();
+        released();
+        return element;
+    }
+
+    @Override
+    public List<T> pull(List<T> l, int maxElements) throws InterruptedException {
+        await();
+        l.add(take());
+        for (int i = 1; i < maxElements; i++) {
+            T element = poll();
+            if (element == null) {
+                break;
+            }
+            l.add(element);
+        }
+        released();
+        return l;
+    }
+
+    @Override
+    public List<T> pullAll(List<T> l) throws InterruptedException {
+        return pull(l, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Take the element at the head if published
+     *
+     * @return the element or null
+     */
+    private T poll() {
+        if (buffer.get((int) head.get() & mask) == null) {
+            return null;
+        }
+        return take();
+    }
+
+    /**
+     * Take the published element at the head
+     */
+    private T take() {
+        long h = head.get();
+        int index = (int) h & mask;
+        T element = buffer.get(index);
+        buffer.lazySet(index, null);
+        head.lazySet(h + 1);
+        return element;
+    }
+
+    /**
+     * Wake producers waiting for room after elements have been taken
+     */
+    private void released() {
+        if (waitStrategy == WaitStrategy.PARK) {
+            // A volatile write of the head orders the freed slots before checking for producers, which announce
+            // themselves before checking for room
+            head.set(head.get());
+            for (Thread producer : blockedProducers) {
+                LockSupport.unpark(producer);
+            }
+        }
+    }
+
+    /**
+     * Wait until the element at the head is published
+     */
+    private void await() throws InterruptedException {
+        int spins = 0;
+        while (buffer.get((int) head.get() & mask) == null) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            switch (waitStrategy) {
+            case SPIN:
+                break;
+            case YIELD:
+                Thread.yield();
+                break;
+            default:
+                if (spins < PARK_SPINS) {
+                    spins++;
+                    Thread.yield();
+                    break;
+                }
+                waiter = Thread.currentThread();
+                // Check again after announcing, a producer publishing now sees the waiter
+                if (buffer.get((int) head.get() & mask) == null) {
+                    LockSupport.park(this);
+                }
+                waiter = null;
+            }
+        }
+    }
+
+    /**
+     * Get the number of elements on the queue. Pushed elements still being published are included.
+     *
+     * @return
+     */
+    public int size() {
+        return (int) (tail.get() - head.get());
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
+}
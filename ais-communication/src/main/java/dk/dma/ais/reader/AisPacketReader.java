@@ -33,8 +33,8 @@ import dk.dma.ais.packet.AisPacketTagging;
 import dk.dma.ais.proprietary.IProprietaryTag;
 import dk.dma.ais.proprietary.ProprietaryFactory;
 import dk.dma.ais.sentence.CommentBlock;
-import dk.dma.ais.sentence.Sentence;
 import dk.dma.ais.sentence.SentenceException;
+import dk.dma.ais.sentence.SentenceLine;
 import dk.dma.ais.sentence.Vdm;
 import dk.dma.ais.transform.AisPacketTaggingTransformer;
 import dk.dma.ais.transform.AisPacketTaggingTransformer.Policy;
@@ -73,6 +73,11 @@ public class AisPacketReader {
 
     private Deque<String> sentenceTrace = new ArrayDeque<>(SENTENCE_TRACE_COUNT);
 
+    /**
+     * Scanner for the current line
+     */
+    private final SentenceLine sentenceLine = new SentenceLine();
+
     /**
      * Constructor
      */
@@ -109,8 +114,11 @@ public class AisPacketReader {
             sentenceTrace.addLast(line);
         }
 
+        // Scan line once, the VDM is parsed from the scanned line
+        SentenceLine.Type type = sentenceLine.parse(line);
+
         // Ignore everything else than sentences
-        if (!Sentence.hasSentence(line)) {
+        if (type == SentenceLine.Type.NONE) {
             // Gracefully ignore empty lines
             if (line.length() == 0) {
                 newVdm();
@@ -137,7 +145,7 @@ public class AisPacketReader {
         packetLines.add(line);
 
         // Check if proprietary line
-        if (ProprietaryFactory.isProprietaryTag(line)) {
+        if (type == SentenceLine.Type.PROPRIETARY) {
             // Try to parse with one the registered factories in META-INF/services/dk.dma.ais.proprietary.ProprietaryFactory
             IProprietaryTag tag = ProprietaryFactory.parseTag(line);
             if (tag != null) {
@@ -147,7 +155,7 @@ public class AisPacketReader {
         }
 
         // Check if VDM. If not the possible current VDM is broken.
-        if (!Vdm.isVdm(line)) {
+        if (type != SentenceLine.Type.VDM) {
             newVdm();
             return null;
         }
@@ -155,7 +163,7 @@ public class AisPacketReader {
         // Parse VDM
         int result;
         try {
-            result = vdm.parse(line);
+            result = vdm.parse(sentenceLine);
         } catch (SentenceException e) {
             newVdm();
             // Do a single retry with the current line. The faulty sentence may be the last, not this one.
@@ -17,11 +17,12 @@ package dk.dma.ais.reader;
 
 import static java.util.Objects.requireNonNull;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicLong;
@@ -32,6 +33,7 @@ import org.slf4j.LoggerFactory;
 
 import dk.dma.ais.binary.SixbitException;
 import dk.dma.ais.message.AisMessage;
+import dk.dma.ais.message.AisMessageDecoder;
 import dk.dma.ais.message.AisMessageException;
 import dk.dma.ais.packet.AisPacket;
 import dk.dma.ais.queue.BlockingMessageQueue;
@@ -74,6 +76,15 @@ public abstract class AisReader extends Thread {
     /** List of packet handlers. */
     protected final CopyOnWriteArrayList<Consumer<? super AisPacket>> packetHandlers = new CopyOnWriteArrayList<>();
 
+    /** List of handlers of packet batches. */
+    protected final CopyOnWriteArrayList<Consumer<? super List<AisPacket>>> packetBatchHandlers = new CopyOnWriteArrayList<>();
+
+    /** Maximum number of packets in a batch */
+    private static final int MAX_BATCH_SIZE = 1000;
+
+    /** Packets read but not yet handed to batch handlers, only accessed by the reading thread */
+    private final List<AisPacket> batch = new ArrayList<>();
+
     /** A pool of sending threads. A sending thread handles the sending and reception of ABK message. */
     protected final SendThreadPool sendThreadPool = new SendThreadPool();
 
@@ -86,6 +97,9 @@ public abstract class AisReader extends Thread {
     /** The number of lines read by this reader. */
     private final AtomicLong linesRead = new AtomicLong();
 
+    /** Decode into reused message instances, see {@link #setReuseMessages(boolean)}. */
+    private volatile boolean reuseMessages;
+
     @ManagedAttribute
     public long getNumberOfBytesWritten() {
         return bytesWritten.get();
@@ -101,6 +115,21 @@ public abstract class AisReader extends Thread {
         return linesRead.get();
     }
 
+    public boolean isReuseMessages() {
+        return reuseMessages;
+    }
+
+    /**
+     * Decode AIS messages into instances reused by the reading thread instead of allocating a new message for every
+     * packet. A message given to a handler is then only valid during the call to the handler, and must be copied if
+     * kept. Message queues always receive new instances.
+     * 
+     * @param reuseMessages
+     */
+    public void setReuseMessages(boolean reuseMessages) {
+        this.reuseMessages = reuseMessages;
+    }
+
     /**
      * Add an AIS handler
      * 
@@ -138,6 +167,16 @@ public abstract class AisReader extends Thread {
         packetHandlers.add(packetConsumer);
     }
 
+    /**
+     * Add a handler of batches of packets. A batch holds the complete packets of the lines available from the input
+     * after a read, up to a maximum size. The list is only valid during the call to the handler.
+     * 
+     * @param packetBatchConsumer
+     */
+    public void registerPacketBatchHandler(Consumer<? super List<AisPacket>> packetBatchConsumer) {
+        packetBatchHandlers.add(packetBatchConsumer);
+    }
+
     /**
      * Add a queue for receiving messages
      * 
@@ -276,6 +315,9 @@ public abstract class AisReader extends Thread {
         }
 
         // Distribute packet
+        if (!packetBatchHandlers.isEmpty()) {
+            batch.add(packet);
+        }
         for (Consumer<? super AisPacket> packetHandler : packetHandlers) {
             packetHandler.accept(packet);
         }
@@ -285,11 +327,15 @@ public abstract class AisReader extends Thread {
             AisMessage message = null;
             // Parse AIS message
             try {
-                message = AisMessage.getInstance(packet.getVdm());
+                if (reuseMessages && messageQueues.isEmpty()) {
+                    message = AisMessageDecoder.get().decode(packet.getVdm());
+                } else {
+                    message = AisMessage.getInstance(packet.getVdm());
+                }
             } catch (AisMessageException me) {
-                LOG.info("AIS message exception: " + me.getMessage() + " vdm: " + packet.getVdm().getOrgLinesJoined());
+                LOG.info("AIS message exception: " + me.getMessage() + " vdm: " + packet.getStringMessage());
             } catch (SixbitException se) {
-                LOG.info("Sixbit error: " + se.getMessage() + " vdm: " + packet.getVdm().getOrgLinesJoined());
+                LOG.info("Sixbit error: " + se.getMessage() + " vdm: " + packet.getStringMessage());
             }
             if (message == null) {
                 return;
@@ -311,20 +357,41 @@ public abstract class AisReader extends Thread {
     }
 
     /**
-     * The main read loop
+     * Hand the current batch of packets to the batch handlers
+     */
+    protected void flushBatch() {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<AisPacket> packets = Collections.unmodifiableList(batch);
+        for (Consumer<? super List<AisPacket>> packetBatchHandler : packetBatchHandlers) {
+            packetBatchHandler.accept(packets);
+        }
+        batch.clear();
+    }
+
+    /**
+     * The main read loop. A batch is handed over when the next line can not be read without blocking.
      * 
      * @param stream
      *            the generic input stream to read from
      * @throws IOException
      */
     protected void readLoop(InputStream stream) throws IOException {
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new CountingInputStream(stream, bytesRead)))) {
+        try (InputStream in = new CountingInputStream(stream, bytesRead)) {
+            LineReader reader = new LineReader(in);
             for (String line = reader.readLine(); line != null; line = reader.readLine()) {
                 if (isShutdown()) {
                     return;
                 }
                 handleLine(line);
+                // A partial line buffered does not hold the batch back
+                if (batch.size() >= MAX_BATCH_SIZE || !reader.hasLine()) {
+                    flushBatch();
+                }
             }
+        } finally {
+            flushBatch();
         }
     }
 
@@ -0,0 +1,137 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.ais.reader;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import net.jcip.annotations.NotThreadSafe;
+
+/**
+ * Reads ASCII lines from a stream, and tells if the next line can be read without blocking. Lines end with line feed,
+ * carriage return or both, like {@link java.io.BufferedReader#readLine()}.
+ */
+@NotThreadSafe
+class LineReader {
+
+    private final InputStream in;
+    private byte[] buffer = new byte[8192];
+    private int pos;
+    private int limit;
+    /**
+     * The last line ended with carriage return, a line feed following it belongs to that line
+     */
+    private boolean skipLf;
+    private boolean eof;
+
+    LineReader(InputStream in) {
+        this.in = requireNonNull(in);
+    }
+
+    /**
+     * Read a line, blocking until it is complete
+     * 
+     * @return the line without the line ending or null at the end of the stream
+     * @throws IOException
+     */
+    String readLine() throws IOException {
+        while (true) {
+            skipLineFeed();
+            int end = lineEnd();
+            if (end >= 0) {
+                String line = new String(buffer, pos, end - pos, StandardCharsets.US_ASCII);
+                skipLf = buffer[end] == '\r';
+                pos = end + 1;
+                return line;
+            }
+            if (eof) {
+                if (pos == limit) {
+                    return null;
+                }
+                String line = new String(buffer, pos, limit - pos, StandardCharsets.US_ASCII);
+                pos = limit;
+                return line;
+            }
+            fill(buffer.length - limit + pos);
+        }
+    }
+
+    /**
+     * Check if the next line can be read without blocking. Only input available without blocking is read.
+     * 
+     * @return
+     * @throws IOException
+     */
+    boolean hasLine() throws IOException {
+        while (true) {
+            skipLineFeed();
+            if (eof || lineEnd() >= 0) {
+                return true;
+            }
+            int available = in.available();
+            if (available <= 0) {
+                return false;
+            }
+            fill(available);
+        }
+    }
+
+    private void skipLineFeed() {
+        if (skipLf && pos < limit) {
+            if (buffer[pos] == '\n') {
+                pos++;
+            }
+            skipLf = false;
+        }
+    }
+
+    /**
+     * Get the index of the first line ending in the buffer or -1
+     */
+    private int lineEnd() {
+        for (int i = pos; i < limit; i++) {
+            if (buffer[i] == '\n' || buffer[i] == '\r') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Read up to a number of bytes into the buffer, making room for them
+     */
+    private void fill(int max) throws IOException {
+        if (pos > 0) {
+            System.arraycopy(buffer, pos, buffer, 0, limit - pos);
+            limit -= pos;
+            pos = 0;
+        }
+        if (limit == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        int n = in.read(buffer, limit, Math.max(1, Math.min(max, buffer.length - limit)));
+        if (n < 0) {
+            eof = true;
+        } else {
+            limit += n;
+        }
+    }
+
+}
@@ -124,9 +124,7 @@ public class AisPacketTaggingTransformer implements IAisPacketTransformer {
             return null;
         }
         CommentBlock cb = vdm.getCommentBlock();
-        if (cb == null) {
-            cb = new CommentBlock();
-        }
+        cb = cb == null ? new CommentBlock() : new CommentBlock(cb);
         tagging.getCommentBlockPreserve(cb);
         // Add extra tags
         addExtraTags(cb, packet, false);
@@ -134,7 +132,7 @@ public class AisPacketTaggingTransformer implements IAisPacketTransformer {
         if (!cb.isEmpty()) {
             sentences = cb.encode() + "\r\n" + sentences;
         }
-        return newPacket(packet, sentences);
+        return newPacket(packet, sentences, cb, false);
     }
 
     private AisPacket mergeOverrideTransform(AisPacket packet) {
@@ -143,9 +141,7 @@ public class AisPacketTaggingTransformer implements IAisPacketTransformer {
             return null;
         }
         CommentBlock cb = vdm.getCommentBlock();
-        if (cb == null) {
-            cb = new CommentBlock();
-        }
+        cb = cb == null ? new CommentBlock() : new CommentBlock(cb);
         tagging.getCommentBlock(cb);
         // Add extra tags
         addExtraTags(cb, packet, true);
@@ -153,7 +149,7 @@ public class AisPacketTaggingTransformer implements IAisPacketTransformer {
         if (!cb.isEmpty()) {
             sentences = cb.encode() + "\r\n" + sentences;
         }
-        return newPacket(packet, sentences);
+        return newPacket(packet, sentences, cb, false);
     }
 
     private AisPacket replaceTransform(AisPacket packet) {
@@ -166,7 +162,7 @@ public class AisPacketTaggingTransformer implements IAisPacketTransformer {
         if (!cb.isEmpty()) {
             sentences = cb.encode() + "\r\n" + sentences;
         }
-        return newPacket(packet, sentences);
+        return newPacket(packet, sentences, cb, true);
     }
     
     private AisPacket prependTransform(AisPacket packet) {
@@ -180,7 +176,18 @@ public class AisPacketTaggingTransformer implements IAisPacketTransformer {
             return packet;
         }
         String newCb = cb.encode();
-        return newPacket(packet, newCb + "\r\n" + packet.getStringMessage());
+        String newRawMessage = newCb + "\r\n" + packet.getStringMessage();
+        Vdm vdm = packet.getVdm();
+        if (vdm == null) {
+            return new AisPacket(newRawMessage, packet.getReceiveTimestamp());
+        }
+        // Keep the VDM with the prepended comment block merged in as if parsed before the current
+        Vdm newVdm = new Vdm(vdm);
+        if (vdm.getCommentBlock() != null) {
+            cb.merge(vdm.getCommentBlock());
+        }
+        newVdm.setCommentBlock(cb);
+        return new AisPacket(newVdm, newRawMessage, packet.getReceiveTimestamp());
     }
     
     /**
@@ -236,8 +243,29 @@ public class AisPacketTaggingTransformer implements IAisPacketTransformer {
         return croppedLines;
     }
     
-    private AisPacket newPacket(AisPacket oldPacket, String newRawMessage) {
-        return new AisPacket(newRawMessage, oldPacket.getReceiveTimestamp());
+    /**
+     * Make new packet with the VDM of the old packet given the new comment block, so the new packet is not parsed
+     * again
+     * 
+     * @param oldPacket
+     * @param newRawMessage
+     * @param cb
+     * @param proprietaryRemoved
+     * @return
+     */
+    private AisPacket newPacket(AisPacket oldPacket, String newRawMessage, CommentBlock cb, boolean proprietaryRemoved) {
+        Vdm vdm = oldPacket.getVdm();
+        if (vdm == null) {
+            return new AisPacket(newRawMessage, oldPacket.getReceiveTimestamp());
+        }
+        Vdm newVdm = new Vdm(vdm);
+        newVdm.setCommentBlock(cb.isEmpty() ? null : cb);
+        if (proprietaryRemoved) {
+            newVdm.setTags(null);
+        }
+        // Cropped sentences have nothing after the checksum
+        newVdm.cropPostfix();
+        return new AisPacket(newVdm, newRawMessage, oldPacket.getReceiveTimestamp());
     }
 
 }
@@ -24,6 +24,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
@@ -46,6 +47,7 @@ import dk.dma.ais.message.binary.AisApplicationMessage;
 import dk.dma.ais.packet.AisPacket;
 import dk.dma.ais.proprietary.IProprietaryTag;
 import dk.dma.ais.sentence.CommentBlock;
+import dk.dma.ais.sentence.SentenceException;
 import dk.dma.ais.sentence.Vdm;
 import dk.dma.enav.model.Country;
 
@@ -260,17 +262,30 @@ public class AnonymousTransformer implements IAisPacketTransformer {
             return null;
         }
 
+        // Parse the new sentences, but keep tags and comment block already parsed
+        Vdm vdm = new Vdm();
+        try {
+            for (String sentence : sentences) {
+                vdm.parse(sentence);
+            }
+        } catch (SentenceException e) {
+            LOG.error("Failed to parse encoded AIS message: " + message + ": " + e.getMessage());
+            return null;
+        }
+
         // Add proprietary tags (or not?)
         if (message.getTags() != null) {
             for (IProprietaryTag tag : message.getTags()) {
                 lines.add(tag.getSentence());
             }
+            vdm.setTags(new LinkedList<>(message.getTags()));
         }
 
         // Add comment blocks
         CommentBlock cb = message.getVdm().getCommentBlock();
         if (cb != null) {
             lines.add(cb.encode());
+            vdm.setCommentBlock(new CommentBlock(cb));
         }
 
         // Add sentences
@@ -278,7 +293,7 @@ public class AnonymousTransformer implements IAisPacketTransformer {
             lines.add(sentence);
         }
 
-        return AisPacket.from(StringUtils.join(lines, "\r\n"), packet.getReceiveTimestamp());
+        return new AisPacket(vdm, StringUtils.join(lines, "\r\n"), packet.getReceiveTimestamp());
     }
     
     /**
@@ -40,7 +40,17 @@ public class CropVdmTransformer implements IAisPacketTransformer {
                 newLines.add(line);
             }
         }
-        return new AisPacket(StringUtils.join(newLines, "\r\n"), packet.getReceiveTimestamp());
+        String newRawMessage = StringUtils.join(newLines, "\r\n");
+        Vdm vdm = packet.getVdm();
+        if (vdm == null) {
+            return new AisPacket(newRawMessage, packet.getReceiveTimestamp());
+        }
+        // Keep the parsed VDM without what was cropped
+        Vdm newVdm = new Vdm(vdm);
+        newVdm.setCommentBlock(null);
+        newVdm.setTags(null);
+        newVdm.cropPostfix();
+        return new AisPacket(newVdm, newRawMessage, packet.getReceiveTimestamp());
     }
     
 }
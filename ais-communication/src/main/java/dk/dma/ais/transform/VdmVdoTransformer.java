@@ -27,6 +27,7 @@ import dk.dma.ais.message.AisMessage;
 import dk.dma.ais.packet.AisPacket;
 import dk.dma.ais.sentence.Sentence;
 import dk.dma.ais.sentence.SentenceException;
+import dk.dma.ais.sentence.Vdm;
 
 /**
  * Transformer that changes VDM/VDO to either VDM or VDO based on a given MMSI. If talker is given the talker is also changed for
@@ -96,7 +97,13 @@ public class VdmVdoTransformer implements IAisPacketTransformer {
             lines.set(i, line);
         }
 
-        return AisPacket.from(StringUtils.join(lines, "\r\n"), packet.getReceiveTimestamp());
+        // Keep the parsed VDM with the changes made to the lines
+        Vdm vdm = new Vdm(message.getVdm());
+        vdm.setOwnMessage(own);
+        if (own && ownTalker != null) {
+            vdm.setTalker(ownTalker);
+        }
+        return new AisPacket(vdm, StringUtils.join(lines, "\r\n"), packet.getReceiveTimestamp());
     }
 
 }
@@ -16,13 +16,25 @@
 package dk.dma.ais.bus;
 
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.xml.bind.JAXBException;
 
 import org.junit.Assert;
 import org.junit.Test;
 
+import dk.dma.ais.bus.consumer.DistributerConsumer;
+import dk.dma.ais.bus.provider.StreamReaderProvider;
+import dk.dma.ais.bus.status.AisBusComponentStatus;
 import dk.dma.ais.bus.tcp.TcpClientConf;
 import dk.dma.ais.bus.tcp.TcpServerConf;
 import dk.dma.ais.configuration.bus.AisBusConfiguration;
@@ -47,7 +59,11 @@ import dk.dma.ais.configuration.transform.PacketTaggingConfiguration;
 import dk.dma.ais.configuration.transform.ReplayTransformConfiguration;
 import dk.dma.ais.configuration.transform.SourceTypeSatTransformerConfiguration;
 import dk.dma.ais.configuration.transform.TaggingTransformerConfiguration;
+import dk.dma.ais.filter.RawPayload;
+import dk.dma.ais.packet.AisPacket;
+import dk.dma.ais.packet.AisPackets;
 import dk.dma.ais.transform.AisPacketTaggingTransformer.Policy;
+import dk.dma.enav.util.function.Consumer;
 
 public class AisBusTest {
 
@@ -210,6 +226,147 @@ public class AisBusTest {
         
     }
     
+    @Test
+    public void lanesTest() throws IOException, URISyntaxException, InterruptedException {
+        List<AisPacket> packets = AisPackets.readFromFile(Paths.get(ClassLoader.getSystemResource(
+                "stream_example.txt").toURI()));
+        final Map<AisPacket, Integer> order = new IdentityHashMap<>();
+        for (AisPacket packet : packets) {
+            order.put(packet, order.size());
+        }
+
+        AisBus aisBus = new AisBus();
+        aisBus.setBusLanes(4);
+        aisBus.init();
+        DistributerConsumer distributer = new DistributerConsumer();
+        distributer.setConsumerQueueSize(packets.size());
+        distributer.init();
+        // Order of delivered packets per MMSI
+        final ConcurrentMap<Integer, List<Integer>> delivered = new ConcurrentHashMap<>();
+        final AtomicInteger count = new AtomicInteger();
+        distributer.getConsumers().add(new Consumer<AisPacket>() {
+            @Override
+            public void accept(AisPacket packet) {
+                RawPayload payload = RawPayload.from(packet);
+                int mmsi = payload == null ? 0 : payload.getUserId();
+                delivered.putIfAbsent(mmsi, new ArrayList<Integer>());
+                delivered.get(mmsi).add(order.get(packet));
+                count.incrementAndGet();
+            }
+        });
+        aisBus.registerConsumer(distributer);
+        aisBus.start();
+        aisBus.startConsumers();
+
+        for (AisPacket packet : packets) {
+            while (!aisBus.push(packet)) {
+                Thread.sleep(1);
+            }
+        }
+        for (int i = 0; i < 1000 && count.get() < packets.size(); i++) {
+            Thread.sleep(10);
+        }
+        aisBus.cancel();
+
+        Assert.assertEquals(packets.size(), count.get());
+        for (List<Integer> indexes : delivered.values()) {
+            for (int i = 1; i < indexes.size(); i++) {
+                Assert.assertTrue(indexes.get(i - 1) < indexes.get(i));
+            }
+        }
+        List<AisBusComponentStatus> laneStatus = aisBus.getLaneStatus();
+        Assert.assertEquals(4, laneStatus.size());
+        long inCount = 0;
+        for (AisBusComponentStatus status : laneStatus) {
+            System.out.println("Lane: " + status);
+            Assert.assertTrue(status.getInCount() > 0);
+            inCount += status.getInCount();
+        }
+        Assert.assertEquals(packets.size(), inCount);
+    }
+
+    @Test
+    public void batchTest() throws IOException, URISyntaxException, InterruptedException {
+        int expected = AisPackets.readFromFile(Paths.get(ClassLoader.getSystemResource(
+                "stream_example.txt").toURI())).size();
+
+        AisBus aisBus = new AisBus();
+        aisBus.setBusLanes(2);
+        aisBus.init();
+        DistributerConsumer distributer = new DistributerConsumer();
+        distributer.setConsumerQueueSize(expected);
+        distributer.init();
+        final AtomicInteger count = new AtomicInteger();
+        distributer.getConsumers().add(new Consumer<AisPacket>() {
+            @Override
+            public void accept(AisPacket packet) {
+                count.incrementAndGet();
+            }
+        });
+        aisBus.registerConsumer(distributer);
+        StreamReaderProvider provider = new StreamReaderProvider(
+                ClassLoader.getSystemResourceAsStream("stream_example.txt"));
+        provider.init();
+        aisBus.registerProvider(provider);
+        aisBus.start();
+        aisBus.startConsumers();
+        aisBus.startProviders();
+
+        provider.getThread().join(10000);
+        for (int i = 0; i < 1000 && count.get() < expected; i++) {
+            Thread.sleep(10);
+        }
+        aisBus.cancel();
+
+        Assert.assertEquals(expected, count.get());
+        Assert.assertEquals(expected, provider.getStatus().getInCount());
+        Assert.assertEquals(0, provider.getStatus().getOverflowCount());
+        long inCount = 0;
+        for (AisBusComponentStatus status : aisBus.getLaneStatus()) {
+            inCount += status.getInCount();
+        }
+        Assert.assertEquals(expected, inCount);
+    }
+
+    @Test
+    public void batchConsumerTest() throws IOException, URISyntaxException, InterruptedException {
+        List<AisPacket> packets = AisPackets.readFromFile(Paths.get(ClassLoader.getSystemResource(
+                "stream_example.txt").toURI()));
+        DistributerConsumer distributer = new DistributerConsumer();
+        distributer.setConsumerQueueSize(packets.size());
+        distributer.setConsumerPullMaxElements(100);
+        distributer.init();
+        final AtomicInteger batches = new AtomicInteger();
+        final AtomicInteger count = new AtomicInteger();
+        final AtomicInteger single = new AtomicInteger();
+        distributer.getBatchConsumers().add(new Consumer<List<AisPacket>>() {
+            @Override
+            public void accept(List<AisPacket> batch) {
+                Assert.assertTrue(batch.size() <= 100);
+                batches.incrementAndGet();
+                count.addAndGet(batch.size());
+            }
+        });
+        distributer.getConsumers().add(new Consumer<AisPacket>() {
+            @Override
+            public void accept(AisPacket packet) {
+                single.incrementAndGet();
+            }
+        });
+        for (AisPacket packet : packets) {
+            distributer.push(new AisBusElement(packet));
+        }
+        distributer.start();
+        for (int i = 0; i < 1000 && count.get() < packets.size(); i++) {
+            Thread.sleep(10);
+        }
+        distributer.cancel();
+        Assert.assertEquals(packets.size(), count.get());
+        Assert.assertEquals(packets.size(), single.get());
+        Assert.assertEquals((packets.size() + 99) / 100, batches.get());
+        Assert.assertEquals(packets.size(), distributer.getStatus().getInCount());
+    }
+
     //@Test
     public void aisBusTest2() throws JAXBException, FileNotFoundException {
         AisBus aisBus = AisBusFactory.get("src/main/resources/aisbus-example.xml");
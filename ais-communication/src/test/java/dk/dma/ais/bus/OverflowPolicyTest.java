@@ -0,0 +1,142 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.ais.bus;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import dk.dma.ais.bus.consumer.DistributerConsumer;
+import dk.dma.ais.bus.provider.TcpClientProvider;
+import dk.dma.ais.bus.provider.TcpServerProvider;
+import dk.dma.ais.packet.AisPacket;
+import dk.dma.ais.packet.AisPackets;
+import dk.dma.ais.queue.MessageQueueType;
+
+public class OverflowPolicyTest {
+
+    private static final int QUEUE_SIZE = 10;
+
+    private final List<AisPacket> positions = new ArrayList<>();
+    private final List<AisPacket> others = new ArrayList<>();
+
+    public OverflowPolicyTest() throws IOException, URISyntaxException {
+        for (AisPacket packet : AisPackets.readFromFile(Paths.get(ClassLoader.getSystemResource(
+                "stream_example.txt").toURI()))) {
+            if (QueuePusher.isPositionReport(packet)) {
+                positions.add(packet);
+            } else if (packet.getVdm() != null) {
+                others.add(packet);
+            }
+        }
+    }
+
+    private static DistributerConsumer consumer(OverflowPolicy policy) {
+        DistributerConsumer consumer = new DistributerConsumer();
+        consumer.setConsumerQueueSize(QUEUE_SIZE);
+        consumer.setConsumerOverflowPolicy(policy);
+        consumer.setConsumerOverflowTimeout(50);
+        consumer.init();
+        return consumer;
+    }
+
+    private static void push(AisBusConsumer consumer, List<AisPacket> packets, int count) {
+        for (int i = 0; i < count; i++) {
+            consumer.push(new AisBusElement(packets.get(i)));
+        }
+    }
+
+    @Test
+    public void dropNewestTest() {
+        DistributerConsumer consumer = consumer(OverflowPolicy.DROP_NEWEST);
+        push(consumer, positions, 2 * QUEUE_SIZE);
+        Assert.assertEquals(QUEUE_SIZE, consumer.getStatus().getOverflowCount());
+    }
+
+    @Test
+    public void dropOldestTest() {
+        DistributerConsumer consumer = consumer(OverflowPolicy.DROP_OLDEST);
+        push(consumer, positions, 2 * QUEUE_SIZE);
+        Assert.assertEquals(QUEUE_SIZE, consumer.getStatus().getDroppedOldestCount());
+        Assert.assertEquals(0, consumer.getStatus().getOverflowCount());
+    }
+
+    @Test
+    public void dropPriorityTest() {
+        DistributerConsumer consumer = consumer(OverflowPolicy.DROP_PRIORITY);
+        push(consumer, positions, QUEUE_SIZE);
+        // Other messages replace position reports
+        push(consumer, others, QUEUE_SIZE);
+        Assert.assertEquals(QUEUE_SIZE, consumer.getStatus().getDroppedPriorityCount());
+        Assert.assertEquals(0, consumer.getStatus().getOverflowCount());
+        // Position reports are shed, and other messages overflow when no position reports are left
+        push(consumer, positions, 1);
+        Assert.assertEquals(QUEUE_SIZE + 1, consumer.getStatus().getDroppedPriorityCount());
+        push(consumer, others, 1);
+        Assert.assertEquals(1, consumer.getStatus().getOverflowCount());
+    }
+
+    @Test
+    public void blockTest() {
+        DistributerConsumer consumer = consumer(OverflowPolicy.BLOCK);
+        push(consumer, positions, QUEUE_SIZE);
+        long start = System.currentTimeMillis();
+        push(consumer, positions, 1);
+        Assert.assertTrue(System.currentTimeMillis() - start >= 50);
+        Assert.assertEquals(1, consumer.getStatus().getBlockedCount());
+        Assert.assertEquals(1, consumer.getStatus().getOverflowCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void ringBufferTest() {
+        DistributerConsumer consumer = new DistributerConsumer();
+        consumer.setConsumerQueueType(MessageQueueType.RING_BUFFER);
+        consumer.setConsumerOverflowPolicy(OverflowPolicy.DROP_OLDEST);
+        consumer.init();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void busSpillTest() {
+        new AisBus().setBusOverflowPolicy(OverflowPolicy.SPILL);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void selectorProviderBlockTest() {
+        AisBus bus = new AisBus();
+        bus.setBusOverflowPolicy(OverflowPolicy.BLOCK);
+        bus.registerProvider(new TcpServerProvider());
+    }
+
+    @Test
+    public void blockAfterSelectorProviderTest() {
+        AisBus bus = new AisBus();
+        bus.registerProvider(new TcpServerProvider());
+        try {
+            bus.setBusOverflowPolicy(OverflowPolicy.BLOCK);
+            Assert.fail("Expected BLOCK to be rejected");
+        } catch (IllegalArgumentException ignore) {}
+        // Providers pushing from their own threads may block
+        bus = new AisBus();
+        bus.registerProvider(new TcpClientProvider());
+        bus.setBusOverflowPolicy(OverflowPolicy.BLOCK);
+    }
+
+}
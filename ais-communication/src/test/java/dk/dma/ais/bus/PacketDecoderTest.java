@@ -0,0 +1,101 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.ais.bus;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import dk.dma.ais.message.AisMessage;
+import dk.dma.ais.packet.AisPacket;
+import dk.dma.ais.packet.AisPackets;
+
+public class PacketDecoderTest {
+
+    private static List<AisPacket> read() throws Exception {
+        return AisPackets.readFromFile(Paths.get(ClassLoader.getSystemResource("stream_example.txt").toURI()));
+    }
+
+    @Test
+    public void decodeTest() throws Exception {
+        List<AisPacket> packets = read();
+        Assert.assertTrue(packets.size() > PacketDecoder.MIN_CHUNK * 2);
+        List<AisBusElement> elements = new ArrayList<>();
+        for (AisPacket packet : packets) {
+            elements.add(new AisBusElement(packet));
+        }
+        PacketDecoder decoder = new PacketDecoder("test", 4);
+        try {
+            decoder.decode(elements);
+        } finally {
+            decoder.shutdown();
+        }
+        List<AisPacket> expected = read();
+        Assert.assertEquals(expected.size(), elements.size());
+        for (int i = 0; i < elements.size(); i++) {
+            AisPacket packet = elements.get(i).getPacket();
+            Assert.assertSame(packets.get(i), packet);
+            AisMessage message = expected.get(i).tryGetAisMessage();
+            if (message == null) {
+                Assert.assertNull(packet.tryGetAisMessage());
+            } else {
+                Assert.assertEquals(message.getMsgId(), packet.tryGetAisMessage().getMsgId());
+                Assert.assertEquals(message.getUserId(), packet.tryGetAisMessage().getUserId());
+            }
+        }
+    }
+
+    @Test
+    public void decodeOnceTest() throws Exception {
+        final List<AisPacket> packets = read();
+        final int threads = 4;
+        final AisMessage[][] messages = new AisMessage[threads][packets.size()];
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> list = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final int n = t;
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < packets.size(); i++) {
+                        messages[n][i] = packets.get(i).tryGetAisMessage();
+                    }
+                }
+            };
+            thread.start();
+            list.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : list) {
+            thread.join(10000);
+        }
+        for (int i = 0; i < packets.size(); i++) {
+            for (int t = 1; t < threads; t++) {
+                Assert.assertSame(messages[0][i], messages[t][i]);
+            }
+        }
+    }
+
+}
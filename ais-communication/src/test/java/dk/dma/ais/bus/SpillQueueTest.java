@@ -0,0 +1,229 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.ais.bus;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import dk.dma.ais.bus.consumer.DistributerConsumer;
+import dk.dma.ais.bus.consumer.TcpWriterConsumer;
+import dk.dma.ais.packet.AisPacket;
+import dk.dma.ais.packet.AisPackets;
+import dk.dma.enav.util.function.Consumer;
+
+public class SpillQueueTest {
+
+    private static List<AisPacket> readPackets() throws IOException, URISyntaxException {
+        return AisPackets.readFromFile(Paths.get(ClassLoader.getSystemResource("stream_example.txt").toURI()));
+    }
+
+    @Test
+    public void orderTest() throws IOException, URISyntaxException {
+        List<AisPacket> packets = readPackets();
+        Path dir = Files.createTempDirectory("spill");
+        SpillQueue spill = new SpillQueue(dir, 4096, 0, 0);
+        Assert.assertTrue(spill.isEmpty());
+        Assert.assertNull(spill.poll());
+        // Interleave appending and polling
+        int polled = 0;
+        for (int i = 0; i < packets.size(); i++) {
+            spill.append(packets.get(i));
+            if (i % 3 == 0) {
+                Assert.assertEquals(packets.get(polled++).getStringMessage(), spill.poll().getStringMessage());
+            }
+        }
+        Assert.assertFalse(spill.isEmpty());
+        Assert.assertTrue(spill.getSize() > 0);
+        AisPacket packet;
+        while ((packet = spill.poll()) != null) {
+            Assert.assertEquals(packets.get(polled).getStringMessage(), packet.getStringMessage());
+            Assert.assertEquals(packets.get(polled).getReceiveTimestamp(), packet.getReceiveTimestamp());
+            polled++;
+        }
+        Assert.assertEquals(packets.size(), polled);
+        Assert.assertTrue(spill.isEmpty());
+
+        // Resume after closing
+        for (AisPacket p : packets) {
+            spill.append(p);
+        }
+        spill.close();
+        spill = new SpillQueue(dir, 4096, 0, 0);
+        polled = 0;
+        while ((packet = spill.poll()) != null) {
+            Assert.assertEquals(packets.get(polled++).getStringMessage(), packet.getStringMessage());
+        }
+        Assert.assertEquals(packets.size(), polled);
+        Assert.assertTrue(spill.isEmpty());
+        Assert.assertEquals(0, spill.getSize());
+        spill.close();
+        Assert.assertEquals(0, dir.toFile().list().length);
+        Files.delete(dir);
+    }
+
+    @Test
+    public void followTest() throws IOException, URISyntaxException {
+        List<AisPacket> packets = readPackets();
+        Path dir = Files.createTempDirectory("spill");
+        SpillQueue spill = new SpillQueue(dir, 1 << 30, 0, 0);
+        // The reader catching up does not close the segment being written
+        for (int i = 0; i < 100; i++) {
+            spill.append(packets.get(i));
+            Assert.assertEquals(packets.get(i).getStringMessage(), spill.poll().getStringMessage());
+            Assert.assertTrue(spill.isEmpty());
+            Assert.assertNull(spill.poll());
+            Assert.assertEquals(1, dir.toFile().list().length);
+        }
+        // Packets appended while reading are read after the flushed ones
+        for (int i = 100; i < 200; i++) {
+            spill.append(packets.get(i));
+        }
+        Assert.assertEquals(packets.get(100).getStringMessage(), spill.poll().getStringMessage());
+        for (int i = 200; i < 300; i++) {
+            spill.append(packets.get(i));
+        }
+        for (int i = 101; i < 300; i++) {
+            Assert.assertEquals(packets.get(i).getStringMessage(), spill.poll().getStringMessage());
+        }
+        Assert.assertTrue(spill.isEmpty());
+        // Read packets are not kept
+        spill.close();
+        Assert.assertEquals(0, dir.toFile().list().length);
+        Files.delete(dir);
+    }
+
+    @Test
+    public void retentionTest() throws IOException, URISyntaxException {
+        List<AisPacket> packets = readPackets();
+        Path dir = Files.createTempDirectory("spill");
+        SpillQueue spill = new SpillQueue(dir, 4096, 16384, 0);
+        for (AisPacket packet : packets) {
+            spill.append(packet);
+        }
+        Assert.assertTrue(spill.getDropped() > 0);
+        Assert.assertTrue(spill.getSize() <= 16384 + 4096 + 1024);
+        // The newest packets are kept
+        List<String> remaining = new ArrayList<>();
+        AisPacket packet;
+        while ((packet = spill.poll()) != null) {
+            remaining.add(packet.getStringMessage());
+        }
+        Assert.assertTrue(remaining.size() < packets.size());
+        Assert.assertEquals(packets.get(packets.size() - 1).getStringMessage(), remaining.get(remaining.size() - 1));
+        spill.close();
+        Files.delete(dir);
+    }
+
+    @Test
+    public void consumerTest() throws IOException, URISyntaxException, InterruptedException {
+        final List<AisPacket> packets = readPackets();
+        Path dir = Files.createTempDirectory("spill");
+        DistributerConsumer distributer = new DistributerConsumer();
+        distributer.setConsumerQueueSize(10);
+        distributer.setConsumerOverflowPolicy(OverflowPolicy.SPILL);
+        distributer.setSpillDirectory(dir.toString());
+        distributer.setSpillSegmentSize(8192);
+        distributer.init();
+        final List<String> received = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch done = new CountDownLatch(packets.size());
+        distributer.getConsumers().add(new Consumer<AisPacket>() {
+            @Override
+            public void accept(AisPacket packet) {
+                received.add(packet.getStringMessage());
+                done.countDown();
+            }
+        });
+        // Push everything before the consumer starts, most goes to disk
+        for (AisPacket packet : packets) {
+            distributer.push(new AisBusElement(packet));
+        }
+        Assert.assertTrue(dir.toFile().list().length > 0);
+        distributer.start();
+        Assert.assertTrue(done.await(30, TimeUnit.SECONDS));
+        distributer.cancel();
+        Assert.assertEquals(0, distributer.getStatus().getOverflowCount());
+        Assert.assertTrue(distributer.getStatus().getSpilledCount() > 0);
+        for (int i = 0; i < packets.size(); i++) {
+            Assert.assertEquals(packets.get(i).getStringMessage(), received.get(i));
+        }
+        for (String name : dir.toFile().list()) {
+            Files.delete(dir.resolve(name));
+        }
+        Files.delete(dir);
+    }
+
+    @Test
+    public void writerTest() throws IOException, URISyntaxException {
+        List<AisPacket> packets = readPackets();
+        List<String> expected = new ArrayList<>();
+        for (AisPacket packet : packets) {
+            Collections.addAll(expected, packet.getStringMessage().split("\r\n"));
+        }
+        Path dir = Files.createTempDirectory("spill");
+        int port;
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        TcpWriterConsumer writer = new TcpWriterConsumer();
+        writer.setHost("localhost");
+        writer.setPort(port);
+        writer.setReconnectInterval(1);
+        writer.setConsumerQueueSize(10);
+        writer.setConsumerOverflowPolicy(OverflowPolicy.SPILL);
+        writer.setSpillDirectory(dir.toString());
+        writer.init();
+        writer.start();
+        // Nothing listens yet, packets are held and spilled until the writer connects
+        for (AisPacket packet : packets) {
+            writer.push(new AisBusElement(packet));
+        }
+        Assert.assertTrue(writer.getStatus().getSpilledCount() > 0);
+        List<String> received = new ArrayList<>();
+        try (ServerSocket server = new ServerSocket(port); Socket socket = server.accept()) {
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                    StandardCharsets.US_ASCII));
+            String line;
+            while (received.size() < expected.size() && (line = in.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    received.add(line);
+                }
+            }
+        }
+        writer.cancel();
+        Assert.assertEquals(expected, received);
+        for (String name : dir.toFile().list()) {
+            Files.delete(dir.resolve(name));
+        }
+        Files.delete(dir);
+    }
+
+}
@@ -0,0 +1,63 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.ais.bus.consumer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import dk.dma.ais.bus.AisBusElement;
+import dk.dma.ais.filter.GeoFence;
+import dk.dma.ais.filter.GeoFenceEvent;
+import dk.dma.ais.filter.GeoFenceIndex;
+import dk.dma.ais.message.IPositionMessage;
+import dk.dma.ais.packet.AisPacket;
+import dk.dma.enav.model.geometry.Position;
+import dk.dma.enav.util.function.Consumer;
+
+public class GeoFenceConsumerTest {
+
+    private static final String POS_REPORT = "!AIVDM,1,1,,B,19NS7Sp02wo?HETKA2K6mUM20<L=,0*27";
+
+    @Test
+    public void eventTest() {
+        AisPacket packet = AisPacket.from(POS_REPORT, 1000);
+        Position pos = ((IPositionMessage) packet.tryGetAisMessage()).getPos().getGeoLocation();
+        double lat = pos.getLatitude();
+        double lon = pos.getLongitude();
+        GeoFence fence = GeoFence.box("area", lat - 0.1, lon - 0.1, lat + 0.1, lon + 0.1);
+
+        GeoFenceConsumer consumer = new GeoFenceConsumer(new GeoFenceIndex(Collections.singletonList(fence)), 0, 0);
+        final List<GeoFenceEvent> events = new ArrayList<>();
+        consumer.getHandlers().add(new Consumer<GeoFenceEvent>() {
+            @Override
+            public void accept(GeoFenceEvent event) {
+                events.add(event);
+            }
+        });
+        consumer.receiveFiltered(new AisBusElement(packet));
+        consumer.receiveFiltered(new AisBusElement(AisPacket.from(POS_REPORT, 2000)));
+        Assert.assertEquals(1, events.size());
+        Assert.assertEquals(GeoFenceEvent.Type.ENTER, events.get(0).getType());
+        Assert.assertEquals(1000, events.get(0).getTime());
+        Assert.assertEquals(packet.tryGetAisMessage().getUserId(), events.get(0).getUserId());
+        Assert.assertEquals(1, consumer.getTargetsInside());
+    }
+
+}
@@ -0,0 +1,73 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.ais.bus.status;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FlowStatTest {
+
+    @Test
+    public void concurrentTest() throws InterruptedException {
+        final AisBusComponentStatus status = new AisBusComponentStatus();
+        final int perThread = 100000;
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            threads.add(new Thread() {
+                public void run() {
+                    for (int j = 0; j < perThread; j++) {
+                        status.receive();
+                        if (j % 10 == 0) {
+                            status.overflow();
+                        }
+                    }
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(8 * perThread, status.getInCount());
+        Assert.assertEquals(8 * perThread / 10, status.getOverflowCount());
+        Assert.assertEquals(0, status.getFilteredCount());
+        Assert.assertTrue(status.getInRate() > 0);
+        Assert.assertEquals(0, status.getFilteredRate(), 0);
+    }
+
+    @Test
+    public void rateTest() throws InterruptedException {
+        FlowStat flowStat = new FlowStat(2000);
+        Assert.assertNull(flowStat.getLastReceived());
+        for (int i = 0; i < 1000; i++) {
+            flowStat.received();
+        }
+        Assert.assertNotNull(flowStat.getLastReceived());
+        Assert.assertEquals(1000, flowStat.getCount());
+        // Receptions leave the interval
+        Thread.sleep(3100);
+        Assert.assertEquals(0, flowStat.getCount());
+        Assert.assertEquals(0, flowStat.getRate(), 0);
+        flowStat.received();
+        Assert.assertEquals(1, flowStat.getCount());
+    }
+
+}
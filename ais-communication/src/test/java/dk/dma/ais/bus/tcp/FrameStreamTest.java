@@ -0,0 +1,143 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.ais.bus.tcp;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStreamReader;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import dk.dma.ais.packet.AisPacket;
+import dk.dma.ais.packet.AisPackets;
+import dk.dma.enav.util.function.Consumer;
+
+public class FrameStreamTest {
+
+    private static final IClientStoppedListener NO_LISTENER = new IClientStoppedListener() {
+        @Override
+        public void clientStopped(TcpClient client) {
+        }
+    };
+
+    @Test
+    public void roundTripTest() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        FrameOutputStream out = new FrameOutputStream(bytes, Deflater.BEST_SPEED, 100, 0);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            String line = "line " + i + "\r\n";
+            sb.append(line);
+            out.write(line.getBytes(StandardCharsets.US_ASCII));
+            if (i % 10 == 0) {
+                out.flush();
+            }
+        }
+        out.close();
+
+        FrameInputStream in = new FrameInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        byte[] buf = new byte[77];
+        for (int n = in.read(buf); n >= 0; n = in.read(buf)) {
+            // Only the rest of the current frame is available
+            Assert.assertTrue(in.available() <= 100);
+            result.write(buf, 0, n);
+        }
+        in.close();
+        Assert.assertEquals(sb.toString(), new String(result.toByteArray(), StandardCharsets.US_ASCII));
+        // Frames share the dictionary, so repeated content compresses well
+        Assert.assertTrue(bytes.size() < sb.length() / 2);
+    }
+
+    @Test
+    public void delayTest() throws Exception {
+        FrameOutputStream out = new FrameOutputStream(new ByteArrayOutputStream(), Deflater.DEFAULT_COMPRESSION,
+                65536, 1000);
+        Assert.assertTrue(out.isEmpty());
+        out.write(1);
+        long remaining = out.getDelayRemaining();
+        Assert.assertTrue(remaining > 0 && remaining <= 1000);
+        out.flushIfDue();
+        Assert.assertFalse(out.isEmpty());
+        out.flush();
+        Assert.assertTrue(out.isEmpty());
+        out.close();
+    }
+
+    /**
+     * A framed write client sends a single packet to a framed read client, which receives it within the maximum
+     * delay although no more data follows
+     */
+    @Test
+    public void clientsTest() throws Exception {
+        List<AisPacket> packets = AisPackets.readFromFile(Paths.get(ClassLoader.getSystemResource(
+                "stream_example.txt").toURI()));
+        TcpClientConf conf = new TcpClientConf();
+        conf.setFrameCompress(true);
+        conf.setFrameMaxDelay(50);
+
+        final LinkedBlockingQueue<AisPacket> received = new LinkedBlockingQueue<>();
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            Socket writeSocket = new Socket("localhost", serverSocket.getLocalPort());
+            Socket readSocket = serverSocket.accept();
+            TcpWriteClient writeClient = new TcpWriteClient(NO_LISTENER, writeSocket, conf);
+            TcpReadClient readClient = new TcpReadClient(new Consumer<AisPacket>() {
+                @Override
+                public void accept(AisPacket packet) {
+                    received.add(packet);
+                }
+            }, NO_LISTENER, readSocket, conf);
+            writeClient.start();
+            readClient.start();
+            try {
+                for (int i = 0; i < 3; i++) {
+                    AisPacket packet = packets.get(i);
+                    writeClient.send(packet.getStringMessage());
+                    AisPacket r = received.poll(10, TimeUnit.SECONDS);
+                    Assert.assertNotNull(r);
+                    Assert.assertEquals(packet.getStringMessage(), r.getStringMessage());
+                }
+            } finally {
+                writeClient.cancel();
+                readClient.cancel();
+            }
+        }
+    }
+
+    @Test
+    public void readerTest() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (FrameOutputStream out = new FrameOutputStream(bytes, Deflater.BEST_SPEED, 1024, 0)) {
+            out.write("a\r\nb\r\n".getBytes(StandardCharsets.US_ASCII));
+        }
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FrameInputStream(
+                new ByteArrayInputStream(bytes.toByteArray())), StandardCharsets.US_ASCII));
+        Assert.assertEquals("a", reader.readLine());
+        Assert.assertEquals("b", reader.readLine());
+        Assert.assertNull(reader.readLine());
+    }
+
+}
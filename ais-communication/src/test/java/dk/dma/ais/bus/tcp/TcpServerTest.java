@@ -0,0 +1,358 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.ais.bus.tcp;
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import dk.dma.ais.packet.AisPacket;
+import dk.dma.ais.packet.AisPackets;
+import dk.dma.enav.util.function.Consumer;
+
+public class TcpServerTest {
+
+    private static final String PACKET = "!AIVDM,1,1,,B,19NS7Sp02wo?HETKA2K6mUM20<L=,0*27\r\n";
+
+    private static void startServer(TcpServer server) throws InterruptedException {
+        startServer(server, new TcpServerConf().getSelectorThreads());
+    }
+
+    private static void startServer(TcpServer server, int selectorThreads) throws InterruptedException {
+        TcpServerConf serverConf = new TcpServerConf();
+        serverConf.setPort(0);
+        serverConf.setSelectorThreads(selectorThreads);
+        server.setServerConf(serverConf);
+        server.start();
+        for (int i = 0; i < 1000 && server.getLocalPort() <= 0; i++) {
+            Thread.sleep(10);
+        }
+        Assert.assertTrue(server.getLocalPort() > 0);
+    }
+
+    private static void awaitClients(TcpServer server, int count) throws InterruptedException {
+        for (int i = 0; i < 1000 && connected(server) != count; i++) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(count, connected(server));
+    }
+
+    private static int connected(TcpServer server) {
+        int count = 0;
+        for (TcpServerClient client : server.getClients()) {
+            if (client.getKey() != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void writeTest() throws Exception {
+        TcpWriteServer server = new TcpWriteServer();
+        startServer(server);
+        List<Socket> sockets = new ArrayList<>();
+        try {
+            for (int i = 0; i < 5; i++) {
+                sockets.add(new Socket("localhost", server.getLocalPort()));
+            }
+            awaitClients(server, sockets.size());
+
+            int lines = 10000;
+            for (int i = 0; i < lines; i += 2) {
+                server.sendAll(Arrays.asList("line " + i, "line " + (i + 1)));
+            }
+            for (Socket socket : sockets) {
+                socket.setSoTimeout(10000);
+                BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                        StandardCharsets.US_ASCII));
+                for (int i = 0; i < lines; i++) {
+                    Assert.assertEquals("line " + i, reader.readLine());
+                }
+            }
+            for (TcpServerClient client : server.getClients()) {
+                Assert.assertEquals(lines, client.getStatus().getInCount());
+            }
+
+            // Closed connections are removed
+            sockets.remove(0).close();
+            awaitClients(server, sockets.size());
+        } finally {
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+            server.cancel();
+        }
+        Assert.assertTrue(server.getClients().isEmpty());
+    }
+
+    @Test
+    public void packetsTest() throws Exception {
+        List<AisPacket> packets = AisPackets.readFromFile(Paths.get(ClassLoader.getSystemResource(
+                "stream_example.txt").toURI()));
+        TcpWriteServer server = new TcpWriteServer();
+        startServer(server);
+        try (Socket first = new Socket("localhost", server.getLocalPort());
+                Socket second = new Socket("localhost", server.getLocalPort())) {
+            awaitClients(server, 2);
+            for (int i = 0; i < packets.size(); i += 100) {
+                server.sendPackets(packets.subList(i, Math.min(i + 100, packets.size())));
+            }
+            for (Socket socket : Arrays.asList(first, second)) {
+                socket.setSoTimeout(10000);
+                BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                        StandardCharsets.US_ASCII));
+                for (AisPacket packet : packets) {
+                    for (String line : packet.getStringMessageLines()) {
+                        Assert.assertEquals(line, reader.readLine());
+                    }
+                }
+            }
+        } finally {
+            server.cancel();
+        }
+    }
+
+    @Test
+    public void compressedWriteTest() throws Exception {
+        TcpWriteServer server = new TcpWriteServer();
+        server.getClientConf().setGzipCompress(true);
+        startServer(server);
+        try (Socket socket = new Socket("localhost", server.getLocalPort())) {
+            awaitClients(server, 1);
+            server.send("line 0");
+            server.send("line 1");
+            socket.setSoTimeout(10000);
+            // Read without a reader, as it would block for more input than the flushed lines
+            InputStream in = new GZIPInputStream(socket.getInputStream());
+            Assert.assertEquals("line 0", readLine(in));
+            Assert.assertEquals("line 1", readLine(in));
+        } finally {
+            server.cancel();
+        }
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int c = in.read(); c != '\n'; c = in.read()) {
+            if (c < 0) {
+                throw new EOFException();
+            }
+            if (c != '\r') {
+                sb.append((char) c);
+            }
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void framedWriteTest() throws Exception {
+        TcpWriteServer server = new TcpWriteServer();
+        server.getClientConf().setFrameCompress(true);
+        startServer(server);
+        try (Socket socket = new Socket("localhost", server.getLocalPort())) {
+            awaitClients(server, 1);
+            socket.setSoTimeout(10000);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(new FrameInputStream(
+                    socket.getInputStream()), StandardCharsets.US_ASCII));
+            for (int i = 0; i < 3; i++) {
+                // Each message is received without waiting for more
+                server.send("line " + i);
+                Assert.assertEquals("line " + i, reader.readLine());
+            }
+        } finally {
+            server.cancel();
+        }
+    }
+
+    @Test
+    public void readTest() throws Exception {
+        read(false, false);
+    }
+
+    @Test
+    public void compressedReadTest() throws Exception {
+        read(true, false);
+    }
+
+    @Test
+    public void framedReadTest() throws Exception {
+        read(false, true);
+    }
+
+    @Test
+    public void failingConsumerTest() throws Exception {
+        final AtomicInteger count = new AtomicInteger();
+        TcpReadServer server = new TcpReadServer(new Consumer<AisPacket>() {
+            @Override
+            public void accept(AisPacket packet) {
+                if (count.incrementAndGet() == 1) {
+                    throw new IllegalStateException("Failing consumer");
+                }
+            }
+        });
+        // Both clients on the same selector
+        startServer(server, 1);
+        try (Socket failing = new Socket("localhost", server.getLocalPort());
+                Socket other = new Socket("localhost", server.getLocalPort())) {
+            awaitClients(server, 2);
+            failing.getOutputStream().write(PACKET.getBytes(StandardCharsets.US_ASCII));
+            // Only the failing client is closed
+            awaitClients(server, 1);
+            for (int i = 0; i < 3; i++) {
+                other.getOutputStream().write(PACKET.getBytes(StandardCharsets.US_ASCII));
+            }
+            for (int i = 0; i < 1000 && count.get() < 4; i++) {
+                Thread.sleep(10);
+            }
+            Assert.assertEquals(4, count.get());
+        } finally {
+            server.cancel();
+        }
+    }
+
+    private void read(boolean gzip, boolean frame) throws Exception {
+        final int expected = AisPackets.readFromFile(
+                Paths.get(ClassLoader.getSystemResource("stream_example.txt").toURI())).size();
+        byte[] bytes = Files.readAllBytes(Paths.get(ClassLoader.getSystemResource("stream_example.txt").toURI()));
+
+        final AtomicInteger count = new AtomicInteger();
+        TcpReadServer server = new TcpReadServer(new Consumer<AisPacket>() {
+            @Override
+            public void accept(AisPacket packet) {
+                count.incrementAndGet();
+            }
+        });
+        server.getClientConf().setGzipCompress(gzip);
+        server.getClientConf().setFrameCompress(frame);
+        startServer(server);
+        try {
+            int clients = 3;
+            List<Socket> sockets = new ArrayList<>();
+            for (int i = 0; i < clients; i++) {
+                sockets.add(new Socket("localhost", server.getLocalPort()));
+            }
+            for (Socket socket : sockets) {
+                OutputStream out = socket.getOutputStream();
+                if (frame) {
+                    out = new FrameOutputStream(out, Deflater.BEST_SPEED, 4096, 0);
+                } else if (gzip) {
+                    out = new GZIPOutputStream(out);
+                }
+                // Write in small pieces to split lines between reads
+                for (int i = 0; i < bytes.length; i += 1000) {
+                    out.write(bytes, i, Math.min(1000, bytes.length - i));
+                    out.flush();
+                }
+                out.close();
+            }
+            for (int i = 0; i < 1000 && count.get() < expected * clients; i++) {
+                Thread.sleep(10);
+            }
+            Assert.assertEquals(expected * clients, count.get());
+            awaitClients(server, 0);
+        } finally {
+            server.cancel();
+        }
+    }
+
+    @Test
+    public void maxClientsTest() throws Exception {
+        TcpWriteServer server = new TcpWriteServer();
+        TcpServerConf serverConf = new TcpServerConf();
+        serverConf.setPort(0);
+        serverConf.setMaxClients(1);
+        serverConf.setSelectorThreads(1);
+        server.setServerConf(serverConf);
+        server.start();
+        for (int i = 0; i < 1000 && server.getLocalPort() <= 0; i++) {
+            Thread.sleep(10);
+        }
+        try (Socket first = new Socket("localhost", server.getLocalPort());
+                Socket second = new Socket("localhost", server.getLocalPort())) {
+            awaitClients(server, 1);
+            Thread.sleep(100);
+            Assert.assertEquals(1, server.getClients().size());
+            TcpServerClient firstClient = server.getClients().iterator().next();
+            first.close();
+            // The second client is accepted when the first one is gone
+            for (int i = 0; i < 1000 && (server.getClients().contains(firstClient) || connected(server) != 1); i++) {
+                Thread.sleep(10);
+            }
+            Assert.assertEquals(1, connected(server));
+            server.send("line");
+            second.setSoTimeout(10000);
+            InputStream in = second.getInputStream();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.US_ASCII));
+            Assert.assertEquals("line", reader.readLine());
+        } finally {
+            server.cancel();
+        }
+    }
+
+    @Test
+    public void resendTest() throws Exception {
+        IClientStoppedListener listener = new IClientStoppedListener() {
+            @Override
+            public void clientStopped(TcpClient client) {}
+        };
+        try (ServerSocket server = new ServerSocket(0);
+                Socket first = new Socket("localhost", server.getLocalPort());
+                Socket second = new Socket("localhost", server.getLocalPort());
+                Socket firstPeer = server.accept();
+                Socket secondPeer = server.accept()) {
+            // Messages left in the buffer of a client that never wrote them
+            TcpWriteClient stopped = new TcpWriteClient(listener, first, new TcpClientConf());
+            stopped.send("a");
+            stopped.sendAll(Arrays.asList("b", "c"));
+            List<String> unsent = stopped.drainUnsent();
+            Assert.assertEquals(Arrays.asList("a", "b\r\nc"), unsent);
+            Assert.assertTrue(stopped.drainUnsent().isEmpty());
+
+            // They are written before messages sent to the next client
+            TcpWriteClient client = new TcpWriteClient(listener, second, new TcpClientConf());
+            Assert.assertEquals(2, client.resend(unsent));
+            client.send("d");
+            client.start();
+            secondPeer.setSoTimeout(10000);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(secondPeer.getInputStream(),
+                    StandardCharsets.US_ASCII));
+            for (String expected : Arrays.asList("a", "b", "c", "d")) {
+                Assert.assertEquals(expected, reader.readLine());
+            }
+            client.cancel();
+        }
+    }
+
+}
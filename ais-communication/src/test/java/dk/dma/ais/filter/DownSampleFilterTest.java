@@ -0,0 +1,102 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.ais.filter;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import dk.dma.ais.packet.AisPacket;
+
+public class DownSampleFilterTest {
+
+    private static final String POS_REPORT = "!AIVDM,1,1,,B,19NS7Sp02wo?HETKA2K6mUM20<L=,0*27";
+
+    @Test
+    public void samplingTest() {
+        DownSampleFilter filter = new DownSampleFilter(60);
+        Assert.assertFalse(filter.rejected(1, 219000001, 1000));
+        Assert.assertTrue(filter.rejected(3, 219000001, 60999));
+        // Static reports are sampled separately
+        Assert.assertFalse(filter.rejected(5, 219000001, 2000));
+        Assert.assertTrue(filter.rejected(24, 219000001, 3000));
+        // Other vessels and message types are not affected
+        Assert.assertFalse(filter.rejected(18, 219000002, 3000));
+        Assert.assertFalse(filter.rejected(8, 219000001, 3000));
+        Assert.assertFalse(filter.rejected(8, 219000001, 3000));
+        // Sampling rate passed
+        Assert.assertFalse(filter.rejected(1, 219000001, 61000));
+        Assert.assertTrue(filter.rejected(1, 219000001, 120999));
+        // Sampled after being evicted
+        Assert.assertFalse(filter.rejected(1, 219000001, 1000000));
+        Assert.assertTrue(filter.rejected(1, 219000001, 1000001));
+
+        filter.setSamplingRate(0);
+        Assert.assertFalse(filter.rejected(1, 219000001, 1000002));
+    }
+
+    @Test
+    public void evictionTest() {
+        DownSampleFilter filter = new DownSampleFilter(1);
+        TimeWindowMap map = new TimeWindowMap();
+        int count = 100000;
+        for (int i = 0; i < count; i++) {
+            Assert.assertFalse(map.rejected(i + 1, i / 10, 1000));
+            Assert.assertFalse(filter.rejected(1, i, i / 10));
+        }
+        // Only the entries of the last two windows are held
+        Assert.assertTrue(map.size() <= 25000);
+        for (int i = count - 1000; i < count; i++) {
+            Assert.assertTrue(map.rejected(i + 1, count / 10, 1000));
+            Assert.assertTrue(filter.rejected(1, i, count / 10));
+        }
+        // Idle entries are dropped
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertFalse(map.rejected(i + 1, count, 1000));
+        }
+        Assert.assertEquals(1000, map.size());
+    }
+
+    @Test
+    public void packetTimeTest() {
+        DownSampleFilter filter = new DownSampleFilter(60, true);
+        Assert.assertFalse(filter.rejectedByFilter(AisPacket.from(POS_REPORT, 1000000)));
+        Assert.assertTrue(filter.rejectedByFilter(AisPacket.from(POS_REPORT, 1059999)));
+        Assert.assertFalse(filter.rejectedByFilter(AisPacket.from(POS_REPORT, 1060000)));
+
+        filter = new DownSampleFilter(60);
+        Assert.assertFalse(filter.rejectedByFilter(AisPacket.from(POS_REPORT, 1000000)));
+        Assert.assertTrue(filter.rejectedByFilter(AisPacket.from(POS_REPORT, 1060000)));
+    }
+
+    @Test
+    public void backwardsTest() {
+        DownSampleFilter filter = new DownSampleFilter(60, true);
+        Assert.assertFalse(filter.rejectedByFilter(AisPacket.from(POS_REPORT, 10000000)));
+        Assert.assertTrue(filter.rejectedByFilter(AisPacket.from(POS_REPORT, 10030000)));
+        // A replay starting over is sampled from its start
+        Assert.assertFalse(filter.rejectedByFilter(AisPacket.from(POS_REPORT, 1000000)));
+        Assert.assertTrue(filter.rejectedByFilter(AisPacket.from(POS_REPORT, 1030000)));
+        Assert.assertFalse(filter.rejectedByFilter(AisPacket.from(POS_REPORT, 1060000)));
+
+        // Small steps back are within the window, larger ones are not
+        TimeWindowMap map = new TimeWindowMap();
+        Assert.assertFalse(map.rejected(1, 1800, 1000));
+        Assert.assertTrue(map.rejected(1, 1500, 1000));
+        Assert.assertFalse(map.rejected(1, 500, 1000));
+        Assert.assertTrue(map.rejected(1, 600, 1000));
+    }
+
+}
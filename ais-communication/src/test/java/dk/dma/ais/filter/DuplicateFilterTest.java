@@ -0,0 +1,134 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.ais.filter;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import dk.dma.ais.packet.AisPacket;
+import dk.dma.ais.packet.AisPackets;
+import dk.dma.ais.reader.AisPacketReader;
+import dk.dma.ais.sentence.Vdm;
+
+public class DuplicateFilterTest {
+
+    private static List<AisPacket> read() throws Exception {
+        return AisPackets.readFromFile(Paths.get(ClassLoader.getSystemResource("stream_example.txt").toURI()));
+    }
+
+    @Test
+    public void windowTest() {
+        DuplicateFilter filter = new DuplicateFilter(10000);
+        long fp = DuplicateFilter.fingerprint("15MgK45P3@G?fl0E`JbR0OwT0@MS", 0);
+        Assert.assertFalse(filter.rejected(fp, 1000));
+        Assert.assertTrue(filter.rejected(fp, 6000));
+        Assert.assertTrue(filter.rejected(fp, 10999));
+        // Window passed since the message was let through
+        Assert.assertFalse(filter.rejected(fp, 11000));
+        Assert.assertTrue(filter.rejected(fp, 20999));
+        Assert.assertFalse(filter.rejected(fp, 21000));
+        // Expired with both generations
+        Assert.assertFalse(filter.rejected(fp, 100000));
+        Assert.assertTrue(filter.rejected(fp, 100001));
+    }
+
+    @Test
+    public void generationsTest() {
+        DuplicateFilter filter = new DuplicateFilter(1000);
+        int count = 100000;
+        for (int i = 0; i < count; i++) {
+            Assert.assertFalse(filter.rejected(DuplicateFilter.fingerprint("msg" + i, 0), i / 100));
+        }
+        // The last window is still remembered
+        for (int i = count - 1000; i < count; i++) {
+            Assert.assertTrue(filter.rejected(DuplicateFilter.fingerprint("msg" + i, 0), count / 100));
+        }
+        // Everything expires
+        for (int i = 0; i < count; i++) {
+            Assert.assertFalse(filter.rejected(DuplicateFilter.fingerprint("msg" + i, 0), count));
+        }
+    }
+
+    @Test
+    public void packetTest() throws Exception {
+        List<AisPacket> packets = read();
+        DuplicateFilter filter = new DuplicateFilter();
+        Set<Long> fingerprints = new HashSet<>();
+        for (AisPacket packet : packets) {
+            // Parse again to get the six bit string as received
+            packet = AisPacketReader.from(packet.getStringMessage());
+            Vdm vdm = packet.getVdm();
+            String sixbit = vdm.getSixbitString();
+            long fingerprint = DuplicateFilter.fingerprint(sixbit, sixbit.length() * 6 - vdm.getBinArray().getLength());
+            Assert.assertEquals(fingerprint, DuplicateFilter.fingerprintPayloads(packet.getRawMessage()));
+            Assert.assertEquals(!fingerprints.add(fingerprint), filter.rejectedByFilter(packet));
+            // Packet and message give the same fingerprint
+            Assert.assertTrue(filter.rejectedByFilter(packet));
+            Assert.assertTrue(filter.rejectedByFilter(packet.tryGetAisMessage()));
+        }
+    }
+
+    @Test
+    public void compactedTest() throws Exception {
+        // The six bit string of a compacted VDM is encoded again from the binary array
+        for (AisPacket packet : read()) {
+            Vdm vdm = packet.compact().getVdm();
+            String sixbit = vdm.getSixbitString();
+            long fingerprint = DuplicateFilter.fingerprint(sixbit, sixbit.length() * 6 - vdm.getBinArray().getLength());
+            Assert.assertEquals(fingerprint, DuplicateFilter.fingerprintPayloads(packet.getRawMessage()));
+        }
+        long fingerprint = DuplicateFilter.fingerprintPayloads("!AIVDM,1,1,,A,85MwpKiKf:MPiQa:ofV@v2mQTfBw,2*48");
+        Assert.assertEquals(DuplicateFilter.fingerprint("85MwpKiKf:MPiQa:ofV@v2mQTfB?", 2), fingerprint);
+    }
+
+    @Test
+    public void concurrentTest() throws Exception {
+        final List<AisPacket> packets = read();
+        Set<Long> fingerprints = new HashSet<>();
+        for (AisPacket packet : packets) {
+            fingerprints.add(DuplicateFilter.fingerprintPayloads(packet.getRawMessage()));
+        }
+        final DuplicateFilter filter = new DuplicateFilter(60000);
+        final AtomicInteger passed = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    for (AisPacket packet : packets) {
+                        if (!filter.rejectedByFilter(packet)) {
+                            passed.incrementAndGet();
+                        }
+                    }
+                }
+            };
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join(10000);
+        }
+        Assert.assertEquals(fingerprints.size(), passed.get());
+    }
+
+}
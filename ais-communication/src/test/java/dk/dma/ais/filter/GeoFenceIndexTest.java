@@ -0,0 +1,129 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.ais.filter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import dk.dma.enav.model.geometry.Position;
+import dk.dma.enav.util.function.Predicate;
+
+public class GeoFenceIndexTest {
+
+    private static GeoFence triangle() {
+        return GeoFence.polygon("triangle",
+                Arrays.asList(Position.create(54, 10), Position.create(58, 10), Position.create(54, 14)));
+    }
+
+    @Test
+    public void polygonTest() {
+        GeoFence triangle = triangle();
+        Assert.assertTrue(triangle.contains(55, 11));
+        Assert.assertTrue(triangle.test(Position.create(55.9, 11.9)));
+        Assert.assertFalse(triangle.contains(56.1, 12.1));
+        Assert.assertFalse(triangle.contains(53.9, 11));
+        Assert.assertTrue(triangle.containsBox(54.5, 10.5, 55, 11));
+        Assert.assertFalse(triangle.containsBox(55.5, 11.5, 56.5, 12.5));
+        // Edges entering the box
+        GeoFence notch = GeoFence.polygon(null, Arrays.asList(Position.create(0, 0), Position.create(0, 10),
+                Position.create(10, 10), Position.create(10, 0), Position.create(5, 5)));
+        Assert.assertTrue(notch.contains(1, 4));
+        Assert.assertTrue(notch.contains(9, 4));
+        Assert.assertFalse(notch.containsBox(1, 4, 9, 6));
+    }
+
+    @Test
+    public void findTest() {
+        List<GeoFence> fences = new ArrayList<>();
+        fences.add(GeoFence.box("box", 55, 11, 56, 13));
+        fences.add(triangle());
+        fences.add(GeoFence.of("north", new Predicate<Position>() {
+            @Override
+            public boolean test(Position pos) {
+                return pos.getLatitude() > 55.5;
+            }
+        }));
+        fences.add(GeoFence.box("small", 55.2, 11.2, 55.3, 11.3));
+        GeoFenceIndex index = new GeoFenceIndex(fences, 0.25);
+        Assert.assertArrayEquals(new int[] { 0, 1, 3 }, index.find(55.25, 11.25));
+        Assert.assertArrayEquals(new int[] { 0, 1, 2 }, index.find(55.75, 11.5));
+        Assert.assertArrayEquals(new int[] { 2 }, index.find(70, 11.5));
+        Assert.assertArrayEquals(new int[] {}, index.find(50, 11.5));
+        Assert.assertArrayEquals(new int[] { 0, 2 }, index.find(56, 13));
+        Assert.assertTrue(index.containsAny(55.75, 12.5));
+        Assert.assertFalse(index.containsAny(55.25, 13.5));
+        Assert.assertFalse(index.containsAny(Double.NaN, 11));
+    }
+
+    @Test
+    public void randomTest() {
+        Random r = new Random(42);
+        List<GeoFence> fences = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            double lat = 50 + r.nextDouble() * 10;
+            double lon = 5 + r.nextDouble() * 20;
+            if (i % 2 == 0) {
+                fences.add(GeoFence.box(null, lat, lon, lat + r.nextDouble(), lon + r.nextDouble() * 2));
+            } else {
+                List<Position> points = new ArrayList<>();
+                for (int j = 0; j < 8; j++) {
+                    double angle = 2 * Math.PI * j / 8;
+                    double radius = 0.2 + r.nextDouble();
+                    points.add(Position.create(lat + radius * Math.sin(angle), lon + radius * Math.cos(angle)));
+                }
+                fences.add(GeoFence.polygon(null, points));
+            }
+        }
+        for (double cellSize : new double[] { 0.1, 0.5, 5 }) {
+            GeoFenceIndex index = new GeoFenceIndex(fences, cellSize);
+            for (int k = 0; k < 20000; k++) {
+                double lat = 49 + r.nextDouble() * 13;
+                double lon = 4 + r.nextDouble() * 23;
+                List<Integer> expected = new ArrayList<>();
+                for (int i = 0; i < fences.size(); i++) {
+                    if (fences.get(i).contains(lat, lon)) {
+                        expected.add(i);
+                    }
+                }
+                int[] found = index.find(lat, lon);
+                Assert.assertEquals(expected.size(), found.length);
+                for (int i = 0; i < found.length; i++) {
+                    Assert.assertEquals(expected.get(i).intValue(), found[i]);
+                }
+                Assert.assertEquals(!expected.isEmpty(), index.containsAny(lat, lon));
+            }
+        }
+    }
+
+    @Test
+    public void emptyTest() {
+        GeoFenceIndex index = new GeoFenceIndex(new ArrayList<GeoFence>());
+        Assert.assertTrue(index.isEmpty());
+        Assert.assertFalse(index.containsAny(55, 11));
+        Assert.assertEquals(0, index.find(55, 11).length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidBoxTest() {
+        GeoFence.box(null, 56, 11, 55, 12);
+    }
+
+}
@@ -0,0 +1,174 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.ais.filter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import dk.dma.ais.filter.GeoFenceEvent.Type;
+import dk.dma.enav.util.function.Consumer;
+
+public class GeoFenceTrackerTest {
+
+    private static class Events implements Consumer<GeoFenceEvent> {
+        final List<GeoFenceEvent> events = new ArrayList<>();
+
+        @Override
+        public void accept(GeoFenceEvent event) {
+            events.add(event);
+        }
+
+        GeoFenceEvent take(Type type) {
+            Assert.assertFalse("No events", events.isEmpty());
+            GeoFenceEvent event = events.remove(0);
+            Assert.assertEquals(type, event.getType());
+            return event;
+        }
+    }
+
+    private static GeoFenceIndex index() {
+        List<GeoFence> fences = new ArrayList<>();
+        fences.add(GeoFence.box("harbour", 55, 12, 55.1, 12.1));
+        fences.add(GeoFence.box("approach", 54.9, 11.9, 55.2, 12.2));
+        return new GeoFenceIndex(fences);
+    }
+
+    @Test
+    public void eventsTest() {
+        GeoFenceTracker tracker = new GeoFenceTracker(index(), 60000, 0);
+        Events events = new Events();
+        tracker.update(219000001, 54, 11, 0, events);
+        Assert.assertEquals(0, tracker.size());
+
+        tracker.update(219000001, 54.95, 11.95, 1000, events);
+        GeoFenceEvent event = events.take(Type.ENTER);
+        Assert.assertEquals(1, event.getFenceIndex());
+        Assert.assertEquals("approach", event.getFence().getName());
+        Assert.assertEquals(219000001, event.getUserId());
+        Assert.assertEquals(1000, event.getTime());
+
+        tracker.update(219000001, 55.05, 12.05, 2000, events);
+        Assert.assertEquals(0, events.take(Type.ENTER).getFenceIndex());
+        Assert.assertArrayEquals(new int[] { 0, 1 }, tracker.getFences(219000001));
+
+        tracker.update(219000001, 55.05, 12.05, 61000, events);
+        event = events.take(Type.DWELL);
+        Assert.assertEquals(1, event.getFenceIndex());
+        Assert.assertEquals(60000, event.getDuration());
+        Assert.assertTrue(events.events.isEmpty());
+        tracker.update(219000001, 55.05, 12.05, 62000, events);
+        Assert.assertEquals(0, events.take(Type.DWELL).getFenceIndex());
+        // Dwell is given once per visit
+        tracker.update(219000001, 55.05, 12.05, 200000, events);
+        Assert.assertTrue(events.events.isEmpty());
+
+        tracker.update(219000001, 55.15, 12.15, 201000, events);
+        event = events.take(Type.EXIT);
+        Assert.assertEquals(0, event.getFenceIndex());
+        Assert.assertEquals(199000, event.getDuration());
+        Assert.assertEquals(55.15, event.getLatitude(), 0);
+
+        tracker.update(219000001, 56, 13, 202000, events);
+        Assert.assertEquals(1, events.take(Type.EXIT).getFenceIndex());
+        Assert.assertTrue(events.events.isEmpty());
+        Assert.assertEquals(0, tracker.size());
+    }
+
+    @Test
+    public void idleTest() {
+        GeoFenceTracker tracker = new GeoFenceTracker(index(), 0, 10000);
+        Events events = new Events();
+        tracker.update(1, 55.05, 12.05, 1000, events);
+        tracker.update(2, 55.15, 12.15, 5000, events);
+        Assert.assertEquals(3, events.events.size());
+        events.events.clear();
+
+        tracker.update(3, 50, 10, 12000, events);
+        GeoFenceEvent event = events.take(Type.EXIT);
+        Assert.assertEquals(1, event.getUserId());
+        Assert.assertEquals(1000, event.getTime());
+        events.take(Type.EXIT);
+        Assert.assertTrue(events.events.isEmpty());
+        Assert.assertEquals(1, tracker.size());
+
+        tracker.update(3, 50, 10, 30000, events);
+        Assert.assertEquals(2, events.take(Type.EXIT).getUserId());
+        Assert.assertEquals(0, tracker.size());
+    }
+
+    @Test
+    public void randomTest() {
+        Random r = new Random(7);
+        List<GeoFence> fences = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            double lat = r.nextDouble() * 10;
+            double lon = r.nextDouble() * 10;
+            fences.add(GeoFence.box(null, lat, lon, lat + r.nextDouble() * 3, lon + r.nextDouble() * 3));
+        }
+        GeoFenceIndex index = new GeoFenceIndex(fences, 1);
+        GeoFenceTracker tracker = new GeoFenceTracker(index, 0, 0);
+        final Map<Integer, Set<Integer>> model = new HashMap<>();
+        Consumer<GeoFenceEvent> check = new Consumer<GeoFenceEvent>() {
+            @Override
+            public void accept(GeoFenceEvent event) {
+                Set<Integer> inside = model.get(event.getUserId());
+                if (inside == null) {
+                    inside = new TreeSet<>();
+                    model.put(event.getUserId(), inside);
+                }
+                if (event.getType() == Type.ENTER) {
+                    Assert.assertTrue(inside.add(event.getFenceIndex()));
+                } else {
+                    Assert.assertTrue(inside.remove(event.getFenceIndex()));
+                }
+            }
+        };
+        for (int k = 0; k < 200000; k++) {
+            int userId = r.nextInt(2000) * 7919;
+            double lat = r.nextDouble() * 14 - 1;
+            double lon = r.nextDouble() * 14 - 1;
+            tracker.update(userId, lat, lon, k, check);
+            Set<Integer> inside = model.get(userId);
+            int[] found = tracker.getFences(userId);
+            Assert.assertEquals(inside == null ? 0 : inside.size(), found.length);
+            int i = 0;
+            for (int fence = 0; fence < fences.size(); fence++) {
+                if (fences.get(fence).contains(lat, lon)) {
+                    Assert.assertEquals(fence, found[i++]);
+                }
+            }
+            Assert.assertEquals(found.length, i);
+        }
+        int inside = 0;
+        for (Map.Entry<Integer, Set<Integer>> e : model.entrySet()) {
+            if (!e.getValue().isEmpty()) {
+                inside++;
+            }
+            Assert.assertEquals(new ArrayList<>(e.getValue()).toString(), Arrays.toString(tracker.getFences(e.getKey())));
+        }
+        Assert.assertEquals(inside, tracker.size());
+    }
+
+}
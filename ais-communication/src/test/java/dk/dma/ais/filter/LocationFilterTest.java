@@ -0,0 +1,69 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.ais.filter;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import dk.dma.ais.message.AisMessage;
+import dk.dma.ais.message.IPositionMessage;
+import dk.dma.ais.packet.AisPacket;
+import dk.dma.enav.model.geometry.Position;
+
+public class LocationFilterTest {
+
+    private static final String POS_REPORT = "!AIVDM,1,1,,B,19NS7Sp02wo?HETKA2K6mUM20<L=,0*27";
+
+    @Test
+    public void filterTest() {
+        AisPacket packet = AisPacket.from(POS_REPORT);
+        Position pos = ((IPositionMessage) packet.tryGetAisMessage()).getPos().getGeoLocation();
+        double lat = pos.getLatitude();
+        double lon = pos.getLongitude();
+
+        LocationFilter filter = new LocationFilter();
+        Assert.assertFalse(filter.rejectedByFilter(packet));
+        filter.addFilterGeometry(GeoFence.box(null, lat + 1, lon - 1, lat + 2, lon + 1));
+        Assert.assertTrue(filter.rejectedByFilter(AisPacket.from(POS_REPORT)));
+        filter.addFilterGeometry(GeoFence.box(null, lat - 0.01, lon - 0.01, lat + 0.01, lon + 0.01));
+        Assert.assertFalse(filter.rejectedByFilter(AisPacket.from(POS_REPORT)));
+        AisMessage message = AisPacket.from(POS_REPORT).tryGetAisMessage();
+        Assert.assertFalse(filter.rejectedByFilter(message));
+    }
+
+    @Test
+    public void cacheTest() {
+        PositionCache cache = new PositionCache(1000);
+        Assert.assertEquals(PositionCache.NOT_FOUND, cache.get(219000001));
+        cache.put(219000001, 55.6789, -12.3456);
+        long pos = cache.get(219000001);
+        Assert.assertEquals(55.6789, PositionCache.latitude(pos), 1e-6);
+        Assert.assertEquals(-12.3456, PositionCache.longitude(pos), 1e-6);
+        cache.put(-1, -90, 180);
+        Assert.assertEquals(-90, PositionCache.latitude(cache.get(-1)), 0);
+        Assert.assertEquals(180, PositionCache.longitude(cache.get(-1)), 0);
+
+        // The cache is bounded, and targets looked up are kept
+        for (int i = 0; i < 100000; i++) {
+            cache.put(i, 55, 11);
+            Assert.assertTrue(cache.get(219000001) != PositionCache.NOT_FOUND);
+        }
+        Assert.assertTrue(cache.size() <= 1000);
+        Assert.assertEquals(PositionCache.NOT_FOUND, cache.get(0));
+        Assert.assertEquals(55, PositionCache.latitude(cache.get(99999)), 0);
+    }
+
+}
@@ -0,0 +1,76 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.ais.filter;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import dk.dma.ais.binary.SixbitException;
+import dk.dma.ais.message.AisMessage;
+import dk.dma.ais.message.AisMessageException;
+import dk.dma.ais.message.IPositionMessage;
+import dk.dma.ais.packet.AisPacket;
+import dk.dma.ais.reader.AisPacketReader;
+import dk.dma.ais.sentence.SentenceException;
+
+public class RawPayloadTest {
+
+    private static final String[] PACKETS = {
+            "!AIVDM,1,1,,B,19NS7Sp02wo?HETKA2K6mUM20<L=,0*27",
+            "\\c:1354719387*59\\!AIVDM,1,1,,B,14pWHb?P03rwO<F:RQOnROw<25bd,0*3E",
+            "!AIVDM,1,1,,A,B3@o5g@0;0>Iwa7uckn:3wjUkP06,0*68",
+            "$PGHP,1,2010,6,11,11,46,11,929,244,0,,1,72*21\r\n"
+                    + "\\1G2:0125,c:1354719387*0D\\!AIVDM,2,1,4,A,539LiHP2;42`@pE<000<tq@V1<TpL4000000001?1SV@@73R0J0TQCAD,0*1E\r\n"
+                    + "\\2G2:0125*7B\\!AIVDM,2,2,4,A,R0EQCP000000000,2*45" };
+
+    @Test
+    public void headerTest() throws SentenceException, AisMessageException, SixbitException {
+        for (String raw : PACKETS) {
+            AisPacket packet = AisPacketReader.from(raw);
+            AisMessage message = packet.getAisMessage();
+            RawPayload payload = RawPayload.from(packet);
+            Assert.assertNotNull(payload);
+            Assert.assertEquals(message.getMsgId(), payload.getMsgId());
+            Assert.assertEquals(message.getRepeat(), payload.getRepeat());
+            Assert.assertEquals(message.getUserId(), payload.getUserId());
+            Assert.assertEquals(message.getMsgId() != 5, payload.hasPosition());
+            if (payload.hasPosition()) {
+                IPositionMessage posMessage = (IPositionMessage) message;
+                Assert.assertEquals(posMessage.getPos().getLatitudeDouble(), payload.getLatitude(), 0.0);
+                Assert.assertEquals(posMessage.getPos().getLongitudeDouble(), payload.getLongitude(), 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void invalidTest() {
+        RawPayload payload = new RawPayload();
+        Assert.assertFalse(payload.parse("$PGHP,1,2010,6,11,11,46,11,929,244,0,,1,72*21"));
+        Assert.assertFalse(payload.parse("!AIVDM,1,1,,B,19NS7S,0*27"));
+        Assert.assertFalse(payload.parse("!AIVDM,1,1,,B,19NS7S~02wo?HETKA2K6mUM20<L=,0*27"));
+        Assert.assertFalse(payload.parse("!AIVDM,1,1,,B*27"));
+    }
+
+    @Test
+    public void downSampleTest() {
+        DownSampleFilter filter = new DownSampleFilter(60);
+        AisPacket packet = AisPacket.from(PACKETS[0]);
+        Assert.assertFalse(filter.rejectedByFilter(packet));
+        Assert.assertTrue(filter.rejectedByFilter(AisPacket.from(PACKETS[0])));
+        Assert.assertFalse(filter.rejectedByFilter(AisPacket.from(PACKETS[1])));
+    }
+
+}
@@ -0,0 +1,116 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.ais.packet;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import dk.dma.ais.packet.AisPacketTagging.SourceType;
+
+public class AisPacketMarshallerTest {
+
+    @Test
+    public void packedTest() {
+        String msg = "\\si:AISD,sb:2190048,st:SAT*59\\\r\n";
+        msg += "\\g:1-2-0136,c:1354725824*22\\!BSVDM,2,1,4,B,53B>2V000000uHH4000@T4p4000000000000000S30C6340006h00000,0*4C\r\n";
+        msg += "\\g:2-2-0136*59\\!BSVDM,2,2,4,B,000000000000000,2*3A";
+        AisPacket packet = AisPacket.from(msg, 1354725830123L);
+        byte[] bytes = packet.toByteArray();
+        Assert.assertEquals(AisPacketMarshaller.VERSION, bytes[0]);
+
+        AisPacket decoded = AisPacket.fromByteArray(bytes);
+        Assert.assertEquals(msg, decoded.getStringMessage());
+        Assert.assertEquals(1354725830123L, decoded.getReceiveTimestamp());
+        Assert.assertEquals(1354725824000L, decoded.getBestTimestamp());
+        Assert.assertEquals(packet.getTimestamp(), decoded.getTimestamp());
+        AisPacketTagging tagging = AisPacketTagging.parse(decoded);
+        Assert.assertEquals("AISD", tagging.getSourceId());
+        Assert.assertEquals(2190048, tagging.getSourceBs().intValue());
+        Assert.assertEquals(SourceType.SATELLITE, tagging.getSourceType());
+        Assert.assertEquals(packet.getVdm().getSixbitString(), decoded.getVdm().getSixbitString());
+    }
+
+    @Test
+    public void unpackedTest() {
+        // Postfix after checksum is kept
+        assertRoundTrip("!AIVDM,1,1,,B,14pWHb?P03rwO<F:RQOnROw<25bd,0*3E,1357134218");
+        // Lower case checksum
+        assertRoundTrip("!AIVDM,1,1,,B,14pWHb?P03rwO<F:RQOnROw<25bd,0*3e");
+        // Wrong checksum
+        assertRoundTrip("!AIVDM,1,1,,A,15MvlfPOh2G?nwbEdVDsnSTR00S?,0*00");
+        // Invalid sixbit character and no VDM at all
+        assertRoundTrip("!AIVDM,1,1,,A,15Mvlf~Oh2G?nwbEdVDsnSTR00S?,0*20");
+        assertRoundTrip("garbage\r\n");
+        assertRoundTrip("");
+    }
+
+    private static void assertRoundTrip(String msg) {
+        AisPacket packet = AisPacket.from(msg, 42);
+        AisPacket decoded = AisPacket.fromByteArray(packet.toByteArray());
+        Assert.assertEquals(msg, decoded.getStringMessage());
+        Assert.assertEquals(42, decoded.getReceiveTimestamp());
+        Assert.assertEquals(packet.getTimestamp(), decoded.getTimestamp());
+    }
+
+    @Test
+    public void textVersionTest() {
+        String msg = "!AIVDM,1,1,,B,14pWHb?P03rwO<F:RQOnROw<25bd,0*3E";
+        byte[] bytes = ("\u0001" + msg).getBytes(StandardCharsets.US_ASCII);
+        Assert.assertEquals(msg, AisPacket.fromByteArray(bytes).getStringMessage());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void truncatedTest() {
+        byte[] bytes = AisPacket.from("!AIVDM,1,1,,B,14pWHb?P03rwO<F:RQOnROw<25bd,0*3E").toByteArray();
+        AisPacket.fromByteArray(Arrays.copyOf(bytes, bytes.length - 2));
+    }
+
+    @Test
+    public void streamTest() throws IOException, URISyntaxException {
+        List<AisPacket> packets = AisPackets.readFromFile(Paths.get(ClassLoader.getSystemResource(
+                "stream_example.txt").toURI()));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AisPacketMarshaller.Writer writer = new AisPacketMarshaller.Writer(out);
+        int textSize = 0;
+        for (AisPacket packet : packets) {
+            writer.write(packet);
+            textSize += packet.getRawBytes().length + 1;
+        }
+        writer.flush();
+        System.out.println("Text bytes: " + textSize + ", encoded bytes: " + out.size());
+        Assert.assertTrue(out.size() < textSize);
+
+        AisPacketMarshaller.Reader reader = new AisPacketMarshaller.Reader(new ByteArrayInputStream(out.toByteArray()));
+        for (AisPacket packet : packets) {
+            AisPacket decoded = reader.read();
+            Assert.assertNotNull(decoded);
+            Assert.assertEquals(packet.getStringMessage(), decoded.getStringMessage());
+            Assert.assertEquals(packet.getReceiveTimestamp(), decoded.getReceiveTimestamp());
+            Assert.assertEquals(packet.getTimestamp(), decoded.getTimestamp());
+        }
+        Assert.assertNull(reader.read());
+    }
+
+}
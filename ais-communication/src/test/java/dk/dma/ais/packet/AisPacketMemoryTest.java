@@ -0,0 +1,63 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.ais.packet;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Paths;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import dk.dma.ais.message.AisMessage;
+import dk.dma.ais.sentence.Vdm;
+
+/**
+ * State retained by packets: the message is held once as ASCII bytes, and compacting releases the message string and
+ * the parse intermediates of the VDM while keeping the decoded message.
+ */
+public class AisPacketMemoryTest {
+
+    @Test
+    public void retainedStateTest() throws IOException, URISyntaxException {
+        List<AisPacket> packets = AisPackets.readFromFile(Paths.get(ClassLoader.getSystemResource(
+                "stream_example.txt").toURI()));
+        Assert.assertFalse(packets.isEmpty());
+        for (AisPacket read : packets) {
+            String message = read.getStringMessage();
+            AisPacket packet = AisPacket.from(new String(message.toCharArray()));
+            // One byte per character
+            Assert.assertEquals(message.length(), packet.getRawBytes().length);
+            // The string is created once
+            String string = packet.getStringMessage();
+            Assert.assertSame(string, packet.getStringMessage());
+
+            Vdm vdm = packet.getVdm();
+            AisMessage aisMessage = packet.tryGetAisMessage();
+            Assert.assertSame(packet, packet.compact());
+            if (vdm != null) {
+                Assert.assertTrue(vdm.getOrgLines().isEmpty());
+            }
+            Assert.assertSame(aisMessage, packet.tryGetAisMessage());
+            // The string was released and is created again from the bytes
+            Assert.assertNotSame(string, packet.getStringMessage());
+            Assert.assertEquals(message, packet.getStringMessage());
+            Assert.assertEquals(read.getStringMessageLines(), packet.getStringMessageLines());
+        }
+    }
+
+}
@@ -15,17 +15,24 @@
  */
 package dk.dma.ais.packet;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
 
 import org.junit.Assert;
 import org.junit.Test;
 
 import dk.dma.ais.binary.SixbitException;
 import dk.dma.ais.message.AisMessage;
+import dk.dma.ais.message.AisMessage5;
+import dk.dma.ais.message.AisMessageHeader;
 import dk.dma.ais.message.AisMessageException;
+import dk.dma.ais.message.DecodeOptions;
 import dk.dma.ais.message.IPositionMessage;
 import dk.dma.ais.packet.AisPacketTagging.SourceType;
 import dk.dma.ais.reader.AisPacketReader;
@@ -124,6 +131,85 @@ public class AisPacketTest {
         Assert.assertEquals(aisMessage.getMsgId(), 5);
     }
 
+    @Test
+    public void decodeOptionsTest() throws SentenceException, AisMessageException, SixbitException {
+        String msg;
+        msg = "!AIVDM,2,1,4,A,539LiHP2;42`@pE<000<tq@V1<TpL4000000001?1SV@@73R0J0TQCAD,0*1E\r\n";
+        msg += "!AIVDM,2,2,4,A,R0EQCP000000000,2*45";
+        AisPacket packet = AisPacketReader.from(msg);
+
+        AisMessage header = packet.getAisMessage(DecodeOptions.HEADER_ONLY);
+        Assert.assertTrue(header instanceof AisMessageHeader);
+        Assert.assertEquals(5, header.getMsgId());
+        Assert.assertSame(header, packet.getAisMessage(DecodeOptions.HEADER_ONLY));
+
+        AisMessage5 noText = (AisMessage5) packet.getAisMessage(DecodeOptions.NO_TEXT);
+        Assert.assertEquals(header.getUserId(), noText.getUserId());
+        Assert.assertNull(noText.getName());
+        Assert.assertSame(noText, packet.getAisMessage(DecodeOptions.HEADER_ONLY));
+
+        AisMessage5 full = (AisMessage5) packet.getAisMessage();
+        Assert.assertNotNull(full.getName());
+        Assert.assertNotNull(full.getDest());
+        Assert.assertEquals(noText.getImo(), full.getImo());
+        Assert.assertEquals(noText.getDraught(), full.getDraught());
+    }
+
+    @Test
+    public void linesTest() throws IOException {
+        String msg;
+        msg = "$PGHP,1,2010,6,11,11,46,11,929,244,0,,1,72*21\r\n";
+        msg += "\\1G2:0125,c:1354719387*0D\\!AIVDM,2,1,4,A,539LiHP2;42`@pE<000<tq@V1<TpL4000000001?1SV@@73R0J0TQCAD,0*1E\n";
+        msg += "\\2G2:0125*7B\\!AIVDM,2,2,4,A,R0EQCP000000000,2*45\r\n";
+        AisPacket packet = AisPacket.from(msg);
+        Assert.assertEquals(msg, packet.getStringMessage());
+        Assert.assertEquals(msg, packet.getRawMessage().toString());
+        Assert.assertEquals(Arrays.asList(msg.split("\\r?\\n")), packet.getStringMessageLines());
+
+        List<CharSequence> lines = packet.getLines();
+        Assert.assertEquals(3, lines.size());
+        CharSequence line = lines.get(1);
+        Assert.assertEquals('\\', line.charAt(0));
+        Assert.assertEquals("!AIVDM", line.subSequence(26, 32).toString());
+        Assert.assertEquals("2*45", lines.get(2).subSequence(lines.get(2).length() - 4, lines.get(2).length())
+                .toString());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        packet.writeTo(out);
+        Assert.assertEquals(msg, new String(out.toByteArray(), StandardCharsets.US_ASCII));
+        Assert.assertEquals(msg, AisPacket.fromByteArray(packet.toByteArray()).getStringMessage());
+    }
+
+    @Test
+    public void compactTest() throws SentenceException, AisMessageException, SixbitException {
+        String msg;
+        msg = "\\1G2:0125,c:1354719387*0D\\!AIVDM,2,1,4,A,539LiHP2;42`@pE<000<tq@V1<TpL4000000001?1SV@@73R0J0TQCAD,0*1E\r\n";
+        msg += "\\2G2:0125*7B\\!AIVDM,2,2,4,A,R0EQCP000000000,2*45";
+        AisPacket packet = AisPacketReader.from(msg);
+        String sixbit = packet.getVdm().getSixbitString();
+        AisMessage5 message = (AisMessage5) packet.getAisMessage(DecodeOptions.NO_TEXT);
+
+        Assert.assertSame(packet, packet.compact());
+        Assert.assertTrue(packet.getVdm().getOrgLines().isEmpty());
+        Assert.assertEquals(sixbit, packet.getVdm().getSixbitString());
+        Assert.assertEquals(1354719387000L, packet.getTimestamp().getTime());
+        Assert.assertEquals(msg, packet.getStringMessage());
+        Assert.assertSame(message, packet.getAisMessage(DecodeOptions.NO_TEXT));
+
+        // Decoding more fields still works on the compacted VDM
+        AisMessage5 full = (AisMessage5) packet.getAisMessage();
+        Assert.assertEquals(message.getUserId(), full.getUserId());
+        Assert.assertEquals(AisMessage.getInstance(AisPacketReader.from(msg).getVdm()).toString(), full.toString());
+
+        // Pad bits with a last character other than 0
+        msg = "!AIVDM,1,1,,A,85MwpKiKf:MPiQa:ofV@v2mQTfB<,2*03";
+        packet = AisPacketReader.from(msg);
+        sixbit = packet.getVdm().getSixbitString();
+        packet.compact();
+        Assert.assertEquals(sixbit, packet.getVdm().getSixbitString());
+        Assert.assertEquals(sixbit, packet.getVdm().createSentences()[0].getSixbitString());
+    }
+
     @Test
     public void packetTaggingTest() throws SentenceException {
         String msg;
@@ -17,6 +17,8 @@ package dk.dma.ais.queue;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import junit.framework.Assert;
 
@@ -40,4 +42,186 @@ public class QueueTest {
 
     }
 
+    @Test
+    public void testRingBufferPushPull() throws MessageQueueOverflowException, InterruptedException {
+        RingBufferMessageQueue<Integer> q = new RingBufferMessageQueue<>(1000);
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 1000; i++) {
+                Assert.assertEquals(i + 1, q.push(i));
+            }
+            try {
+                q.push(1000);
+                Assert.fail("Expected overflow");
+            } catch (MessageQueueOverflowException ignore) {}
+            List<Integer> list = q.pull(new ArrayList<Integer>(), 100);
+            Assert.assertEquals(100, list.size());
+            Assert.assertEquals(0, list.get(0).intValue());
+            Assert.assertEquals(99, list.get(99).intValue());
+            Assert.assertEquals(100, q.pull().intValue());
+            list = q.pullAll(new ArrayList<Integer>());
+            Assert.assertEquals(899, list.size());
+            Assert.assertEquals(999, list.get(898).intValue());
+            Assert.assertEquals(0, q.size());
+        }
+    }
+
+    @Test
+    public void testPushAll() throws InterruptedException {
+        List<Integer> batch = new ArrayList<>();
+        for (int i = 0; i < 70; i++) {
+            batch.add(i);
+        }
+        List<IMessageQueue<Integer>> queues = new ArrayList<>();
+        queues.add(new BlockingMessageQueue<Integer>(100));
+        queues.add(new RingBufferMessageQueue<Integer>(100));
+        for (IMessageQueue<Integer> q : queues) {
+            Assert.assertEquals(70, q.pushAll(batch));
+            // Only room for part of the batch
+            Assert.assertEquals(30, q.pushAll(batch));
+            Assert.assertEquals(0, q.pushAll(batch));
+            List<Integer> list = q.pullAll(new ArrayList<Integer>());
+            Assert.assertEquals(100, list.size());
+            Assert.assertEquals(69, list.get(69).intValue());
+            Assert.assertEquals(29, list.get(99).intValue());
+        }
+    }
+
+    @Test
+    public void testRingBufferProducers() throws InterruptedException {
+        for (RingBufferMessageQueue.WaitStrategy waitStrategy : RingBufferMessageQueue.WaitStrategy.values()) {
+            final RingBufferMessageQueue<int[]> q = new RingBufferMessageQueue<>(64, waitStrategy);
+            final int producers = 4;
+            final int count = 20000;
+            for (int p = 0; p < producers; p++) {
+                final int producer = p;
+                new Thread() {
+                    public void run() {
+                        for (int i = 0; i < count; i++) {
+                            try {
+                                q.push(new int[] { producer, i });
+                            } catch (MessageQueueOverflowException e) {
+                                i--;
+                                Thread.yield();
+                            }
+                        }
+                    }
+                }.start();
+            }
+            // Elements of each producer arrive in order
+            int[] next = new int[producers];
+            List<int[]> list = new ArrayList<>();
+            for (int received = 0; received < producers * count; received += list.size()) {
+                list.clear();
+                q.pull(list, 10);
+                for (int[] element : list) {
+                    Assert.assertEquals(next[element[0]]++, element[1]);
+                }
+            }
+            for (int p = 0; p < producers; p++) {
+                Assert.assertEquals(count, next[p]);
+            }
+        }
+    }
+
+    @Test
+    public void testPushPriority() throws MessageQueueOverflowException, InterruptedException {
+        BlockingMessageQueue<Integer> q = new BlockingMessageQueue<>(4);
+        // Even elements are evictable
+        for (int i = 0; i < 4; i++) {
+            Assert.assertNull(q.pushPriority(i, i % 2 == 0));
+        }
+        Assert.assertEquals(0, q.pushPriority(4, false).intValue());
+        try {
+            q.pushPriority(5, true);
+            Assert.fail("Expected overflow");
+        } catch (MessageQueueOverflowException ignore) {}
+        Assert.assertEquals(2, q.pushPriority(6, false).intValue());
+        try {
+            q.pushPriority(7, false);
+            Assert.fail("Expected overflow");
+        } catch (MessageQueueOverflowException ignore) {}
+        // Pulled in the order pushed
+        List<Integer> list = q.pullAll(new ArrayList<Integer>());
+        Assert.assertEquals("[1, 3, 4, 6]", list.toString());
+    }
+
+    @Test
+    public void testPushPriorityProducers() throws InterruptedException {
+        final BlockingMessageQueue<Integer> q = new BlockingMessageQueue<>(16);
+        final int producers = 4;
+        final int count = 20000;
+        final AtomicInteger evicted = new AtomicInteger();
+        final AtomicInteger overflowed = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            Thread thread = new Thread() {
+                public void run() {
+                    for (int i = 0; i < count; i++) {
+                        try {
+                            if (q.pushPriority(i, i % 2 == 0) != null) {
+                                evicted.incrementAndGet();
+                            }
+                        } catch (MessageQueueOverflowException e) {
+                            overflowed.incrementAndGet();
+                        }
+                    }
+                }
+            };
+            threads.add(thread);
+            thread.start();
+        }
+        int received = 0;
+        List<Integer> list = new ArrayList<>();
+        while (received + evicted.get() + overflowed.get() < producers * count) {
+            list.clear();
+            if (q.size() > 0) {
+                received += q.pull(list, 10).size();
+            }
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        // Every element is either received, evicted or rejected
+        Assert.assertEquals(producers * count, received + evicted.get() + overflowed.get());
+        Assert.assertEquals(0, q.size());
+    }
+
+    @Test
+    public void testTimedPush() throws MessageQueueOverflowException, InterruptedException {
+        List<IMessageQueue<Integer>> queues = new ArrayList<>();
+        queues.add(new BlockingMessageQueue<Integer>(10));
+        for (RingBufferMessageQueue.WaitStrategy waitStrategy : RingBufferMessageQueue.WaitStrategy.values()) {
+            queues.add(new RingBufferMessageQueue<Integer>(10, waitStrategy));
+        }
+        for (final IMessageQueue<Integer> q : queues) {
+            for (int i = 0; i < 10; i++) {
+                Assert.assertTrue(q.push(i, 0, TimeUnit.MILLISECONDS));
+            }
+            long start = System.nanoTime();
+            Assert.assertFalse(q.push(10, 20, TimeUnit.MILLISECONDS));
+            Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+            // Room is made while the producer waits
+            Thread consumer = new Thread() {
+                public void run() {
+                    try {
+                        Thread.sleep(50);
+                        q.pull();
+                    } catch (InterruptedException ignore) {}
+                }
+            };
+            consumer.start();
+            Assert.assertTrue(q.push(10, 10, TimeUnit.SECONDS));
+            consumer.join();
+            List<Integer> list = q.pullAll(new ArrayList<Integer>());
+            Assert.assertEquals(10, list.size());
+            Assert.assertEquals(10, list.get(9).intValue());
+        }
+    }
+
+    @Test(expected = InterruptedException.class)
+    public void testRingBufferInterrupt() throws InterruptedException {
+        Thread.currentThread().interrupt();
+        new RingBufferMessageQueue<Integer>(10).pull();
+    }
+
 }
@@ -0,0 +1,95 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.ais.queue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import dk.dma.ais.queue.RingBufferMessageQueue.WaitStrategy;
+
+/**
+ * Throughput and latency of the queue implementations with 1, 4 and 16 pushing threads and one pulling thread, as
+ * the bus queue is used. Producers retry on overflow. Results are printed.
+ */
+public class QueueThroughputTest {
+
+    private static final int ELEMENTS = 200000;
+    private static final int QUEUE_SIZE = 10000;
+    private static final int PULL_MAX_ELEMENTS = 1000;
+
+    @Test
+    public void throughputTest() throws InterruptedException {
+        for (int producers : new int[] { 1, 4, 16 }) {
+            run("BLOCKING", new BlockingMessageQueue<Long>(QUEUE_SIZE), producers);
+            for (WaitStrategy waitStrategy : WaitStrategy.values()) {
+                run("RING_BUFFER " + waitStrategy, new RingBufferMessageQueue<Long>(QUEUE_SIZE, waitStrategy),
+                        producers);
+            }
+        }
+    }
+
+    private static void run(String name, final IMessageQueue<Long> queue, int producers) throws InterruptedException {
+        final int perProducer = ELEMENTS / producers;
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            threads.add(new Thread() {
+                public void run() {
+                    for (int i = 0; i < perProducer; i++) {
+                        // Element is the time of pushing
+                        while (true) {
+                            try {
+                                queue.push(System.nanoTime());
+                                break;
+                            } catch (MessageQueueOverflowException e) {
+                                Thread.yield();
+                            }
+                        }
+                    }
+                }
+            });
+        }
+        long start = System.nanoTime();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        long totalLatency = 0;
+        long maxLatency = 0;
+        int received = 0;
+        List<Long> list = new ArrayList<>(PULL_MAX_ELEMENTS);
+        while (received < perProducer * producers) {
+            list.clear();
+            queue.pull(list, PULL_MAX_ELEMENTS);
+            long now = System.nanoTime();
+            for (Long pushed : list) {
+                long latency = now - pushed;
+                totalLatency += latency;
+                maxLatency = Math.max(maxLatency, latency);
+            }
+            received += list.size();
+        }
+        long elapsed = System.nanoTime() - start;
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(perProducer * producers, received);
+        System.out.println(String.format("%-20s producers: %2d  %,12d elements/sec  avg latency: %,9d ns  max: %,12d ns",
+                name, producers, received * 1000000000L / elapsed, totalLatency / received, maxLatency));
+    }
+
+}
@@ -0,0 +1,60 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.ais.reader;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LineReaderTest {
+
+    @Test
+    public void lineEndingsTest() throws IOException {
+        LineReader reader = new LineReader(new ByteArrayInputStream("a\r\nb\rc\n\nd".getBytes(StandardCharsets.US_ASCII)));
+        Assert.assertEquals("a", reader.readLine());
+        Assert.assertEquals("b", reader.readLine());
+        Assert.assertEquals("c", reader.readLine());
+        Assert.assertEquals("", reader.readLine());
+        Assert.assertEquals("d", reader.readLine());
+        Assert.assertNull(reader.readLine());
+    }
+
+    @Test
+    public void partialLineTest() throws IOException {
+        PipedOutputStream out = new PipedOutputStream();
+        LineReader reader = new LineReader(new PipedInputStream(out));
+        out.write("one\r\ntw".getBytes(StandardCharsets.US_ASCII));
+        Assert.assertTrue(reader.hasLine());
+        Assert.assertEquals("one", reader.readLine());
+        // Only part of the next line is available
+        Assert.assertFalse(reader.hasLine());
+        out.write("o\r".getBytes(StandardCharsets.US_ASCII));
+        Assert.assertTrue(reader.hasLine());
+        Assert.assertEquals("two", reader.readLine());
+        out.write("\nthree\n".getBytes(StandardCharsets.US_ASCII));
+        Assert.assertTrue(reader.hasLine());
+        Assert.assertEquals("three", reader.readLine());
+        Assert.assertFalse(reader.hasLine());
+        out.close();
+        Assert.assertNull(reader.readLine());
+    }
+
+}
@@ -31,9 +31,44 @@ import dk.dma.ais.packet.AisPacketTagging.SourceType;
 import dk.dma.ais.reader.AisPacketReader;
 import dk.dma.ais.sentence.SentenceException;
 import dk.dma.ais.sentence.Vdm;
+import dk.dma.ais.transform.AisPacketTaggingTransformer.Policy;
 
 public class TransformTest {
 
+    @Test
+    public void keepVdmTest() throws SentenceException, AisMessageException, SixbitException {
+        String msg;
+        msg = "$PGHP,1,2013,3,13,10,39,18,375,219,,2190047,1,4A*57\r\n";
+        msg += "\\g:1-2-0136,c:1363174860*24\\!BSVDM,2,1,4,B,53B>2V000000uHH4000@T4p4000000000000000S30C6340006h00000,0*4C\r\n";
+        msg += "\\g:2-2-0136*59\\!BSVDM,2,2,4,B,000000000000000,2*3A";
+
+        AisPacketTagging tagging = new AisPacketTagging();
+        tagging.setSourceId("src");
+        tagging.setSourceType(SourceType.TERRESTRIAL);
+        IAisPacketTransformer[] transformers = { new CropVdmTransformer(), new VdmVdoTransformer(220431000, "AI"),
+                new AisPacketTaggingTransformer(Policy.PREPEND_MISSING, tagging),
+                new AisPacketTaggingTransformer(Policy.REPLACE, tagging),
+                new AisPacketTaggingTransformer(Policy.MERGE_OVERRIDE, tagging),
+                new AisPacketTaggingTransformer(Policy.MERGE_PRESERVE, tagging) };
+
+        for (IAisPacketTransformer transformer : transformers) {
+            AisPacket packet = AisPacketReader.from(msg);
+            AisPacket newPacket = transformer.transform(packet);
+            AisPacket parsed = AisPacketReader.from(newPacket.getStringMessage());
+            Vdm vdm = newPacket.getVdm();
+            Vdm parsedVdm = parsed.getVdm();
+            Assert.assertNotSame(packet.getVdm(), vdm);
+            Assert.assertEquals(parsedVdm.getTimestamp(), vdm.getTimestamp());
+            Assert.assertEquals(parsedVdm.isOwnMessage(), vdm.isOwnMessage());
+            Assert.assertEquals(parsedVdm.getTags() == null, vdm.getTags() == null);
+            Assert.assertEquals(parsedVdm.getCommentBlock() == null, vdm.getCommentBlock() == null);
+            Assert.assertEquals(AisPacketTagging.parse(parsed).toString(), AisPacketTagging.parse(newPacket).toString());
+            Assert.assertEquals(parsed.getAisMessage().toString(), newPacket.getAisMessage().toString());
+            // Original packet is unchanged
+            Assert.assertNull(AisPacketTagging.parse(packet).getSourceId());
+        }
+    }
+
     @Test
     public void cropVdmTest() throws SentenceException {
         String msg;
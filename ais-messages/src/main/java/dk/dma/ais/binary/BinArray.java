@@ -15,20 +15,69 @@
  */
 package dk.dma.ais.binary;
 
-import java.util.BitSet;
+import java.io.Serializable;
+import java.util.Arrays;
 
 /**
- * Class to represent a binary array with utility methods to add and extract values
+ * Class to represent a binary array with utility methods to add and extract values.
+ * <p>
+ * Bits are packed most significant bit first into an array of longs, so values of up to 64 bits are read and written
+ * with a few shifts and masks instead of bit by bit.
  */
-public class BinArray extends BitSet {
+public class BinArray implements Serializable {
 
-    private static final long serialVersionUID = 1L;
+    private static final long serialVersionUID = 2L;
 
+    private static final int ADDRESS_BITS_PER_WORD = 6;
+    private static final int BITS_PER_WORD = 1 << ADDRESS_BITS_PER_WORD;
+
+    /**
+     * Sixbit ascii character to value, -1 for illegal characters
+     */
+    private static final byte[] SIXBIT_TO_INT = new byte[128];
+
+    /**
+     * Six bit value to ascii character
+     */
+    private static final char[] INT_TO_ASCII = new char[64];
+
+    /**
+     * Six bit value to sixbit ascii character
+     */
+    private static final char[] INT_TO_SIXBIT = new char[64];
+
+    static {
+        for (int chr = 0; chr < SIXBIT_TO_INT.length; chr++) {
+            if (chr < 48 || chr > 119 || chr > 87 && chr < 96) {
+                SIXBIT_TO_INT[chr] = -1;
+            } else {
+                SIXBIT_TO_INT[chr] = (byte) (chr < 0x60 ? chr - 48 & 0x3F : chr - 56 & 0x3F);
+            }
+        }
+        for (int val = 0; val < 64; val++) {
+            INT_TO_ASCII[val] = (char) (val < 32 ? val + 64 : val);
+            INT_TO_SIXBIT[val] = (char) (val < 40 ? val + 48 : val + 56);
+        }
+    }
+
+    /**
+     * Packed bits. Bit i is at position (63 - i % 64) in word i / 64. Bits beyond length are always zero.
+     */
+    private long[] words;
     private int length;
     private int readPtr;
 
     public BinArray() {
-        super();
+        this(BITS_PER_WORD * 4);
+    }
+
+    /**
+     * Create binary array with room for nbits bits before growing
+     * 
+     * @param nbits
+     */
+    public BinArray(int nbits) {
+        words = new long[Math.max(1, wordIndex(nbits - 1) + 1)];
     }
 
     /**
@@ -39,14 +88,24 @@ public class BinArray extends BitSet {
      * @throws SixbitException
      */
     public void appendSixbit(String str, int padBits) throws SixbitException {
-        for (int i = 0; i < str.length(); i++) {
-            int binVal = sixbitToInt(str.charAt(i));
-            int bits = 6;
-            if (i == str.length() - 1) {
-                bits -= padBits;
+        int len = str.length();
+        if (len == 0) {
+            return;
+        }
+        ensureCapacity(length + len * 6);
+        // Pack ten characters (60 bits) at a time, validating as we go
+        long acc = 0;
+        int accChars = 0;
+        for (int i = 0; i < len - 1; i++) {
+            acc = acc << 6 | sixbitToInt(str.charAt(i));
+            if (++accChars == 10) {
+                append(acc, 60);
+                acc = 0;
+                accChars = 0;
             }
-            append(binVal, bits);
         }
+        append(acc, accChars * 6);
+        append(sixbitToInt(str.charAt(len - 1)), 6 - padBits);
     }
 
     /**
@@ -55,9 +114,21 @@ public class BinArray extends BitSet {
      * @param binArray
      */
     public void append(BinArray binArray) {
-        for (int i = 0; i < binArray.getLength(); i++) {
-            set(length, binArray.get(i));
-            length++;
+        int bits = binArray.getLength();
+        ensureCapacity(length + bits);
+        int fullWords = bits >>> ADDRESS_BITS_PER_WORD;
+        if ((length & BITS_PER_WORD - 1) == 0) {
+            // Word aligned, copy words directly
+            System.arraycopy(binArray.words, 0, words, wordIndex(length), fullWords);
+            length += fullWords * BITS_PER_WORD;
+        } else {
+            for (int i = 0; i < fullWords; i++) {
+                append(binArray.words[i], BITS_PER_WORD);
+            }
+        }
+        int rest = bits & BITS_PER_WORD - 1;
+        if (rest > 0) {
+            append(binArray.words[fullWords] >>> BITS_PER_WORD - rest, rest);
         }
     }
 
@@ -68,10 +139,27 @@ public class BinArray extends BitSet {
      * @param bits
      */
     public void append(long value, int bits) {
-        long powMask = 1;
-        for (int i = length + bits - 1; i >= length; i--) {
-            set(i, (value & powMask) > 0);
-            powMask <<= 1;
+        if (bits <= 0) {
+            return;
+        }
+        if (bits > BITS_PER_WORD) {
+            // Only the lower 64 bits of the value can be set
+            ensureCapacity(length + bits);
+            length += bits - BITS_PER_WORD;
+            bits = BITS_PER_WORD;
+        }
+        ensureCapacity(length + bits);
+        if (bits < BITS_PER_WORD) {
+            value &= (1L << bits) - 1;
+        }
+        int wordIndex = wordIndex(length);
+        int free = BITS_PER_WORD - (length & BITS_PER_WORD - 1);
+        if (bits <= free) {
+            words[wordIndex] |= value << free - bits;
+        } else {
+            int overflow = bits - free;
+            words[wordIndex] |= value >>> overflow;
+            words[wordIndex + 1] |= value << BITS_PER_WORD - overflow;
         }
         length += bits;
     }
@@ -85,10 +173,55 @@ public class BinArray extends BitSet {
      */
     public String getString(int len) throws SixbitException {
         char[] resStr = new char[len];
+        readChars(resStr, len);
+        return new String(resStr);
+    }
+
+    /**
+     * Append the next len six bit characters to the given builder and move read ptr
+     * 
+     * @param len
+     * @param sb
+     * @throws SixbitException
+     */
+    public void getString(int len, StringBuilder sb) throws SixbitException {
+        checkReadable(len * 6);
         for (int i = 0; i < len; i++) {
-            resStr[i] = (char) intToascii((char) getVal(6));
+            sb.append(INT_TO_ASCII[(int) getVal(6)]);
+        }
+    }
+
+    /**
+     * Get six bit string representation of the next len six bit characters and move read ptr. Recently decoded
+     * strings are reused, so fields repeating from message to message, like names and call signs, are not allocated
+     * again.
+     * 
+     * @param len
+     * @return string
+     * @throws SixbitException
+     */
+    public String getCachedString(int len) throws SixbitException {
+        return SixbitStringCache.get().decode(this, len);
+    }
+
+    /**
+     * Read the next len six bit characters into buffer as ascii
+     * 
+     * @param buffer
+     * @param len
+     * @throws SixbitException
+     */
+    void readChars(char[] buffer, int len) throws SixbitException {
+        checkReadable(len * 6);
+        for (int i = 0; i < len; i++) {
+            buffer[i] = INT_TO_ASCII[(int) getVal(6)];
+        }
+    }
+
+    private void checkReadable(int bits) throws SixbitException {
+        if (readPtr + bits > length) {
+            throw new SixbitException("Not enough bits");
         }
-        return new String(resStr);
     }
 
     /**
@@ -106,7 +239,18 @@ public class BinArray extends BitSet {
     }
 
     /**
-     * Get value from bit position from and to
+     * Move the read ptr past the next bits number of bits without decoding them
+     * 
+     * @param bits
+     * @throws SixbitException
+     */
+    public void skip(int bits) throws SixbitException {
+        checkReadable(bits);
+        readPtr += bits;
+    }
+
+    /**
+     * Get value from bit position from and to. At most 64 bits can be extracted.
      * 
      * @param from
      * @param to
@@ -117,15 +261,35 @@ public class BinArray extends BitSet {
         if (to >= length) {
             throw new SixbitException("Not enough bits");
         }
-        long val = 0;
-        long powMask = 1;
-        for (int i = to; i >= from; i--) {
-            if (get(i)) {
-                val += powMask;
-            }
-            powMask <<= 1;
+        int bits = to - from + 1;
+        if (bits <= 0) {
+            return 0;
         }
-        return val;
+        if (bits > BITS_PER_WORD) {
+            // Higher bits are shifted out
+            from = to - BITS_PER_WORD + 1;
+            bits = BITS_PER_WORD;
+        }
+        int wordIndex = wordIndex(from);
+        int offset = from & BITS_PER_WORD - 1;
+        long val = words[wordIndex] << offset;
+        if (offset + bits > BITS_PER_WORD) {
+            val |= words[wordIndex + 1] >>> BITS_PER_WORD - offset;
+        }
+        return val >>> BITS_PER_WORD - bits;
+    }
+
+    /**
+     * Get the value of a single bit
+     * 
+     * @param bitIndex
+     * @return
+     */
+    public boolean get(int bitIndex) {
+        if (bitIndex < 0 || bitIndex >= length) {
+            return false;
+        }
+        return (words[wordIndex(bitIndex)] & 1L << BITS_PER_WORD - 1 - (bitIndex & BITS_PER_WORD - 1)) != 0;
     }
 
     /**
@@ -137,7 +301,6 @@ public class BinArray extends BitSet {
         return length;
     }
 
-    @Override
     public int length() {
         return getLength();
     }
@@ -151,6 +314,59 @@ public class BinArray extends BitSet {
         return readPtr;
     }
 
+    /**
+     * Set the position of the read ptr within the array
+     * 
+     * @param readPtr
+     */
+    public void setReadPtr(int readPtr) {
+        this.readPtr = readPtr;
+    }
+
+    /**
+     * Clear all bits and the read ptr, keeping the allocated storage for reuse
+     */
+    public void reset() {
+        Arrays.fill(words, 0, wordIndex(length - 1) + 1, 0L);
+        length = 0;
+        readPtr = 0;
+    }
+
+    /**
+     * Release storage not needed for the current bits. Appending more bits will grow the storage again.
+     */
+    public void trimToSize() {
+        int required = Math.max(1, wordIndex(length - 1) + 1);
+        if (words.length > required) {
+            words = Arrays.copyOf(words, required);
+        }
+    }
+
+    /**
+     * Encode all bits as a sixbit string. The bits of a last partial character are its low bits, as packed by
+     * {@link #appendSixbit(String, int)} and {@link SixbitEncoder}, with zero pad bits above them. The read ptr is not
+     * moved.
+     * 
+     * @return
+     */
+    public String getSixbitString() {
+        int chars = (length + 5) / 6;
+        char[] str = new char[chars];
+        for (int i = 0; i < chars; i++) {
+            int from = i * 6;
+            int wordIndex = wordIndex(from);
+            int offset = from & BITS_PER_WORD - 1;
+            long val = words[wordIndex] << offset;
+            if (offset > BITS_PER_WORD - 6 && wordIndex + 1 < words.length) {
+                val |= words[wordIndex + 1] >>> BITS_PER_WORD - offset;
+            }
+            int bits = Math.min(6, length - from);
+            // Bits beyond length are zero
+            str[i] = INT_TO_SIXBIT[(int) (val >>> BITS_PER_WORD - bits)];
+        }
+        return new String(str);
+    }
+
     /**
      * Returns true if there are more bits to read
      * 
@@ -160,6 +376,17 @@ public class BinArray extends BitSet {
         return readPtr < length - 1;
     }
 
+    private void ensureCapacity(int nbits) {
+        int required = wordIndex(nbits - 1) + 2;
+        if (words.length < required) {
+            words = Arrays.copyOf(words, Math.max(words.length * 2, required));
+        }
+    }
+
+    private static int wordIndex(int bitIndex) {
+        return bitIndex >> ADDRESS_BITS_PER_WORD;
+    }
+
     /**
      * Convert sixbit ascii char to integer value
      * 
@@ -168,14 +395,11 @@ public class BinArray extends BitSet {
      * @throws SixbitException
      */
     public static int sixbitToInt(int chr) throws SixbitException {
-        if (chr < 48 || chr > 119 || chr > 87 && chr < 96) {
+        int val = chr >= 0 && chr < SIXBIT_TO_INT.length ? SIXBIT_TO_INT[chr] : -1;
+        if (val < 0) {
             throw new SixbitException("Illegal sixbit ascii char: " + chr);
         }
-        if (chr < 0x60) {
-            return chr - 48 & 0x3F;
-        } else {
-            return chr - 56 & 0x3F;
-        }
+        return val;
     }
 
     /**
@@ -186,14 +410,10 @@ public class BinArray extends BitSet {
      * @throws SixbitException
      */
     public static int intToascii(int val) throws SixbitException {
-        if (val > 63) {
+        if (val < 0 || val > 63) {
             throw new SixbitException("Char value " + val + " not allowed");
         }
-        if (val < 32) {
-            return val + 64;
-        } else {
-            return val;
-        }
+        return INT_TO_ASCII[val];
     }
 
     /**
@@ -204,14 +424,39 @@ public class BinArray extends BitSet {
      * @throws SixbitException
      */
     public static int intToSixbit(int val) throws SixbitException {
-        if (val > 63) {
+        if (val < 0 || val > 63) {
             throw new SixbitException("Char value " + val + " not allowed");
         }
-        if (val < 40) {
-            return val + 48;
-        } else {
-            return val + 56;
+        return INT_TO_SIXBIT[val];
+    }
+
+    @Override
+    public int hashCode() {
+        int result = length;
+        for (int i = 0; i <= wordIndex(length - 1); i++) {
+            result = 31 * result + (int) (words[i] ^ words[i] >>> 32);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof BinArray)) {
+            return false;
+        }
+        BinArray other = (BinArray) obj;
+        if (length != other.length) {
+            return false;
+        }
+        for (int i = 0; i <= wordIndex(length - 1); i++) {
+            if (words[i] != other.words[i]) {
+                return false;
+            }
         }
+        return true;
     }
 
     @Override
@@ -102,7 +102,7 @@ public class SixbitEncoder {
      * @throws SixbitException
      */
     public String encode() throws SixbitException {
-        StringBuilder buf = new StringBuilder();
+        StringBuilder buf = new StringBuilder(binArray.getLength() / 6 + 1);
         int start = 0;
         int stop = 0;
         while (start < binArray.getLength()) {
@@ -0,0 +1,90 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.ais.binary;
+
+import net.jcip.annotations.NotThreadSafe;
+
+/**
+ * Small direct mapped per thread cache of decoded six bit strings. Static text fields like names, call signs and
+ * destinations are sent over and over again by the same vessels, so decoding into a reusable buffer and looking up
+ * the previous string avoids allocating a new string for every message.
+ */
+@NotThreadSafe
+final class SixbitStringCache {
+
+    private static final int SIZE = 4096;
+
+    /**
+     * Longest string to cache, longer strings are always allocated
+     */
+    private static final int MAX_LENGTH = 32;
+
+    private static final ThreadLocal<SixbitStringCache> CACHE = new ThreadLocal<SixbitStringCache>() {
+        @Override
+        protected SixbitStringCache initialValue() {
+            return new SixbitStringCache();
+        }
+    };
+
+    private final String[] entries = new String[SIZE];
+    private final char[] buffer = new char[MAX_LENGTH];
+
+    private SixbitStringCache() {}
+
+    static SixbitStringCache get() {
+        return CACHE.get();
+    }
+
+    /**
+     * Decode the next len six bit characters from the binary array
+     *
+     * @param binArray
+     * @param len
+     * @return
+     * @throws SixbitException
+     */
+    String decode(BinArray binArray, int len) throws SixbitException {
+        if (len > MAX_LENGTH) {
+            return binArray.getString(len);
+        }
+        binArray.readChars(buffer, len);
+        int hash = len;
+        for (int i = 0; i < len; i++) {
+            hash = 31 * hash + buffer[i];
+        }
+        int index = (hash ^ hash >>> 16) & SIZE - 1;
+        String cached = entries[index];
+        if (cached != null && matches(cached, len)) {
+            return cached;
+        }
+        String str = new String(buffer, 0, len);
+        entries[index] = str;
+        return str;
+    }
+
+    private boolean matches(String str, int len) {
+        if (str.length() != len) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (str.charAt(i) != buffer[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -54,19 +54,36 @@ public abstract class AisBinaryMessage extends AisMessage {
     }
 
     /**
-     * Get the application specific message, if it is implemented
+     * Construct binary message from VDM sentence decoding the fields given by the decode options
+     * 
+     * @param vdm
+     * @param decodeOptions
+     */
+    public AisBinaryMessage(Vdm vdm, DecodeOptions decodeOptions) {
+        super(vdm, decodeOptions);
+    }
+
+    /**
+     * Get the application specific message, if it is implemented and decoding of application specific messages was
+     * not disabled by the decode options
      * 
      * @return application specific message
      * @throws BitExhaustionException
      */
     public AisApplicationMessage getApplicationMessage() throws SixbitException {
-        if (appMessage != null) {
+        if (appMessage != null || !decodeOptions.isDecodeApplicationMessage()) {
             return appMessage;
         }
         appMessage = AisApplicationMessage.getInstance(this);
         return appMessage;
     }
 
+    @Override
+    protected void reset() {
+        data = null;
+        appMessage = null;
+    }
+
     protected SixbitEncoder encode() {
         SixbitEncoder encoder = super.encode();
         return encoder;
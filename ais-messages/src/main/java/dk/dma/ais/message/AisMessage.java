@@ -15,6 +15,8 @@
  */
 package dk.dma.ais.message;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -38,6 +40,7 @@ public abstract class AisMessage implements Serializable {
     protected int repeat; // 2 bit: How many times message has been repeated
     protected int userId; // 30 bit: MMSI number
     protected transient Vdm vdm; // The VDM encapsulating the AIS message
+    protected DecodeOptions decodeOptions = DecodeOptions.FULL; // The fields decoded from the VDM
 
     /**
      * Constructor given message id
@@ -59,6 +62,17 @@ public abstract class AisMessage implements Serializable {
         this.msgId = vdm.getMsgId();
     }
 
+    /**
+     * Constructor given VDM with AIS message and the fields to decode
+     * 
+     * @param vdm
+     * @param decodeOptions
+     */
+    public AisMessage(Vdm vdm, DecodeOptions decodeOptions) {
+        this(vdm);
+        this.decodeOptions = decodeOptions;
+    }
+
     /**
      * Base parse method to be called by all extending classes
      * 
@@ -71,6 +85,57 @@ public abstract class AisMessage implements Serializable {
         this.userId = (int) binArray.getVal(30);
     }
 
+    /**
+     * Parse a text field of len six bit characters. If text fields are not to be decoded, the field is skipped and
+     * null returned.
+     * 
+     * @param binArray
+     * @param len
+     * @return
+     * @throws SixbitException
+     */
+    protected String parseText(BinArray binArray, int len) throws SixbitException {
+        if (!decodeOptions.isDecodeText()) {
+            binArray.skip(len * 6);
+            return null;
+        }
+        return binArray.getCachedString(len);
+    }
+
+    /**
+     * Parse all fields of the message from the binary array of the encapsulating VDM
+     * 
+     * @throws AisMessageException
+     * @throws SixbitException
+     */
+    public abstract void parse() throws AisMessageException, SixbitException;
+
+    /**
+     * Reset and re-parse this message instance from a new VDM holding a message with the same message id. This
+     * allows decoders to keep one instance per message id instead of allocating a new message for every VDM. Any
+     * objects previously obtained from the message, e.g. the position, may be reused and changed as well.
+     * 
+     * @param vdm
+     * @throws AisMessageException
+     * @throws SixbitException
+     */
+    public void reparse(Vdm vdm) throws AisMessageException, SixbitException {
+        if (vdm.getMsgId() != msgId) {
+            throw new AisMessageException("Cannot reparse message " + vdm.getMsgId() + " as message " + msgId);
+        }
+        this.vdm = vdm;
+        // Skip the message id
+        vdm.getBinArray().setReadPtr(6);
+        reset();
+        parse();
+    }
+
+    /**
+     * Reset fields that are not always set when parsing. Called before re-parsing. Extending classes with optional
+     * fields must override this.
+     */
+    protected void reset() {}
+
     /**
      * Base encode method to be called by all extending classes
      * 
@@ -170,6 +235,25 @@ public abstract class AisMessage implements Serializable {
         return vdm;
     }
 
+    /**
+     * Messages serialized before decode options were added have all fields decoded
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        if (decodeOptions == null) {
+            decodeOptions = DecodeOptions.FULL;
+        }
+    }
+
+    /**
+     * Get the fields decoded when this message was created from a VDM
+     * 
+     * @return
+     */
+    public DecodeOptions getDecodeOptions() {
+        return decodeOptions;
+    }
+
     /**
      * Given VDM return the encapsulated AIS message. To determine which message is returned use instanceof operator or
      * getMsgId() before casting.
@@ -183,8 +267,30 @@ public abstract class AisMessage implements Serializable {
      * @throws SixbitException
      */
     public static AisMessage getInstance(Vdm vdm) throws AisMessageException, SixbitException {
+        return getInstance(vdm, DecodeOptions.FULL);
+    }
+
+    /**
+     * Given VDM return the encapsulated AIS message decoding only the fields given by the decode options. If only the
+     * header is to be decoded an {@link AisMessageHeader} is returned for all known message ids.
+     * 
+     * @param vdm
+     * @param decodeOptions
+     * @return AisMessage
+     * @throws AisMessageException
+     * @throws SixbitException
+     */
+    public static AisMessage getInstance(Vdm vdm, DecodeOptions decodeOptions) throws AisMessageException,
+            SixbitException {
         AisMessage message = null;
 
+        if (decodeOptions.isHeaderOnly()) {
+            if (vdm.getMsgId() < 1 || vdm.getMsgId() > 24) {
+                throw new AisMessageException("Unknown AIS message id " + vdm.getMsgId());
+            }
+            return new AisMessageHeader(vdm);
+        }
+
         switch (vdm.getMsgId()) {
         case 1:
             message = new AisMessage1(vdm);
@@ -199,16 +305,16 @@ public abstract class AisMessage implements Serializable {
             message = new AisMessage4(vdm);
             break;
         case 5:
-            message = new AisMessage5(vdm);
+            message = new AisMessage5(vdm, decodeOptions);
             break;
         case 6:
-            message = new AisMessage6(vdm);
+            message = new AisMessage6(vdm, decodeOptions);
             break;
         case 7:
             message = new AisMessage7(vdm);
             break;
         case 8:
-            message = new AisMessage8(vdm);
+            message = new AisMessage8(vdm, decodeOptions);
             break;
         case 9:
             message = new AisMessage9(vdm);
@@ -221,13 +327,13 @@ public abstract class AisMessage implements Serializable {
             message = new AisMessageDummy(vdm);
             break;
         case 12:
-            message = new AisMessage12(vdm);
+            message = new AisMessage12(vdm, decodeOptions);
             break;
         case 13:
             message = new AisMessage13(vdm);
             break;
         case 14:
-            message = new AisMessage14(vdm);
+            message = new AisMessage14(vdm, decodeOptions);
             break;
         case 15:
             // TODO implement real message class
@@ -244,14 +350,14 @@ public abstract class AisMessage implements Serializable {
             message = new AisMessage18(vdm);
             break;
         case 19:
-            message = new AisMessage19(vdm);
+            message = new AisMessage19(vdm, decodeOptions);
             break;
         case 20:
             // TODO implement real message class
             message = new AisMessageDummy(vdm);
             break;
         case 21:
-            message = new AisMessage21(vdm);
+            message = new AisMessage21(vdm, decodeOptions);
             break;
         case 22:
             // TODO implement real message class
@@ -262,7 +368,7 @@ public abstract class AisMessage implements Serializable {
             message = new AisMessageDummy(vdm);
             break;
         case 24:
-            message = new AisMessage24(vdm);
+            message = new AisMessage24(vdm, decodeOptions);
             break;
         default:
             throw new AisMessageException("Unknown AIS message id " + vdm.getMsgId());
@@ -49,6 +49,11 @@ public class AisMessage10 extends AisMessage {
 
     public AisMessage10(Vdm vdm) throws AisMessageException, SixbitException {
         super(vdm);
+        parse();
+    }
+
+    @Override
+    public void parse() throws AisMessageException, SixbitException {
         parse(vdm.getBinArray());
     }
 
@@ -39,10 +39,19 @@ public class AisMessage12 extends AisMessage {
     }
 
     public AisMessage12(Vdm vdm) throws AisMessageException, SixbitException {
-        super(vdm);
+        this(vdm, DecodeOptions.FULL);
+    }
+
+    public AisMessage12(Vdm vdm, DecodeOptions decodeOptions) throws AisMessageException, SixbitException {
+        super(vdm, decodeOptions);
         parse();
     }
 
+    @Override
+    protected void reset() {
+        message = null;
+    }
+
     public void parse() throws AisMessageException, SixbitException {
         BinArray binArray = vdm.getBinArray();
         if (binArray.getLength() < 72 || binArray.getLength() > 1008) {
@@ -53,7 +62,9 @@ public class AisMessage12 extends AisMessage {
         this.destination = binArray.getVal(30);
         this.retransmit = (int) binArray.getVal(1);
         this.spare = (int) binArray.getVal(1);
-        this.message = binArray.getString((binArray.getLength() - 72) / 6);
+        if (decodeOptions.isDecodeText()) {
+            this.message = binArray.getString((binArray.getLength() - 72) / 6);
+        }
     }
 
     @Override
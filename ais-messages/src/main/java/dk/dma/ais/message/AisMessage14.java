@@ -36,10 +36,19 @@ public class AisMessage14 extends AisMessage {
     }
 
     public AisMessage14(Vdm vdm) throws AisMessageException, SixbitException {
-        super(vdm);
+        this(vdm, DecodeOptions.FULL);
+    }
+
+    public AisMessage14(Vdm vdm, DecodeOptions decodeOptions) throws AisMessageException, SixbitException {
+        super(vdm, decodeOptions);
         parse();
     }
 
+    @Override
+    protected void reset() {
+        message = null;
+    }
+
     public void parse() throws AisMessageException, SixbitException {
         BinArray binArray = vdm.getBinArray();
         if (binArray.getLength() < 40 || binArray.getLength() > 1008) {
@@ -47,7 +56,9 @@ public class AisMessage14 extends AisMessage {
         }
         super.parse(binArray);
         this.spare = (int) binArray.getVal(2);
-        this.message = binArray.getString((binArray.getLength() - 40) / 6);
+        if (decodeOptions.isDecodeText()) {
+            this.message = binArray.getString((binArray.getLength() - 40) / 6);
+        }
     }
 
     @Override
@@ -141,7 +141,9 @@ public class AisMessage18 extends AisMessage implements IVesselPositionMessage {
         this.sog = (int) sixbit.getVal(10);
         this.posAcc = (int) sixbit.getVal(1);
         // Extract position
-        this.pos = new AisPosition();
+        if (this.pos == null) {
+            this.pos = new AisPosition();
+        }
         this.pos.setRawLongitude(sixbit.getVal(28));
         this.pos.setRawLatitude(sixbit.getVal(27));
 
@@ -168,7 +168,16 @@ public class AisMessage19 extends AisMessage implements IVesselPositionMessage {
     private int spare3; // 4 bits
 
     public AisMessage19(Vdm vdm) throws AisMessageException, SixbitException {
-        super(vdm);
+        this(vdm, DecodeOptions.FULL);
+    }
+
+    public AisMessage19(Vdm vdm, DecodeOptions decodeOptions) throws AisMessageException, SixbitException {
+        super(vdm, decodeOptions);
+        parse();
+    }
+
+    @Override
+    public void parse() throws AisMessageException, SixbitException {
         parse(vdm.getBinArray());
     }
 
@@ -185,14 +194,16 @@ public class AisMessage19 extends AisMessage implements IVesselPositionMessage {
         this.spare1 = (int) sixbit.getVal(8);
         this.sog = (int) sixbit.getVal(10);
         this.posAcc = (int) sixbit.getVal(1);
-        this.pos = new AisPosition();
+        if (this.pos == null) {
+            this.pos = new AisPosition();
+        }
         this.pos.setRawLongitude(sixbit.getVal(28));
         this.pos.setRawLatitude(sixbit.getVal(27));
         this.cog = (int) sixbit.getVal(12);
         this.trueHeading = (int) sixbit.getVal(9);
         this.utcSec = (int) sixbit.getVal(6);
         this.spare2 = (int) sixbit.getVal(4);
-        this.name = sixbit.getString(20);
+        this.name = parseText(sixbit, 20);
         this.shipType = (int) sixbit.getVal(8);
         this.dimBow = (int) sixbit.getVal(9);
         this.dimStern = (int) sixbit.getVal(9);
@@ -51,10 +51,19 @@ public class AisMessage21 extends AisMessage implements IPositionMessage {
     int spare2; // 0-6 bits : Spare
 
     public AisMessage21(Vdm vdm) throws AisMessageException, SixbitException {
-        super(vdm);
+        this(vdm, DecodeOptions.FULL);
+    }
+
+    public AisMessage21(Vdm vdm, DecodeOptions decodeOptions) throws AisMessageException, SixbitException {
+        super(vdm, decodeOptions);
         parse();
     }
 
+    @Override
+    protected void reset() {
+        nameExt = null;
+    }
+
     public void parse() throws AisMessageException, SixbitException {
         BinArray binArray = vdm.getBinArray();
         if (binArray.getLength() < 272 || binArray.getLength() > 360) {
@@ -64,10 +73,12 @@ public class AisMessage21 extends AisMessage implements IPositionMessage {
         super.parse(binArray);
 
         this.atonType = (int) binArray.getVal(5);
-        this.name = binArray.getString(20);
+        this.name = parseText(binArray, 20);
         this.posAcc = (int) binArray.getVal(1);
 
-        this.pos = new AisPosition();
+        if (this.pos == null) {
+            this.pos = new AisPosition();
+        }
         this.pos.setRawLongitude(binArray.getVal(28));
         this.pos.setRawLatitude(binArray.getVal(27));
 
@@ -84,7 +95,7 @@ public class AisMessage21 extends AisMessage implements IPositionMessage {
         this.assigned = (int) binArray.getVal(1);
         this.spare1 = (int) binArray.getVal(1);
 
-        if (binArray.getLength() > 272) {
+        if (binArray.getLength() > 272 && decodeOptions.isDecodeText()) {
             this.nameExt = binArray.getString((binArray.getLength() - 272) / 6);
         }
 
@@ -52,10 +52,27 @@ public class AisMessage24 extends AisStaticCommon {
     int spare; // 6 bits
 
     public AisMessage24(Vdm vdm) throws AisMessageException, SixbitException {
-        super(vdm);
+        this(vdm, DecodeOptions.FULL);
+    }
+
+    public AisMessage24(Vdm vdm, DecodeOptions decodeOptions) throws AisMessageException, SixbitException {
+        super(vdm, decodeOptions);
         parse();
     }
 
+    @Override
+    protected void reset() {
+        name = null;
+        callsign = null;
+        shipType = 0;
+        vendorId = 0;
+        dimBow = 0;
+        dimStern = 0;
+        dimPort = 0;
+        dimStarboard = 0;
+        spare = 0;
+    }
+
     public void parse() throws AisMessageException, SixbitException {
         BinArray binArray = vdm.getBinArray();
         if (binArray.getLength() < 160) {
@@ -68,7 +85,7 @@ public class AisMessage24 extends AisStaticCommon {
 
         // Handle part A
         if (partNumber == 0) {
-            this.name = binArray.getString(20);
+            this.name = parseText(binArray, 20);
             return;
         }
 
@@ -79,7 +96,7 @@ public class AisMessage24 extends AisStaticCommon {
         // Handle part B
         this.shipType = (int) binArray.getVal(8);
         this.vendorId = binArray.getVal(42);
-        this.callsign = binArray.getString(7);
+        this.callsign = parseText(binArray, 7);
         this.dimBow = (int) binArray.getVal(9);
         this.dimStern = (int) binArray.getVal(9);
         this.dimPort = (int) binArray.getVal(6);
@@ -73,7 +73,9 @@ public class AisMessage4 extends AisMessage implements IPositionMessage {
         this.utcSecond = (int) binArray.getVal(6);
         this.posAcc = (int) binArray.getVal(1);
 
-        this.pos = new AisPosition();
+        if (this.pos == null) {
+            this.pos = new AisPosition();
+        }
         this.pos.setRawLongitude(binArray.getVal(28));
         this.pos.setRawLatitude(binArray.getVal(27));
 
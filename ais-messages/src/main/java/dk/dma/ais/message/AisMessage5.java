@@ -86,7 +86,11 @@ public class AisMessage5 extends AisStaticCommon {
     int spare; // 1 bit : spare
 
     public AisMessage5(Vdm vdm) throws AisMessageException, SixbitException {
-        super(vdm);
+        this(vdm, DecodeOptions.FULL);
+    }
+
+    public AisMessage5(Vdm vdm, DecodeOptions decodeOptions) throws AisMessageException, SixbitException {
+        super(vdm, decodeOptions);
         parse();
     }
 
@@ -100,8 +104,8 @@ public class AisMessage5 extends AisStaticCommon {
 
         this.version = (int) binArray.getVal(2);
         this.imo = binArray.getVal(30);
-        this.callsign = binArray.getString(7);
-        this.name = binArray.getString(20);
+        this.callsign = parseText(binArray, 7);
+        this.name = parseText(binArray, 20);
         this.shipType = (int) binArray.getVal(8);
         this.dimBow = (int) binArray.getVal(9);
         this.dimStern = (int) binArray.getVal(9);
@@ -110,7 +114,7 @@ public class AisMessage5 extends AisStaticCommon {
         this.posType = (int) binArray.getVal(4);
         this.eta = binArray.getVal(20);
         this.draught = (int) binArray.getVal(8);
-        this.dest = binArray.getString(20);
+        this.dest = parseText(binArray, 20);
         this.dte = (int) binArray.getVal(1);
         this.spare = (int) binArray.getVal(1);
     }
@@ -61,6 +61,16 @@ public class AisMessage7 extends AisMessage {
         parse();
     }
 
+    @Override
+    protected void reset() {
+        dest2 = 0;
+        seq2 = 0;
+        dest3 = 0;
+        seq3 = 0;
+        dest4 = 0;
+        seq4 = 0;
+    }
+
     public void parse() throws AisMessageException, SixbitException {
         BinArray sixbit = vdm.getBinArray();
         if (sixbit.getLength() < 72 || sixbit.getLength() > 168) {
@@ -149,6 +149,11 @@ public class AisMessage9 extends AisMessage {
 
     public AisMessage9(Vdm vdm) throws AisMessageException, SixbitException {
         super(vdm);
+        parse();
+    }
+
+    @Override
+    public void parse() throws AisMessageException, SixbitException {
         parse(vdm.getBinArray());
     }
 
@@ -164,7 +169,9 @@ public class AisMessage9 extends AisMessage {
         this.sog = (int) binArray.getVal(10);
         this.posAcc = (int) binArray.getVal(1);
 
-        this.pos = new AisPosition();
+        if (this.pos == null) {
+            this.pos = new AisPosition();
+        }
         this.pos.setRawLongitude(binArray.getVal(28));
         this.pos.setRawLatitude(binArray.getVal(27));
 
@@ -0,0 +1,73 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.ais.message;
+
+import net.jcip.annotations.NotThreadSafe;
+
+import dk.dma.ais.binary.SixbitException;
+import dk.dma.ais.sentence.Vdm;
+
+/**
+ * Decoder keeping one message instance per message id. Each decode re-parses the instance for the message id, so a
+ * decode loop does not allocate new messages.
+ *
+ * The returned message is only valid until the next message with the same id is decoded by this decoder. Consumers
+ * must not keep references to it, or to objects obtained from it.
+ */
+@NotThreadSafe
+public class AisMessageDecoder {
+
+    private static final ThreadLocal<AisMessageDecoder> DECODER = new ThreadLocal<AisMessageDecoder>() {
+        @Override
+        protected AisMessageDecoder initialValue() {
+            return new AisMessageDecoder();
+        }
+    };
+
+    private final AisMessage[] messages = new AisMessage[64];
+
+    public AisMessageDecoder() {}
+
+    /**
+     * Get the decoder of the current thread
+     *
+     * @return
+     */
+    public static AisMessageDecoder get() {
+        return DECODER.get();
+    }
+
+    /**
+     * Decode the AIS message in the VDM into the instance kept for its message id
+     *
+     * @param vdm
+     * @return reused message instance
+     * @throws AisMessageException
+     * @throws SixbitException
+     */
+    public AisMessage decode(Vdm vdm) throws AisMessageException, SixbitException {
+        int msgId = vdm.getMsgId();
+        AisMessage message = messages[msgId];
+        if (message == null) {
+            message = AisMessage.getInstance(vdm);
+            messages[msgId] = message;
+            return message;
+        }
+        message.reparse(vdm);
+        return message;
+    }
+
+}
@@ -29,6 +29,11 @@ public class AisMessageDummy extends AisMessage {
 
     public AisMessageDummy(Vdm vdm) throws AisMessageException, SixbitException {
         super(vdm);
+        parse();
+    }
+
+    @Override
+    public void parse() throws AisMessageException, SixbitException {
         parse(vdm.getBinArray());
     }
 
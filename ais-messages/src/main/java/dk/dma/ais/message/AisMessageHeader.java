@@ -0,0 +1,55 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.ais.message;
+
+import dk.dma.ais.binary.SixbitEncoder;
+import dk.dma.ais.binary.SixbitException;
+import dk.dma.ais.sentence.Vdm;
+
+/**
+ * AIS message with only the header fields message id, repeat indicator and MMSI decoded. Created when decoding
+ * with {@link DecodeOptions#HEADER_ONLY}.
+ */
+public class AisMessageHeader extends AisMessage {
+
+    /** serialVersionUID. */
+    private static final long serialVersionUID = 1L;
+
+    public AisMessageHeader(Vdm vdm) throws AisMessageException, SixbitException {
+        super(vdm, DecodeOptions.HEADER_ONLY);
+        parse();
+    }
+
+    @Override
+    public void parse() throws AisMessageException, SixbitException {
+        parse(vdm.getBinArray());
+    }
+
+    @Override
+    public SixbitEncoder getEncoded() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(super.toString());
+        builder.append(" HEADER ONLY ");
+        builder.append("]");
+        return builder.toString();
+    }
+
+}
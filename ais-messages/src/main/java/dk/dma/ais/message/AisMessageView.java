@@ -0,0 +1,117 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.ais.message;
+
+import net.jcip.annotations.NotThreadSafe;
+
+import dk.dma.ais.binary.BinArray;
+import dk.dma.ais.binary.SixbitException;
+import dk.dma.ais.sentence.Vdm;
+
+/**
+ * Read-only view of the common header of an AIS message. Fields are decoded on demand directly from the binary
+ * payload, so no message object is materialized. A view can be reused by wrapping a new payload.
+ *
+ * Example: PositionView view = new PositionView(); if (view.wrap(vdm)) { int mmsi = view.getUserId(); ... }
+ */
+@NotThreadSafe
+public class AisMessageView {
+
+    protected BinArray binArray;
+
+    public AisMessageView() {}
+
+    /**
+     * Wrap the binary payload of a complete VDM
+     *
+     * @param vdm
+     * @return true if the payload can be viewed by this view
+     */
+    public boolean wrap(Vdm vdm) {
+        return wrap(vdm.getBinArray());
+    }
+
+    /**
+     * Wrap a binary payload
+     *
+     * @param binArray
+     * @return true if the payload can be viewed by this view
+     */
+    public boolean wrap(BinArray binArray) {
+        if (binArray.getLength() < 38) {
+            this.binArray = null;
+            return false;
+        }
+        this.binArray = binArray;
+        return true;
+    }
+
+    /**
+     * Determine if a payload is currently wrapped
+     *
+     * @return
+     */
+    public boolean isWrapped() {
+        return binArray != null;
+    }
+
+    public int getMsgId() {
+        return (int) getVal(0, 6);
+    }
+
+    public int getRepeat() {
+        return (int) getVal(6, 2);
+    }
+
+    public int getUserId() {
+        return (int) getVal(8, 30);
+    }
+
+    /**
+     * Get unsigned value of bits bits starting at bit offset
+     *
+     * @param offset
+     * @param bits
+     * @return
+     */
+    protected long getVal(int offset, int bits) {
+        if (binArray == null) {
+            throw new IllegalStateException("No payload wrapped");
+        }
+        try {
+            return binArray.getVal(offset, offset + bits - 1);
+        } catch (SixbitException e) {
+            // Length is checked when wrapping
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Get two's complement signed value of bits bits starting at bit offset
+     *
+     * @param offset
+     * @param bits
+     * @return
+     */
+    protected long getSignedVal(int offset, int bits) {
+        long val = getVal(offset, bits);
+        if (val >= 1L << bits - 1) {
+            val -= 1L << bits;
+        }
+        return val;
+    }
+
+}
@@ -150,7 +150,9 @@ public abstract class AisPositionMessage extends AisMessage implements IVesselPo
         this.sog = (int) binArray.getVal(10);
         this.posAcc = (int) binArray.getVal(1);
 
-        this.pos = new AisPosition();
+        if (this.pos == null) {
+            this.pos = new AisPosition();
+        }
         this.pos.setRawLongitude(binArray.getVal(28));
         this.pos.setRawLatitude(binArray.getVal(27));
 
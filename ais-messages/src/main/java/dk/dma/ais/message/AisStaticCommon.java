@@ -86,6 +86,10 @@ public abstract class AisStaticCommon extends AisMessage {
         super(vdm);
     }
 
+    public AisStaticCommon(Vdm vdm, DecodeOptions decodeOptions) {
+        super(vdm, decodeOptions);
+    }
+
     public String getCallsign() {
         return callsign;
     }
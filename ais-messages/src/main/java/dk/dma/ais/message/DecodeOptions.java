@@ -0,0 +1,142 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.ais.message;
+
+import java.io.Serializable;
+
+import net.jcip.annotations.Immutable;
+
+/**
+ * Projection of the fields to decode when creating an AIS message from a VDM. Callers needing only some fields can
+ * skip decoding of text fields (names, call signs, destinations and text messages), the application specific message
+ * of binary messages, or all fields after the header (message id, repeat indicator and MMSI).
+ *
+ * Fields not decoded are left as null.
+ */
+@Immutable
+public final class DecodeOptions implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Decode all fields
+     */
+    public static final DecodeOptions FULL = new DecodeOptions(false, true, true);
+
+    /**
+     * Decode all fields but text fields
+     */
+    public static final DecodeOptions NO_TEXT = new DecodeOptions(false, false, true);
+
+    /**
+     * Decode all fields but the application specific message of binary messages
+     */
+    public static final DecodeOptions NO_APPLICATION_MESSAGE = new DecodeOptions(false, true, false);
+
+    /**
+     * Decode only message id, repeat indicator and MMSI
+     */
+    public static final DecodeOptions HEADER_ONLY = new DecodeOptions(true, false, false);
+
+    private final boolean headerOnly;
+    private final boolean decodeText;
+    private final boolean decodeApplicationMessage;
+
+    /**
+     * @param headerOnly
+     *            stop after message id, repeat indicator and MMSI
+     * @param decodeText
+     *            decode text fields
+     * @param decodeApplicationMessage
+     *            decode the application specific message of binary messages
+     */
+    public DecodeOptions(boolean headerOnly, boolean decodeText, boolean decodeApplicationMessage) {
+        this.headerOnly = headerOnly;
+        this.decodeText = decodeText && !headerOnly;
+        this.decodeApplicationMessage = decodeApplicationMessage && !headerOnly;
+    }
+
+    public boolean isHeaderOnly() {
+        return headerOnly;
+    }
+
+    public boolean isDecodeText() {
+        return decodeText;
+    }
+
+    public boolean isDecodeApplicationMessage() {
+        return decodeApplicationMessage;
+    }
+
+    /**
+     * Determine if a message decoded with these options holds all fields required by the given options
+     *
+     * @param options
+     * @return
+     */
+    public boolean covers(DecodeOptions options) {
+        if (headerOnly && !options.headerOnly) {
+            return false;
+        }
+        if (options.decodeText && !decodeText) {
+            return false;
+        }
+        return !options.decodeApplicationMessage || decodeApplicationMessage;
+    }
+
+    /**
+     * Get the options decoding the fields required by any of the two options
+     *
+     * @param options
+     * @return
+     */
+    public DecodeOptions union(DecodeOptions options) {
+        return new DecodeOptions(headerOnly && options.headerOnly, decodeText || options.decodeText,
+                decodeApplicationMessage || options.decodeApplicationMessage);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof DecodeOptions)) {
+            return false;
+        }
+        DecodeOptions other = (DecodeOptions) obj;
+        return headerOnly == other.headerOnly && decodeText == other.decodeText
+                && decodeApplicationMessage == other.decodeApplicationMessage;
+    }
+
+    @Override
+    public int hashCode() {
+        return (headerOnly ? 4 : 0) | (decodeText ? 2 : 0) | (decodeApplicationMessage ? 1 : 0);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("DecodeOptions [headerOnly=");
+        builder.append(headerOnly);
+        builder.append(", decodeText=");
+        builder.append(decodeText);
+        builder.append(", decodeApplicationMessage=");
+        builder.append(decodeApplicationMessage);
+        builder.append("]");
+        return builder.toString();
+    }
+
+}
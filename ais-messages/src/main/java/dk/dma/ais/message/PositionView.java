@@ -0,0 +1,210 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.ais.message;
+
+import net.jcip.annotations.NotThreadSafe;
+
+import dk.dma.ais.binary.BinArray;
+import dk.dma.enav.model.geometry.Position;
+
+/**
+ * Read-only view of vessel position reports: class A messages 1, 2 and 3 and class B messages 18 and 19. Each getter
+ * decodes its field directly from the bit offsets of the wrapped payload.
+ */
+@NotThreadSafe
+public class PositionView extends AisMessageView implements IVesselPositionMessage {
+
+    /**
+     * Class B fields before RAIM are four bits earlier than class A fields
+     */
+    private static final int CLASS_B_SHIFT = -4;
+
+    private static final int NAV_STATUS = 38;
+    private static final int ROT = 42;
+    private static final int SOG = 50;
+    private static final int POS_ACC = 60;
+    private static final int LON = 61;
+    private static final int LAT = 89;
+    private static final int COG = 116;
+    private static final int TRUE_HEADING = 128;
+    private static final int UTC_SEC = 137;
+    private static final int RAIM_CLASS_A = 148;
+    private static final int RAIM_MSG18 = 147;
+    private static final int RAIM_MSG19 = 305;
+
+    private int shift;
+    private int raimOffset;
+
+    public PositionView() {}
+
+    /**
+     * Wrap binary payload. Returns false if the payload is not a position report of sufficient length.
+     */
+    @Override
+    public boolean wrap(BinArray binArray) {
+        if (!super.wrap(binArray)) {
+            return false;
+        }
+        int minLength;
+        switch (getMsgId()) {
+        case 1:
+        case 2:
+        case 3:
+            shift = 0;
+            raimOffset = RAIM_CLASS_A;
+            minLength = 168;
+            break;
+        case 18:
+            shift = CLASS_B_SHIFT;
+            raimOffset = RAIM_MSG18;
+            minLength = 168;
+            break;
+        case 19:
+            shift = CLASS_B_SHIFT;
+            raimOffset = RAIM_MSG19;
+            minLength = 312;
+            break;
+        default:
+            this.binArray = null;
+            return false;
+        }
+        if (binArray.getLength() < minLength) {
+            this.binArray = null;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Determine if the wrapped message is a class A position report
+     *
+     * @return
+     */
+    public boolean isClassA() {
+        return shift == 0;
+    }
+
+    /**
+     * Navigational status, only available for class A. Returns 15 (not defined) for class B.
+     *
+     * @return
+     */
+    public int getNavStatus() {
+        return isClassA() ? (int) getVal(NAV_STATUS, 4) : 15;
+    }
+
+    /**
+     * Raw rate of turn, only available for class A. Returns 128 (not available) for class B.
+     *
+     * @return
+     */
+    public int getRot() {
+        return isClassA() ? (int) getVal(ROT, 8) : 128;
+    }
+
+    @Override
+    public int getSog() {
+        return (int) getVal(SOG + shift, 10);
+    }
+
+    @Override
+    public int getPosAcc() {
+        return (int) getVal(POS_ACC + shift, 1);
+    }
+
+    public long getRawLongitude() {
+        return getVal(LON + shift, 28);
+    }
+
+    public long getRawLatitude() {
+        return getVal(LAT + shift, 27);
+    }
+
+    /**
+     * Longitude in 1/10000 minutes
+     *
+     * @return
+     */
+    public long getLongitude() {
+        return getSignedVal(LON + shift, 28);
+    }
+
+    /**
+     * Latitude in 1/10000 minutes
+     *
+     * @return
+     */
+    public long getLatitude() {
+        return getSignedVal(LAT + shift, 27);
+    }
+
+    public double getLongitudeDouble() {
+        return getLongitude() / 10000.0 / 60.0;
+    }
+
+    public double getLatitudeDouble() {
+        return getLatitude() / 10000.0 / 60.0;
+    }
+
+    /**
+     * Get position as a new AisPosition object
+     */
+    @Override
+    public AisPosition getPos() {
+        return new AisPosition(getRawLatitude(), getRawLongitude());
+    }
+
+    @Override
+    public int getCog() {
+        return (int) getVal(COG + shift, 12);
+    }
+
+    @Override
+    public int getTrueHeading() {
+        return (int) getVal(TRUE_HEADING + shift, 9);
+    }
+
+    @Override
+    public int getUtcSec() {
+        return (int) getVal(UTC_SEC + shift, 6);
+    }
+
+    @Override
+    public int getRaim() {
+        return (int) getVal(raimOffset, 1);
+    }
+
+    @Override
+    public boolean isPositionValid() {
+        return Position.isValid(getLatitudeDouble(), getLongitudeDouble());
+    }
+
+    @Override
+    public boolean isCogValid() {
+        return getCog() < 3600;
+    }
+
+    @Override
+    public boolean isSogValid() {
+        return getSog() < 1023;
+    }
+
+    @Override
+    public boolean isHeadingValid() {
+        return getTrueHeading() < 360;
+    }
+
+}
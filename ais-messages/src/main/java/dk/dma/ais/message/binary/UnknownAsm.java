@@ -54,7 +54,7 @@ public class UnknownAsm extends AisApplicationMessage {
         builder.append(super.toString());
         if (binArray != null) {
             builder.append(", binary length = ");
-            builder.append(binArray.size());
+            builder.append(binArray.getLength());
         }
         builder.append("]");
         return builder.toString();
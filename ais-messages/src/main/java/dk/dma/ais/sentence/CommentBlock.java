@@ -42,6 +42,18 @@ public class CommentBlock {
 
     }
 
+    /**
+     * Copy constructor
+     * 
+     * @param commentBlock
+     */
+    public CommentBlock(CommentBlock commentBlock) {
+        this.parameterMap.putAll(commentBlock.parameterMap);
+        this.totalLines = commentBlock.totalLines;
+        this.lastLine = commentBlock.lastLine;
+        this.lastGroupId = commentBlock.lastGroupId;
+    }
+
     /**
      * Add line containing comment block
      * 
@@ -84,6 +96,16 @@ public class CommentBlock {
         parameterMap.putAll(cbLine.getParameterMap());
     }
 
+    /**
+     * Add all values of another comment block, overriding existing values. Same result as adding the lines of the
+     * other comment block after the lines of this.
+     * 
+     * @param commentBlock
+     */
+    public void merge(CommentBlock commentBlock) {
+        parameterMap.putAll(commentBlock.parameterMap);
+    }
+
     /**
      * Get string value for parameter code
      * 
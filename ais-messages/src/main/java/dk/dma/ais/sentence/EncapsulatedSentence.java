@@ -41,27 +41,84 @@ public abstract class EncapsulatedSentence extends Sentence {
         channel = null;
     }
 
+    /**
+     * Copy constructor. The binary array is copied as well.
+     * 
+     * @param sentence
+     */
+    protected EncapsulatedSentence(EncapsulatedSentence sentence) {
+        super(sentence);
+        this.msgId = sentence.msgId;
+        this.total = sentence.total;
+        this.sequence = sentence.sequence;
+        this.lastSeq = sentence.lastSeq;
+        this.num = sentence.num;
+        this.channel = sentence.channel;
+        this.binArray.append(sentence.binArray);
+        this.completePacket = sentence.completePacket;
+        // Read ptr as after parsing, past the message id of a complete packet
+        if (completePacket) {
+            this.binArray.setReadPtr(6);
+        }
+        this.sixbitString = sentence.sixbitString;
+        this.padBits = sentence.padBits;
+    }
+
+    /**
+     * Reset parse state so the sentence object can be reused. The binary array is cleared and reused as well, so it
+     * must not be referenced from messages parsed from the previous sentence.
+     */
+    @Override
+    public void reset() {
+        super.reset();
+        msgId = 0;
+        total = 0;
+        sequence = null;
+        lastSeq = -1;
+        num = 0;
+        channel = null;
+        binArray.reset();
+        completePacket = false;
+        sixbitString = "";
+        padBits = 0;
+    }
+
+    /**
+     * Release parse intermediates, see {@link Sentence#compact()}. The six bit string is released as well and encoded
+     * again from the binary array when asked for, and the binary array is trimmed. A compacted sentence must be reset
+     * before it is used for parsing again.
+     */
+    @Override
+    public void compact() {
+        super.compact();
+        sixbitString = null;
+        binArray.trimToSize();
+    }
+
     /**
      * Base parse method to be used by extending classes
      */
     @Override
-    protected void baseParse(String line) throws SentenceException {
+    protected void baseParse(SentenceLine sentenceLine) throws SentenceException {
 
-        super.baseParse(line);
+        super.baseParse(sentenceLine);
+        String line = this.orgLines.get(this.orgLines.size() - 1);
 
         // Should at least have four fields
-        if (fields.length < 4) {
+        if (sentenceLine.getFieldCount() < 4) {
             throw new SentenceException("Sentence have less than four fields");
         }
 
         // Get sentence count properties
-        int thisTotal = Sentence.parseInt(fields[1]);
-        int thisNum = Sentence.parseInt(fields[2]);
+        int thisTotal = sentenceLine.parseInt(1);
+        int thisNum = sentenceLine.parseInt(2);
         int thisSeq = 0;
-        try {
-            thisSeq = Sentence.parseInt(fields[3]);
-        } catch (SentenceException e) {
-            // null sequence is not fatal
+        if (sentenceLine.getFieldLength(3) > 0) {
+            try {
+                thisSeq = sentenceLine.parseInt(3);
+            } catch (SentenceException e) {
+                // invalid sequence is not fatal
+            }
         }
 
         if (lastSeq < 0) {
@@ -99,7 +156,7 @@ public abstract class EncapsulatedSentence extends Sentence {
         String seq = sequence == null ? "" : Integer.toString(sequence);
         encodedFields.add(seq);
         encodedFields.add(channel != null ? Character.toString(channel) : "");
-        encodedFields.add(sixbitString);
+        encodedFields.add(getSixbitString());
         encodedFields.add(Integer.toString(padBits));
     }
 
@@ -220,6 +277,10 @@ public abstract class EncapsulatedSentence extends Sentence {
     }
 
     public String getSixbitString() {
+        if (sixbitString == null) {
+            // Released by compact
+            return binArray.getSixbitString();
+        }
         return sixbitString;
     }
 
@@ -100,6 +100,7 @@ public abstract class SendSentence extends EncapsulatedSentence {
             sequence = 0;
         }
 
+        String sixbitString = getSixbitString();
         int sentenceCount = (sixbitString.length() / DATA_SENTENCE_MAX_LENGTH) + 1;
         SendSentence[] sentences = new SendSentence[sentenceCount];
         // Split the string
@@ -45,12 +45,85 @@ public abstract class Sentence {
     protected LinkedList<String> encodedFields;
     protected CommentBlock commentBlock;
     protected LinkedList<IProprietaryTag> tags; // Possible proprietary source tags for the message
+    protected boolean splitFields = true; // Whether to fill fields with strings when parsing
+    private SentenceLine scanner;
 
     public Sentence() {
         talker = "AI";
         delimiter = "!";
     }
 
+    /**
+     * Copy constructor. Lists, fields, comment block and tags are copied, so the copy can be changed or parsed into
+     * without changing the original.
+     * 
+     * @param sentence
+     */
+    protected Sentence(Sentence sentence) {
+        this.talker = sentence.talker;
+        this.formatter = sentence.formatter;
+        this.delimiter = sentence.delimiter;
+        this.checksum = sentence.checksum;
+        this.msgChecksum = sentence.msgChecksum;
+        if (sentence.fields != null) {
+            this.fields = sentence.fields.clone();
+        }
+        // The sentence text belongs to the parse state of the original. Like when compacting, only the checksum and
+        // what follows it is kept.
+        if (sentence.msg != null) {
+            int i = sentence.msg.indexOf('*');
+            this.msg = i < 0 ? "" : sentence.msg.substring(i);
+        }
+        this.prefix = sentence.prefix;
+        this.orgLines = new ArrayList<>(sentence.orgLines);
+        this.rawSentences = new ArrayList<>(sentence.rawSentences);
+        if (sentence.encodedFields != null) {
+            this.encodedFields = new LinkedList<>(sentence.encodedFields);
+        }
+        if (sentence.commentBlock != null) {
+            this.commentBlock = new CommentBlock(sentence.commentBlock);
+        }
+        if (sentence.tags != null) {
+            this.tags = new LinkedList<>(sentence.tags);
+        }
+        this.splitFields = sentence.splitFields;
+    }
+
+    /**
+     * Reset parse state so the sentence object can be reused for parsing a new sentence
+     */
+    public void reset() {
+        talker = "AI";
+        delimiter = "!";
+        checksum = 0;
+        msgChecksum = null;
+        fields = null;
+        msg = null;
+        prefix = null;
+        orgLines.clear();
+        rawSentences.clear();
+        encodedFields = null;
+        commentBlock = null;
+        tags = null;
+    }
+
+    /**
+     * Release the intermediates of parsing when the sentence is retained after it has been parsed: the original lines,
+     * the raw sentences, the split fields and the line scanner. Of the last sentence only the checksum and what
+     * follows it is kept, for the MSSIS timestamp. After compacting, original lines and raw sentences are empty.
+     */
+    public void compact() {
+        orgLines = new ArrayList<>(0);
+        rawSentences = new ArrayList<>(0);
+        fields = null;
+        encodedFields = null;
+        scanner = null;
+        if (msg != null) {
+            int i = msg.indexOf('*');
+            msg = i < 0 ? "" : msg.substring(i);
+        }
+    }
+
     /**
      * Abstract method that all sentence classes must implement
      * 
@@ -79,11 +152,26 @@ public abstract class Sentence {
      * @throws SentenceException
      */
     protected void baseParse(String line) throws SentenceException {
-        this.orgLines.add(line);
+        baseParse(scan(line));
+    }
+
+    /**
+     * Basic parse of an already scanned line into sentence parts. Fields are only split into strings if splitFields
+     * is set, otherwise extending classes read them from the scanned line.
+     * 
+     * @param sentenceLine
+     * @throws SentenceException
+     */
+    protected void baseParse(SentenceLine sentenceLine) throws SentenceException {
+        this.orgLines.add(sentenceLine.getLine().toString());
 
         // Split into prefix and sentence
-        splitLine(line);
-        
+        if (!sentenceLine.hasSentence()) {
+            throw new SentenceException("NMEA Start Not Found");
+        }
+        this.prefix = sentenceLine.getPrefix();
+        this.msg = sentenceLine.getSentence();
+
         // Save raw sentence
         rawSentences.add(this.msg);
 
@@ -92,24 +180,42 @@ public abstract class Sentence {
             addCommentBlock(prefix);
         }
 
-        // Calculate checksum
-        calculateChecksum();
+        // Calculated checksum
+        if (sentenceLine.isStartCharBeforeChecksum()) {
+            throw new SentenceException("Start Character Found before Checksum");
+        }
+        this.checksum = sentenceLine.getCalculatedChecksum();
 
         // Check checksum
-        checkChecksum();
+        checkChecksum(sentenceLine);
 
-        // Split into fields
-        fields = msg.split(",|\\*");
-        if (fields.length < 2) {
+        // Fields
+        if (sentenceLine.getFieldCount() < 2) {
             throw new SentenceException("Invalid sentence, less than two fields");
         }
 
         // Get talker/formatter
-        if (fields[0].length() != 6) {
-            throw new SentenceException("Invalid sentence, wrong talker/formatter: " + fields[0]);
+        if (sentenceLine.getFieldLength(0) != 6) {
+            throw new SentenceException("Invalid sentence, wrong talker/formatter: " + sentenceLine.getField(0));
         }
-        talker = fields[0].substring(1, 3);
-        formatter = fields[0].substring(3, 6);
+        talker = sentenceLine.getTalker();
+        formatter = sentenceLine.getFormatter();
+
+        fields = splitFields ? sentenceLine.getFields() : null;
+    }
+
+    /**
+     * Scan line with the scanner of this sentence
+     * 
+     * @param line
+     * @return
+     */
+    protected SentenceLine scan(String line) {
+        if (scanner == null) {
+            scanner = new SentenceLine();
+        }
+        scanner.parse(line);
+        return scanner;
     }
 
     public void addSingleCommentBlock(String line) throws SentenceException {
@@ -157,26 +263,6 @@ public abstract class Sentence {
         return encoded;
     }
     
-    /**
-     * Split line into prefix and message part. Message will start at first ! or $ character
-     * 
-     * @param line
-     * @throws SentenceException
-     */
-    private void splitLine(String line) throws SentenceException {
-        char[] lineArray = line.toCharArray();
-        int i = 0;
-        for (char x : lineArray) {
-            if (x == '!' || x == '$') {
-                this.prefix = line.substring(0, i);
-                this.msg = line.substring(i);
-                return;
-            }
-            i++;
-        }
-        throw new SentenceException("NMEA Start Not Found");
-    }
-
     /**
      * Calculate checksum of this sentence
      * 
@@ -278,22 +364,20 @@ public abstract class Sentence {
      * 
      * @throws SentenceException
      */
-    private void checkChecksum() throws SentenceException {
-        int ptr = this.msg.indexOf('*');
-        if (ptr < 0) {
+    private void checkChecksum(SentenceLine sentenceLine) throws SentenceException {
+        if (!sentenceLine.hasChecksum()) {
             throw new SentenceException("Invalid sentence, no checksum");
         }
-        try {
-            this.msgChecksum = this.msg.substring(ptr + 1, ptr + 3);
-        } catch (IndexOutOfBoundsException e) {
-            throw new SentenceException("Invalid sentence, invalid checksum not two bytes");
-        }
-        try {
-            if (Integer.parseInt(this.msgChecksum, 16) != this.checksum) {
-                throw new SentenceException("Checksum failed, should have been: " + Integer.toString(this.checksum, 16));
+        int msgChecksum = sentenceLine.getMessageChecksum();
+        if (msgChecksum < 0) {
+            int ptr = this.msg.indexOf('*');
+            if (ptr + 3 > this.msg.length()) {
+                throw new SentenceException("Invalid sentence, invalid checksum not two bytes");
             }
-        } catch (NumberFormatException e) {
-            throw new SentenceException("Invalid message checksum: " + this.msgChecksum);
+            throw new SentenceException("Invalid message checksum: " + this.msg.substring(ptr + 1, ptr + 3));
+        }
+        if (msgChecksum != this.checksum) {
+            throw new SentenceException("Checksum failed, should have been: " + Integer.toString(this.checksum, 16));
         }
     }
 
@@ -315,7 +399,13 @@ public abstract class Sentence {
      * @return
      */
     public static boolean hasSentence(String line) {
-        return line.indexOf("!") >= 0 || line.indexOf("$") >= 0;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '!' || c == '$') {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -387,6 +477,28 @@ public abstract class Sentence {
         return commentBlock;
     }
 
+    /**
+     * Set comment block
+     * 
+     * @param commentBlock
+     */
+    public void setCommentBlock(CommentBlock commentBlock) {
+        this.commentBlock = commentBlock;
+    }
+
+    /**
+     * Remove anything following the checksum of the last sentence, e.g. the MSSIS timestamp
+     */
+    public void cropPostfix() {
+        if (msg == null) {
+            return;
+        }
+        int i = msg.indexOf('*');
+        if (i >= 0 && i + 3 < msg.length()) {
+            msg = msg.substring(0, i + 3);
+        }
+    }
+
     /**
      * Get all tags
      * 
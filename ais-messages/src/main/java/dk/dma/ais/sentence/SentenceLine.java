@@ -0,0 +1,376 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.ais.sentence;
+
+import java.util.Arrays;
+
+import net.jcip.annotations.NotThreadSafe;
+
+/**
+ * Forward scanner for a single line possibly containing an IEC sentence. In one pass over the line it finds the start
+ * of the sentence, the prefix (comment block) before it, the field offsets, the checksum and what kind of sentence
+ * the line holds. Fields are accessed by offset, so no strings are created unless asked for.
+ *
+ * Fields are delimited by ',' and '*' like the sentence field split, that is the checksum and any trailing
+ * proprietary data are fields too, and trailing empty fields are dropped.
+ *
+ * The scanner can be reused by parsing a new line.
+ */
+@NotThreadSafe
+public class SentenceLine {
+
+    /**
+     * Kind of line
+     */
+    public enum Type {
+        /** No sentence start character in line */
+        NONE,
+        /** VDM or VDO sentence */
+        VDM,
+        /** ABK sentence */
+        ABK,
+        /** Proprietary $P sentence */
+        PROPRIETARY,
+        /** Any other sentence */
+        OTHER
+    }
+
+    private static final String[] KNOWN_FORMATTERS = { "VDM", "VDO", "ABK", "ABM", "BBM" };
+
+    private static final String[] KNOWN_TALKERS = { "AI", "AB", "AD", "AN", "AR", "AS", "AT", "AX", "BS", "SA" };
+
+    private CharSequence line;
+    private Type type = Type.NONE;
+    private int start = -1;
+    private int checksumPtr = -1;
+    private int checksum;
+    private boolean startCharBeforeChecksum;
+    private int fieldCount;
+    /**
+     * Start and end (exclusive) of field i at index 2 * i and 2 * i + 1
+     */
+    private int[] fieldOffsets = new int[64];
+
+    public SentenceLine() {}
+
+    /**
+     * Scan a line
+     *
+     * @param line
+     * @return the type of the line
+     */
+    public Type parse(CharSequence line) {
+        this.line = line;
+        this.type = Type.NONE;
+        this.start = -1;
+        this.checksumPtr = -1;
+        this.checksum = 0;
+        this.startCharBeforeChecksum = false;
+        this.fieldCount = 0;
+
+        boolean vdm = false;
+        int len = line.length();
+        int fieldStart = -1;
+        for (int i = 0; i < len; i++) {
+            char c = line.charAt(i);
+            if (c == '!' && !vdm && i + 5 < len && line.charAt(i + 3) == 'V' && line.charAt(i + 4) == 'D') {
+                char f = line.charAt(i + 5);
+                vdm = f == 'M' || f == 'O';
+            }
+            if (start < 0) {
+                if (c == '!' || c == '$') {
+                    start = i;
+                    fieldStart = i;
+                }
+                continue;
+            }
+            if (checksumPtr < 0) {
+                if (c == '*') {
+                    checksumPtr = i;
+                } else if (c == '!' || c == '$') {
+                    startCharBeforeChecksum = true;
+                } else {
+                    checksum ^= c;
+                }
+            }
+            if (c == ',' || c == '*') {
+                addField(fieldStart, i);
+                fieldStart = i + 1;
+            }
+        }
+        if (start < 0) {
+            return type;
+        }
+        addField(fieldStart, len);
+        // Drop trailing empty fields
+        while (fieldCount > 0 && getFieldLength(fieldCount - 1) == 0) {
+            fieldCount--;
+        }
+
+        if (len - start >= 5 && start == 0 && line.charAt(0) == '$' && line.charAt(1) == 'P') {
+            type = Type.PROPRIETARY;
+        } else if (vdm) {
+            type = Type.VDM;
+        } else if (isFormatter("ABK")) {
+            type = Type.ABK;
+        } else {
+            type = Type.OTHER;
+        }
+        return type;
+    }
+
+    private void addField(int from, int to) {
+        if (fieldCount * 2 + 2 > fieldOffsets.length) {
+            fieldOffsets = Arrays.copyOf(fieldOffsets, fieldOffsets.length * 2);
+        }
+        fieldOffsets[fieldCount * 2] = from;
+        fieldOffsets[fieldCount * 2 + 1] = to;
+        fieldCount++;
+    }
+
+    private boolean isFormatter(String formatter) {
+        if (fieldCount == 0 || getFieldLength(0) != 6) {
+            return false;
+        }
+        for (int i = 0; i < 3; i++) {
+            if (line.charAt(start + 3 + i) != formatter.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Determine if the line contains a sentence start character
+     *
+     * @return
+     */
+    public boolean hasSentence() {
+        return start >= 0;
+    }
+
+    public CharSequence getLine() {
+        return line;
+    }
+
+    /**
+     * Index of the sentence start character '!' or '$'
+     *
+     * @return
+     */
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * Get the part of the line before the sentence start character
+     *
+     * @return
+     */
+    public String getPrefix() {
+        return start <= 0 ? "" : line.subSequence(0, start).toString();
+    }
+
+    /**
+     * Get the sentence without prefix
+     *
+     * @return
+     */
+    public String getSentence() {
+        if (start == 0 && line instanceof String) {
+            return (String) line;
+        }
+        return line.subSequence(start, line.length()).toString();
+    }
+
+    /**
+     * Determine if the line has a checksum indicator '*'
+     *
+     * @return
+     */
+    public boolean hasChecksum() {
+        return checksumPtr >= 0;
+    }
+
+    /**
+     * Checksum calculated from the characters between start and '*'
+     *
+     * @return
+     */
+    public int getCalculatedChecksum() {
+        return checksum;
+    }
+
+    /**
+     * Determine if a new sentence start character was found before the checksum
+     *
+     * @return
+     */
+    public boolean isStartCharBeforeChecksum() {
+        return startCharBeforeChecksum;
+    }
+
+    /**
+     * Get the two hex digit checksum following '*', or -1 if missing or not two hex digits
+     *
+     * @return
+     */
+    public int getMessageChecksum() {
+        if (checksumPtr < 0 || checksumPtr + 3 > line.length()) {
+            return -1;
+        }
+        int high = Character.digit(line.charAt(checksumPtr + 1), 16);
+        int low = Character.digit(line.charAt(checksumPtr + 2), 16);
+        if (high < 0 || low < 0) {
+            return -1;
+        }
+        return high << 4 | low;
+    }
+
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    public int getFieldStart(int field) {
+        return fieldOffsets[field * 2];
+    }
+
+    public int getFieldEnd(int field) {
+        return fieldOffsets[field * 2 + 1];
+    }
+
+    public int getFieldLength(int field) {
+        return getFieldEnd(field) - getFieldStart(field);
+    }
+
+    /**
+     * Get field as a new string
+     *
+     * @param field
+     * @return
+     */
+    public String getField(int field) {
+        return line.subSequence(getFieldStart(field), getFieldEnd(field)).toString();
+    }
+
+    /**
+     * Get all fields as strings
+     *
+     * @return
+     */
+    public String[] getFields() {
+        String[] fields = new String[fieldCount];
+        for (int i = 0; i < fieldCount; i++) {
+            fields[i] = getField(i);
+        }
+        return fields;
+    }
+
+    /**
+     * Get first character of field or 0 if field is empty
+     *
+     * @param field
+     * @return
+     */
+    public char getFieldChar(int field) {
+        return getFieldLength(field) > 0 ? line.charAt(getFieldStart(field)) : 0;
+    }
+
+    /**
+     * Parse field as an integer without creating a string
+     *
+     * @param field
+     * @return
+     * @throws SentenceException
+     */
+    public int parseInt(int field) throws SentenceException {
+        int from = getFieldStart(field);
+        int to = getFieldEnd(field);
+        if (from == to) {
+            throw new SentenceException("Invalid integer field: " + getField(field));
+        }
+        boolean negative = false;
+        int i = from;
+        char first = line.charAt(i);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            i++;
+        }
+        if (i == to || to - i > 10) {
+            throw new SentenceException("Invalid integer field: " + getField(field));
+        }
+        long val = 0;
+        for (; i < to; i++) {
+            int digit = line.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new SentenceException("Invalid integer field: " + getField(field));
+            }
+            val = val * 10 + digit;
+        }
+        val = negative ? -val : val;
+        if (val < Integer.MIN_VALUE || val > Integer.MAX_VALUE) {
+            throw new SentenceException("Invalid integer field: " + getField(field));
+        }
+        return (int) val;
+    }
+
+    /**
+     * Get the two character talker of the sentence
+     *
+     * @return
+     */
+    public String getTalker() {
+        return lookup(KNOWN_TALKERS, getFieldStart(0) + 1, 2);
+    }
+
+    /**
+     * Get the three character formatter of the sentence
+     *
+     * @return
+     */
+    public String getFormatter() {
+        return lookup(KNOWN_FORMATTERS, getFieldStart(0) + 3, 3);
+    }
+
+    /**
+     * Return a constant string if the range matches one, to avoid allocating the common talkers and formatters
+     */
+    private String lookup(String[] known, int from, int len) {
+        for (String str : known) {
+            if (regionMatches(str, from, len)) {
+                return str;
+            }
+        }
+        return line.subSequence(from, from + len).toString();
+    }
+
+    private boolean regionMatches(String str, int from, int len) {
+        if (str.length() != len) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (line.charAt(from + i) != str.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
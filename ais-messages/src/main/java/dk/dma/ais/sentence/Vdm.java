@@ -15,8 +15,6 @@
  */
 package dk.dma.ais.sentence;
 
-import java.util.regex.Pattern;
-
 import dk.dma.ais.binary.SixbitEncoder;
 import dk.dma.ais.binary.SixbitException;
 import dk.dma.ais.message.AisMessage;
@@ -33,23 +31,51 @@ public class Vdm extends EncapsulatedSentence {
     private static final int DATA_SENTENCE_MAX_LENGTH = 61;
 
     /**
-     * Pattern for recognizing VDM/VDO sentences
+     * Determines is this is VDM or VDO
      */
-    private static final Pattern VDM_PATTERN = Pattern.compile("^.*!..VD(M|O).*$", Pattern.DOTALL);
+    private boolean ownMessage;
+
+    public Vdm() {
+        super();
+        // Fields are read directly from the scanned line
+        splitFields = false;
+    }
 
     /**
-     * Determines is this is VDM or VDO
+     * Copy constructor. The copy can be changed, e.g. given a new comment block, without changing the original.
+     * 
+     * @param vdm
      */
-    private boolean ownMessage;
+    public Vdm(Vdm vdm) {
+        super(vdm);
+        this.ownMessage = vdm.ownMessage;
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        ownMessage = false;
+    }
 
     /**
      * Implemented parse method. See {@link EncapsulatedSentence}
      */
     @Override
     public int parse(String line) throws SentenceException {
+        return parse(scan(line));
+    }
+
+    /**
+     * Parse an already scanned line. See {@link EncapsulatedSentence}
+     * 
+     * @param sentenceLine
+     * @return 0 Complete packet - 1 Incomplete packet
+     * @throws SentenceException
+     */
+    public int parse(SentenceLine sentenceLine) throws SentenceException {
 
         // Do common parsing
-        super.baseParse(line);
+        super.baseParse(sentenceLine);
 
         // Check VDM / VDO
         if (this.formatter.equals("VDO")) {
@@ -61,26 +87,23 @@ public class Vdm extends EncapsulatedSentence {
         }
 
         // Check that there at least 8 fields
-        if (fields.length < 8) {
+        if (sentenceLine.getFieldCount() < 8) {
             throw new SentenceException("Sentence does not have at least 8 fields");
         }
 
         // Channel, relaxed may be null
-        if (fields[4].length() > 0) {
-            this.channel = fields[4].charAt(0);
-        } else {
-            this.channel = 0;
-        }
+        this.channel = sentenceLine.getFieldChar(4);
 
         // Padding bits
-        int padBits = Sentence.parseInt(fields[6]);
+        int padBits = sentenceLine.parseInt(6);
 
         // Six bit field
-        this.sixbitString += fields[5];
+        String sixbit = sentenceLine.getField(5);
+        this.sixbitString = this.sixbitString.length() == 0 ? sixbit : this.sixbitString + sixbit;
         try {
-            binArray.appendSixbit(fields[5], padBits);
+            binArray.appendSixbit(sixbit, padBits);
         } catch (SixbitException e) {
-            throw new SentenceException("Invalid sixbit in VDM: " + e.getMessage() + ": " + line);
+            throw new SentenceException("Invalid sixbit in VDM: " + e.getMessage() + ": " + sentenceLine.getLine());
         }
 
         // Complete packet?
@@ -104,7 +127,17 @@ public class Vdm extends EncapsulatedSentence {
      * @return
      */
     public static boolean isVdm(String line) {
-        return VDM_PATTERN.matcher(line).matches();
+        // Look for !..VDM or !..VDO anywhere in line
+        int len = line.length();
+        for (int i = line.indexOf('!'); i >= 0 && i + 5 < len; i = line.indexOf('!', i + 1)) {
+            if (line.charAt(i + 3) == 'V' && line.charAt(i + 4) == 'D') {
+                char c = line.charAt(i + 5);
+                if (c == 'M' || c == 'O') {
+                    return true;
+                }
+            }
+        }
+        return false;
     }
 
     /**
@@ -116,6 +149,16 @@ public class Vdm extends EncapsulatedSentence {
         return ownMessage;
     }
 
+    /**
+     * Set if VDO instead of VDM
+     * 
+     * @param ownMessage
+     */
+    public void setOwnMessage(boolean ownMessage) {
+        this.ownMessage = ownMessage;
+        this.formatter = ownMessage ? "VDO" : "VDM";
+    }
+
     /**
      * Get encoded sentence as a single line
      */
@@ -186,6 +229,7 @@ public class Vdm extends EncapsulatedSentence {
             sequence = 0;
         }
 
+        String sixbitString = getSixbitString();
         int sentenceCount = sixbitString.length() / DATA_SENTENCE_MAX_LENGTH + 1;
         Vdm[] sentences = new Vdm[sentenceCount];
         // Split the string
@@ -0,0 +1,158 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.ais.binary;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BinArrayTest {
+
+    @Test
+    public void appendGetValTest() throws SixbitException {
+        Random rnd = new Random(42);
+        BinArray binArray = new BinArray();
+        BitSet ref = new BitSet();
+        int refLength = 0;
+        for (int i = 0; i < 1000; i++) {
+            int bits = 1 + rnd.nextInt(64);
+            long value = rnd.nextLong();
+            binArray.append(value, bits);
+            for (int j = 0; j < bits; j++) {
+                ref.set(refLength + j, (value >>> bits - 1 - j & 1) != 0);
+            }
+            refLength += bits;
+        }
+        Assert.assertEquals(refLength, binArray.getLength());
+        for (int i = 0; i < 1000; i++) {
+            int from = rnd.nextInt(refLength - 64);
+            int to = from + rnd.nextInt(64);
+            long expected = 0;
+            for (int j = from; j <= to; j++) {
+                expected = expected << 1 | (ref.get(j) ? 1 : 0);
+            }
+            Assert.assertEquals(expected, binArray.getVal(from, to));
+            Assert.assertEquals(ref.get(from), binArray.get(from));
+        }
+    }
+
+    @Test
+    public void appendBinArrayTest() throws SixbitException {
+        BinArray first = new BinArray();
+        first.append(5, 3);
+        BinArray second = new BinArray();
+        for (int i = 0; i < 10; i++) {
+            second.append(0x123456789ABCDEFL + i, 61);
+        }
+        first.append(second);
+        Assert.assertEquals(613, first.getLength());
+        Assert.assertEquals(5, first.getVal(3));
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals(0x123456789ABCDEFL + i, first.getVal(61));
+        }
+
+        BinArray aligned = new BinArray();
+        aligned.append(-1L, 64);
+        aligned.append(second);
+        Assert.assertEquals(-1L, aligned.getVal(64));
+        Assert.assertEquals(0x123456789ABCDEFL, aligned.getVal(61));
+    }
+
+    @Test
+    public void sixbitRoundTripTest() throws SixbitException {
+        String sixbit = "55ArUT02:nkG<I8GB20nuJ0p5HTu>0hT9860TV16000006420BDi@E531KUDhH888888880";
+        BinArray binArray = new BinArray();
+        binArray.appendSixbit(sixbit, 0);
+        Assert.assertEquals(sixbit.length() * 6, binArray.getLength());
+        SixbitEncoder encoder = new SixbitEncoder();
+        encoder.append(binArray);
+        Assert.assertEquals(sixbit, encoder.encode());
+        Assert.assertEquals(0, encoder.getPadBits());
+    }
+
+    @Test
+    public void sixbitStringTest() throws SixbitException {
+        String sixbit = "55ArUT02:nkG<I8GB20nuJ0p5HTu>0hT9860TV16000006420BDi@E531KUDhH888888880";
+        BinArray binArray = new BinArray(1024);
+        binArray.appendSixbit(sixbit, 2);
+        Assert.assertEquals(sixbit.length() * 6 - 2, binArray.getLength());
+        binArray.setReadPtr(6);
+        binArray.trimToSize();
+        Assert.assertEquals(sixbit, binArray.getSixbitString());
+        Assert.assertEquals(6, binArray.getReadPtr());
+        Assert.assertEquals(5, binArray.getVal(0, 5));
+
+        // Appending after trimming grows the storage again
+        binArray.append(7, 3);
+        Assert.assertEquals(sixbit.length() * 6 + 1, binArray.getLength());
+        Assert.assertEquals(0, new BinArray().getSixbitString().length());
+    }
+
+    @Test
+    public void padBitsTest() throws SixbitException {
+        BinArray binArray = new BinArray();
+        binArray.appendSixbit("54", 2);
+        Assert.assertEquals("54", binArray.getSixbitString());
+        for (int padBits = 1; padBits <= 5; padBits++) {
+            // The last character holds the low 6 - padBits bits
+            for (int val = 1; val < 1 << 6 - padBits; val++) {
+                String sixbit = "15MgK45P3@G?fl0E" + (char) BinArray.intToSixbit(val);
+                binArray = new BinArray();
+                binArray.appendSixbit(sixbit, padBits);
+                Assert.assertEquals(sixbit.length() * 6 - padBits, binArray.getLength());
+                Assert.assertEquals(sixbit, binArray.getSixbitString());
+                SixbitEncoder encoder = new SixbitEncoder();
+                encoder.append(binArray);
+                Assert.assertEquals(sixbit, encoder.encode());
+                Assert.assertEquals(padBits, encoder.getPadBits());
+            }
+        }
+    }
+
+    @Test
+    public void stringTest() throws SixbitException {
+        SixbitEncoder encoder = new SixbitEncoder();
+        encoder.addString("OZ1234", 7);
+        encoder.addString("TEST VESSEL@@@@@@@@@", 20);
+        encoder.addString("OZ1234", 7);
+        BinArray binArray = encoder.getBinArray();
+        StringBuilder sb = new StringBuilder();
+        binArray.getString(7, sb);
+        Assert.assertEquals("OZ1234 ", sb.toString());
+        Assert.assertEquals("TEST VESSEL@@@@@@@@@", binArray.getCachedString(20));
+        String first = binArray.getCachedString(7);
+        Assert.assertEquals("OZ1234 ", first);
+
+        binArray = new BinArray();
+        binArray.append(encoder.getBinArray());
+        Assert.assertSame(first, binArray.getCachedString(7));
+    }
+
+    @Test(expected = SixbitException.class)
+    public void illegalCharTest() throws SixbitException {
+        new BinArray().appendSixbit("55Ar" + (char) 90, 0);
+    }
+
+    @Test(expected = SixbitException.class)
+    public void notEnoughBitsTest() throws SixbitException {
+        BinArray binArray = new BinArray();
+        binArray.append(1, 6);
+        binArray.getVal(7);
+    }
+
+}
@@ -0,0 +1,130 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.ais.message;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import dk.dma.ais.binary.BinArray;
+import dk.dma.ais.binary.SixbitException;
+import dk.dma.ais.sentence.SentenceException;
+import dk.dma.ais.sentence.Vdm;
+
+public class AisMessageDecoderTest {
+
+    private static final String[] SENTENCES = { "!AIVDM,1,1,,B,19NS7Sp02wo?HETKA2K6mUM20<L=,0*27",
+            "!AIVDM,1,1,,B,14pWHb?P03rwO<F:RQOnROw<25bd,0*3E", "!AIVDM,1,1,,A,B3@o5g@0;0>Iwa7uckn:3wjUkP06,0*68",
+            "!AIVDM,1,1,,A,B3@o53@0CP>JlCWulF49wwk5kP06,0*20" };
+
+    private static final String MSG24_A = "!AIVDM,1,1,,A,H42O55i18tMET00000000000000,2*6D";
+    private static final String MSG24_B = "!AIVDM,1,1,,A,H42O55lti4hhhilD3nink000?050,0*40";
+
+    @Test
+    public void reuseTest() throws SentenceException, AisMessageException, SixbitException {
+        AisMessageDecoder decoder = new AisMessageDecoder();
+        Vdm vdm = new Vdm();
+        AisMessage first = null;
+        for (String sentence : SENTENCES) {
+            vdm.reset();
+            Assert.assertEquals(0, vdm.parse(sentence));
+            AisMessage reused = decoder.decode(vdm);
+            if (reused.getMsgId() == 1) {
+                if (first == null) {
+                    first = reused;
+                }
+                Assert.assertSame(first, reused);
+            }
+
+            Vdm freshVdm = new Vdm();
+            freshVdm.parse(sentence);
+            AisMessage fresh = AisMessage.getInstance(freshVdm);
+            Assert.assertEquals(fresh.toString(), reused.toString());
+            Assert.assertEquals(fresh.getUserId(), reused.getUserId());
+            Assert.assertEquals(((IVesselPositionMessage) fresh).getPos().getLatitude(),
+                    ((IVesselPositionMessage) reused).getPos().getLatitude());
+        }
+    }
+
+    @Test
+    public void multiSentenceTest() throws SentenceException, AisMessageException, SixbitException {
+        AisMessageDecoder decoder = new AisMessageDecoder();
+        Vdm vdm = new Vdm();
+        AisMessage5 first = null;
+        for (int i = 0; i < 2; i++) {
+            vdm.reset();
+            parseMsg5(vdm);
+            AisMessage5 msg = (AisMessage5) decoder.decode(vdm);
+            if (first == null) {
+                first = msg;
+            }
+            Assert.assertSame(first, msg);
+            Vdm freshVdm = new Vdm();
+            parseMsg5(freshVdm);
+            Assert.assertEquals(AisMessage.getInstance(freshVdm).toString(), msg.toString());
+        }
+    }
+
+    private static void parseMsg5(Vdm vdm) throws SentenceException {
+        Assert.assertEquals(1, vdm.parse("!AIVDM,2,1,6,B,55ArUT02:nkG<I8GB20nuJ0p5HTu>0hT9860TV16000006420BDi@E53,0*33"));
+        Assert.assertEquals(0, vdm.parse("!AIVDM,2,2,6,B,1KUDhH888888880,2*6A"));
+    }
+
+    @Test
+    public void msg24ResetTest() throws SentenceException, AisMessageException, SixbitException {
+        AisMessageDecoder decoder = new AisMessageDecoder();
+        Vdm vdm = new Vdm();
+        vdm.parse(MSG24_A);
+        AisMessage24 partA = (AisMessage24) decoder.decode(vdm);
+        Assert.assertEquals(0, partA.getPartNumber());
+        Assert.assertNotNull(partA.getName());
+        Assert.assertNull(partA.getCallsign());
+
+        vdm.reset();
+        vdm.parse(MSG24_B);
+        AisMessage24 partB = (AisMessage24) decoder.decode(vdm);
+        Assert.assertSame(partA, partB);
+        Assert.assertEquals(1, partB.getPartNumber());
+        Assert.assertNull(partB.getName());
+        Assert.assertNotNull(partB.getCallsign());
+    }
+
+    @Test
+    public void textResetTest() throws SixbitException {
+        // Text is not left from a previous message when decoding fails part-way
+        AisMessage12 msg12 = new AisMessage12();
+        msg12.setMessage("SAFETY");
+        msg12.reset();
+        Assert.assertNull(msg12.getMessage());
+        AisMessage14 msg14 = new AisMessage14();
+        BinArray binArray = new BinArray();
+        binArray.appendSixbit("2B?>", 0);
+        msg14.setMessage(binArray);
+        Assert.assertNotNull(msg14.getMessage());
+        msg14.reset();
+        Assert.assertNull(msg14.getMessage());
+    }
+
+    @Test(expected = AisMessageException.class)
+    public void wrongIdTest() throws SentenceException, AisMessageException, SixbitException {
+        Vdm vdm = new Vdm();
+        vdm.parse(SENTENCES[0]);
+        AisMessage msg = AisMessage.getInstance(vdm);
+        vdm.reset();
+        vdm.parse(SENTENCES[2]);
+        msg.reparse(vdm);
+    }
+
+}
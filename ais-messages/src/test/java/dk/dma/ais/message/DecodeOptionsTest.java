@@ -0,0 +1,94 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.ais.message;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import dk.dma.ais.binary.SixbitException;
+import dk.dma.ais.sentence.SentenceException;
+import dk.dma.ais.sentence.Vdm;
+
+public class DecodeOptionsTest {
+
+    private static final String MSG24_B = "!AIVDM,1,1,,A,H42O55lti4hhhilD3nink000?050,0*40";
+
+    @Test
+    public void coversTest() {
+        Assert.assertTrue(DecodeOptions.FULL.covers(DecodeOptions.NO_TEXT));
+        Assert.assertTrue(DecodeOptions.FULL.covers(DecodeOptions.HEADER_ONLY));
+        Assert.assertTrue(DecodeOptions.NO_TEXT.covers(DecodeOptions.HEADER_ONLY));
+        Assert.assertFalse(DecodeOptions.NO_TEXT.covers(DecodeOptions.FULL));
+        Assert.assertFalse(DecodeOptions.HEADER_ONLY.covers(DecodeOptions.NO_APPLICATION_MESSAGE));
+        Assert.assertFalse(DecodeOptions.NO_TEXT.covers(DecodeOptions.NO_APPLICATION_MESSAGE));
+        Assert.assertEquals(DecodeOptions.FULL, DecodeOptions.NO_TEXT.union(DecodeOptions.NO_APPLICATION_MESSAGE));
+    }
+
+    @Test
+    public void noTextTest() throws SentenceException, AisMessageException, SixbitException {
+        Vdm vdm = new Vdm();
+        vdm.parse(MSG24_B);
+        AisMessage24 full = (AisMessage24) AisMessage.getInstance(vdm);
+        vdm = new Vdm();
+        vdm.parse(MSG24_B);
+        AisMessage24 noText = (AisMessage24) AisMessage.getInstance(vdm, DecodeOptions.NO_TEXT);
+        Assert.assertNotNull(full.getCallsign());
+        Assert.assertNull(noText.getCallsign());
+        Assert.assertEquals(full.getShipType(), noText.getShipType());
+        Assert.assertEquals(full.getVendorId(), noText.getVendorId());
+        Assert.assertEquals(full.getDimBow(), noText.getDimBow());
+        Assert.assertEquals(full.getDimStarboard(), noText.getDimStarboard());
+    }
+
+    @Test
+    public void headerOnlyTest() throws SentenceException, AisMessageException, SixbitException {
+        Vdm vdm = new Vdm();
+        vdm.parse(MSG24_B);
+        AisMessage header = AisMessage.getInstance(vdm, DecodeOptions.HEADER_ONLY);
+        Assert.assertTrue(header instanceof AisMessageHeader);
+        Assert.assertEquals(24, header.getMsgId());
+        Assert.assertEquals(271041815, header.getUserId());
+        Assert.assertEquals(DecodeOptions.HEADER_ONLY, header.getDecodeOptions());
+    }
+
+    @Test
+    public void serializationTest() throws Exception {
+        Vdm vdm = new Vdm();
+        vdm.parse(MSG24_B);
+        AisMessage message = AisMessage.getInstance(vdm, DecodeOptions.NO_TEXT);
+        Assert.assertEquals(DecodeOptions.NO_TEXT, serialize(message).getDecodeOptions());
+
+        // As serialized before decode options were added
+        message.decodeOptions = null;
+        Assert.assertEquals(DecodeOptions.FULL, serialize(message).getDecodeOptions());
+    }
+
+    private static AisMessage serialize(AisMessage message) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(message);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            return (AisMessage) in.readObject();
+        }
+    }
+
+}
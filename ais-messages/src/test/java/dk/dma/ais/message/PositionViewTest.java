@@ -0,0 +1,67 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.ais.message;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import dk.dma.ais.binary.SixbitException;
+import dk.dma.ais.sentence.SentenceException;
+import dk.dma.ais.sentence.Vdm;
+
+public class PositionViewTest {
+
+    private static final String[] SENTENCES = { "!AIVDM,1,1,,B,19NS7Sp02wo?HETKA2K6mUM20<L=,0*27",
+            "!AIVDM,1,1,,B,14pWHb?P03rwO<F:RQOnROw<25bd,0*3E", "!AIVDM,1,1,,A,B3@o5g@0;0>Iwa7uckn:3wjUkP06,0*68",
+            "!AIVDM,1,1,,A,B3@o53@0CP>JlCWulF49wwk5kP06,0*20" };
+
+    @Test
+    public void viewTest() throws SentenceException, AisMessageException, SixbitException {
+        PositionView view = new PositionView();
+        for (String sentence : SENTENCES) {
+            Vdm vdm = new Vdm();
+            vdm.parse(sentence);
+            IVesselPositionMessage msg = (IVesselPositionMessage) AisMessage.getInstance(vdm);
+            Assert.assertTrue(view.wrap(vdm));
+            Assert.assertEquals(((AisMessage) msg).getMsgId(), view.getMsgId());
+            Assert.assertEquals(((AisMessage) msg).getUserId(), view.getUserId());
+            Assert.assertEquals(msg.getSog(), view.getSog());
+            Assert.assertEquals(msg.getCog(), view.getCog());
+            Assert.assertEquals(msg.getTrueHeading(), view.getTrueHeading());
+            Assert.assertEquals(msg.getUtcSec(), view.getUtcSec());
+            Assert.assertEquals(msg.getRaim(), view.getRaim());
+            Assert.assertEquals(msg.getPosAcc(), view.getPosAcc());
+            Assert.assertEquals(msg.getPos().getLatitude(), view.getLatitude());
+            Assert.assertEquals(msg.getPos().getLongitude(), view.getLongitude());
+            Assert.assertEquals(msg.getPos().getLatitudeDouble(), view.getLatitudeDouble(), 0.0);
+            Assert.assertEquals(msg.getPos().getLongitudeDouble(), view.getLongitudeDouble(), 0.0);
+            if (msg instanceof AisPositionMessage) {
+                Assert.assertEquals(((AisPositionMessage) msg).getNavStatus(), view.getNavStatus());
+                Assert.assertEquals(((AisPositionMessage) msg).getRot(), view.getRot());
+            }
+        }
+    }
+
+    @Test
+    public void wrongTypeTest() throws SentenceException {
+        Vdm vdm = new Vdm();
+        vdm.parse("!AIVDM,1,1,,,<>j?1GhlFfBPD5CDP6B?=P6BF,0*42");
+        PositionView view = new PositionView();
+        Assert.assertFalse(view.wrap(vdm));
+        Assert.assertFalse(view.isWrapped());
+    }
+
+}
@@ -0,0 +1,78 @@
+/* Copyright (c) 2011 Danish Maritime Authority
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dk.dma.ais.sentence;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SentenceLineTest {
+
+    @Test
+    public void fieldsTest() {
+        String[] lines = { "!AIVDM,1,1,,B,19NS7Sp02wo?HETKA2K6mUM20<L=,0*27",
+                "\\c:1354719387*0D\\!AIVDM,1,1,,B,19NS7Sp02wo?HETKA2K6mUM20<L=,0*27\r\n",
+                "!BSVDM,2,1,6,B,55ArUT02:nkG<I8GB20nuJ0p5HTu>0hT9860TV16000006420BDi@E53,0*33,1354719387",
+                "$AIABK,219015063,B,12,1,0*4C", "$PGHP,1,2010,6,11,11,46,11,929,244,0,,1,72*2A,,,", "!AIVDM,1,1*" };
+        SentenceLine sentenceLine = new SentenceLine();
+        for (String line : lines) {
+            sentenceLine.parse(line);
+            String msg = line.substring(line.startsWith("\\") ? line.indexOf('!') : 0);
+            String[] expected = msg.split(",|\\*");
+            Assert.assertArrayEquals(expected, sentenceLine.getFields());
+            Assert.assertEquals(msg, sentenceLine.getSentence());
+        }
+    }
+
+    @Test
+    public void typeTest() {
+        SentenceLine sentenceLine = new SentenceLine();
+        Assert.assertEquals(SentenceLine.Type.VDM, sentenceLine.parse("!AIVDM,1,1,,B,19NS7Sp02wo?HETKA2K6mUM20<L=,0*27"));
+        Assert.assertEquals(SentenceLine.Type.VDM, sentenceLine.parse("!AIVDO,1,1,,B,19NS7Sp02wo?HETKA2K6mUM20<L=,0*27"));
+        Assert.assertEquals(SentenceLine.Type.ABK, sentenceLine.parse("$AIABK,219015063,B,12,1,0*4C"));
+        Assert.assertEquals(SentenceLine.Type.PROPRIETARY, sentenceLine.parse("$PGHP,1,2010,6,11,11,46,11,929*2A"));
+        Assert.assertEquals(SentenceLine.Type.OTHER, sentenceLine.parse("$GPGGA,1,2*00"));
+        Assert.assertEquals(SentenceLine.Type.NONE, sentenceLine.parse("\\c:1354719387*0D\\"));
+        Assert.assertFalse(sentenceLine.hasSentence());
+        Assert.assertEquals(SentenceLine.Type.NONE, sentenceLine.parse(""));
+    }
+
+    @Test
+    public void checksumTest() throws SentenceException {
+        String line = "\\c:1354719387*0D\\!AIVDM,1,1,,B,19NS7Sp02wo?HETKA2K6mUM20<L=,0*27";
+        SentenceLine sentenceLine = new SentenceLine();
+        sentenceLine.parse(line);
+        Assert.assertEquals(Sentence.getChecksum(sentenceLine.getSentence()), sentenceLine.getCalculatedChecksum());
+        Assert.assertEquals(0x27, sentenceLine.getMessageChecksum());
+        Assert.assertEquals("\\c:1354719387*0D\\", sentenceLine.getPrefix());
+        Assert.assertEquals("AI", sentenceLine.getTalker());
+        Assert.assertEquals("VDM", sentenceLine.getFormatter());
+        Assert.assertEquals(1, sentenceLine.parseInt(1));
+        Assert.assertEquals('B', sentenceLine.getFieldChar(4));
+
+        sentenceLine.parse("!AIVDM,1,1,,B,19NS7Sp02wo?HETKA2K6mUM20<L=,0*Z7");
+        Assert.assertEquals(-1, sentenceLine.getMessageChecksum());
+        sentenceLine.parse("!AIVDM,1,1,,B,19NS7Sp0!2wo?HETKA2K6mUM20<L=,0*27");
+        Assert.assertTrue(sentenceLine.isStartCharBeforeChecksum());
+    }
+
+    @Test(expected = SentenceException.class)
+    public void parseIntTest() throws SentenceException {
+        SentenceLine sentenceLine = new SentenceLine();
+        sentenceLine.parse("!AIVDM,1,x,,B,19NS7Sp02wo?HETKA2K6mUM20<L=,0*27");
+        sentenceLine.parseInt(2);
+    }
+
+}
@@ -15,6 +15,8 @@
  */
 package dk.dma.ais.sentence;
 
+import java.util.Date;
+
 import junit.framework.Assert;
 
 import org.junit.Test;
@@ -72,4 +74,29 @@ public class VdmTest {
 
     }
 
+    @Test
+    public void copyTest() throws SentenceException, SixbitException, AisMessageException {
+        String line = "!AIVDM,1,1,,B,19NS7Sp02wo?HETKA2K6mUM20<L=,0*27,1357808400";
+        Vdm vdm = new Vdm();
+        Assert.assertEquals(0, vdm.parse(line));
+        Vdm copy = new Vdm(vdm);
+        Assert.assertEquals(vdm.getOrgLines(), copy.getOrgLines());
+        Assert.assertEquals(vdm.getMssisTimestamp(), copy.getMssisTimestamp());
+
+        // Parsing the original again does not show through in the copy
+        vdm.reset();
+        Assert.assertEquals(0, vdm.parse("!AIVDM,1,1,,A,B3@o5g@0;0>Iwa7uckn:3wjUkP06,0*68"));
+        Assert.assertEquals(1, copy.getOrgLines().size());
+        Assert.assertEquals(line, copy.getOrgLines().get(0));
+        Assert.assertEquals(1, copy.getMsgId());
+        Assert.assertEquals(new Date(1357808400000L), copy.getMssisTimestamp());
+        Assert.assertEquals(1, AisMessage.getInstance(copy).getMsgId());
+
+        // Parsing into the copy does not change the original
+        copy.reset();
+        Assert.assertEquals(0, copy.parse(line));
+        Assert.assertEquals(1, vdm.getOrgLines().size());
+        Assert.assertEquals(18, vdm.getMsgId());
+    }
+
 }
@@ -32,7 +32,7 @@ import dk.dma.ais.bus.AisBusFactory;
 import dk.dma.ais.bus.AisBusProvider;
 import dk.dma.ais.bus.consumer.TcpServerConsumer;
 import dk.dma.ais.bus.provider.TcpServerProvider;
-import dk.dma.ais.bus.tcp.TcpClient;
+import dk.dma.ais.bus.tcp.TcpServerClient;
 import dk.dma.commons.app.AbstractDaemon;
 
 /**
@@ -71,7 +71,7 @@ public class AisBusLauncher extends AbstractDaemon {
             for (AisBusProvider provider : aisBus.getProviders()) {
                 ratePrint(provider, provider.getName());
                 if (provider instanceof TcpServerProvider) {
-                    for (TcpClient tcpClient : ((TcpServerProvider) provider).getServer().getClients()) {
+                    for (TcpServerClient tcpClient : ((TcpServerProvider) provider).getServer().getClients()) {
                         ratePrint(tcpClient);
                     }
                 }
@@ -79,7 +79,7 @@ public class AisBusLauncher extends AbstractDaemon {
             for (AisBusConsumer consumer : aisBus.getConsumers()) {
                 ratePrint(consumer, consumer.getName());
                 if (consumer instanceof TcpServerConsumer) {
-                    for (TcpClient tcpClient : ((TcpServerConsumer) consumer).getServer().getClients()) {
+                    for (TcpServerClient tcpClient : ((TcpServerConsumer) consumer).getServer().getClients()) {
                         ratePrint(tcpClient);
                     }
                 }
@@ -90,7 +90,7 @@ public class AisBusLauncher extends AbstractDaemon {
 
     }
 
-    private void ratePrint(TcpClient tcpClient) {
+    private void ratePrint(TcpServerClient tcpClient) {
         LOG.debug(String.format("     %-15s %s", tcpClient.getRemoteHost(), tcpClient.rateReport()));
     }
 